@@ -34,6 +34,7 @@ import com.obliquity.mapping.*;
 public class OSNI2OSGBForm extends Panel implements ActionListener {
 	OSNI osni;
 	OSGB osgb;
+	GridTransformation osni2osgb;
 	Separator sep;
 	TextField eastings, northings;
 	List prefix;
@@ -44,6 +45,10 @@ public class OSNI2OSGBForm extends Panel implements ActionListener {
 	public OSNI2OSGBForm() {
 		osni = new OSNI();
 		osgb = new OSGB();
+		osni2osgb = new GridTransformation(osni,
+				HelmertTransformation.ETRS89_TO_IRL1975.getInverse()
+						.followedBy(HelmertTransformation.ETRS89_TO_OSGB36),
+				osgb);
 
 		myFormat.setMaximumFractionDigits(2);
 		myFormat.setMinimumFractionDigits(2);
@@ -211,9 +216,7 @@ public class OSNI2OSGBForm extends Panel implements ActionListener {
 		DPoint dp = osni.GridSquareToOffset(pfxs.charAt(0));
 		dp.offsetBy(p0);
 
-		DPoint p = osni.GridToLongitudeAndLatitude(dp);
-
-		DPoint osgbPoint = osgb.LatitudeAndLongitudeToGrid(p);
+		DPoint osgbPoint = osni2osgb.GridToGrid(dp);
 
 		String str;
 
@@ -0,0 +1,687 @@
+/*
+ * Map projections package
+ *
+ * Vincenty algorithms for distance on an ellipsoid, applied in bulk
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class solves geodesic problems on an ellipsoid for many points at
+ * once, using the same Vincenty formulae as <CODE>EllipsoidalArc</CODE> or,
+ * if <CODE>EllipsoidalArc.KARNEY</CODE> is selected, the series solution of
+ * Karney. The points and results are held in parallel arrays, and no
+ * objects are created.
+ * 
+ * <p>
+ * The constants which depend only upon the ellipsoid are calculated once,
+ * when the object is constructed, and the sines and cosines of the reduced
+ * latitudes are calculated once for each point rather than on every
+ * iteration. For the direct problem, the terms which depend upon the
+ * starting point are calculated once for each set of geodesics, and those
+ * which depend upon the azimuth once for each azimuth.
+ * 
+ * <p>
+ * Where <CODE>EllipsoidalArc</CODE> throws an
+ * <CODE>ArithmeticException</CODE> because the iteration fails to converge,
+ * as it may for nearly antipodal points, the functions of this class store
+ * <CODE>NaN</CODE> in the results for that point, carry on with the other
+ * points, and return the number of such failures.
+ * 
+ * <p>
+ * All angles are in <em>radians</em>, and distances are in the units of the
+ * semi-major axis of the ellipsoid. Instances hold no mutable state and may
+ * be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class BatchGeodesic {
+	private static final double TWO_PI = 2.0 * Math.PI;
+
+	private static final double EPSILON = 1e-8;
+	private static final int MAX_ITERATIONS = 10;
+
+	private final Ellipsoid ellipsoid;
+	private final int algorithm;
+
+	private final double f, oneMinusF, b, uFactor;
+
+	private final KarneyGeodesic karney;
+
+	/**
+	 * Construct an object which solves geodesic problems on the specified
+	 * ellipsoid using the Vincenty formulae.
+	 * 
+	 * @param e
+	 *            The ellipsoid.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the ellipsoid is null.
+	 */
+	public BatchGeodesic(Ellipsoid e) throws IllegalArgumentException {
+		this(e, EllipsoidalArc.VINCENTY);
+	}
+
+	/**
+	 * Construct an object which solves geodesic problems on the specified
+	 * ellipsoid using the specified algorithm. With
+	 * <CODE>EllipsoidalArc.KARNEY</CODE>, every calculation converges, and
+	 * the functions of this class report failures only for invalid
+	 * coordinates.
+	 * 
+	 * @param e
+	 *            The ellipsoid.
+	 * @param algorithm
+	 *            The algorithm, either <CODE>EllipsoidalArc.VINCENTY</CODE>
+	 *            or <CODE>EllipsoidalArc.KARNEY</CODE>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the ellipsoid is null or the algorithm is unknown.
+	 */
+	public BatchGeodesic(Ellipsoid e, int algorithm)
+			throws IllegalArgumentException {
+		if (e == null)
+			throw new IllegalArgumentException("Ellipsoid is null");
+
+		if (algorithm != EllipsoidalArc.VINCENTY
+				&& algorithm != EllipsoidalArc.KARNEY)
+			throw new IllegalArgumentException("Unknown algorithm: "
+					+ algorithm);
+
+		ellipsoid = e;
+		this.algorithm = algorithm;
+
+		karney = algorithm == EllipsoidalArc.KARNEY ? new KarneyGeodesic(e)
+				: null;
+
+		double a = e.getSemiMajorAxis();
+
+		f = e.getFlattening();
+		oneMinusF = 1.0 - f;
+		b = a * oneMinusF;
+		uFactor = (a * a - b * b) / (b * b);
+	}
+
+	/**
+	 * Return the ellipsoid on which the problems are solved.
+	 * 
+	 * @return The ellipsoid.
+	 */
+	public Ellipsoid getEllipsoid() {
+		return ellipsoid;
+	}
+
+	/**
+	 * Return the algorithm by which the problems are solved.
+	 * 
+	 * @return Either <CODE>EllipsoidalArc.VINCENTY</CODE> or
+	 *         <CODE>EllipsoidalArc.KARNEY</CODE>.
+	 */
+	public int getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Calculate the geodesic distance between each of a set of pairs of
+	 * points, and optionally the azimuths of the geodesic at each end. This
+	 * is the bulk equivalent of <CODE>EllipsoidalArc.calculateDistance</CODE>.
+	 * 
+	 * @param longitudesA
+	 *            The longitudes of the first point of each pair.
+	 * @param latitudesA
+	 *            The latitudes of the first point of each pair.
+	 * @param longitudesB
+	 *            The longitudes of the second point of each pair.
+	 * @param latitudesB
+	 *            The latitudes of the second point of each pair.
+	 * @param offset
+	 *            The index of the first pair.
+	 * @param length
+	 *            The number of pairs.
+	 * @param distances
+	 *            The array which will receive the distances, at the same
+	 *            indices as the corresponding pairs.
+	 * @param azimuthsA
+	 *            The array which will receive the azimuths of the geodesic at
+	 *            the first point, or null if they are not required.
+	 * @param azimuthsB
+	 *            The array which will receive the azimuths at the second
+	 *            point, measured as by <CODE>EllipsoidalArc</CODE>, or null
+	 *            if they are not required.
+	 * 
+	 * @return The number of pairs for which the iteration failed to
+	 *         converge, whose results are set to <CODE>NaN</CODE>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public int calculateDistances(double[] longitudesA, double[] latitudesA,
+			double[] longitudesB, double[] latitudesB, int offset,
+			int length, double[] distances, double[] azimuthsA,
+			double[] azimuthsB) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(longitudesA, offset, length,
+				"longitudesA");
+		TransverseMercatorProjection.checkRange(latitudesA, offset, length,
+				"latitudesA");
+		TransverseMercatorProjection.checkRange(longitudesB, offset, length,
+				"longitudesB");
+		TransverseMercatorProjection.checkRange(latitudesB, offset, length,
+				"latitudesB");
+		TransverseMercatorProjection.checkRange(distances, offset, length,
+				"distances");
+		if (azimuthsA != null)
+			TransverseMercatorProjection.checkRange(azimuthsA, offset,
+					length, "azimuthsA");
+		if (azimuthsB != null)
+			TransverseMercatorProjection.checkRange(azimuthsB, offset,
+					length, "azimuthsB");
+
+		double[] result = new double[3];
+		int failures = 0;
+
+		if (karney != null) {
+			KarneyGeodesic.Workspace w = new KarneyGeodesic.Workspace();
+
+			for (int i = offset; i < offset + length; i++) {
+				if (!karney.inverse(longitudesA[i], latitudesA[i],
+						longitudesB[i], latitudesB[i], w, result))
+					failures++;
+
+				distances[i] = result[0];
+
+				if (azimuthsA != null)
+					azimuthsA[i] = result[1];
+
+				if (azimuthsB != null)
+					azimuthsB[i] = result[2];
+			}
+
+			return failures;
+		}
+
+		for (int i = offset; i < offset + length; i++) {
+			double tanU1 = oneMinusF * Math.tan(latitudesA[i]);
+			double cosU1 = 1.0 / Math.sqrt(1.0 + tanU1 * tanU1);
+			double sinU1 = tanU1 * cosU1;
+
+			double tanU2 = oneMinusF * Math.tan(latitudesB[i]);
+			double cosU2 = 1.0 / Math.sqrt(1.0 + tanU2 * tanU2);
+			double sinU2 = tanU2 * cosU2;
+
+			if (!inverse(sinU1, cosU1, sinU2, cosU2, longitudesB[i]
+					- longitudesA[i], result)) {
+				failures++;
+			}
+
+			distances[i] = result[0];
+
+			if (azimuthsA != null)
+				azimuthsA[i] = result[1];
+
+			if (azimuthsB != null)
+				azimuthsB[i] = result[2];
+		}
+
+		return failures;
+	}
+
+	/*
+	 * Solve the inverse problem for one pair of points by the selected
+	 * algorithm. The sines and cosines of the reduced latitudes are used
+	 * only by the Vincenty formulae, and the workspace only by Karney's
+	 * method.
+	 */
+	boolean inverse(double lonA, double latA, double sinU1, double cosU1,
+			double lonB, double latB, double sinU2, double cosU2,
+			KarneyGeodesic.Workspace w, double[] result) {
+		if (karney != null)
+			return karney.inverse(lonA, latA, lonB, latB, w, result);
+		else
+			return inverse(sinU1, cosU1, sinU2, cosU2, lonB - lonA, result);
+	}
+
+	/*
+	 * Store the sines and cosines of the reduced latitudes of a set of
+	 * points.
+	 */
+	void reducedLatitudes(double[] latitudes, int offset, int length,
+			double[] sinU, double[] cosU) {
+		for (int i = 0; i < length; i++) {
+			double tanU = oneMinusF * Math.tan(latitudes[offset + i]);
+
+			cosU[i] = 1.0 / Math.sqrt(1.0 + tanU * tanU);
+			sinU[i] = tanU * cosU[i];
+		}
+	}
+
+	/*
+	 * Solve the inverse problem for one pair of points, given the sines and
+	 * cosines of their reduced latitudes and their difference in longitude,
+	 * storing the distance and the two azimuths in the array. Returns false,
+	 * having stored NaN, if the iteration fails to converge.
+	 */
+	boolean inverse(double sinU1, double cosU1, double sinU2, double cosU2,
+			double w, double[] result) {
+		if (w < -Math.PI)
+			w += TWO_PI;
+		if (w > Math.PI)
+			w -= TWO_PI;
+
+		double lambda = w, dlam = 0.0, lastdlam;
+		double sinlam, coslam, ssig, csig, sigma, salp, c2alp, c2sigm, C;
+		int nIters = 0;
+
+		double ss = sinU1 * sinU2, cc = cosU1 * cosU2;
+		double cs = cosU1 * sinU2, sc = sinU1 * cosU2;
+
+		do {
+			lastdlam = dlam;
+
+			sinlam = Math.sin(lambda);
+			coslam = Math.cos(lambda);
+
+			double p = cosU2 * sinlam;
+			double q = cs - sc * coslam;
+
+			ssig = Math.sqrt(p * p + q * q);
+
+			if (ssig == 0.0) {
+				result[0] = 0.0;
+				result[1] = 0.0;
+				result[2] = 0.0;
+				return true;
+			}
+
+			csig = ss + cc * coslam;
+
+			sigma = Math.atan2(ssig, csig);
+
+			salp = cc * sinlam / ssig;
+
+			c2alp = 1.0 - salp * salp;
+
+			c2sigm = c2alp != 0.0 ? csig - 2.0 * ss / c2alp : 0.0;
+
+			C = (f / 16.0) * c2alp * (4.0 + f * (4.0 - 3.0 * c2alp));
+
+			dlam = (1.0 - C)
+					* f
+					* salp
+					* (sigma + C
+							* ssig
+							* (c2sigm + C * csig
+									* (2.0 * c2sigm * c2sigm - 1.0)));
+
+			lambda = w + dlam;
+
+			nIters += 1;
+		} while ((Math.abs(dlam - lastdlam) > EPSILON)
+				&& (nIters <= MAX_ITERATIONS));
+
+		if (nIters > MAX_ITERATIONS || Double.isNaN(dlam)) {
+			result[0] = Double.NaN;
+			result[1] = Double.NaN;
+			result[2] = Double.NaN;
+			return false;
+		}
+
+		double u = c2alp * uFactor;
+
+		double A = 1.0 + (u / 16384.0)
+				* (4096.0 + u * (-768.0 + u * (320.0 - 175.0 * u)));
+
+		double B = (u / 1024.0)
+				* (256.0 + u * (-128.0 + u * (74.0 - 47.0 * u)));
+
+		double dsig = B
+				* ssig
+				* (c2sigm + (B / 4.0)
+						* (csig * (2.0 * c2sigm * c2sigm - 1.0) - (B / 6.0)
+								* c2sigm * (4.0 * ssig * ssig - 3.0)
+								* (4.0 * c2sigm * c2sigm - 3.0)));
+
+		sinlam = Math.sin(lambda);
+		coslam = Math.cos(lambda);
+
+		result[0] = b * A * (sigma - dsig);
+		result[1] = Math.atan2(cosU2 * sinlam, cs - sc * coslam);
+		result[2] = Math.atan2(-cosU1 * sinlam, sc - cs * coslam);
+
+		return true;
+	}
+
+	/*
+	 * The terms of the direct problem which depend only upon the starting
+	 * point and the azimuth. One of these is created for each bulk
+	 * calculation and re-used for every azimuth.
+	 */
+	private static final class DirectTerms {
+		double sa1, ca1, sigma1, sa, ca, A, B, C;
+	}
+
+	private void setAzimuth(double tanU1, double sinU1, double cosU1,
+			double azimuth, DirectTerms t) {
+		t.ca1 = Math.cos(azimuth);
+		t.sa1 = Math.sin(azimuth);
+
+		t.sigma1 = Math.atan2(tanU1, t.ca1);
+		t.sa = cosU1 * t.sa1;
+		t.ca = 1.0 - t.sa * t.sa;
+
+		double uu = t.ca * uFactor;
+
+		t.A = 1.0 + (uu / 16384.0)
+				* (4096.0 + uu * (-768.0 + uu * (320.0 - 175.0 * uu)));
+
+		t.B = (uu / 1024.0) * (256.0 + uu * (-128.0 + uu * (74.0 - 47.0 * uu)));
+
+		t.C = (f / 16.0) * t.ca * (4.0 + f * (4.0 - 3.0 * t.ca));
+	}
+
+	/**
+	 * Calculate the end points of a set of geodesics which start from the
+	 * same point, each with its own azimuth and distance. This is the bulk
+	 * equivalent of <CODE>EllipsoidalArc.calculatePosition</CODE>.
+	 * 
+	 * @param longitudeA
+	 *            The longitude of the starting point.
+	 * @param latitudeA
+	 *            The latitude of the starting point.
+	 * @param azimuths
+	 *            The azimuths of the geodesics at the starting point.
+	 * @param distances
+	 *            The lengths of the geodesics.
+	 * @param offset
+	 *            The index of the first geodesic.
+	 * @param length
+	 *            The number of geodesics.
+	 * @param longitudesB
+	 *            The array which will receive the longitudes of the end
+	 *            points, at the same indices as the corresponding geodesics.
+	 * @param latitudesB
+	 *            The array which will receive the latitudes of the end
+	 *            points.
+	 * @param azimuthsB
+	 *            The array which will receive the azimuths at the end points,
+	 *            measured as by <CODE>EllipsoidalArc</CODE>, or null if they
+	 *            are not required.
+	 * 
+	 * @return The number of geodesics for which the iteration failed to
+	 *         converge, whose results are set to <CODE>NaN</CODE>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public int calculatePositions(double longitudeA, double latitudeA,
+			double[] azimuths, double[] distances, int offset, int length,
+			double[] longitudesB, double[] latitudesB, double[] azimuthsB)
+			throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(azimuths, offset, length,
+				"azimuths");
+		TransverseMercatorProjection.checkRange(distances, offset, length,
+				"distances");
+		TransverseMercatorProjection.checkRange(longitudesB, offset, length,
+				"longitudesB");
+		TransverseMercatorProjection.checkRange(latitudesB, offset, length,
+				"latitudesB");
+		if (azimuthsB != null)
+			TransverseMercatorProjection.checkRange(azimuthsB, offset,
+					length, "azimuthsB");
+
+		double[] result = new double[3];
+		int failures = 0;
+
+		if (karney != null) {
+			KarneyGeodesic.Line line = new KarneyGeodesic.Line();
+
+			for (int i = offset; i < offset + length; i++) {
+				karney.setLine(latitudeA, azimuths[i], line);
+
+				if (!karney.position(line, distances[i], result))
+					failures++;
+
+				longitudesB[i] = longitudeA + result[0];
+				latitudesB[i] = result[1];
+
+				if (azimuthsB != null)
+					azimuthsB[i] = result[2];
+			}
+
+			return failures;
+		}
+
+		double tanU1 = oneMinusF * Math.tan(latitudeA);
+		double cosU1 = 1.0 / Math.sqrt(1.0 + tanU1 * tanU1);
+		double sinU1 = tanU1 * cosU1;
+
+		DirectTerms t = new DirectTerms();
+
+		for (int i = offset; i < offset + length; i++) {
+			setAzimuth(tanU1, sinU1, cosU1, azimuths[i], t);
+
+			if (!direct(sinU1, cosU1, t, distances[i], result))
+				failures++;
+
+			longitudesB[i] = longitudeA + result[0];
+			latitudesB[i] = result[1];
+
+			if (azimuthsB != null)
+				azimuthsB[i] = result[2];
+		}
+
+		return failures;
+	}
+
+	/**
+	 * Calculate the end points of every combination of a set of azimuths
+	 * and a set of distances from the same starting point, as needed for
+	 * range rings and sensor footprints. The terms which depend upon the
+	 * azimuth are calculated once for each azimuth, and only the iteration
+	 * for the arc length is repeated for each distance.
+	 * 
+	 * <p>
+	 * The result for azimuth <CODE>i</CODE> and distance <CODE>j</CODE>,
+	 * counting from zero within the specified ranges, is stored at index
+	 * <CODE>resultOffset + i * distanceCount + j</CODE> of the output
+	 * arrays.
+	 * 
+	 * @param longitudeA
+	 *            The longitude of the starting point.
+	 * @param latitudeA
+	 *            The latitude of the starting point.
+	 * @param azimuths
+	 *            The azimuths at the starting point.
+	 * @param azimuthOffset
+	 *            The index of the first azimuth.
+	 * @param azimuthCount
+	 *            The number of azimuths.
+	 * @param distances
+	 *            The distances from the starting point.
+	 * @param distanceOffset
+	 *            The index of the first distance.
+	 * @param distanceCount
+	 *            The number of distances.
+	 * @param longitudesB
+	 *            The array which will receive the longitudes of the end
+	 *            points.
+	 * @param latitudesB
+	 *            The array which will receive the latitudes of the end
+	 *            points.
+	 * @param azimuthsB
+	 *            The array which will receive the azimuths at the end points,
+	 *            measured as by <CODE>EllipsoidalArc</CODE>, or null if they
+	 *            are not required.
+	 * @param resultOffset
+	 *            The index in the output arrays of the first result.
+	 * 
+	 * @return The number of end points for which the iteration failed to
+	 *         converge, whose results are set to <CODE>NaN</CODE>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public int calculateFan(double longitudeA, double latitudeA,
+			double[] azimuths, int azimuthOffset, int azimuthCount,
+			double[] distances, int distanceOffset, int distanceCount,
+			double[] longitudesB, double[] latitudesB, double[] azimuthsB,
+			int resultOffset) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(azimuths, azimuthOffset,
+				azimuthCount, "azimuths");
+		TransverseMercatorProjection.checkRange(distances, distanceOffset,
+				distanceCount, "distances");
+
+		long total = (long) azimuthCount * distanceCount;
+
+		if (total > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many results: " + total);
+
+		int count = (int) total;
+
+		TransverseMercatorProjection.checkRange(longitudesB, resultOffset,
+				count, "longitudesB");
+		TransverseMercatorProjection.checkRange(latitudesB, resultOffset,
+				count, "latitudesB");
+		if (azimuthsB != null)
+			TransverseMercatorProjection.checkRange(azimuthsB, resultOffset,
+					count, "azimuthsB");
+
+		double[] result = new double[3];
+		int failures = 0;
+
+		int k = resultOffset;
+
+		if (karney != null) {
+			KarneyGeodesic.Line line = new KarneyGeodesic.Line();
+
+			for (int i = azimuthOffset; i < azimuthOffset + azimuthCount; i++) {
+				karney.setLine(latitudeA, azimuths[i], line);
+
+				for (int j = 0; j < distanceCount; j++, k++) {
+					if (!karney.position(line, distances[distanceOffset + j],
+							result))
+						failures++;
+
+					longitudesB[k] = longitudeA + result[0];
+					latitudesB[k] = result[1];
+
+					if (azimuthsB != null)
+						azimuthsB[k] = result[2];
+				}
+			}
+
+			return failures;
+		}
+
+		double tanU1 = oneMinusF * Math.tan(latitudeA);
+		double cosU1 = 1.0 / Math.sqrt(1.0 + tanU1 * tanU1);
+		double sinU1 = tanU1 * cosU1;
+
+		DirectTerms t = new DirectTerms();
+
+		for (int i = azimuthOffset; i < azimuthOffset + azimuthCount; i++) {
+			setAzimuth(tanU1, sinU1, cosU1, azimuths[i], t);
+
+			for (int j = 0; j < distanceCount; j++, k++) {
+				if (!direct(sinU1, cosU1, t, distances[distanceOffset + j],
+						result))
+					failures++;
+
+				longitudesB[k] = longitudeA + result[0];
+				latitudesB[k] = result[1];
+
+				if (azimuthsB != null)
+					azimuthsB[k] = result[2];
+			}
+		}
+
+		return failures;
+	}
+
+	/*
+	 * Solve the direct problem for one distance, storing the difference in
+	 * longitude, the latitude of the end point and the azimuth there in the
+	 * array. Returns false, having stored NaN, if the iteration fails to
+	 * converge.
+	 */
+	private boolean direct(double sinU1, double cosU1, DirectTerms t,
+			double distance, double[] result) {
+		double sigma0 = distance / (b * t.A);
+		double sigma = sigma0, twosm = 2.0 * t.sigma1 + sigma;
+		double c2sm, ssig, csig, dsig = 0.0, lastdsig;
+		int nIters = 0;
+
+		do {
+			lastdsig = dsig;
+
+			c2sm = Math.cos(twosm);
+			ssig = Math.sin(sigma);
+			csig = Math.cos(sigma);
+
+			dsig = t.B
+					* ssig
+					* (c2sm + (t.B / 4.0)
+							* (csig * (-1.0 + 2.0 * c2sm * c2sm) - (t.B / 6.0)
+									* c2sm * (-3.0 + 4.0 * ssig * ssig)
+									* (-3.0 + 4.0 * c2sm * c2sm)));
+
+			sigma = sigma0 + dsig;
+
+			twosm = 2.0 * t.sigma1 + sigma;
+
+			nIters += 1;
+		} while ((Math.abs(dsig - lastdsig) > EPSILON)
+				&& (nIters <= MAX_ITERATIONS));
+
+		if (nIters > MAX_ITERATIONS || Double.isNaN(dsig)) {
+			result[0] = Double.NaN;
+			result[1] = Double.NaN;
+			result[2] = Double.NaN;
+			return false;
+		}
+
+		c2sm = Math.cos(twosm);
+		ssig = Math.sin(sigma);
+		csig = Math.cos(sigma);
+
+		double x = sinU1 * ssig - cosU1 * csig * t.ca1;
+
+		result[1] = Math.atan2(sinU1 * csig + cosU1 * ssig * t.ca1, oneMinusF
+				* Math.sqrt(x * x + t.sa * t.sa));
+
+		double lambda = Math.atan2(ssig * t.sa1, cosU1 * csig - sinU1 * ssig
+				* t.ca1);
+
+		result[0] = lambda
+				- (1.0 - t.C)
+				* f
+				* t.sa
+				* (sigma + t.C * ssig
+						* (c2sm + (t.C * csig * (-1.0 + 2.0 * c2sm * c2sm))));
+
+		result[2] = Math.atan2(-t.sa, x);
+
+		return true;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Map projections package
+ *
+ * Running numbered pieces of work on an executor
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package com.obliquity.mapping;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class runs a number of independent pieces of work, such as the chunks
+ * of a bulk conversion or the tiles of a distance matrix, on an
+ * <CODE>Executor</CODE>, and waits for all of them to finish.
+ * 
+ * <p>
+ * Every piece which has been submitted has finished before
+ * <CODE>run</CODE> returns or throws, even if the executor rejects a piece,
+ * so no work continues to write into the caller's arrays afterwards.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+abstract class ChunkedTask {
+	/**
+	 * Perform one piece of work.
+	 * 
+	 * @param chunk
+	 *            The index of the piece, from zero to one less than the
+	 *            number of pieces.
+	 */
+	abstract void runChunk(int chunk);
+
+	/**
+	 * Run every piece of work on the specified executor, and wait for them
+	 * all to finish.
+	 * 
+	 * @param executor
+	 *            The executor which will run the pieces.
+	 * @param nChunks
+	 *            The number of pieces.
+	 * 
+	 * @throws RejectedExecutionException
+	 *             if the executor rejects a piece. The pieces after it are
+	 *             not run, but those already submitted have finished.
+	 * @throws RuntimeException
+	 *             the first exception thrown by any of the pieces, after all
+	 *             of them have finished. A checked exception is wrapped in a
+	 *             <CODE>RuntimeException</CODE>.
+	 * @throws Error
+	 *             the first error thrown by any of the pieces, such as an
+	 *             <CODE>OutOfMemoryError</CODE>, after all of them have
+	 *             finished. An error takes precedence over a rejection.
+	 */
+	final void run(Executor executor, int nChunks)
+			throws RejectedExecutionException {
+		final CountDownLatch latch = new CountDownLatch(nChunks);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		RejectedExecutionException rejection = null;
+
+		for (int k = 0; k < nChunks; k++) {
+			final int chunk = k;
+
+			try {
+				executor.execute(new Runnable() {
+					public void run() {
+						try {
+							runChunk(chunk);
+						} catch (Throwable t) {
+							failure.compareAndSet(null, t);
+						} finally {
+							latch.countDown();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				/*
+				 * Account for this piece and every later one, which will never
+				 * run, so that the wait below ends when the submitted pieces
+				 * have finished.
+				 */
+				for (int j = k; j < nChunks; j++)
+					latch.countDown();
+
+				rejection = e;
+				break;
+			}
+		}
+
+		boolean interrupted = false;
+
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		Throwable t = failure.get();
+
+		if (t instanceof Error)
+			throw (Error) t;
+
+		if (rejection != null)
+			throw rejection;
+
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+
+		if (t != null)
+			throw new RuntimeException(t);
+	}
+}
@@ -0,0 +1,433 @@
+/*
+ * Map projections package
+ *
+ * Formatting of latitudes, longitudes and grid coordinates
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * This class formats latitudes and longitudes, either in decimal degrees or
+ * in degrees, minutes and seconds, and formats other numbers with a fixed
+ * number of decimal places. The text is written as ASCII into a
+ * <CODE>byte</CODE> array or appended to an <CODE>Appendable</CODE> such as
+ * a <CODE>StringBuilder</CODE> or a <CODE>Writer</CODE>, without creating
+ * any objects except in the rare case of a decimal value which lies within
+ * rounding error of halfway between two results.
+ * 
+ * <p>
+ * Latitudes and longitudes are supplied in <em>radians</em>, as returned by
+ * the projection classes. In decimal degrees they are written with a sign,
+ * for example <CODE>-0.1248080</CODE>. In degrees, minutes and seconds they
+ * are written with a hemisphere letter, for example
+ * <CODE>0 07 29.31 W</CODE>. Values are rounded to the nearest unit in the
+ * last place, carrying into the minutes and degrees where necessary.
+ * Decimal values which lie halfway between two units are rounded up in
+ * magnitude, giving the same digits as <CODE>String.format</CODE>.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class CoordinateFormat {
+	/**
+	 * Format angles in decimal degrees.
+	 */
+	public static final int DECIMAL_DEGREES = 0;
+
+	/**
+	 * Format angles in degrees, minutes and seconds.
+	 */
+	public static final int DEGREES_MINUTES_SECONDS = 1;
+
+	/**
+	 * The maximum number of characters written by any of the formatting
+	 * functions.
+	 */
+	public static final int MAX_LENGTH = 32;
+
+	/**
+	 * The maximum number of decimal places.
+	 */
+	public static final int MAX_DECIMALS = 9;
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		POWERS_OF_TEN[0] = 1L;
+
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = 10L * POWERS_OF_TEN[i - 1];
+	}
+
+	/*
+	 * Values whose scaled magnitude reaches this limit cannot be rounded to
+	 * a long, and are written by Double.toString instead.
+	 */
+	private static final double LIMIT = 9.0e18;
+
+	/*
+	 * Scaled magnitudes of this size or more are whole numbers.
+	 */
+	private static final double TWO_POWER_52 = 4503599627370496.0;
+
+	private final int style;
+	private final int decimals;
+
+	/**
+	 * Construct a format for latitudes and longitudes.
+	 * 
+	 * @param style
+	 *            Either <CODE>DECIMAL_DEGREES</CODE> or
+	 *            <CODE>DEGREES_MINUTES_SECONDS</CODE>.
+	 * @param decimals
+	 *            The number of decimal places of the degrees or of the
+	 *            seconds, from 0 to <CODE>MAX_DECIMALS</CODE>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either argument is out of range.
+	 */
+	public CoordinateFormat(int style, int decimals)
+			throws IllegalArgumentException {
+		if (style != DECIMAL_DEGREES && style != DEGREES_MINUTES_SECONDS)
+			throw new IllegalArgumentException("Unknown style " + style);
+
+		checkDecimals(decimals);
+
+		this.style = style;
+		this.decimals = decimals;
+	}
+
+	/**
+	 * Return the style of this format.
+	 * 
+	 * @return Either <CODE>DECIMAL_DEGREES</CODE> or
+	 *         <CODE>DEGREES_MINUTES_SECONDS</CODE>.
+	 */
+	public int getStyle() {
+		return style;
+	}
+
+	/**
+	 * Return the number of decimal places of this format.
+	 * 
+	 * @return The number of decimal places.
+	 */
+	public int getDecimals() {
+		return decimals;
+	}
+
+	private static void checkDecimals(int decimals)
+			throws IllegalArgumentException {
+		if (decimals < 0 || decimals > MAX_DECIMALS)
+			throw new IllegalArgumentException("Number of decimals "
+					+ decimals + " is not between 0 and " + MAX_DECIMALS);
+	}
+
+	/**
+	 * Write a latitude as ASCII text into a byte array.
+	 * 
+	 * @param latitude
+	 *            The latitude, in <em>radians</em>.
+	 * @param buf
+	 *            The array which will receive the text. It must have room for
+	 *            up to <CODE>MAX_LENGTH</CODE> bytes.
+	 * @param pos
+	 *            The index in <CODE>buf</CODE> at which the text will begin.
+	 * 
+	 * @return The index after the last byte written.
+	 */
+	public int formatLatitude(double latitude, byte[] buf, int pos) {
+		return formatAngle(latitude, 'N', 'S', buf, pos);
+	}
+
+	/**
+	 * Write a longitude as ASCII text into a byte array.
+	 * 
+	 * @param longitude
+	 *            The longitude, in <em>radians</em>.
+	 * @param buf
+	 *            The array which will receive the text. It must have room for
+	 *            up to <CODE>MAX_LENGTH</CODE> bytes.
+	 * @param pos
+	 *            The index in <CODE>buf</CODE> at which the text will begin.
+	 * 
+	 * @return The index after the last byte written.
+	 */
+	public int formatLongitude(double longitude, byte[] buf, int pos) {
+		return formatAngle(longitude, 'E', 'W', buf, pos);
+	}
+
+	/**
+	 * Append a latitude to the specified destination.
+	 * 
+	 * @param latitude
+	 *            The latitude, in <em>radians</em>.
+	 * @param out
+	 *            The destination of the text.
+	 * 
+	 * @throws IOException
+	 *             if the destination throws an <CODE>IOException</CODE>.
+	 */
+	public void formatLatitude(double latitude, Appendable out)
+			throws IOException {
+		formatAngle(latitude, 'N', 'S', out);
+	}
+
+	/**
+	 * Append a longitude to the specified destination.
+	 * 
+	 * @param longitude
+	 *            The longitude, in <em>radians</em>.
+	 * @param out
+	 *            The destination of the text.
+	 * 
+	 * @throws IOException
+	 *             if the destination throws an <CODE>IOException</CODE>.
+	 */
+	public void formatLongitude(double longitude, Appendable out)
+			throws IOException {
+		formatAngle(longitude, 'E', 'W', out);
+	}
+
+	private int formatAngle(double angle, char positive, char negative,
+			byte[] buf, int pos) {
+		double degrees = (180.0 / Math.PI) * angle;
+
+		if (style == DECIMAL_DEGREES)
+			return formatDecimal(degrees, decimals, buf, pos);
+
+		double scaled = Math.abs(degrees) * 3600.0 * POWERS_OF_TEN[decimals];
+
+		if (!(scaled < LIMIT))
+			return putString(Double.toString(degrees), buf, pos);
+
+		long units = Math.round(scaled);
+		long seconds = units / POWERS_OF_TEN[decimals];
+
+		pos = putLong(seconds / 3600, buf, pos);
+		buf[pos++] = ' ';
+		pos = putDigits((seconds / 60) % 60, 2, buf, pos);
+		buf[pos++] = ' ';
+		pos = putDigits(seconds % 60, 2, buf, pos);
+
+		if (decimals > 0) {
+			buf[pos++] = '.';
+			pos = putDigits(units % POWERS_OF_TEN[decimals], decimals, buf,
+					pos);
+		}
+
+		buf[pos++] = ' ';
+		buf[pos++] = (byte) (degrees < 0.0 && units != 0 ? negative
+				: positive);
+
+		return pos;
+	}
+
+	private void formatAngle(double angle, char positive, char negative,
+			Appendable out) throws IOException {
+		double degrees = (180.0 / Math.PI) * angle;
+
+		if (style == DECIMAL_DEGREES) {
+			formatDecimal(degrees, decimals, out);
+			return;
+		}
+
+		double scaled = Math.abs(degrees) * 3600.0 * POWERS_OF_TEN[decimals];
+
+		if (!(scaled < LIMIT)) {
+			out.append(Double.toString(degrees));
+			return;
+		}
+
+		long units = Math.round(scaled);
+		long seconds = units / POWERS_OF_TEN[decimals];
+
+		appendLong(seconds / 3600, out);
+		out.append(' ');
+		appendDigits((seconds / 60) % 60, 2, out);
+		out.append(' ');
+		appendDigits(seconds % 60, 2, out);
+
+		if (decimals > 0) {
+			out.append('.');
+			appendDigits(units % POWERS_OF_TEN[decimals], decimals, out);
+		}
+
+		out.append(' ');
+		out.append(degrees < 0.0 && units != 0 ? negative : positive);
+	}
+
+	/**
+	 * Write a number with a fixed number of decimal places as ASCII text into
+	 * a byte array. Numbers too large to be written in this way, and
+	 * non-finite values, are written as by <CODE>Double.toString</CODE>.
+	 * 
+	 * @param value
+	 *            The number.
+	 * @param decimals
+	 *            The number of decimal places, from 0 to
+	 *            <CODE>MAX_DECIMALS</CODE>.
+	 * @param buf
+	 *            The array which will receive the text. It must have room for
+	 *            up to <CODE>MAX_LENGTH</CODE> bytes.
+	 * @param pos
+	 *            The index in <CODE>buf</CODE> at which the text will begin.
+	 * 
+	 * @return The index after the last byte written.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the number of decimal places is out of range.
+	 */
+	public static int formatDecimal(double value, int decimals, byte[] buf,
+			int pos) throws IllegalArgumentException {
+		checkDecimals(decimals);
+
+		double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+
+		if (!(scaled < LIMIT))
+			return putString(Double.toString(value), buf, pos);
+
+		long units = round(scaled, value, decimals);
+
+		if (value < 0.0 && units != 0)
+			buf[pos++] = '-';
+
+		pos = putLong(units / POWERS_OF_TEN[decimals], buf, pos);
+
+		if (decimals > 0) {
+			buf[pos++] = '.';
+			pos = putDigits(units % POWERS_OF_TEN[decimals], decimals, buf,
+					pos);
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Append a number with a fixed number of decimal places to the specified
+	 * destination. Numbers too large to be written in this way, and
+	 * non-finite values, are written as by <CODE>Double.toString</CODE>.
+	 * 
+	 * @param value
+	 *            The number.
+	 * @param decimals
+	 *            The number of decimal places, from 0 to
+	 *            <CODE>MAX_DECIMALS</CODE>.
+	 * @param out
+	 *            The destination of the text.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the number of decimal places is out of range.
+	 * @throws IOException
+	 *             if the destination throws an <CODE>IOException</CODE>.
+	 */
+	public static void formatDecimal(double value, int decimals, Appendable out)
+			throws IllegalArgumentException, IOException {
+		checkDecimals(decimals);
+
+		double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+
+		if (!(scaled < LIMIT)) {
+			out.append(Double.toString(value));
+			return;
+		}
+
+		long units = round(scaled, value, decimals);
+
+		if (value < 0.0 && units != 0)
+			out.append('-');
+
+		appendLong(units / POWERS_OF_TEN[decimals], out);
+
+		if (decimals > 0) {
+			out.append('.');
+			appendDigits(units % POWERS_OF_TEN[decimals], decimals, out);
+		}
+	}
+
+	/*
+	 * Round a scaled magnitude to a whole number of units in the last decimal
+	 * place. When it lies within rounding error of halfway between two
+	 * units, the shortest decimal representation of the value is rounded
+	 * half up instead, which is what String.format does. Only then is an
+	 * object created.
+	 */
+	private static long round(double scaled, double value, int decimals) {
+		if (scaled >= TWO_POWER_52
+				|| Math.abs(scaled - Math.floor(scaled) - 0.5) > 4.0 * Math
+						.ulp(scaled))
+			return Math.round(scaled);
+
+		return new BigDecimal(Double.toString(Math.abs(value))).setScale(
+				decimals, RoundingMode.HALF_UP).unscaledValue().longValue();
+	}
+
+	private static int putString(String s, byte[] buf, int pos) {
+		for (int i = 0; i < s.length(); i++)
+			buf[pos++] = (byte) s.charAt(i);
+
+		return pos;
+	}
+
+	private static int putLong(long value, byte[] buf, int pos) {
+		int digits = 1;
+
+		for (long v = value / 10; v > 0; v /= 10)
+			digits++;
+
+		return putDigits(value, digits, buf, pos);
+	}
+
+	private static int putDigits(long value, int digits, byte[] buf, int pos) {
+		for (int i = pos + digits - 1; i >= pos; i--) {
+			buf[i] = (byte) ('0' + (int) (value % 10));
+			value /= 10;
+		}
+
+		return pos + digits;
+	}
+
+	private static void appendLong(long value, Appendable out)
+			throws IOException {
+		int digits = 1;
+
+		for (long v = value / 10; v > 0; v /= 10)
+			digits++;
+
+		appendDigits(value, digits, out);
+	}
+
+	private static void appendDigits(long value, int digits, Appendable out)
+			throws IOException {
+		for (int i = digits - 1; i >= 0; i--)
+			out.append((char) ('0' + (int) ((value / POWERS_OF_TEN[i]) % 10)));
+	}
+}
@@ -72,6 +72,15 @@ public class DPoint extends java.lang.Object {
 		return myY;
 	}
 
+	/*
+	 * Set both coordinates of the point. This is used by the projections to
+	 * return a result without creating a temporary object.
+	 */
+	void setLocation(double x, double y) {
+		myX = x;
+		myY = y;
+	}
+
 	/**
 	 * Format the point as a string.
 	 */
@@ -26,12 +26,62 @@
 
 package com.obliquity.mapping;
 
+/**
+ * This class represents an ellipsoid of revolution, defined by its semi-major
+ * axis and its flattening. The semi-major axis may be in any unit of length,
+ * and all lengths calculated from it are in the same unit.
+ * 
+ * <p>
+ * In addition to holding the parameters used by the geodesic algorithms, this
+ * class converts between geodetic coordinates (longitude, latitude and
+ * height above the ellipsoid) and Cartesian coordinates with their origin at
+ * the centre of the ellipsoid, the Z axis along the polar axis and the X axis
+ * in the plane of the zero meridian.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ */
+
 public class Ellipsoid {
-	private double semiMajorAxis, flattening;
+	/**
+	 * The WGS84 ellipsoid, in <em>metres</em>.
+	 */
+	public static final Ellipsoid WGS84 = new Ellipsoid(6378137.0,
+			1.0 / 298.257223563);
+
+	/**
+	 * The GRS80 ellipsoid, in <em>metres</em>, which is the basis of ETRS89.
+	 */
+	public static final Ellipsoid GRS80 = new Ellipsoid(6378137.0,
+			1.0 / 298.257222101);
+
+	/**
+	 * The Airy 1830 ellipsoid, in <em>metres</em>, which is the basis of the
+	 * OSGB36 datum and of the British National Grid.
+	 */
+	public static final Ellipsoid AIRY_1830 = new Ellipsoid(6377563.396,
+			1.0 - 6356256.910 / 6377563.396);
+
+	/**
+	 * The modified Airy ellipsoid, in <em>metres</em>, which is the basis of
+	 * the Irish datum and of the Irish Grid.
+	 */
+	public static final Ellipsoid AIRY_MODIFIED = new Ellipsoid(6377340.189,
+			1.0 - Math.sqrt(1.0 - 0.006670540));
+
+	private final double semiMajorAxis, flattening;
+
+	private final double eSquared, ePrimeSquared, semiMinorAxis;
 
 	public Ellipsoid(double a, double f) {
 		semiMajorAxis = a;
 		flattening = f;
+
+		semiMinorAxis = a * (1.0 - f);
+		eSquared = f * (2.0 - f);
+		ePrimeSquared = eSquared / ((1.0 - f) * (1.0 - f));
 	}
 
 	public double getSemiMajorAxis() {
@@ -41,4 +91,152 @@ public class Ellipsoid {
 	public double getFlattening() {
 		return flattening;
 	}
+
+	/**
+	 * Convert a block of geodetic coordinates to Cartesian coordinates. No
+	 * objects are created during the conversion.
+	 * 
+	 * @param longitudes
+	 *            The longitudes of the points, in <em>radians</em>.
+	 * @param latitudes
+	 *            The latitudes of the points, in <em>radians</em>.
+	 * @param heights
+	 *            The heights of the points above the ellipsoid, or null if
+	 *            the points lie on the ellipsoid.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param x
+	 *            The array which will receive the X coordinates, at the same
+	 *            indices as the corresponding input points.
+	 * @param y
+	 *            The array which will receive the Y coordinates.
+	 * @param z
+	 *            The array which will receive the Z coordinates.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public void GeodeticToCartesian(double[] longitudes, double[] latitudes,
+			double[] heights, int offset, int length, double[] x, double[] y,
+			double[] z) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+		if (heights != null)
+			TransverseMercatorProjection.checkRange(heights, offset, length,
+					"heights");
+		TransverseMercatorProjection.checkRange(x, offset, length, "x");
+		TransverseMercatorProjection.checkRange(y, offset, length, "y");
+		TransverseMercatorProjection.checkRange(z, offset, length, "z");
+
+		double[] xyz = new double[3];
+
+		for (int i = offset; i < offset + length; i++) {
+			geodeticToCartesian(longitudes[i], latitudes[i],
+					heights == null ? 0.0 : heights[i], xyz);
+
+			x[i] = xyz[0];
+			y[i] = xyz[1];
+			z[i] = xyz[2];
+		}
+	}
+
+	/**
+	 * Convert a block of Cartesian coordinates to geodetic coordinates, using
+	 * Bowring's formula, which is accurate to well under a millimetre for
+	 * points within a few kilometres of the surface of the ellipsoid. No
+	 * objects are created during the conversion.
+	 * 
+	 * @param x
+	 *            The X coordinates of the points.
+	 * @param y
+	 *            The Y coordinates of the points.
+	 * @param z
+	 *            The Z coordinates of the points.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param longitudes
+	 *            The array which will receive the longitudes, in
+	 *            <em>radians</em>, at the same indices as the corresponding
+	 *            input points.
+	 * @param latitudes
+	 *            The array which will receive the latitudes, in
+	 *            <em>radians</em>.
+	 * @param heights
+	 *            The array which will receive the heights above the
+	 *            ellipsoid, or null if they are not required.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public void CartesianToGeodetic(double[] x, double[] y, double[] z,
+			int offset, int length, double[] longitudes, double[] latitudes,
+			double[] heights) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(x, offset, length, "x");
+		TransverseMercatorProjection.checkRange(y, offset, length, "y");
+		TransverseMercatorProjection.checkRange(z, offset, length, "z");
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+		if (heights != null)
+			TransverseMercatorProjection.checkRange(heights, offset, length,
+					"heights");
+
+		double[] llh = new double[3];
+
+		for (int i = offset; i < offset + length; i++) {
+			cartesianToGeodetic(x[i], y[i], z[i], llh);
+
+			longitudes[i] = llh[0];
+			latitudes[i] = llh[1];
+
+			if (heights != null)
+				heights[i] = llh[2];
+		}
+	}
+
+	/*
+	 * Convert a single point, storing X, Y and Z in the array.
+	 */
+	void geodeticToCartesian(double lambda, double phi, double h, double[] xyz) {
+		double sinphi = Math.sin(phi);
+		double cosphi = Math.cos(phi);
+
+		double nu = semiMajorAxis / Math.sqrt(1.0 - eSquared * sinphi * sinphi);
+
+		double r = (nu + h) * cosphi;
+
+		xyz[0] = r * Math.cos(lambda);
+		xyz[1] = r * Math.sin(lambda);
+		xyz[2] = ((1.0 - eSquared) * nu + h) * sinphi;
+	}
+
+	/*
+	 * Convert a single point, storing longitude, latitude and height in the
+	 * array.
+	 */
+	void cartesianToGeodetic(double x, double y, double z, double[] llh) {
+		double p = Math.sqrt(x * x + y * y);
+
+		double theta = Math.atan2(z * semiMajorAxis, p * semiMinorAxis);
+		double sintheta = Math.sin(theta);
+		double costheta = Math.cos(theta);
+
+		double phi = Math.atan2(z + ePrimeSquared * semiMinorAxis * sintheta
+				* sintheta * sintheta, p - eSquared * semiMajorAxis * costheta
+				* costheta * costheta);
+
+		double sinphi = Math.sin(phi);
+
+		llh[0] = Math.atan2(y, x);
+		llh[1] = phi;
+		llh[2] = p * Math.cos(phi) + z * sinphi - semiMajorAxis
+				* Math.sqrt(1.0 - eSquared * sinphi * sinphi);
+	}
 }
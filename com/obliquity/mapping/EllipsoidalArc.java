@@ -36,12 +36,64 @@ public class EllipsoidalArc {
 	private static double TwoPi = 2.0 * Math.PI;
 	private final static double EPSILON = 1e-8;
 
+	/**
+	 * Select the iterative formulae of Vincenty, which may fail to converge
+	 * for nearly antipodal points. This is the default.
+	 */
+	public static final int VINCENTY = 0;
+
+	/**
+	 * Select the series solution of Karney, which converges for every pair
+	 * of points and is accurate to about 15 nanometres on the Earth.
+	 */
+	public static final int KARNEY = 1;
+
+	private final int algorithm;
+	private KarneyGeodesic karney = null;
+	private KarneyGeodesic.Workspace karneyWorkspace = null;
+	private KarneyGeodesic.Line karneyLine = null;
+	private double[] karneyResult = null;
+
 	public EllipsoidalArc(Ellipsoid e) throws IllegalArgumentException {
+		this(e, VINCENTY);
+	}
+
+	/**
+	 * Construct an arc on the specified ellipsoid which is solved by the
+	 * specified algorithm.
+	 * 
+	 * @param e
+	 *            The ellipsoid.
+	 * @param algorithm
+	 *            The algorithm, either <CODE>VINCENTY</CODE> or
+	 *            <CODE>KARNEY</CODE>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the ellipsoid is null or the algorithm is unknown.
+	 */
+	public EllipsoidalArc(Ellipsoid e, int algorithm)
+			throws IllegalArgumentException {
 		if (e == null)
 			throw new IllegalArgumentException("Ellipsoid is null");
 
+		if (algorithm != VINCENTY && algorithm != KARNEY)
+			throw new IllegalArgumentException("Unknown algorithm: "
+					+ algorithm);
+
 		ellipsoid = e;
+		this.algorithm = algorithm;
 		havePositionA = havePositionB = haveAzimuthA = haveAzimuthB = haveDistance = false;
+
+		if (algorithm == KARNEY) {
+			karney = new KarneyGeodesic(e);
+			karneyWorkspace = new KarneyGeodesic.Workspace();
+			karneyLine = new KarneyGeodesic.Line();
+			karneyResult = new double[3];
+		}
+	}
+
+	public int getAlgorithm() {
+		return algorithm;
 	}
 
 	public void setPositionA(double longitude, double latitude) {
@@ -137,6 +189,18 @@ public class EllipsoidalArc {
 		if (!havePositionB)
 			throw new IllegalStateException("positionB is not defined");
 
+		if (karney != null) {
+			karney.inverse(longitudeA, latitudeA, longitudeB, latitudeB,
+					karneyWorkspace, karneyResult);
+
+			azimuthA = karneyResult[1];
+			azimuthB = karneyResult[2];
+			geodesicDistance = karneyResult[0];
+			haveAzimuthA = haveAzimuthB = haveDistance = true;
+
+			return geodesicDistance;
+		}
+
 		b = a * (1.0 - f);
 
 		U1 = Math.atan((1.0 - f) * Math.tan(latitudeA));
@@ -245,6 +309,18 @@ public class EllipsoidalArc {
 		if (!haveDistance)
 			throw new IllegalStateException("distance is not defined");
 
+		if (karney != null) {
+			karney.setLine(latitudeA, azimuthA, karneyLine);
+			karney.position(karneyLine, geodesicDistance, karneyResult);
+
+			longitudeB = longitudeA + karneyResult[0];
+			latitudeB = karneyResult[1];
+			azimuthB = karneyResult[2];
+			havePositionB = haveAzimuthB = true;
+
+			return;
+		}
+
 		tu1 = (1.0 - f) * Math.tan(latitudeA);
 		cu1 = Math.cos(Math.atan(tu1));
 		su1 = Math.sin(Math.atan(tu1));
@@ -0,0 +1,420 @@
+/*
+ * Map projections package
+ *
+ * Geodesic distance matrices using memory mapping
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class calculates the matrix of geodesic distances from each of one
+ * set of points to each of another, writing it to a file which is
+ * memory-mapped rather than held on the heap, so matrices much larger than
+ * the available memory can be built.
+ * 
+ * <p>
+ * The file holds the matrix in row order with no header or padding, each
+ * distance stored as a little-endian IEEE 754 <CODE>float</CODE> or
+ * <CODE>double</CODE>. Row <CODE>i</CODE> holds the distances from point
+ * <CODE>i</CODE> of the first set to every point of the second set. Pairs
+ * for which the distance cannot be calculated are stored as
+ * <CODE>NaN</CODE>.
+ * 
+ * <p>
+ * The distances are calculated by a <CODE>BatchGeodesic</CODE>, using
+ * whichever algorithm it was constructed with. The sines and cosines of the
+ * reduced latitudes of all the points are calculated once, before any
+ * distances. The file is mapped through a window of whole rows which moves
+ * down the matrix, so files larger than 2 GB can be written, and each
+ * window is divided into square tiles small enough for the points of a tile
+ * to stay in the processor cache. The tiles are calculated in parallel, by
+ * default on the common <CODE>ForkJoinPool</CODE>, though any
+ * <CODE>Executor</CODE> may be supplied instead.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class GeodesicDistanceMatrix {
+	/**
+	 * Store each distance as a 4-byte <CODE>float</CODE>.
+	 */
+	public static final int FLOAT = 0;
+
+	/**
+	 * Store each distance as an 8-byte <CODE>double</CODE>.
+	 */
+	public static final int DOUBLE = 1;
+
+	/**
+	 * The default number of rows and columns in each tile.
+	 */
+	public static final int DEFAULT_TILE_SIZE = 256;
+
+	/**
+	 * The default size, in bytes, of the window through which the file is
+	 * mapped.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+	private final BatchGeodesic geodesic;
+	private final Executor executor;
+	private final int tileSize, windowSize;
+
+	/**
+	 * Construct an object which calculates distance matrices with the
+	 * specified geodesic solver on the common <CODE>ForkJoinPool</CODE>,
+	 * with the default tile and window sizes.
+	 * 
+	 * @param geodesic
+	 *            The solver which will calculate the distances.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the solver is null.
+	 */
+	public GeodesicDistanceMatrix(BatchGeodesic geodesic)
+			throws IllegalArgumentException {
+		this(geodesic, ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE,
+				DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Construct an object which calculates distance matrices with the
+	 * specified geodesic solver and executor.
+	 * 
+	 * @param geodesic
+	 *            The solver which will calculate the distances.
+	 * @param executor
+	 *            The executor which will run the tiles. If this is a
+	 *            <CODE>ForkJoinPool</CODE>, the tiles of each window are
+	 *            divided recursively so that idle workers can steal work.
+	 * @param tileSize
+	 *            The number of rows and columns in each tile.
+	 * @param windowSize
+	 *            The size of the mapping window in bytes. The window always
+	 *            holds at least one whole row of the matrix.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the solver or executor is null, or the tile or window
+	 *             size is not positive.
+	 */
+	public GeodesicDistanceMatrix(BatchGeodesic geodesic, Executor executor,
+			int tileSize, int windowSize) throws IllegalArgumentException {
+		if (geodesic == null)
+			throw new IllegalArgumentException("Geodesic is null");
+
+		if (executor == null)
+			throw new IllegalArgumentException("Executor is null");
+
+		if (tileSize < 1)
+			throw new IllegalArgumentException("Tile size must be positive");
+
+		if (windowSize < 1)
+			throw new IllegalArgumentException("Window size must be positive");
+
+		this.geodesic = geodesic;
+		this.executor = executor;
+		this.tileSize = tileSize;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Retrieve the geodesic solver used by this object.
+	 * 
+	 * @return The solver.
+	 */
+	public BatchGeodesic getGeodesic() {
+		return geodesic;
+	}
+
+	/**
+	 * Calculate the matrix of distances from each of a set of origins to
+	 * each of a set of destinations, and write it to a file.
+	 * 
+	 * @param longitudesA
+	 *            The longitudes of the origins, which correspond to the rows
+	 *            of the matrix.
+	 * @param latitudesA
+	 *            The latitudes of the origins.
+	 * @param offsetA
+	 *            The index of the first origin.
+	 * @param countA
+	 *            The number of origins.
+	 * @param longitudesB
+	 *            The longitudes of the destinations, which correspond to the
+	 *            columns of the matrix.
+	 * @param latitudesB
+	 *            The latitudes of the destinations.
+	 * @param offsetB
+	 *            The index of the first destination.
+	 * @param countB
+	 *            The number of destinations.
+	 * @param output
+	 *            The file which will receive the matrix. It is created if
+	 *            necessary, and truncated or extended to the size of the
+	 *            matrix.
+	 * @param format
+	 *            The format of each distance, either <CODE>FLOAT</CODE> or
+	 *            <CODE>DOUBLE</CODE>.
+	 * 
+	 * @return The number of pairs whose distances could not be calculated,
+	 *         and which are stored as <CODE>NaN</CODE>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range, the
+	 *             format is unknown, or a single row of the matrix is longer
+	 *             than 2 GB.
+	 * @throws IOException
+	 *             if the file cannot be mapped.
+	 * @throws RejectedExecutionException
+	 *             if the executor rejects a tile. Tiles which were accepted
+	 *             have been calculated, but the matrix is incomplete.
+	 */
+	public long calculate(double[] longitudesA, double[] latitudesA,
+			int offsetA, int countA, double[] longitudesB,
+			double[] latitudesB, int offsetB, int countB, File output,
+			int format) throws IllegalArgumentException, IOException,
+			RejectedExecutionException {
+		TransverseMercatorProjection.checkRange(longitudesA, offsetA, countA,
+				"longitudesA");
+		TransverseMercatorProjection.checkRange(latitudesA, offsetA, countA,
+				"latitudesA");
+		TransverseMercatorProjection.checkRange(longitudesB, offsetB, countB,
+				"longitudesB");
+		TransverseMercatorProjection.checkRange(latitudesB, offsetB, countB,
+				"latitudesB");
+
+		if (format != FLOAT && format != DOUBLE)
+			throw new IllegalArgumentException("Unknown format: " + format);
+
+		int elementSize = format == FLOAT ? 4 : 8;
+
+		long rowSize = (long) countB * elementSize;
+
+		if (rowSize > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("A row of " + countB
+					+ " distances is too long to be mapped");
+
+		Points a = new Points(longitudesA, latitudesA, offsetA, countA);
+		Points b = new Points(longitudesB, latitudesB, offsetB, countB);
+
+		int windowRows = rowSize == 0 ? countA : (int) Math.max(1,
+				Math.min(countA, windowSize / rowSize));
+
+		long size = (long) countA * rowSize;
+
+		AtomicLong failures = new AtomicLong();
+
+		RandomAccessFile file = new RandomAccessFile(output, "rw");
+
+		try {
+			file.setLength(size);
+
+			FileChannel channel = file.getChannel();
+
+			for (int row = 0; row < countA && rowSize > 0; row += windowRows) {
+				int rows = Math.min(windowRows, countA - row);
+
+				MappedByteBuffer map = channel.map(
+						FileChannel.MapMode.READ_WRITE, row * rowSize, rows
+								* rowSize);
+
+				map.order(ByteOrder.LITTLE_ENDIAN);
+
+				Window window = new Window(a, b, row, rows, map, format,
+						failures);
+
+				run(window);
+			}
+
+			channel.force(false);
+		} finally {
+			file.close();
+		}
+
+		return failures.get();
+	}
+
+	/*
+	 * The coordinates of a set of points, with the sines and cosines of
+	 * their reduced latitudes.
+	 */
+	private class Points {
+		final double[] longitudes, latitudes, sinU, cosU;
+		final int offset, count;
+
+		Points(double[] longitudes, double[] latitudes, int offset, int count) {
+			this.longitudes = longitudes;
+			this.latitudes = latitudes;
+			this.offset = offset;
+			this.count = count;
+
+			sinU = new double[count];
+			cosU = new double[count];
+
+			geodesic.reducedLatitudes(latitudes, offset, count, sinU, cosU);
+		}
+	}
+
+	/*
+	 * The rows of the matrix which are mapped at one time, and the tiles
+	 * into which they are divided.
+	 */
+	private class Window {
+		final Points a, b;
+		final int firstRow, rows, tileRows, tileColumns, format;
+		final ByteBuffer map;
+		final AtomicLong failures;
+
+		Window(Points a, Points b, int firstRow, int rows, ByteBuffer map,
+				int format, AtomicLong failures) {
+			this.a = a;
+			this.b = b;
+			this.firstRow = firstRow;
+			this.rows = rows;
+			this.map = map;
+			this.format = format;
+			this.failures = failures;
+
+			tileRows = (rows + tileSize - 1) / tileSize;
+			tileColumns = (b.count + tileSize - 1) / tileSize;
+		}
+
+		int tiles() {
+			return tileRows * tileColumns;
+		}
+
+		/*
+		 * Calculate one tile, writing each row of it through a private view
+		 * of the mapped window.
+		 */
+		void calculateTile(int tile) {
+			int i0 = (tile / tileColumns) * tileSize;
+			int j0 = (tile % tileColumns) * tileSize;
+			int i1 = Math.min(rows, i0 + tileSize);
+			int j1 = Math.min(b.count, j0 + tileSize);
+
+			ByteBuffer bytes = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			DoubleBuffer doubles = format == DOUBLE ? bytes.asDoubleBuffer()
+					: null;
+			FloatBuffer floats = format == FLOAT ? bytes.asFloatBuffer()
+					: null;
+
+			KarneyGeodesic.Workspace w = new KarneyGeodesic.Workspace();
+			double[] result = new double[3];
+			long nFailed = 0;
+
+			for (int i = i0; i < i1; i++) {
+				int ia = firstRow + i;
+				double lonA = a.longitudes[a.offset + ia];
+				double latA = a.latitudes[a.offset + ia];
+				double sinU1 = a.sinU[ia], cosU1 = a.cosU[ia];
+
+				int position = i * b.count + j0;
+
+				if (doubles != null)
+					doubles.position(position);
+				else
+					floats.position(position);
+
+				for (int j = j0; j < j1; j++) {
+					if (!geodesic.inverse(lonA, latA, sinU1, cosU1,
+							b.longitudes[b.offset + j], b.latitudes[b.offset
+									+ j], b.sinU[j], b.cosU[j], w, result))
+						nFailed++;
+
+					if (doubles != null)
+						doubles.put(result[0]);
+					else
+						floats.put((float) result[0]);
+				}
+			}
+
+			if (nFailed > 0)
+				failures.addAndGet(nFailed);
+		}
+	}
+
+	private void run(final Window window) throws RejectedExecutionException {
+		int nTiles = window.tiles();
+
+		if (nTiles == 1) {
+			window.calculateTile(0);
+			return;
+		}
+
+		if (executor instanceof ForkJoinPool) {
+			((ForkJoinPool) executor).invoke(new TileTask(window, 0, nTiles));
+			return;
+		}
+
+		new ChunkedTask() {
+			void runChunk(int tile) {
+				window.calculateTile(tile);
+			}
+		}.run(executor, nTiles);
+	}
+
+	private static class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Window window;
+		private final int first, count;
+
+		TileTask(Window window, int first, int count) {
+			this.window = window;
+			this.first = first;
+			this.count = count;
+		}
+
+		protected void compute() {
+			if (count == 1) {
+				window.calculateTile(first);
+				return;
+			}
+
+			int half = count / 2;
+
+			invokeAll(new TileTask(window, first, half), new TileTask(window,
+					first + half, count - half));
+		}
+	}
+}
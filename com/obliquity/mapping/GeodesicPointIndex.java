@@ -0,0 +1,464 @@
+/*
+ * Map projections package
+ *
+ * Geodesic nearest-neighbour search
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class finds the points of a set which are nearest to a query point
+ * by geodesic distance on an ellipsoid, solving the inverse geodesic
+ * problem for only a few of the points.
+ * 
+ * <p>
+ * The points are indexed by their Cartesian coordinates on the ellipsoid in
+ * an implicit k-d tree, in the same manner as <CODE>GridPointIndex</CODE>.
+ * The length of the chord between two points is a lower bound for the
+ * geodesic distance between them, and is much cheaper to calculate. A query
+ * first finds the nearest points by chord length, and solves the geodesic
+ * problem for them to give a provisional set of nearest points. It then
+ * searches the tree again, pruning every region whose chord distance
+ * exceeds the geodesic distance of the furthest provisional point, and
+ * solves the geodesic problem only for the points which survive. For points
+ * less than a few hundred kilometres apart the chord and the geodesic
+ * differ by a few parts in a million, so very few points survive beyond
+ * those found by the first search.
+ * 
+ * <p>
+ * The geodesic distances are calculated by a <CODE>BatchGeodesic</CODE>,
+ * using the Vincenty formulae of <CODE>EllipsoidalArc</CODE> or Karney's
+ * method, and every query reports the number of geodesic problems which it
+ * solved. A point for which the Vincenty iteration fails to converge is
+ * treated as infinitely distant.
+ * 
+ * <p>
+ * Points are identified by their indices in the arrays from which the index
+ * was built, and points with a <CODE>NaN</CODE> coordinate are left out of
+ * the index. Angles are in <em>radians</em>, and distances are in the units
+ * of the semi-major axis of the ellipsoid. Instances hold no mutable state
+ * and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class GeodesicPointIndex {
+	/*
+	 * The relative margin by which a chord must exceed a geodesic distance
+	 * before a point is pruned, which allows for the errors of the Vincenty
+	 * formulae.
+	 */
+	private static final double SLACK = 1.0e-6;
+
+	private final BatchGeodesic geodesic;
+
+	private final double[] x, y, z, longitudes, latitudes, sinU, cosU;
+	private final int[] ids;
+	private final int size;
+
+	/**
+	 * Build an index of a set of points given by their longitudes and
+	 * latitudes.
+	 * 
+	 * @param geodesic
+	 *            The solver which defines the ellipsoid and calculates the
+	 *            geodesic distances.
+	 * @param longitudes
+	 *            The longitudes of the points.
+	 * @param latitudes
+	 *            The latitudes of the points.
+	 * @param offset
+	 *            The index of the first point.
+	 * @param length
+	 *            The number of points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the solver is null, or either array is too short for
+	 *             the specified range.
+	 */
+	public GeodesicPointIndex(BatchGeodesic geodesic, double[] longitudes,
+			double[] latitudes, int offset, int length)
+			throws IllegalArgumentException {
+		if (geodesic == null)
+			throw new IllegalArgumentException("Geodesic is null");
+
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+
+		this.geodesic = geodesic;
+
+		this.longitudes = new double[length];
+		this.latitudes = new double[length];
+		this.ids = new int[length];
+
+		int n = 0;
+
+		for (int i = offset; i < offset + length; i++) {
+			if (Double.isNaN(longitudes[i]) || Double.isNaN(latitudes[i]))
+				continue;
+
+			this.longitudes[n] = longitudes[i];
+			this.latitudes[n] = latitudes[i];
+			this.ids[n] = i;
+			n++;
+		}
+
+		size = n;
+
+		x = new double[size];
+		y = new double[size];
+		z = new double[size];
+
+		geodesic.getEllipsoid().GeodeticToCartesian(this.longitudes,
+				this.latitudes, null, 0, size, x, y, z);
+
+		KdTree.build(new double[][] { x, y, z }, new double[][] { x, y, z,
+				this.longitudes, this.latitudes }, this.ids, 0, size, 0);
+
+		sinU = new double[size];
+		cosU = new double[size];
+
+		geodesic.reducedLatitudes(this.latitudes, 0, size, sinU, cosU);
+	}
+
+	/**
+	 * Return the number of points in the index.
+	 * 
+	 * @return The number of points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the geodesic solver used by this index.
+	 * 
+	 * @return The solver.
+	 */
+	public BatchGeodesic getGeodesic() {
+		return geodesic;
+	}
+
+	/**
+	 * Find the points nearest to the specified position by geodesic
+	 * distance, in order of increasing distance. The number of points found
+	 * is the smaller of <CODE>k</CODE> and the size of the index.
+	 * 
+	 * @param longitude
+	 *            The longitude of the position.
+	 * @param latitude
+	 *            The latitude of the position.
+	 * @param k
+	 *            The number of points to find.
+	 * @param ids
+	 *            The array which will receive the identifiers of the
+	 *            points.
+	 * @param distances
+	 *            The array which will receive the geodesic distances of the
+	 *            points from the position, at the same indices as their
+	 *            identifiers.
+	 * @param offset
+	 *            The index in the output arrays of the nearest point.
+	 * 
+	 * @return The number of geodesic problems solved during the search.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either array is too short for <CODE>k</CODE> points.
+	 */
+	public int nearest(double longitude, double latitude, int k, int[] ids,
+			double[] distances, int offset) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(ids, offset, k, "ids");
+		TransverseMercatorProjection.checkRange(distances, offset, k,
+				"distances");
+
+		return search(longitude, latitude, k, ids, distances, offset,
+				new Query());
+	}
+
+	/**
+	 * Find the points nearest to each of a set of positions by geodesic
+	 * distance. The results for the position at index <CODE>i</CODE> are
+	 * stored in the output arrays from index <CODE>i * k</CODE>, in order of
+	 * increasing distance.
+	 * 
+	 * @param longitudes
+	 *            The longitudes of the positions.
+	 * @param latitudes
+	 *            The latitudes of the positions.
+	 * @param offset
+	 *            The index of the first position.
+	 * @param length
+	 *            The number of positions.
+	 * @param k
+	 *            The number of points to find for each position.
+	 * @param ids
+	 *            The array which will receive the identifiers of the
+	 *            points.
+	 * @param distances
+	 *            The array which will receive the geodesic distances.
+	 * @param evaluations
+	 *            The array which will receive the number of geodesic
+	 *            problems solved for each position, at the same index as the
+	 *            position, or null if they are not required.
+	 * 
+	 * @return The total number of geodesic problems solved.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public long nearest(double[] longitudes, double[] latitudes, int offset,
+			int length, int k, int[] ids, double[] distances,
+			int[] evaluations) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+
+		long resultOffset = (long) offset * k, resultLength = (long) length
+				* k;
+
+		if (resultOffset + resultLength > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many results: "
+					+ (resultOffset + resultLength));
+
+		TransverseMercatorProjection.checkRange(ids, (int) resultOffset,
+				(int) resultLength, "ids");
+		TransverseMercatorProjection.checkRange(distances, (int) resultOffset,
+				(int) resultLength, "distances");
+		if (evaluations != null)
+			TransverseMercatorProjection.checkRange(evaluations, offset,
+					length, "evaluations");
+
+		Query q = new Query();
+		long total = 0;
+
+		for (int i = offset; i < offset + length; i++) {
+			int n = search(longitudes[i], latitudes[i], k, ids, distances, i
+					* k, q);
+
+			if (evaluations != null)
+				evaluations[i] = n;
+
+			total += n;
+		}
+
+		return total;
+	}
+
+	/*
+	 * The scratch storage and the description of the query point used
+	 * during a search.
+	 */
+	private static final class Query {
+		final double[] xyz = new double[3];
+		final double[] result = new double[3];
+		final KarneyGeodesic.Workspace workspace = new KarneyGeodesic.Workspace();
+		final double[] phi = new double[1];
+		final double[] sinU = new double[1], cosU = new double[1];
+
+		double longitude, latitude, sinU0, cosU0, x, y, z;
+	}
+
+	private int search(double longitude, double latitude, int k, int[] ids,
+			double[] distances, int base, Query q) {
+		int count = Math.min(k, size);
+
+		if (count == 0)
+			return 0;
+
+		q.longitude = longitude;
+		q.latitude = latitude;
+
+		geodesic.getEllipsoid().geodeticToCartesian(longitude, latitude, 0.0,
+				q.xyz);
+
+		q.x = q.xyz[0];
+		q.y = q.xyz[1];
+		q.z = q.xyz[2];
+
+		q.phi[0] = latitude;
+		geodesic.reducedLatitudes(q.phi, 0, 1, q.sinU, q.cosU);
+		q.sinU0 = q.sinU[0];
+		q.cosU0 = q.cosU[0];
+
+		/*
+		 * Find the nearest points by chord length, then replace the squared
+		 * chords in the heap by geodesic distances. The heap holds the
+		 * positions of the points in the tree until the search is done.
+		 */
+
+		chordNearest(0, size, 0, q, count, ids, distances, base, 0);
+
+		for (int i = 0; i < count; i++)
+			distances[base + i] = geodesicDistance(ids[base + i], q);
+
+		for (int i = count / 2 - 1; i >= 0; i--)
+			KdTree.siftDown(ids, distances, base, count, i);
+
+		int evaluations = count
+				+ refine(0, size, 0, q, count, ids, distances, base);
+
+		KdTree.sort(ids, distances, base, count);
+
+		for (int i = base; i < base + count; i++) {
+			ids[i] = this.ids[ids[i]];
+
+			if (distances[i] == Double.POSITIVE_INFINITY)
+				distances[i] = Double.NaN;
+		}
+
+		return evaluations;
+	}
+
+	/*
+	 * Solve the inverse problem between the query point and the point at
+	 * the specified position in the tree.
+	 */
+	private double geodesicDistance(int position, Query q) {
+		geodesic.inverse(q.longitude, q.latitude, q.sinU0, q.cosU0,
+				longitudes[position], latitudes[position], sinU[position],
+				cosU[position], q.workspace, q.result);
+
+		return Double.isNaN(q.result[0]) ? Double.POSITIVE_INFINITY
+				: q.result[0];
+	}
+
+	private double chord2(int i, Query q) {
+		double dx = x[i] - q.x, dy = y[i] - q.y, dz = z[i] - q.z;
+
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private double axisDifference(int i, int depth, Query q) {
+		switch (depth % 3) {
+		case 0:
+			return q.x - x[i];
+
+		case 1:
+			return q.y - y[i];
+
+		default:
+			return q.z - z[i];
+		}
+	}
+
+	/*
+	 * Find the nearest points by chord length, keeping a max-heap of the
+	 * positions of the points in the tree and their squared chords in the
+	 * output arrays.
+	 */
+	private int chordNearest(int lo, int hi, int depth, Query q, int k,
+			int[] heapIds, double[] heapValues, int base, int count) {
+		if (hi - lo <= KdTree.LEAF_SIZE) {
+			for (int i = lo; i < hi; i++)
+				count = KdTree.offer(i, chord2(i, q), k, heapIds,
+						heapValues, base, count);
+
+			return count;
+		}
+
+		int mid = (lo + hi) >>> 1;
+
+		double diff = axisDifference(mid, depth, q);
+
+		boolean left = diff < 0.0;
+
+		count = left ? chordNearest(lo, mid, depth + 1, q, k, heapIds,
+				heapValues, base, count) : chordNearest(mid + 1, hi,
+				depth + 1, q, k, heapIds, heapValues, base, count);
+
+		count = KdTree.offer(mid, chord2(mid, q), k, heapIds, heapValues,
+				base, count);
+
+		if (count < k || diff * diff < heapValues[base])
+			count = left ? chordNearest(mid + 1, hi, depth + 1, q, k,
+					heapIds, heapValues, base, count) : chordNearest(lo, mid,
+					depth + 1, q, k, heapIds, heapValues, base, count);
+
+		return count;
+	}
+
+	/*
+	 * Search for points whose chords are short enough for them to be
+	 * nearer than the furthest point in the heap, which is now ordered by
+	 * geodesic distance, and solve the geodesic problem for any not already
+	 * in the heap. Returns the number of problems solved.
+	 */
+	private int refine(int lo, int hi, int depth, Query q, int k,
+			int[] heapIds, double[] heapValues, int base) {
+		int evaluations = 0;
+
+		if (hi - lo <= KdTree.LEAF_SIZE) {
+			for (int i = lo; i < hi; i++)
+				evaluations += consider(i, q, k, heapIds, heapValues, base);
+
+			return evaluations;
+		}
+
+		int mid = (lo + hi) >>> 1;
+
+		double diff = axisDifference(mid, depth, q);
+
+		boolean left = diff < 0.0;
+
+		evaluations += left ? refine(lo, mid, depth + 1, q, k, heapIds,
+				heapValues, base) : refine(mid + 1, hi, depth + 1, q, k,
+				heapIds, heapValues, base);
+
+		evaluations += consider(mid, q, k, heapIds, heapValues, base);
+
+		double bound = heapValues[base] * (1.0 + SLACK);
+
+		if (diff * diff <= bound * bound)
+			evaluations += left ? refine(mid + 1, hi, depth + 1, q, k,
+					heapIds, heapValues, base) : refine(lo, mid, depth + 1,
+					q, k, heapIds, heapValues, base);
+
+		return evaluations;
+	}
+
+	private int consider(int i, Query q, int k, int[] heapIds,
+			double[] heapValues, int base) {
+		double bound = heapValues[base] * (1.0 + SLACK);
+
+		if (chord2(i, q) > bound * bound)
+			return 0;
+
+		for (int j = base; j < base + k; j++)
+			if (heapIds[j] == i)
+				return 0;
+
+		double d = geodesicDistance(i, q);
+
+		if (d < heapValues[base]) {
+			heapIds[base] = i;
+			heapValues[base] = d;
+			KdTree.siftDown(heapIds, heapValues, base, k, 0);
+		}
+
+		return 1;
+	}
+}
@@ -0,0 +1,375 @@
+/*
+ * Map projections package
+ *
+ * Spatial index of grid coordinates
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class is an index of points in a plane, such as the eastings and
+ * northings of a national grid, which finds the points within a given
+ * distance of a query point, or the nearest points to it, without examining
+ * every point.
+ * 
+ * <p>
+ * The index is a k-d tree which is built in one pass from a set of points
+ * and thereafter cannot be changed. The tree is stored implicitly in
+ * parallel arrays of coordinates: the point at the middle of each range of
+ * the arrays divides the rest of the range, alternately by easting and by
+ * northing, and ranges of a few points are searched exhaustively. No
+ * objects are created for the points or the nodes of the tree.
+ * 
+ * <p>
+ * Points are identified by their indices in the arrays from which the index
+ * was built. Points with a <CODE>NaN</CODE> coordinate are left out of the
+ * index. Distances are in the units of the coordinates, normally
+ * <em>metres</em>.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class GridPointIndex {
+	private final double[] eastings, northings;
+	private final int[] ids;
+	private final int size;
+
+	/**
+	 * Build an index of a set of points given by their grid coordinates.
+	 * 
+	 * @param eastings
+	 *            The eastings of the points.
+	 * @param northings
+	 *            The northings of the points.
+	 * @param offset
+	 *            The index of the first point.
+	 * @param length
+	 *            The number of points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either array is too short for the specified range.
+	 */
+	public GridPointIndex(double[] eastings, double[] northings, int offset,
+			int length) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(eastings, offset, length,
+				"eastings");
+		TransverseMercatorProjection.checkRange(northings, offset, length,
+				"northings");
+
+		this.eastings = new double[length];
+		this.northings = new double[length];
+		this.ids = new int[length];
+
+		int n = 0;
+
+		for (int i = offset; i < offset + length; i++) {
+			if (Double.isNaN(eastings[i]) || Double.isNaN(northings[i]))
+				continue;
+
+			this.eastings[n] = eastings[i];
+			this.northings[n] = northings[i];
+			this.ids[n] = i;
+			n++;
+		}
+
+		size = n;
+
+		double[][] columns = { this.eastings, this.northings };
+
+		KdTree.build(columns, columns, this.ids, 0, size, 0);
+	}
+
+	/**
+	 * Build an index of a set of points given by their longitudes and
+	 * latitudes, which are converted to grid coordinates by the specified
+	 * projection. Queries are then made in the grid coordinates of the
+	 * projection.
+	 * 
+	 * @param projection
+	 *            The projection which defines the grid.
+	 * @param longitudes
+	 *            The longitudes of the points.
+	 * @param latitudes
+	 *            The latitudes of the points.
+	 * @param offset
+	 *            The index of the first point.
+	 * @param length
+	 *            The number of points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null, or either array is too short
+	 *             for the specified range.
+	 */
+	public GridPointIndex(TransverseMercatorProjection projection,
+			double[] longitudes, double[] latitudes, int offset, int length)
+			throws IllegalArgumentException {
+		this(project(projection, longitudes, latitudes, offset, length),
+				offset, length);
+	}
+
+	private GridPointIndex(double[][] grid, int offset, int length) {
+		this(grid[0], grid[1], offset, length);
+	}
+
+	private static double[][] project(TransverseMercatorProjection projection,
+			double[] longitudes, double[] latitudes, int offset, int length) {
+		if (projection == null)
+			throw new IllegalArgumentException("Projection is null");
+
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+
+		double[][] grid = new double[2][offset + length];
+
+		projection.LatitudeAndLongitudeToGrid(longitudes, latitudes, offset,
+				length, grid[0], grid[1]);
+
+		return grid;
+	}
+
+	/**
+	 * Return the number of points in the index.
+	 * 
+	 * @return The number of points.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the point nearest to the specified position.
+	 * 
+	 * @param easting
+	 *            The easting of the position.
+	 * @param northing
+	 *            The northing of the position.
+	 * 
+	 * @return The identifier of the nearest point, or -1 if the index is
+	 *         empty.
+	 */
+	public int nearest(double easting, double northing) {
+		int[] id = new int[1];
+		double[] distance = new double[1];
+
+		return nearest(easting, northing, 1, id, distance, 0) > 0 ? id[0]
+				: -1;
+	}
+
+	/**
+	 * Find the points nearest to the specified position, in order of
+	 * increasing distance.
+	 * 
+	 * @param easting
+	 *            The easting of the position.
+	 * @param northing
+	 *            The northing of the position.
+	 * @param k
+	 *            The number of points to find.
+	 * @param ids
+	 *            The array which will receive the identifiers of the
+	 *            points.
+	 * @param distances
+	 *            The array which will receive the distances of the points
+	 *            from the position, at the same indices as their
+	 *            identifiers.
+	 * @param offset
+	 *            The index in the output arrays of the nearest point.
+	 * 
+	 * @return The number of points found, which is less than
+	 *         <CODE>k</CODE> only if the index holds fewer points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either array is too short for <CODE>k</CODE> points.
+	 */
+	public int nearest(double easting, double northing, int k, int[] ids,
+			double[] distances, int offset) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(ids, offset, k, "ids");
+		TransverseMercatorProjection.checkRange(distances, offset, k,
+				"distances");
+
+		if (k == 0 || size == 0)
+			return 0;
+
+		/*
+		 * The output arrays hold a max-heap of the squared distances of the
+		 * nearest points so far, which is sorted when the search is done.
+		 */
+
+		int count = nearest(0, size, 0, easting, northing, k, ids,
+				distances, offset, 0);
+
+		KdTree.sort(ids, distances, offset, count);
+
+		for (int i = offset; i < offset + count; i++)
+			distances[i] = Math.sqrt(distances[i]);
+
+		return count;
+	}
+
+	/**
+	 * Find the points within the specified distance of a position. The
+	 * points are found in no particular order.
+	 * 
+	 * @param easting
+	 *            The easting of the position.
+	 * @param northing
+	 *            The northing of the position.
+	 * @param radius
+	 *            The distance from the position.
+	 * @param ids
+	 *            The array which will receive the identifiers of the
+	 *            points.
+	 * @param offset
+	 *            The index in the array of the first identifier.
+	 * @param length
+	 *            The maximum number of identifiers to be stored.
+	 * 
+	 * @return The number of points within the distance. If this is greater
+	 *         than <CODE>length</CODE>, only the first <CODE>length</CODE>
+	 *         of them have been stored.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the array is too short for the specified range.
+	 */
+	public int findWithin(double easting, double northing, double radius,
+			int[] ids, int offset, int length)
+			throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(ids, offset, length, "ids");
+
+		if (size == 0 || !(radius >= 0.0))
+			return 0;
+
+		return within(0, size, 0, easting, northing, radius, radius * radius,
+				ids, offset, length, 0);
+	}
+
+	/**
+	 * Count the points within the specified distance of a position.
+	 * 
+	 * @param easting
+	 *            The easting of the position.
+	 * @param northing
+	 *            The northing of the position.
+	 * @param radius
+	 *            The distance from the position.
+	 * 
+	 * @return The number of points within the distance.
+	 */
+	public int countWithin(double easting, double northing, double radius) {
+		if (size == 0 || !(radius >= 0.0))
+			return 0;
+
+		return within(0, size, 0, easting, northing, radius, radius * radius,
+				null, 0, 0, 0);
+	}
+
+	private int within(int lo, int hi, int depth, double E, double N,
+			double r, double r2, int[] out, int offset, int length, int found) {
+		if (hi - lo <= KdTree.LEAF_SIZE) {
+			for (int i = lo; i < hi; i++) {
+				double dE = eastings[i] - E, dN = northings[i] - N;
+
+				if (dE * dE + dN * dN <= r2) {
+					if (found < length)
+						out[offset + found] = ids[i];
+
+					found++;
+				}
+			}
+
+			return found;
+		}
+
+		int mid = (lo + hi) >>> 1;
+
+		double diff = (depth & 1) == 0 ? E - eastings[mid] : N
+				- northings[mid];
+
+		if (diff <= r)
+			found = within(lo, mid, depth + 1, E, N, r, r2, out, offset,
+					length, found);
+
+		double dE = eastings[mid] - E, dN = northings[mid] - N;
+
+		if (dE * dE + dN * dN <= r2) {
+			if (found < length)
+				out[offset + found] = ids[mid];
+
+			found++;
+		}
+
+		if (diff >= -r)
+			found = within(mid + 1, hi, depth + 1, E, N, r, r2, out, offset,
+					length, found);
+
+		return found;
+	}
+
+	private int nearest(int lo, int hi, int depth, double E, double N,
+			int k, int[] heapIds, double[] heapDistances, int base, int count) {
+		if (hi - lo <= KdTree.LEAF_SIZE) {
+			for (int i = lo; i < hi; i++)
+				count = offer(i, E, N, k, heapIds, heapDistances, base, count);
+
+			return count;
+		}
+
+		int mid = (lo + hi) >>> 1;
+
+		double diff = (depth & 1) == 0 ? E - eastings[mid] : N
+				- northings[mid];
+
+		boolean left = diff < 0.0;
+
+		count = left ? nearest(lo, mid, depth + 1, E, N, k, heapIds,
+				heapDistances, base, count) : nearest(mid + 1, hi, depth + 1,
+				E, N, k, heapIds, heapDistances, base, count);
+
+		count = offer(mid, E, N, k, heapIds, heapDistances, base, count);
+
+		if (count < k || diff * diff < heapDistances[base])
+			count = left ? nearest(mid + 1, hi, depth + 1, E, N, k, heapIds,
+					heapDistances, base, count) : nearest(lo, mid, depth + 1,
+					E, N, k, heapIds, heapDistances, base, count);
+
+		return count;
+	}
+
+	/*
+	 * Add a point to the heap of the nearest points if it is nearer than
+	 * the furthest of them, or the heap is not yet full.
+	 */
+	private int offer(int i, double E, double N, int k, int[] heapIds,
+			double[] heapDistances, int base, int count) {
+		double dE = eastings[i] - E, dN = northings[i] - N;
+
+		return KdTree.offer(ids[i], dE * dE + dN * dN, k, heapIds,
+				heapDistances, base, count);
+	}
+}
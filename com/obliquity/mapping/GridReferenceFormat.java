@@ -0,0 +1,489 @@
+/*
+ * Map projections package
+ *
+ * Parsing and formatting of grid references
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+import java.io.IOException;
+
+/**
+ * This class parses and formats Ordnance Survey grid references such as
+ * <CODE>TQ 30123 80456</CODE> for the British National Grid or
+ * <CODE>J 357 276</CODE> for the Irish Grid.
+ * 
+ * <p>
+ * A grid reference consists of the letter prefix of a 100km square, followed
+ * by an easting and a northing within that square with the same number of
+ * digits, from one to five. The easting and northing may be separated by
+ * spaces, tabs or commas, or may be written as a single group of two to ten
+ * digits. Separators between the prefix and the digits are optional, and the
+ * letters may be in upper or lower case.
+ * 
+ * <p>
+ * The parsing functions work directly on a range of characters within a
+ * <CODE>CharSequence</CODE> or a range of ASCII bytes within a
+ * <CODE>byte</CODE> array, and store the easting and northing of the
+ * south-west corner of the referenced square, in <em>metres</em>, in
+ * caller-supplied arrays. No objects are created.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class GridReferenceFormat {
+	private final OSGB osgb;
+	private final OSNI osni;
+
+	private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000,
+			100000 };
+
+	/**
+	 * The maximum number of characters in a formatted grid reference.
+	 */
+	public static final int MAX_LENGTH = 14;
+
+	/**
+	 * Construct a format for references on the British National Grid.
+	 * 
+	 * @param osgb
+	 *            The projection of the British National Grid.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null.
+	 */
+	public GridReferenceFormat(OSGB osgb) throws IllegalArgumentException {
+		if (osgb == null)
+			throw new IllegalArgumentException("Projection is null");
+
+		this.osgb = osgb;
+		this.osni = null;
+	}
+
+	/**
+	 * Construct a format for references on the Irish Grid.
+	 * 
+	 * @param osni
+	 *            The projection of the Irish Grid.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null.
+	 */
+	public GridReferenceFormat(OSNI osni) throws IllegalArgumentException {
+		if (osni == null)
+			throw new IllegalArgumentException("Projection is null");
+
+		this.osgb = null;
+		this.osni = osni;
+	}
+
+	/**
+	 * Parse the grid reference which occupies the specified range of a
+	 * character sequence. Leading and trailing separators are ignored.
+	 * 
+	 * @param s
+	 *            The character sequence.
+	 * @param start
+	 *            The index of the first character of the range.
+	 * @param end
+	 *            The index after the last character of the range.
+	 * @param eastings
+	 *            The array which will receive the easting, in
+	 *            <em>metres</em>.
+	 * @param northings
+	 *            The array which will receive the northing, in
+	 *            <em>metres</em>.
+	 * @param index
+	 *            The index in the arrays at which the results will be stored.
+	 * 
+	 * @return The number of digits in each of the easting and northing, or
+	 *         -1 if the range does not hold a valid grid reference, in which
+	 *         case the arrays are not changed.
+	 */
+	public int parse(CharSequence s, int start, int end, double[] eastings,
+			double[] northings, int index) {
+		int i = skipSeparators(s, start, end);
+
+		if (i >= end)
+			return -1;
+
+		long offset;
+
+		if (osni != null) {
+			offset = osni.GridSquareToPackedOffset(s.charAt(i++));
+		} else {
+			if (i + 1 >= end)
+				return -1;
+
+			offset = osgb.GridSquareToPackedOffset(s.charAt(i), s
+					.charAt(i + 1));
+
+			i += 2;
+		}
+
+		if (offset == GridSquare.INVALID)
+			return -1;
+
+		i = skipSeparators(s, i, end);
+
+		long first = 0, second = 0;
+		int nFirst = 0, nSecond = 0;
+		char c;
+
+		for (; i < end && nFirst <= 10; i++, nFirst++) {
+			c = s.charAt(i);
+
+			if (c < '0' || c > '9')
+				break;
+
+			first = 10 * first + (c - '0');
+		}
+
+		i = skipSeparators(s, i, end);
+
+		for (; i < end && nSecond <= 5; i++, nSecond++) {
+			c = s.charAt(i);
+
+			if (c < '0' || c > '9')
+				break;
+
+			second = 10 * second + (c - '0');
+		}
+
+		if (skipSeparators(s, i, end) != end)
+			return -1;
+
+		return store(offset, first, nFirst, second, nSecond, eastings,
+				northings, index);
+	}
+
+	/**
+	 * Parse the grid reference which occupies the specified range of a byte
+	 * array holding ASCII text. Leading and trailing separators are ignored.
+	 * 
+	 * @param b
+	 *            The byte array.
+	 * @param start
+	 *            The index of the first byte of the range.
+	 * @param end
+	 *            The index after the last byte of the range.
+	 * @param eastings
+	 *            The array which will receive the easting, in
+	 *            <em>metres</em>.
+	 * @param northings
+	 *            The array which will receive the northing, in
+	 *            <em>metres</em>.
+	 * @param index
+	 *            The index in the arrays at which the results will be stored.
+	 * 
+	 * @return The number of digits in each of the easting and northing, or
+	 *         -1 if the range does not hold a valid grid reference, in which
+	 *         case the arrays are not changed.
+	 */
+	public int parse(byte[] b, int start, int end, double[] eastings,
+			double[] northings, int index) {
+		int i = skipSeparators(b, start, end);
+
+		if (i >= end)
+			return -1;
+
+		long offset;
+
+		if (osni != null) {
+			offset = osni.GridSquareToPackedOffset((char) (b[i++] & 0xff));
+		} else {
+			if (i + 1 >= end)
+				return -1;
+
+			offset = osgb.GridSquareToPackedOffset((char) (b[i] & 0xff),
+					(char) (b[i + 1] & 0xff));
+
+			i += 2;
+		}
+
+		if (offset == GridSquare.INVALID)
+			return -1;
+
+		i = skipSeparators(b, i, end);
+
+		long first = 0, second = 0;
+		int nFirst = 0, nSecond = 0;
+		char c;
+
+		for (; i < end && nFirst <= 10; i++, nFirst++) {
+			c = (char) (b[i] & 0xff);
+
+			if (c < '0' || c > '9')
+				break;
+
+			first = 10 * first + (c - '0');
+		}
+
+		i = skipSeparators(b, i, end);
+
+		for (; i < end && nSecond <= 5; i++, nSecond++) {
+			c = (char) (b[i] & 0xff);
+
+			if (c < '0' || c > '9')
+				break;
+
+			second = 10 * second + (c - '0');
+		}
+
+		if (skipSeparators(b, i, end) != end)
+			return -1;
+
+		return store(offset, first, nFirst, second, nSecond, eastings,
+				northings, index);
+	}
+
+	/*
+	 * Check the digits which were read from a grid reference and store the
+	 * easting and northing, returning the number of digits in each or -1 if
+	 * the digits are not a valid combination. The two parsing functions are
+	 * kept separate so that the JIT compiler can specialise each of them for
+	 * its own type of input.
+	 */
+	private static int store(long offset, long first, int nFirst, long second,
+			int nSecond, double[] eastings, double[] northings, int index) {
+		int digits;
+
+		if (nSecond == 0) {
+			if (nFirst < 2 || nFirst > 10 || (nFirst & 1) != 0)
+				return -1;
+
+			digits = nFirst / 2;
+
+			second = first % POWERS_OF_TEN[digits];
+			first /= POWERS_OF_TEN[digits];
+		} else {
+			if (nFirst != nSecond || nFirst > 5)
+				return -1;
+
+			digits = nFirst;
+		}
+
+		int scale = POWERS_OF_TEN[5 - digits];
+
+		eastings[index] = GridSquare.getEasting(offset) + scale * first;
+		northings[index] = GridSquare.getNorthing(offset) + scale * second;
+
+		return digits;
+	}
+
+	static int skipSeparators(CharSequence s, int i, int end) {
+		for (; i < end; i++) {
+			char c = s.charAt(i);
+
+			if (c != ' ' && c != '\t' && c != ',')
+				break;
+		}
+
+		return i;
+	}
+
+	private static int skipSeparators(byte[] b, int i, int end) {
+		for (; i < end; i++) {
+			byte c = b[i];
+
+			if (c != ' ' && c != '\t' && c != ',')
+				break;
+		}
+
+		return i;
+	}
+
+	/*
+	 * Check the point and the number of digits, and calculate the truncated
+	 * easting and northing within the 100km square, returning them packed
+	 * in the same manner as a grid square offset.
+	 */
+	private long encode(double easting, double northing, int digits)
+			throws IllegalArgumentException {
+		if (digits < 1 || digits > 5)
+			throw new IllegalArgumentException("Number of digits " + digits
+					+ " is not between 1 and 5");
+
+		double maxE = osni != null ? 500000.0 : 1000000.0;
+		double maxN = osni != null ? 500000.0 : 1500000.0;
+
+		if (!(easting >= 0.0 && easting < maxE && northing >= 0.0 && northing < maxN))
+			throw new IllegalArgumentException("Point (" + easting + ", "
+					+ northing + ") lies outside the grid");
+
+		int scale = POWERS_OF_TEN[5 - digits];
+
+		return GridSquare.pack((((int) easting) % 100000) / scale,
+				(((int) northing) % 100000) / scale);
+	}
+
+	/*
+	 * Calculate the letters of the 100km square which contains a point
+	 * already checked by encode, packed into an int with the first letter
+	 * of a British National Grid prefix in the upper 16 bits.
+	 */
+	private int letters(double easting, double northing) {
+		int x = ((int) easting) / 100000;
+		int y = ((int) northing) / 100000;
+
+		char b = GridSquare.letter(x % 5, y % 5);
+
+		if (osni != null)
+			return b;
+
+		char a = GridSquare.letter((2 + (x / 5)) % 5, (1 + (y / 5)) % 5);
+
+		return (a << 16) | b;
+	}
+
+	/**
+	 * Format a grid reference as ASCII text in a byte array, in the form
+	 * <CODE>TQ 30123 80456</CODE>. The digits are truncated, so that the
+	 * reference identifies the square which contains the point.
+	 * 
+	 * @param easting
+	 *            The easting of the point, in <em>metres</em>.
+	 * @param northing
+	 *            The northing of the point, in <em>metres</em>.
+	 * @param digits
+	 *            The number of digits in each of the easting and northing,
+	 *            from 1 to 5.
+	 * @param buf
+	 *            The array which will receive the text. It must have room for
+	 *            up to <CODE>MAX_LENGTH</CODE> bytes.
+	 * @param pos
+	 *            The index in <CODE>buf</CODE> at which the text will begin.
+	 * 
+	 * @return The index after the last byte written.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the number of digits is out of range or the point lies
+	 *             outside the grid.
+	 */
+	public int format(double easting, double northing, int digits,
+			byte[] buf, int pos) throws IllegalArgumentException {
+		long within = encode(easting, northing, digits);
+		int letters = letters(easting, northing);
+
+		if (osgb != null)
+			buf[pos++] = (byte) (letters >> 16);
+
+		buf[pos++] = (byte) letters;
+		buf[pos++] = ' ';
+
+		pos = putDigits(GridSquare.getEasting(within), digits, buf, pos);
+
+		buf[pos++] = ' ';
+
+		return putDigits(GridSquare.getNorthing(within), digits, buf, pos);
+	}
+
+	/**
+	 * Format a grid reference and append it to the specified destination, in
+	 * the form <CODE>TQ 30123 80456</CODE>. The digits are truncated, so that
+	 * the reference identifies the square which contains the point.
+	 * 
+	 * @param easting
+	 *            The easting of the point, in <em>metres</em>.
+	 * @param northing
+	 *            The northing of the point, in <em>metres</em>.
+	 * @param digits
+	 *            The number of digits in each of the easting and northing,
+	 *            from 1 to 5.
+	 * @param out
+	 *            The destination of the text.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the number of digits is out of range or the point lies
+	 *             outside the grid.
+	 * @throws IOException
+	 *             if the destination throws an <CODE>IOException</CODE>.
+	 */
+	public void format(double easting, double northing, int digits,
+			Appendable out) throws IllegalArgumentException, IOException {
+		long within = encode(easting, northing, digits);
+		int letters = letters(easting, northing);
+
+		if (osgb != null)
+			out.append((char) (letters >> 16));
+
+		out.append((char) (letters & 0xffff));
+		out.append(' ');
+
+		appendDigits(GridSquare.getEasting(within), digits, out);
+
+		out.append(' ');
+
+		appendDigits(GridSquare.getNorthing(within), digits, out);
+	}
+
+	/**
+	 * Format a grid reference as a string, in the form
+	 * <CODE>TQ 30123 80456</CODE>.
+	 * 
+	 * @param easting
+	 *            The easting of the point, in <em>metres</em>.
+	 * @param northing
+	 *            The northing of the point, in <em>metres</em>.
+	 * @param digits
+	 *            The number of digits in each of the easting and northing,
+	 *            from 1 to 5.
+	 * 
+	 * @return The grid reference.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the number of digits is out of range or the point lies
+	 *             outside the grid.
+	 */
+	public String format(double easting, double northing, int digits)
+			throws IllegalArgumentException {
+		byte[] buf = new byte[MAX_LENGTH];
+		int length = format(easting, northing, digits, buf, 0);
+
+		char[] chars = new char[length];
+
+		for (int i = 0; i < length; i++)
+			chars[i] = (char) buf[i];
+
+		return new String(chars);
+	}
+
+	private static int putDigits(int value, int digits, byte[] buf, int pos) {
+		for (int i = pos + digits - 1; i >= pos; i--) {
+			buf[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+
+		return pos + digits;
+	}
+
+	private static void appendDigits(int value, int digits, Appendable out)
+			throws IOException {
+		for (int i = digits - 1; i >= 0; i--)
+			out.append((char) ('0' + (value / POWERS_OF_TEN[i]) % 10));
+	}
+}
@@ -0,0 +1,397 @@
+/*
+ * Map projections package
+ *
+ * Grid-based datum shifts read from a memory-mapped file
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class applies a grid-based shift to grid coordinates, in the manner
+ * of the Ordnance Survey's OSTN transformations between ETRS89 and OSGB36.
+ * The shift grid is a regular array of nodes, each of which holds a shift in
+ * easting and a shift in northing. The shift at any point is found by
+ * bilinear interpolation between the four nodes surrounding it, and is
+ * added to the coordinates of the point.
+ * 
+ * <p>
+ * For OSTN, the coordinates to be shifted are ETRS89 latitudes and
+ * longitudes projected by a <CODE>TransverseMercatorProjection</CODE> with
+ * the parameters of the National Grid on the GRS80 ellipsoid, and the
+ * shifted coordinates are eastings and northings on the National Grid.
+ * 
+ * <p>
+ * The shift grid is read from a binary file which is memory-mapped rather
+ * than loaded into the heap. The file begins with a little-endian header of
+ * <CODE>HEADER_SIZE</CODE> bytes:
+ * 
+ * <pre>
+ *   int    MAGIC
+ *   int    version, currently 1
+ *   int    number of columns (nodes in each row, from west to east)
+ *   int    number of rows (from south to north)
+ *   double easting of the south-west node
+ *   double northing of the south-west node
+ *   double spacing of the nodes
+ *   8 bytes reserved
+ * </pre>
+ * 
+ * followed, for each node in row order, by the easting shift and the
+ * northing shift as little-endian <CODE>float</CODE> values. Nodes at which
+ * the shift is unknown hold <CODE>NaN</CODE>, so that points in the cells
+ * around them are shifted to <CODE>NaN</CODE>. The <CODE>write</CODE>
+ * function creates files in this format.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class GridShiftFile {
+	/**
+	 * The first four bytes of a shift grid file, which are the characters
+	 * <CODE>GSHF</CODE> when read as a little-endian integer.
+	 */
+	public static final int MAGIC = 0x46485347;
+
+	/**
+	 * The size of the header of a shift grid file, in bytes.
+	 */
+	public static final int HEADER_SIZE = 48;
+
+	private static final int VERSION = 1;
+
+	private final int columns, rows;
+	private final double minEasting, minNorthing, spacing;
+
+	private final FloatBuffer shifts;
+
+	/**
+	 * Map a shift grid file.
+	 * 
+	 * @param file
+	 *            The file to be mapped.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be mapped or is not a valid shift grid
+	 *             file.
+	 */
+	public GridShiftFile(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			long size = raf.length();
+
+			if (size < HEADER_SIZE)
+				throw new IOException(file + " is too short");
+
+			if (size > Integer.MAX_VALUE)
+				throw new IOException(file + " is too large");
+
+			MappedByteBuffer map = raf.getChannel().map(
+					FileChannel.MapMode.READ_ONLY, 0, size);
+
+			map.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (map.getInt(0) != MAGIC)
+				throw new IOException(file + " is not a shift grid file");
+
+			if (map.getInt(4) != VERSION)
+				throw new IOException(file + " has unknown version "
+						+ map.getInt(4));
+
+			columns = map.getInt(8);
+			rows = map.getInt(12);
+			minEasting = map.getDouble(16);
+			minNorthing = map.getDouble(24);
+			spacing = map.getDouble(32);
+
+			if (columns < 2 || rows < 2 || !(spacing > 0.0))
+				throw new IOException(file + " has an invalid header");
+
+			if (size != HEADER_SIZE + 8L * columns * rows)
+				throw new IOException(file + " has length " + size
+						+ ", but the header describes " + columns + " by "
+						+ rows + " nodes");
+
+			map.position(HEADER_SIZE);
+
+			shifts = map.slice().order(ByteOrder.LITTLE_ENDIAN)
+					.asFloatBuffer();
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Return the number of nodes in each row of the grid.
+	 * 
+	 * @return The number of columns.
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Return the number of rows of the grid.
+	 * 
+	 * @return The number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Return the easting of the south-west node of the grid.
+	 * 
+	 * @return The easting, in <em>metres</em>.
+	 */
+	public double getMinimumEasting() {
+		return minEasting;
+	}
+
+	/**
+	 * Return the northing of the south-west node of the grid.
+	 * 
+	 * @return The northing, in <em>metres</em>.
+	 */
+	public double getMinimumNorthing() {
+		return minNorthing;
+	}
+
+	/**
+	 * Return the spacing of the nodes of the grid.
+	 * 
+	 * @return The spacing, in <em>metres</em>.
+	 */
+	public double getSpacing() {
+		return spacing;
+	}
+
+	/**
+	 * Apply the shift to a single point.
+	 * 
+	 * @param gridxy
+	 *            The easting and northing to be shifted.
+	 * 
+	 * @return The shifted easting and northing, which are both
+	 *         <CODE>NaN</CODE> if the point lies outside the grid.
+	 */
+	public DPoint ApplyShift(DPoint gridxy) {
+		double[] x = { gridxy.getX() };
+		double[] y = { gridxy.getY() };
+
+		ApplyShift(x, y, 0, 1, x, y);
+
+		return new DPoint(x[0], y[0]);
+	}
+
+	/**
+	 * Apply the shift to a block of points held in parallel arrays. No
+	 * objects are created. Runs of points which fall in the same cell of the
+	 * grid, as consecutive points along a track usually do, re-use the four
+	 * nodes of that cell without reading them again.
+	 * 
+	 * <p>
+	 * The output arrays may be the same as the input arrays, in which case
+	 * the shift is applied in place.
+	 * 
+	 * @param eastings
+	 *            The eastings to be shifted.
+	 * @param northings
+	 *            The northings to be shifted.
+	 * @param offset
+	 *            The index of the first point to be shifted.
+	 * @param length
+	 *            The number of points to be shifted.
+	 * @param shiftedEastings
+	 *            The array which will receive the shifted eastings, at the
+	 *            same indices as the corresponding input points.
+	 * @param shiftedNorthings
+	 *            The array which will receive the shifted northings.
+	 * 
+	 * @return The number of points which lie outside the grid. The shifted
+	 *         coordinates of these points are set to <CODE>NaN</CODE>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public int ApplyShift(double[] eastings, double[] northings, int offset,
+			int length, double[] shiftedEastings, double[] shiftedNorthings)
+			throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(eastings, offset, length,
+				"eastings");
+		TransverseMercatorProjection.checkRange(northings, offset, length,
+				"northings");
+		TransverseMercatorProjection.checkRange(shiftedEastings, offset,
+				length, "shiftedEastings");
+		TransverseMercatorProjection.checkRange(shiftedNorthings, offset,
+				length, "shiftedNorthings");
+
+		int outside = 0;
+
+		int cellColumn = -1, cellRow = -1;
+		double se00 = 0.0, se10 = 0.0, se01 = 0.0, se11 = 0.0;
+		double sn00 = 0.0, sn10 = 0.0, sn01 = 0.0, sn11 = 0.0;
+
+		for (int i = offset; i < offset + length; i++) {
+			double E = eastings[i];
+			double N = northings[i];
+
+			double x = (E - minEasting) / spacing;
+			double y = (N - minNorthing) / spacing;
+
+			if (!(x >= 0.0 && x <= columns - 1 && y >= 0.0 && y <= rows - 1)) {
+				shiftedEastings[i] = Double.NaN;
+				shiftedNorthings[i] = Double.NaN;
+				outside++;
+				continue;
+			}
+
+			int column = Math.min((int) x, columns - 2);
+			int row = Math.min((int) y, rows - 2);
+
+			if (column != cellColumn || row != cellRow) {
+				int k = 2 * (row * columns + column);
+				int l = k + 2 * columns;
+
+				se00 = shifts.get(k);
+				sn00 = shifts.get(k + 1);
+				se10 = shifts.get(k + 2);
+				sn10 = shifts.get(k + 3);
+				se01 = shifts.get(l);
+				sn01 = shifts.get(l + 1);
+				se11 = shifts.get(l + 2);
+				sn11 = shifts.get(l + 3);
+
+				cellColumn = column;
+				cellRow = row;
+			}
+
+			double fx = x - column;
+			double fy = y - row;
+
+			double w00 = (1.0 - fx) * (1.0 - fy);
+			double w10 = fx * (1.0 - fy);
+			double w01 = (1.0 - fx) * fy;
+			double w11 = fx * fy;
+
+			shiftedEastings[i] = E + w00 * se00 + w10 * se10 + w01 * se01
+					+ w11 * se11;
+			shiftedNorthings[i] = N + w00 * sn00 + w10 * sn10 + w01 * sn01
+					+ w11 * sn11;
+		}
+
+		return outside;
+	}
+
+	/**
+	 * Write a shift grid file.
+	 * 
+	 * @param file
+	 *            The file to be written.
+	 * @param columns
+	 *            The number of nodes in each row, from west to east.
+	 * @param rows
+	 *            The number of rows, from south to north.
+	 * @param minEasting
+	 *            The easting of the south-west node, in <em>metres</em>.
+	 * @param minNorthing
+	 *            The northing of the south-west node, in <em>metres</em>.
+	 * @param spacing
+	 *            The spacing of the nodes, in <em>metres</em>.
+	 * @param eastingShifts
+	 *            The easting shift at each node, in row order.
+	 * @param northingShifts
+	 *            The northing shift at each node, in row order.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the dimensions are invalid or the arrays do not hold one
+	 *             value for each node.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static void write(File file, int columns, int rows,
+			double minEasting, double minNorthing, double spacing,
+			float[] eastingShifts, float[] northingShifts)
+			throws IllegalArgumentException, IOException {
+		if (columns < 2 || rows < 2 || !(spacing > 0.0))
+			throw new IllegalArgumentException("Invalid grid dimensions");
+
+		long nodes = (long) columns * rows;
+
+		if (eastingShifts == null || eastingShifts.length != nodes)
+			throw new IllegalArgumentException(
+					"Wrong number of easting shifts");
+
+		if (northingShifts == null || northingShifts.length != nodes)
+			throw new IllegalArgumentException(
+					"Wrong number of northing shifts");
+
+		if (HEADER_SIZE + 8L * nodes > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Grid is too large");
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * (int) nodes)
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(columns);
+		buffer.putInt(rows);
+		buffer.putDouble(minEasting);
+		buffer.putDouble(minNorthing);
+		buffer.putDouble(spacing);
+		buffer.putLong(0L);
+
+		for (int i = 0; i < nodes; i++) {
+			buffer.putFloat(eastingShifts[i]);
+			buffer.putFloat(northingShifts[i]);
+		}
+
+		buffer.flip();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		try {
+			raf.setLength(0);
+
+			FileChannel channel = raf.getChannel();
+
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		} finally {
+			raf.close();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Map projections package
+ *
+ * Lookup tables for 100km grid square letters
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class holds the lookup tables which relate the letters of the
+ * Ordnance Survey grid square prefixes to their positions, and the functions
+ * which unpack the grid square offsets returned by
+ * <CODE>OSGB.GridSquareToPackedOffset</CODE> and
+ * <CODE>OSNI.GridSquareToPackedOffset</CODE>.
+ * 
+ * <p>
+ * The letters A to Z, omitting I, are laid out in a 5 by 5 array with A at
+ * the top left and Z at the bottom right. A packed offset holds the easting
+ * of the south-west corner of the grid square, in <em>metres</em>, in its
+ * upper 32 bits and the northing in its lower 32 bits.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public final class GridSquare {
+	/**
+	 * The value returned in place of a packed offset when the letters do not
+	 * identify a grid square.
+	 */
+	public static final long INVALID = -1L;
+
+	/*
+	 * The letters in order of increasing northing, then increasing easting.
+	 */
+	static final char[] LETTERS = "VWXYZQRSTULMNOPFGHJKABCDE".toCharArray();
+
+	/*
+	 * The column (from the west) and row (from the south) of each letter,
+	 * indexed by character code, or -1 for characters which are not grid
+	 * letters. Lower case letters are accepted.
+	 */
+	private static final byte[] COLUMN = new byte[128];
+	private static final byte[] ROW = new byte[128];
+
+	static {
+		for (int i = 0; i < 128; i++)
+			COLUMN[i] = ROW[i] = -1;
+
+		for (int i = 0; i < LETTERS.length; i++) {
+			char c = LETTERS[i];
+
+			COLUMN[c] = COLUMN[Character.toLowerCase(c)] = (byte) (i % 5);
+			ROW[c] = ROW[Character.toLowerCase(c)] = (byte) (i / 5);
+		}
+	}
+
+	private GridSquare() {
+	}
+
+	static int column(char c) {
+		return c < 128 ? COLUMN[c] : -1;
+	}
+
+	static int row(char c) {
+		return c < 128 ? ROW[c] : -1;
+	}
+
+	/*
+	 * The column and row must be between 0 and 4. Callers check that the
+	 * point lies within the grid before calculating them.
+	 */
+	static char letter(int column, int row) {
+		return LETTERS[5 * row + column];
+	}
+
+	static long pack(int easting, int northing) {
+		return ((long) easting << 32) | (northing & 0xffffffffL);
+	}
+
+	/**
+	 * Extract the easting from a packed grid square offset.
+	 * 
+	 * @param packed
+	 *            The packed offset.
+	 * 
+	 * @return The easting of the south-west corner of the grid square, in
+	 *         <em>metres</em>.
+	 */
+	public static int getEasting(long packed) {
+		return (int) (packed >> 32);
+	}
+
+	/**
+	 * Extract the northing from a packed grid square offset.
+	 * 
+	 * @param packed
+	 *            The packed offset.
+	 * 
+	 * @return The northing of the south-west corner of the grid square, in
+	 *         <em>metres</em>.
+	 */
+	public static int getNorthing(long packed) {
+		return (int) packed;
+	}
+}
@@ -0,0 +1,466 @@
+/*
+ * Map projections package
+ *
+ * Grid square index of grid coordinates
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class is an index of points on the British National Grid or the Irish
+ * Grid which finds the points lying within a grid square identified by a
+ * grid reference prefix, such as every point in <CODE>TQ</CODE> or in
+ * <CODE>TQ38</CODE>.
+ * 
+ * <p>
+ * Each point is given a packed <CODE>long</CODE> key which follows the
+ * hierarchy of the grid references. The upper bits hold the 500km square
+ * and then the 100km square in which the point lies, and the lower bits
+ * hold the easting and northing within the 100km square, in whole
+ * <em>metres</em>, with their decimal digits interleaved from the most
+ * significant. The points in any square named by a grid reference, from
+ * 500km down to 1m, therefore have a contiguous range of keys. The index
+ * holds the keys in increasing order in one array, with the identifiers of
+ * the points in a parallel array, and finds the range for a square by
+ * binary search.
+ * 
+ * <p>
+ * The keys are sorted by a radix sort, so that the time taken to build the
+ * index is proportional to the number of points. The index uses twelve
+ * bytes per point, and building it needs twelve more, so that hundreds of
+ * millions of points can be indexed in a large heap.
+ * 
+ * <p>
+ * Points are identified by their indices in the arrays from which the index
+ * was built, and the points in a square are found in the order of their
+ * keys. Points with a <CODE>NaN</CODE> coordinate, or which lie more than
+ * 1500km west or south of the false origin or 2500km east or north of it,
+ * are left out of the index.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class GridSquareIndex {
+	/*
+	 * The grid coordinates are shifted so that the area covered by the index
+	 * is an 8 by 8 array of 500km squares with its south-west corner at the
+	 * origin. The squares are numbered in order of increasing northing, then
+	 * increasing easting, like the letters in GridSquare.
+	 */
+	private static final double MINIMUM = -1500000.0;
+	private static final double MAXIMUM = 2500000.0;
+	private static final int ORIGIN = 1500000;
+	private static final int LARGE_SQUARES = 8;
+
+	private static final int SQUARE_SHIFT = 34;
+
+	/*
+	 * The range of keys covered by a square for each number of digits in
+	 * its grid reference, from -1 for a 500km square to 5 for a 1m square.
+	 */
+	private static final long[] EXTENTS = { 25L << SQUARE_SHIFT,
+			10000000000L, 100000000L, 1000000L, 10000L, 100L, 1L };
+
+	private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000,
+			100000 };
+
+	/*
+	 * The decimal digits of each number from 0 to 999, spread out so that
+	 * there is a zero digit between each of them.
+	 */
+	private static final int[] SPREAD = new int[1000];
+
+	static {
+		for (int i = 0; i < SPREAD.length; i++)
+			SPREAD[i] = 10000 * (i / 100) + 100 * ((i / 10) % 10) + i % 10;
+	}
+
+	private final OSGB osgb;
+	private final OSNI osni;
+	private final GridReferenceFormat format;
+
+	private final long[] keys;
+	private final int[] ids;
+	private final int size;
+
+	/**
+	 * Build an index of a set of points on the British National Grid.
+	 * 
+	 * @param osgb
+	 *            The projection of the British National Grid, which is used
+	 *            to interpret the grid references given to queries.
+	 * @param eastings
+	 *            The eastings of the points, in <em>metres</em>.
+	 * @param northings
+	 *            The northings of the points, in <em>metres</em>.
+	 * @param offset
+	 *            The index of the first point.
+	 * @param length
+	 *            The number of points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null, or either array is too short
+	 *             for the specified range.
+	 */
+	public GridSquareIndex(OSGB osgb, double[] eastings, double[] northings,
+			int offset, int length) throws IllegalArgumentException {
+		this(osgb, null, new GridReferenceFormat(osgb), eastings, northings,
+				offset, length);
+	}
+
+	/**
+	 * Build an index of a set of points on the Irish Grid.
+	 * 
+	 * @param osni
+	 *            The projection of the Irish Grid, which is used to interpret
+	 *            the grid references given to queries.
+	 * @param eastings
+	 *            The eastings of the points, in <em>metres</em>.
+	 * @param northings
+	 *            The northings of the points, in <em>metres</em>.
+	 * @param offset
+	 *            The index of the first point.
+	 * @param length
+	 *            The number of points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null, or either array is too short
+	 *             for the specified range.
+	 */
+	public GridSquareIndex(OSNI osni, double[] eastings, double[] northings,
+			int offset, int length) throws IllegalArgumentException {
+		this(null, osni, new GridReferenceFormat(osni), eastings, northings,
+				offset, length);
+	}
+
+	private GridSquareIndex(OSGB osgb, OSNI osni, GridReferenceFormat format,
+			double[] eastings, double[] northings, int offset, int length) {
+		TransverseMercatorProjection.checkRange(eastings, offset, length,
+				"eastings");
+		TransverseMercatorProjection.checkRange(northings, offset, length,
+				"northings");
+
+		this.osgb = osgb;
+		this.osni = osni;
+		this.format = format;
+
+		keys = new long[length];
+		ids = new int[length];
+
+		int n = 0;
+
+		for (int i = offset; i < offset + length; i++) {
+			double easting = eastings[i];
+			double northing = northings[i];
+
+			if (!(easting >= MINIMUM && easting < MAXIMUM
+					&& northing >= MINIMUM && northing < MAXIMUM))
+				continue;
+
+			int x = (int) Math.floor(easting) + ORIGIN;
+			int y = (int) Math.floor(northing) + ORIGIN;
+
+			keys[n] = key(x, y);
+			ids[n] = i;
+			n++;
+		}
+
+		size = n;
+
+		RadixSort.sort(keys, ids, size);
+	}
+
+	/**
+	 * Return the number of points in the index.
+	 * 
+	 * @return The number of points in the index.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the points which lie within the grid square identified by a grid
+	 * reference.
+	 * 
+	 * <p>
+	 * The grid reference may have any number of digits from zero to five in
+	 * each of the easting and northing, in any of the forms accepted by
+	 * <CODE>GridReferenceFormat</CODE>, such as <CODE>TQ</CODE>,
+	 * <CODE>TQ38</CODE> or <CODE>TQ 301 804</CODE>. On the British National
+	 * Grid, a single letter identifies a 500km square.
+	 * 
+	 * @param reference
+	 *            The grid reference.
+	 * @param ids
+	 *            The array which will receive the identifiers of the
+	 *            points.
+	 * @param offset
+	 *            The index in the array of the first identifier.
+	 * @param length
+	 *            The maximum number of identifiers to be stored.
+	 * 
+	 * @return The number of points within the square. If this is greater
+	 *         than <CODE>length</CODE>, only the first <CODE>length</CODE>
+	 *         of them have been stored.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the reference is null or is not a valid grid reference,
+	 *             or the array is too short for the specified range.
+	 */
+	public int find(CharSequence reference, int[] ids, int offset, int length)
+			throws IllegalArgumentException {
+		double[] easting = new double[1];
+		double[] northing = new double[1];
+
+		int digits = parse(reference, easting, northing);
+
+		return find(easting[0], northing[0], digits, ids, offset, length);
+	}
+
+	/**
+	 * Count the points which lie within the grid square identified by a
+	 * grid reference, which may take any of the forms accepted by
+	 * <CODE>find</CODE>.
+	 * 
+	 * @param reference
+	 *            The grid reference.
+	 * 
+	 * @return The number of points within the square.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the reference is null or is not a valid grid reference.
+	 */
+	public int count(CharSequence reference) throws IllegalArgumentException {
+		double[] easting = new double[1];
+		double[] northing = new double[1];
+
+		int digits = parse(reference, easting, northing);
+
+		return count(easting[0], northing[0], digits);
+	}
+
+	/**
+	 * Find the points which lie within the grid square of the specified size
+	 * which contains a position.
+	 * 
+	 * @param easting
+	 *            The easting of the position, in <em>metres</em>.
+	 * @param northing
+	 *            The northing of the position, in <em>metres</em>.
+	 * @param digits
+	 *            The number of digits in each of the easting and northing of
+	 *            a grid reference to the square, from 0 for a 100km square to
+	 *            5 for a 1m square, or -1 for a 500km square.
+	 * @param ids
+	 *            The array which will receive the identifiers of the
+	 *            points.
+	 * @param offset
+	 *            The index in the array of the first identifier.
+	 * @param length
+	 *            The maximum number of identifiers to be stored.
+	 * 
+	 * @return The number of points within the square. If this is greater
+	 *         than <CODE>length</CODE>, only the first <CODE>length</CODE>
+	 *         of them have been stored.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the number of digits is not between -1 and 5, or the
+	 *             array is too short for the specified range.
+	 */
+	public int find(double easting, double northing, int digits, int[] ids,
+			int offset, int length) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(ids, offset, length, "ids");
+
+		long first = firstKey(easting, northing, digits);
+
+		if (first < 0)
+			return 0;
+
+		int start = lowerBound(first);
+		int end = lowerBound(first + EXTENTS[digits + 1]);
+
+		System.arraycopy(this.ids, start, ids, offset, Math.min(end - start,
+				length));
+
+		return end - start;
+	}
+
+	/**
+	 * Count the points which lie within the grid square of the specified
+	 * size which contains a position.
+	 * 
+	 * @param easting
+	 *            The easting of the position, in <em>metres</em>.
+	 * @param northing
+	 *            The northing of the position, in <em>metres</em>.
+	 * @param digits
+	 *            The number of digits in each of the easting and northing of
+	 *            a grid reference to the square, from 0 for a 100km square to
+	 *            5 for a 1m square, or -1 for a 500km square.
+	 * 
+	 * @return The number of points within the square.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the number of digits is not between -1 and 5.
+	 */
+	public int count(double easting, double northing, int digits)
+			throws IllegalArgumentException {
+		long first = firstKey(easting, northing, digits);
+
+		if (first < 0)
+			return 0;
+
+		return lowerBound(first + EXTENTS[digits + 1]) - lowerBound(first);
+	}
+
+	/*
+	 * Calculate the key of a point from its shifted easting and northing,
+	 * which must lie within the area covered by the index.
+	 */
+	private static long key(int easting, int northing) {
+		int x = easting / 100000;
+		int y = northing / 100000;
+
+		long square = 25 * (LARGE_SQUARES * (y / 5) + x / 5) + 5 * (y % 5)
+				+ x % 5;
+
+		return (square << SQUARE_SHIFT) + 10L
+				* spread(easting - 100000 * x) + spread(northing - 100000 * y);
+	}
+
+	private static long spread(int metres) {
+		return 10000L * SPREAD[metres / 100] + SPREAD[metres % 100];
+	}
+
+	/*
+	 * Calculate the smallest key in the square of the specified size which
+	 * contains a position, or -1 if the position lies outside the area
+	 * covered by the index.
+	 */
+	private static long firstKey(double easting, double northing, int digits)
+			throws IllegalArgumentException {
+		if (digits < -1 || digits > 5)
+			throw new IllegalArgumentException("Number of digits " + digits
+					+ " is not between -1 and 5");
+
+		if (!(easting >= MINIMUM && easting < MAXIMUM && northing >= MINIMUM
+				&& northing < MAXIMUM))
+			return -1L;
+
+		int x = (int) Math.floor(easting) + ORIGIN;
+		int y = (int) Math.floor(northing) + ORIGIN;
+
+		if (digits < 0) {
+			long square = 25 * (LARGE_SQUARES * (y / 500000) + x / 500000);
+
+			return square << SQUARE_SHIFT;
+		}
+
+		int scale = POWERS_OF_TEN[5 - digits];
+
+		x -= (x % 100000) % scale;
+		y -= (y % 100000) % scale;
+
+		return key(x, y);
+	}
+
+	/*
+	 * Find the position of the first key which is not less than the
+	 * specified key.
+	 */
+	private int lowerBound(long key) {
+		int low = 0, high = size;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (keys[middle] < key)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+
+	/*
+	 * Parse a grid reference, storing the south-west corner of the square
+	 * which it identifies and returning the number of digits. References
+	 * which consist only of letters are handled here, because
+	 * GridReferenceFormat requires at least one digit.
+	 */
+	private int parse(CharSequence reference, double[] easting,
+			double[] northing) throws IllegalArgumentException {
+		if (reference == null)
+			throw new IllegalArgumentException("Reference is null");
+
+		int end = reference.length();
+		int start = GridReferenceFormat.skipSeparators(reference, 0, end);
+		int letters = 0;
+
+		while (letters < 2 && start + letters < end
+				&& GridSquare.column(reference.charAt(start + letters)) >= 0)
+			letters++;
+
+		int i = GridReferenceFormat.skipSeparators(reference, start + letters,
+				end);
+
+		if (i == end) {
+			long offset = GridSquare.INVALID;
+			int digits = 0;
+
+			if (osni != null) {
+				if (letters == 1)
+					offset = osni.GridSquareToPackedOffset(reference
+							.charAt(start));
+			} else if (letters == 1) {
+				offset = osgb.GridSquareToPackedOffset(reference.charAt(start),
+						'V');
+				digits = -1;
+			} else if (letters == 2) {
+				offset = osgb.GridSquareToPackedOffset(reference.charAt(start),
+						reference.charAt(start + 1));
+			}
+
+			if (offset != GridSquare.INVALID) {
+				easting[0] = GridSquare.getEasting(offset);
+				northing[0] = GridSquare.getNorthing(offset);
+
+				return digits;
+			}
+		} else {
+			int digits = format.parse(reference, 0, end, easting, northing, 0);
+
+			if (digits >= 0)
+				return digits;
+		}
+
+		throw new IllegalArgumentException("Invalid grid reference: "
+				+ reference);
+	}
+}
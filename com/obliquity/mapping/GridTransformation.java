@@ -0,0 +1,268 @@
+/*
+ * Map projections package
+ *
+ * Transformation between two transverse Mercator grids
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class converts grid coordinates on one transverse Mercator grid
+ * directly to grid coordinates on another, for example from the Irish Grid
+ * to the British National Grid.
+ * 
+ * <p>
+ * Each point is converted to latitude and longitude by the source
+ * projection, optionally moved to the datum of the target grid by a
+ * <CODE>HelmertTransformation</CODE>, and then converted to grid
+ * coordinates by the target projection. The
+ * bulk conversion functions work through the input in short runs, writing
+ * the intermediate latitudes and longitudes into the output array itself
+ * and converting them in place, so that no intermediate objects or arrays
+ * are created and each run stays in the processor cache between the
+ * stages.
+ * 
+ * <p>
+ * The two stages cannot share trigonometric functions: the inverse
+ * transform evaluates them at the footpoint latitude, whilst the forward
+ * transform needs them at the final latitude and at the longitude relative
+ * to a different central meridian.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class GridTransformation {
+	private final TransverseMercatorProjection source;
+	private final TransverseMercatorProjection target;
+	private final HelmertTransformation datum;
+
+	/*
+	 * The number of points converted by each stage before moving on to the
+	 * next stage.
+	 */
+	private static final int RUN = 4096;
+
+	/**
+	 * Construct a transformation between two grids.
+	 * 
+	 * @param source
+	 *            The projection of the grid from which points are converted.
+	 * @param target
+	 *            The projection of the grid to which points are converted.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either projection is null.
+	 */
+	public GridTransformation(TransverseMercatorProjection source,
+			TransverseMercatorProjection target)
+			throws IllegalArgumentException {
+		this(source, null, target);
+	}
+
+	/**
+	 * Construct a transformation between two grids which are based on
+	 * different datums.
+	 * 
+	 * @param source
+	 *            The projection of the grid from which points are converted.
+	 * @param datum
+	 *            The transformation from the datum of the source grid to the
+	 *            datum of the target grid, or null if the latitudes and
+	 *            longitudes are to be passed from one projection to the other
+	 *            unchanged.
+	 * @param target
+	 *            The projection of the grid to which points are converted.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either projection is null.
+	 */
+	public GridTransformation(TransverseMercatorProjection source,
+			HelmertTransformation datum, TransverseMercatorProjection target)
+			throws IllegalArgumentException {
+		if (source == null)
+			throw new IllegalArgumentException("Source projection is null");
+
+		if (target == null)
+			throw new IllegalArgumentException("Target projection is null");
+
+		this.source = source;
+		this.datum = datum;
+		this.target = target;
+	}
+
+	/**
+	 * Return the projection of the grid from which points are converted.
+	 * 
+	 * @return The source projection.
+	 */
+	public TransverseMercatorProjection getSource() {
+		return source;
+	}
+
+	/**
+	 * Return the projection of the grid to which points are converted.
+	 * 
+	 * @return The target projection.
+	 */
+	public TransverseMercatorProjection getTarget() {
+		return target;
+	}
+
+	/**
+	 * Return the transformation between the datums of the two grids.
+	 * 
+	 * @return The datum transformation, or null if there is none.
+	 */
+	public HelmertTransformation getDatumTransformation() {
+		return datum;
+	}
+
+	/**
+	 * Convert a single point from the source grid to the target grid.
+	 * 
+	 * @param gridxy
+	 *            The easting and northing on the source grid.
+	 * 
+	 * @return The easting and northing on the target grid.
+	 */
+	public DPoint GridToGrid(DPoint gridxy) {
+		double[] xy = { gridxy.getX(), gridxy.getY() };
+
+		GridToGrid(xy, 0, xy, 0, 1);
+
+		return new DPoint(xy[0], xy[1]);
+	}
+
+	/**
+	 * Convert a block of points from the source grid to the target grid. The
+	 * coordinates are held in parallel arrays, and no objects are created
+	 * during the conversion.
+	 * 
+	 * <p>
+	 * The output arrays may be the same as the input arrays, in which case
+	 * the conversion is performed in place.
+	 * 
+	 * @param eastings
+	 *            The eastings of the points on the source grid.
+	 * @param northings
+	 *            The northings of the points on the source grid.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param targetEastings
+	 *            The array which will receive the eastings on the target
+	 *            grid, at the same indices as the corresponding input points.
+	 * @param targetNorthings
+	 *            The array which will receive the northings on the target
+	 *            grid, at the same indices as the corresponding input points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public void GridToGrid(double[] eastings, double[] northings, int offset,
+			int length, double[] targetEastings, double[] targetNorthings)
+			throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(eastings, offset, length,
+				"eastings");
+		TransverseMercatorProjection.checkRange(northings, offset, length,
+				"northings");
+		TransverseMercatorProjection.checkRange(targetEastings, offset,
+				length, "targetEastings");
+		TransverseMercatorProjection.checkRange(targetNorthings, offset,
+				length, "targetNorthings");
+
+		for (int i = offset; i < offset + length; i += RUN) {
+			int n = Math.min(RUN, offset + length - i);
+
+			source.GridToLongitudeAndLatitude(eastings, northings, i, n,
+					targetEastings, targetNorthings);
+
+			if (datum != null)
+				datum.Transform(targetEastings, targetNorthings, null, i, n,
+						targetEastings, targetNorthings, null);
+
+			target.LatitudeAndLongitudeToGrid(targetEastings,
+					targetNorthings, i, n, targetEastings, targetNorthings);
+		}
+	}
+
+	/**
+	 * Convert a block of points from the source grid to the target grid. The
+	 * input and output arrays hold interleaved coordinates in the order
+	 * easting, northing, easting, northing, ... No objects are created during
+	 * the conversion.
+	 * 
+	 * <p>
+	 * The output array may be the same as the input array. If the offsets
+	 * are also the same, the conversion is performed in place; otherwise the
+	 * input and output ranges must not overlap.
+	 * 
+	 * @param src
+	 *            The array of interleaved eastings and northings on the
+	 *            source grid.
+	 * @param srcOffset
+	 *            The index in <CODE>src</CODE> of the easting of the first
+	 *            point.
+	 * @param dst
+	 *            The array which will receive the interleaved eastings and
+	 *            northings on the target grid.
+	 * @param dstOffset
+	 *            The index in <CODE>dst</CODE> at which the easting of the
+	 *            first point will be stored.
+	 * @param count
+	 *            The number of points to be converted.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either array is too short for the specified range, or
+	 *             the input and output ranges overlap without being the
+	 *             same.
+	 */
+	public void GridToGrid(double[] src, int srcOffset, double[] dst,
+			int dstOffset, int count) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(src, srcOffset, 2 * count,
+				"src");
+		TransverseMercatorProjection.checkRange(dst, dstOffset, 2 * count,
+				"dst");
+		TransverseMercatorProjection.checkOverlap(src, srcOffset, dst,
+				dstOffset, 2 * count);
+
+		for (int k = 0; k < count; k += RUN) {
+			int n = Math.min(RUN, count - k);
+
+			source.GridToLongitudeAndLatitude(src, srcOffset + 2 * k, dst,
+					dstOffset + 2 * k, n);
+
+			if (datum != null)
+				datum.Transform(dst, dstOffset + 2 * k, dst, dstOffset + 2 * k,
+						n);
+
+			target.LatitudeAndLongitudeToGrid(dst, dstOffset + 2 * k, dst,
+					dstOffset + 2 * k, n);
+		}
+	}
+}
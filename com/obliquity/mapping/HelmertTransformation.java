@@ -0,0 +1,383 @@
+/*
+ * Map projections package
+ *
+ * Seven-parameter Helmert datum transformation
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class transforms latitudes and longitudes from one geodetic datum to
+ * another. Each point is converted to Cartesian coordinates on the source
+ * ellipsoid, moved by a seven-parameter Helmert transformation (a
+ * translation, a small rotation and a change of scale), and converted back
+ * to latitude and longitude on the target ellipsoid.
+ * 
+ * <p>
+ * The rotations follow the position vector convention used by the Ordnance
+ * Survey, in which a point is transformed by
+ * 
+ * <pre>
+ *   X' = tx + (1 + s) X - rz Y + ry Z
+ *   Y' = ty + rz X + (1 + s) Y - rx Z
+ *   Z' = tz - ry X + rx Y + (1 + s) Z
+ * </pre>
+ * 
+ * <p>
+ * The transformation is held internally as a 3x3 matrix and a translation,
+ * so that it can be inverted and combined with other transformations
+ * exactly. A Helmert transformation between ETRS89 (or WGS84) and OSGB36 is
+ * accurate to a few metres across Great Britain; for centimetre accuracy a
+ * grid-based transformation is needed.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class HelmertTransformation {
+	/**
+	 * The transformation from ETRS89 to OSGB36, the datum of the British
+	 * National Grid, published by the Ordnance Survey.
+	 */
+	public static final HelmertTransformation ETRS89_TO_OSGB36 = new HelmertTransformation(
+			Ellipsoid.GRS80, Ellipsoid.AIRY_1830, -446.448, 125.157, -542.060,
+			-0.1502, -0.2470, -0.8421, 20.4894);
+
+	/**
+	 * The transformation from ETRS89 to the Irish datum of 1975, the datum
+	 * of the Irish Grid.
+	 */
+	public static final HelmertTransformation ETRS89_TO_IRL1975 = new HelmertTransformation(
+			Ellipsoid.GRS80, Ellipsoid.AIRY_MODIFIED, -482.530, 130.596,
+			-564.557, -1.042, -0.214, -0.631, -8.150);
+
+	private static final double ARCSECONDS_TO_RADIANS = Math.PI
+			/ (180.0 * 3600.0);
+
+	private final Ellipsoid source, target;
+
+	private final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+
+	private final double t0, t1, t2;
+
+	/**
+	 * Construct a transformation from its seven parameters.
+	 * 
+	 * @param source
+	 *            The ellipsoid of the source datum.
+	 * @param target
+	 *            The ellipsoid of the target datum.
+	 * @param tx
+	 *            The translation along the X axis, in <em>metres</em>.
+	 * @param ty
+	 *            The translation along the Y axis, in <em>metres</em>.
+	 * @param tz
+	 *            The translation along the Z axis, in <em>metres</em>.
+	 * @param rx
+	 *            The rotation about the X axis, in <em>seconds of arc</em>.
+	 * @param ry
+	 *            The rotation about the Y axis, in <em>seconds of arc</em>.
+	 * @param rz
+	 *            The rotation about the Z axis, in <em>seconds of arc</em>.
+	 * @param s
+	 *            The change of scale, in <em>parts per million</em>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either ellipsoid is null.
+	 */
+	public HelmertTransformation(Ellipsoid source, Ellipsoid target,
+			double tx, double ty, double tz, double rx, double ry, double rz,
+			double s) throws IllegalArgumentException {
+		this(source, target, 1.0 + 1.0e-6 * s, -rz * ARCSECONDS_TO_RADIANS,
+				ry * ARCSECONDS_TO_RADIANS, rz * ARCSECONDS_TO_RADIANS,
+				1.0 + 1.0e-6 * s, -rx * ARCSECONDS_TO_RADIANS, -ry
+						* ARCSECONDS_TO_RADIANS, rx * ARCSECONDS_TO_RADIANS,
+				1.0 + 1.0e-6 * s, tx, ty, tz);
+	}
+
+	private HelmertTransformation(Ellipsoid source, Ellipsoid target,
+			double m00, double m01, double m02, double m10, double m11,
+			double m12, double m20, double m21, double m22, double t0,
+			double t1, double t2) throws IllegalArgumentException {
+		if (source == null)
+			throw new IllegalArgumentException("Source ellipsoid is null");
+
+		if (target == null)
+			throw new IllegalArgumentException("Target ellipsoid is null");
+
+		this.source = source;
+		this.target = target;
+
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m02 = m02;
+		this.m10 = m10;
+		this.m11 = m11;
+		this.m12 = m12;
+		this.m20 = m20;
+		this.m21 = m21;
+		this.m22 = m22;
+
+		this.t0 = t0;
+		this.t1 = t1;
+		this.t2 = t2;
+	}
+
+	/**
+	 * Return the ellipsoid of the source datum.
+	 * 
+	 * @return The source ellipsoid.
+	 */
+	public Ellipsoid getSource() {
+		return source;
+	}
+
+	/**
+	 * Return the ellipsoid of the target datum.
+	 * 
+	 * @return The target ellipsoid.
+	 */
+	public Ellipsoid getTarget() {
+		return target;
+	}
+
+	/**
+	 * Return the exact inverse of this transformation, which converts from
+	 * the target datum back to the source datum.
+	 * 
+	 * @return The inverse transformation.
+	 */
+	public HelmertTransformation getInverse() {
+		double c00 = m11 * m22 - m12 * m21;
+		double c01 = m02 * m21 - m01 * m22;
+		double c02 = m01 * m12 - m02 * m11;
+		double c10 = m12 * m20 - m10 * m22;
+		double c11 = m00 * m22 - m02 * m20;
+		double c12 = m02 * m10 - m00 * m12;
+		double c20 = m10 * m21 - m11 * m20;
+		double c21 = m01 * m20 - m00 * m21;
+		double c22 = m00 * m11 - m01 * m10;
+
+		double det = m00 * c00 + m01 * c10 + m02 * c20;
+
+		c00 /= det;
+		c01 /= det;
+		c02 /= det;
+		c10 /= det;
+		c11 /= det;
+		c12 /= det;
+		c20 /= det;
+		c21 /= det;
+		c22 /= det;
+
+		return new HelmertTransformation(target, source, c00, c01, c02, c10,
+				c11, c12, c20, c21, c22, -(c00 * t0 + c01 * t1 + c02 * t2),
+				-(c10 * t0 + c11 * t1 + c12 * t2), -(c20 * t0 + c21 * t1 + c22
+						* t2));
+	}
+
+	/**
+	 * Return the transformation which applies this transformation followed
+	 * by the specified transformation. The intermediate datum is not
+	 * visited, so the result is both faster and exact.
+	 * 
+	 * @param next
+	 *            The transformation to apply second. Its source ellipsoid
+	 *            should be the target ellipsoid of this transformation.
+	 * 
+	 * @return The combined transformation.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the transformation is null.
+	 */
+	public HelmertTransformation followedBy(HelmertTransformation next)
+			throws IllegalArgumentException {
+		if (next == null)
+			throw new IllegalArgumentException("Transformation is null");
+
+		HelmertTransformation n = next;
+
+		return new HelmertTransformation(source, n.target, n.m00 * m00 + n.m01
+				* m10 + n.m02 * m20, n.m00 * m01 + n.m01 * m11 + n.m02 * m21,
+				n.m00 * m02 + n.m01 * m12 + n.m02 * m22, n.m10 * m00 + n.m11
+						* m10 + n.m12 * m20, n.m10 * m01 + n.m11 * m11 + n.m12
+						* m21, n.m10 * m02 + n.m11 * m12 + n.m12 * m22, n.m20
+						* m00 + n.m21 * m10 + n.m22 * m20, n.m20 * m01 + n.m21
+						* m11 + n.m22 * m21, n.m20 * m02 + n.m21 * m12 + n.m22
+						* m22, n.m00 * t0 + n.m01 * t1 + n.m02 * t2 + n.t0,
+				n.m10 * t0 + n.m11 * t1 + n.m12 * t2 + n.t1, n.m20 * t0 + n.m21
+						* t1 + n.m22 * t2 + n.t2);
+	}
+
+	/**
+	 * Transform a single point.
+	 * 
+	 * @param lonlat
+	 *            The longitude and latitude of the point on the source datum,
+	 *            in <em>radians</em>. The point is assumed to lie on the
+	 *            source ellipsoid.
+	 * 
+	 * @return The longitude and latitude on the target datum, in
+	 *         <em>radians</em>.
+	 */
+	public DPoint Transform(DPoint lonlat) {
+		double[] lon = { lonlat.getX() };
+		double[] lat = { lonlat.getY() };
+
+		Transform(lon, lat, null, 0, 1, lon, lat, null);
+
+		return new DPoint(lon[0], lat[0]);
+	}
+
+	/**
+	 * Transform a block of points, held in parallel arrays. No objects are
+	 * created during the transformation.
+	 * 
+	 * <p>
+	 * The output arrays may be the same as the input arrays, in which case
+	 * the transformation is performed in place.
+	 * 
+	 * @param longitudes
+	 *            The longitudes on the source datum, in <em>radians</em>.
+	 * @param latitudes
+	 *            The latitudes on the source datum, in <em>radians</em>.
+	 * @param heights
+	 *            The heights above the source ellipsoid, or null if the
+	 *            points lie on the ellipsoid.
+	 * @param offset
+	 *            The index of the first point to be transformed.
+	 * @param length
+	 *            The number of points to be transformed.
+	 * @param targetLongitudes
+	 *            The array which will receive the longitudes on the target
+	 *            datum, at the same indices as the corresponding input
+	 *            points.
+	 * @param targetLatitudes
+	 *            The array which will receive the latitudes on the target
+	 *            datum.
+	 * @param targetHeights
+	 *            The array which will receive the heights above the target
+	 *            ellipsoid, or null if they are not required.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public void Transform(double[] longitudes, double[] latitudes,
+			double[] heights, int offset, int length,
+			double[] targetLongitudes, double[] targetLatitudes,
+			double[] targetHeights) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+		if (heights != null)
+			TransverseMercatorProjection.checkRange(heights, offset, length,
+					"heights");
+		TransverseMercatorProjection.checkRange(targetLongitudes, offset,
+				length, "targetLongitudes");
+		TransverseMercatorProjection.checkRange(targetLatitudes, offset,
+				length, "targetLatitudes");
+		if (targetHeights != null)
+			TransverseMercatorProjection.checkRange(targetHeights, offset,
+					length, "targetHeights");
+
+		double[] v = new double[3];
+
+		for (int i = offset; i < offset + length; i++) {
+			transform(longitudes[i], latitudes[i], heights == null ? 0.0
+					: heights[i], v);
+
+			targetLongitudes[i] = v[0];
+			targetLatitudes[i] = v[1];
+
+			if (targetHeights != null)
+				targetHeights[i] = v[2];
+		}
+	}
+
+	/**
+	 * Transform a block of points on the source ellipsoid. The input and
+	 * output arrays hold interleaved coordinates in the order longitude,
+	 * latitude, longitude, latitude, ... in <em>radians</em>. No objects are
+	 * created during the transformation.
+	 * 
+	 * <p>
+	 * The output array may be the same as the input array. If the offsets
+	 * are also the same, the transformation is performed in place; otherwise
+	 * the input and output ranges must not overlap.
+	 * 
+	 * @param src
+	 *            The array of interleaved longitudes and latitudes on the
+	 *            source datum.
+	 * @param srcOffset
+	 *            The index in <CODE>src</CODE> of the longitude of the first
+	 *            point.
+	 * @param dst
+	 *            The array which will receive the interleaved longitudes and
+	 *            latitudes on the target datum.
+	 * @param dstOffset
+	 *            The index in <CODE>dst</CODE> at which the longitude of the
+	 *            first point will be stored.
+	 * @param count
+	 *            The number of points to be transformed.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either array is too short for the specified range, or
+	 *             the input and output ranges overlap without being the
+	 *             same.
+	 */
+	public void Transform(double[] src, int srcOffset, double[] dst,
+			int dstOffset, int count) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(src, srcOffset, 2 * count,
+				"src");
+		TransverseMercatorProjection.checkRange(dst, dstOffset, 2 * count,
+				"dst");
+		TransverseMercatorProjection.checkOverlap(src, srcOffset, dst,
+				dstOffset, 2 * count);
+
+		double[] v = new double[3];
+
+		for (int i = 0; i < 2 * count; i += 2) {
+			transform(src[srcOffset + i], src[srcOffset + i + 1], 0.0, v);
+
+			dst[dstOffset + i] = v[0];
+			dst[dstOffset + i + 1] = v[1];
+		}
+	}
+
+	/*
+	 * Transform a single point, storing the longitude, latitude and height
+	 * on the target datum in the array.
+	 */
+	private void transform(double lambda, double phi, double h, double[] v) {
+		source.geodeticToCartesian(lambda, phi, h, v);
+
+		double x = v[0], y = v[1], z = v[2];
+
+		target.cartesianToGeodetic(t0 + m00 * x + m01 * y + m02 * z, t1 + m10
+				* x + m11 * y + m12 * z, t2 + m20 * x + m21 * y + m22 * z, v);
+	}
+}
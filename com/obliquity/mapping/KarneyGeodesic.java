@@ -0,0 +1,905 @@
+/*
+ * Map projections package
+ *
+ * Karney algorithms for geodesics on an ellipsoid
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class solves the direct and inverse geodesic problems by the method
+ * of C. F. F. Karney, <em>Algorithms for geodesics</em>, J. Geodesy 87,
+ * 43-55 (2013), using series expansions to sixth order in the third
+ * flattening. The inverse solution converges for every pair of points,
+ * including nearly antipodal points, and both solutions are accurate to
+ * about 15 nanometres on the Earth.
+ * 
+ * <p>
+ * The structure and the series coefficients follow Karney's reference
+ * implementation, GeographicLib, but angles are in <em>radians</em>
+ * throughout, and the intermediate results are kept in a
+ * <CODE>Workspace</CODE> or <CODE>Line</CODE> supplied by the caller so
+ * that bulk calculations create no objects.
+ * 
+ * <p>
+ * Azimuths at the second point are returned in the convention of
+ * <CODE>EllipsoidalArc</CODE>, that is, as the direction from the second
+ * point back towards the first.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+final class KarneyGeodesic {
+	private static final int nA1 = 6, nC1 = 6, nC1p = 6, nA2 = 6, nC2 = 6,
+			nA3 = 6, nC3 = 6, nC3x = (nC3 * (nC3 - 1)) / 2;
+
+	private static final int MAXIT1 = 20, MAXIT2 = MAXIT1 + 53 + 10;
+
+	private static final double TINY = Math.sqrt(Double.MIN_NORMAL);
+	private static final double TOL0 = Math.ulp(1.0);
+	private static final double TOL1 = 200 * TOL0;
+	private static final double TOL2 = Math.sqrt(TOL0);
+	private static final double TOLB = TOL0 * TOL2;
+	private static final double XTHRESH = 1000 * TOL2;
+
+	private static final double HALF_PI = Math.PI / 2.0;
+	private static final double TWO_PI = 2.0 * Math.PI;
+
+	private final double a, f, f1, ep2, n, b, etol2;
+
+	private final double[] A3x = new double[nA3], C3x = new double[nC3x];
+
+	/*
+	 * Scratch storage for the inverse problem, including the values which
+	 * GeographicLib returns from its internal functions in small objects.
+	 */
+	static final class Workspace {
+		final double[] C1a = new double[nC1 + 1];
+		final double[] C2a = new double[nC2 + 1];
+		final double[] C3a = new double[nC3];
+
+		double salp1, calp1, salp2, calp2, sig12, dnm;
+		double ssig1, csig1, ssig2, csig2, eps, lam12, dlam12;
+		double s12b, m12b;
+	}
+
+	/*
+	 * The terms of a geodesic which depend only upon its starting point and
+	 * azimuth, from which points at any distance along it can be found.
+	 */
+	static final class Line {
+		final double[] C1a = new double[nC1 + 1];
+		final double[] C1pa = new double[nC1p + 1];
+		final double[] C3a = new double[nC3];
+
+		double salp0, calp0, ssig1, csig1, somg1, comg1, k2;
+		double A1m1, B11, stau1, ctau1, A3c, B31;
+	}
+
+	KarneyGeodesic(Ellipsoid ellipsoid) {
+		a = ellipsoid.getSemiMajorAxis();
+		f = ellipsoid.getFlattening();
+		f1 = 1.0 - f;
+
+		double e2 = f * (2.0 - f);
+
+		ep2 = e2 / (f1 * f1);
+		n = f / (2.0 - f);
+		b = a * f1;
+
+		etol2 = 0.1 * TOL2
+				/ Math.sqrt(Math.max(0.001, Math.abs(f))
+						* Math.min(1.0, 1.0 - f / 2.0) / 2.0);
+
+		A3coeff();
+		C3coeff();
+	}
+
+	/*
+	 * Solve the inverse problem, storing the distance and the azimuths at
+	 * the two points in the result array. Returns false, having stored NaN,
+	 * if either latitude is invalid.
+	 */
+	boolean inverse(double lon1, double lat1, double lon2, double lat2,
+			Workspace w, double[] result) {
+		double lon12 = Math.IEEEremainder(lon2 - lon1, TWO_PI);
+
+		int lonsign = lon12 >= 0 ? 1 : -1;
+
+		lon12 = lonsign * angRound(lon12);
+
+		double lon12s = Math.PI - lon12;
+		double lam12 = lon12, slam12, clam12;
+
+		if (lon12 > HALF_PI) {
+			slam12 = Math.sin(lon12s);
+			clam12 = -Math.cos(lon12s);
+		} else {
+			slam12 = Math.sin(lon12);
+			clam12 = Math.cos(lon12);
+		}
+
+		lat1 = angRound(latFix(lat1));
+		lat2 = angRound(latFix(lat2));
+
+		/*
+		 * Swap the points so that the point with the higher absolute latitude
+		 * is the first, and make its latitude negative.
+		 */
+		int swapp = Math.abs(lat1) < Math.abs(lat2) ? -1 : 1;
+
+		if (swapp < 0) {
+			lonsign *= -1;
+			double t = lat1;
+			lat1 = lat2;
+			lat2 = t;
+		}
+
+		int latsign = lat1 < 0 ? 1 : -1;
+
+		lat1 *= latsign;
+		lat2 *= latsign;
+
+		double sbet1 = f1 * Math.sin(lat1), cbet1 = cosLatitude(lat1);
+		double r = Math.sqrt(sbet1 * sbet1 + cbet1 * cbet1);
+		sbet1 /= r;
+		cbet1 /= r;
+		cbet1 = Math.max(TINY, cbet1);
+
+		double sbet2 = f1 * Math.sin(lat2), cbet2 = cosLatitude(lat2);
+		r = Math.sqrt(sbet2 * sbet2 + cbet2 * cbet2);
+		sbet2 /= r;
+		cbet2 /= r;
+		cbet2 = Math.max(TINY, cbet2);
+
+		if (cbet1 < -sbet1) {
+			if (cbet2 == cbet1)
+				sbet2 = sbet2 < 0 ? sbet1 : -sbet1;
+		} else {
+			if (Math.abs(sbet2) == -sbet1)
+				cbet2 = cbet1;
+		}
+
+		double dn1 = Math.sqrt(1 + ep2 * sbet1 * sbet1);
+		double dn2 = Math.sqrt(1 + ep2 * sbet2 * sbet2);
+
+		double sig12, salp1 = 0.0, calp1 = 0.0, salp2 = 0.0, calp2 = 0.0, s12x = 0.0;
+
+		boolean meridian = lat1 == -HALF_PI || slam12 == 0;
+
+		if (meridian) {
+			/*
+			 * The points lie on a single meridian.
+			 */
+			calp1 = clam12;
+			salp1 = slam12;
+			calp2 = 1;
+			salp2 = 0;
+
+			double ssig1 = sbet1, csig1 = calp1 * cbet1;
+			double ssig2 = sbet2, csig2 = calp2 * cbet2;
+
+			sig12 = Math.atan2(Math.max(0.0, csig1 * ssig2 - ssig1 * csig2),
+					csig1 * csig2 + ssig1 * ssig2);
+
+			lengths(n, sig12, ssig1, csig1, dn1, ssig2, csig2, dn2, w);
+
+			s12x = w.s12b;
+			double m12x = w.m12b;
+
+			if (sig12 < 1 || m12x >= 0) {
+				if (sig12 < 3 * TINY
+						|| (sig12 < TOL0 && (s12x < 0 || m12x < 0)))
+					s12x = 0;
+
+				s12x *= b;
+			} else
+				meridian = false;
+		}
+
+		if (!meridian && sbet1 == 0 && (f <= 0 || lon12s >= f * Math.PI)) {
+			/*
+			 * The geodesic runs along the equator.
+			 */
+			calp1 = calp2 = 0;
+			salp1 = salp2 = 1;
+			s12x = a * lam12;
+		} else if (!meridian) {
+			inverseStart(sbet1, cbet1, dn1, sbet2, cbet2, dn2, lam12, slam12,
+					clam12, w);
+
+			sig12 = w.sig12;
+			salp1 = w.salp1;
+			calp1 = w.calp1;
+
+			if (sig12 >= 0) {
+				/*
+				 * A short line, solved directly by the starting estimate.
+				 */
+				salp2 = w.salp2;
+				calp2 = w.calp2;
+				s12x = sig12 * b * w.dnm;
+			} else {
+				/*
+				 * Newton's method, falling back on bisection of a bracket.
+				 */
+				double ssig1 = Double.NaN, csig1 = Double.NaN;
+				double ssig2 = Double.NaN, csig2 = Double.NaN;
+				double eps = Double.NaN;
+
+				double salp1a = TINY, calp1a = 1, salp1b = TINY, calp1b = -1;
+
+				boolean tripn = false, tripb = false;
+
+				for (int numit = 0; numit < MAXIT2; ++numit) {
+					lambda12(sbet1, cbet1, dn1, sbet2, cbet2, dn2, salp1,
+							calp1, slam12, clam12, numit < MAXIT1, w);
+
+					double v = w.lam12, dv = w.dlam12;
+
+					salp2 = w.salp2;
+					calp2 = w.calp2;
+					sig12 = w.sig12;
+					ssig1 = w.ssig1;
+					csig1 = w.csig1;
+					ssig2 = w.ssig2;
+					csig2 = w.csig2;
+					eps = w.eps;
+
+					if (tripb || !(Math.abs(v) >= (tripn ? 8 : 1) * TOL0))
+						break;
+
+					if (v > 0
+							&& (numit > MAXIT1 || calp1 / salp1 > calp1b
+									/ salp1b)) {
+						salp1b = salp1;
+						calp1b = calp1;
+					} else if (v < 0
+							&& (numit > MAXIT1 || calp1 / salp1 < calp1a
+									/ salp1a)) {
+						salp1a = salp1;
+						calp1a = calp1;
+					}
+
+					if (numit < MAXIT1 && dv > 0) {
+						double dalp1 = -v / dv;
+						double sdalp1 = Math.sin(dalp1), cdalp1 = Math
+								.cos(dalp1);
+						double nsalp1 = salp1 * cdalp1 + calp1 * sdalp1;
+
+						if (nsalp1 > 0 && Math.abs(dalp1) < Math.PI) {
+							calp1 = calp1 * cdalp1 - salp1 * sdalp1;
+							salp1 = nsalp1;
+
+							r = Math.sqrt(salp1 * salp1 + calp1 * calp1);
+							salp1 /= r;
+							calp1 /= r;
+
+							tripn = Math.abs(v) <= 16 * TOL0;
+							continue;
+						}
+					}
+
+					salp1 = (salp1a + salp1b) / 2;
+					calp1 = (calp1a + calp1b) / 2;
+
+					r = Math.sqrt(salp1 * salp1 + calp1 * calp1);
+					salp1 /= r;
+					calp1 /= r;
+
+					tripn = false;
+					tripb = (Math.abs(salp1a - salp1) + (calp1a - calp1) < TOLB || Math
+							.abs(salp1 - salp1b)
+							+ (calp1 - calp1b) < TOLB);
+				}
+
+				lengths(eps, sig12, ssig1, csig1, dn1, ssig2, csig2, dn2, w);
+
+				s12x = w.s12b * b;
+			}
+		}
+
+		if (swapp < 0) {
+			double t = salp1;
+			salp1 = salp2;
+			salp2 = t;
+
+			t = calp1;
+			calp1 = calp2;
+			calp2 = t;
+		}
+
+		salp1 *= swapp * lonsign;
+		calp1 *= swapp * latsign;
+		salp2 *= swapp * lonsign;
+		calp2 *= swapp * latsign;
+
+		result[0] = 0.0 + s12x;
+		result[1] = Math.atan2(salp1, calp1);
+		result[2] = Math.atan2(-salp2, -calp2);
+
+		return !Double.isNaN(result[0]);
+	}
+
+	/*
+	 * Set up a geodesic from the specified point with the specified azimuth.
+	 */
+	void setLine(double lat1, double azi1, Line l) {
+		lat1 = angRound(latFix(lat1));
+		azi1 = angRound(azi1);
+
+		double salp1 = Math.sin(azi1), calp1 = Math.cos(azi1);
+
+		double sbet1 = f1 * Math.sin(lat1), cbet1 = cosLatitude(lat1);
+		double r = Math.sqrt(sbet1 * sbet1 + cbet1 * cbet1);
+		sbet1 /= r;
+		cbet1 /= r;
+		cbet1 = Math.max(TINY, cbet1);
+
+		l.salp0 = salp1 * cbet1;
+		l.calp0 = Math.sqrt(calp1 * calp1 + salp1 * sbet1 * salp1 * sbet1);
+
+		l.ssig1 = sbet1;
+		l.somg1 = l.salp0 * sbet1;
+		l.csig1 = l.comg1 = sbet1 != 0 || calp1 != 0 ? cbet1 * calp1 : 1;
+
+		r = Math.sqrt(l.ssig1 * l.ssig1 + l.csig1 * l.csig1);
+		l.ssig1 /= r;
+		l.csig1 /= r;
+
+		l.k2 = l.calp0 * l.calp0 * ep2;
+
+		double eps = l.k2 / (2 * (1 + Math.sqrt(1 + l.k2)) + l.k2);
+
+		l.A1m1 = A1m1f(eps);
+		C1f(eps, l.C1a);
+		l.B11 = sinCosSeries(true, l.ssig1, l.csig1, l.C1a);
+
+		double s = Math.sin(l.B11), c = Math.cos(l.B11);
+
+		l.stau1 = l.ssig1 * c + l.csig1 * s;
+		l.ctau1 = l.csig1 * c - l.ssig1 * s;
+
+		C1pf(eps, l.C1pa);
+
+		C3f(eps, l.C3a);
+		l.A3c = -f * l.salp0 * A3f(eps);
+		l.B31 = sinCosSeries(true, l.ssig1, l.csig1, l.C3a);
+	}
+
+	/*
+	 * Find the point at the specified distance along a geodesic, storing
+	 * the difference in longitude from the starting point, the latitude and
+	 * the azimuth in the result array. Returns false, having stored NaN, if
+	 * the geodesic or the distance is invalid.
+	 */
+	boolean position(Line l, double s12, double[] result) {
+		double tau12 = s12 / (b * (1 + l.A1m1));
+		double s = Math.sin(tau12), c = Math.cos(tau12);
+
+		double B12 = -sinCosSeries(true, l.stau1 * c + l.ctau1 * s, l.ctau1
+				* c - l.stau1 * s, l.C1pa);
+
+		double sig12 = tau12 - (B12 - l.B11);
+		double ssig12 = Math.sin(sig12), csig12 = Math.cos(sig12);
+
+		if (Math.abs(f) > 0.01) {
+			/*
+			 * The reverted distance series is inaccurate for large
+			 * flattening, so correct sig12 with one Newton iteration.
+			 */
+			double ssig2 = l.ssig1 * csig12 + l.csig1 * ssig12;
+			double csig2 = l.csig1 * csig12 - l.ssig1 * ssig12;
+
+			B12 = sinCosSeries(true, ssig2, csig2, l.C1a);
+
+			double serr = (1 + l.A1m1) * (sig12 + (B12 - l.B11)) - s12 / b;
+
+			sig12 = sig12 - serr / Math.sqrt(1 + l.k2 * ssig2 * ssig2);
+			ssig12 = Math.sin(sig12);
+			csig12 = Math.cos(sig12);
+		}
+
+		double ssig2 = l.ssig1 * csig12 + l.csig1 * ssig12;
+		double csig2 = l.csig1 * csig12 - l.ssig1 * ssig12;
+
+		double sbet2 = l.calp0 * ssig2;
+		double cbet2 = Math.sqrt(l.salp0 * l.salp0 + l.calp0 * csig2
+				* l.calp0 * csig2);
+
+		if (cbet2 == 0)
+			cbet2 = csig2 = TINY;
+
+		double salp2 = l.salp0, calp2 = l.calp0 * csig2;
+
+		double somg2 = l.salp0 * ssig2, comg2 = csig2;
+		double E = Math.copySign(1, l.salp0);
+
+		double omg12 = E
+				* (sig12
+						- (Math.atan2(ssig2, csig2) - Math.atan2(l.ssig1,
+								l.csig1)) + (Math.atan2(E * somg2, comg2) - Math
+						.atan2(E * l.somg1, l.comg1)));
+
+		double lam12 = omg12 + l.A3c
+				* (sig12 + (sinCosSeries(true, ssig2, csig2, l.C3a) - l.B31));
+
+		result[0] = lam12;
+		result[1] = Math.atan2(sbet2, f1 * cbet2);
+		result[2] = Math.atan2(-salp2, -calp2);
+
+		return !Double.isNaN(result[0]) && !Double.isNaN(result[1]);
+	}
+
+	/*
+	 * Calculate the distance and reduced length, both without the factor of
+	 * b, storing them in the workspace.
+	 */
+	private void lengths(double eps, double sig12, double ssig1,
+			double csig1, double dn1, double ssig2, double csig2, double dn2,
+			Workspace w) {
+		double[] C1a = w.C1a, C2a = w.C2a;
+
+		double A1 = A1m1f(eps);
+		C1f(eps, C1a);
+
+		double A2 = A2m1f(eps);
+		C2f(eps, C2a);
+
+		double m0x = A1 - A2;
+
+		A2 = 1 + A2;
+		A1 = 1 + A1;
+
+		double B1 = sinCosSeries(true, ssig2, csig2, C1a)
+				- sinCosSeries(true, ssig1, csig1, C1a);
+
+		w.s12b = A1 * (sig12 + B1);
+
+		double B2 = sinCosSeries(true, ssig2, csig2, C2a)
+				- sinCosSeries(true, ssig1, csig1, C2a);
+
+		double J12 = m0x * sig12 + (A1 * B1 - A2 * B2);
+
+		w.m12b = dn2 * (csig1 * ssig2) - dn1 * (ssig1 * csig2) - csig1
+				* csig2 * J12;
+	}
+
+	/*
+	 * Find a starting point for Newton's method. If the points are close
+	 * enough for the starting point to be the solution, w.sig12 is set to
+	 * the arc length and w.salp2, w.calp2 and w.dnm are also set; otherwise
+	 * w.sig12 is set to -1.
+	 */
+	private void inverseStart(double sbet1, double cbet1, double dn1,
+			double sbet2, double cbet2, double dn2, double lam12,
+			double slam12, double clam12, Workspace w) {
+		w.sig12 = -1;
+
+		double sbet12 = sbet2 * cbet1 - cbet2 * sbet1;
+		double cbet12 = cbet2 * cbet1 + sbet2 * sbet1;
+		double sbet12a = sbet2 * cbet1 + cbet2 * sbet1;
+
+		boolean shortline = cbet12 >= 0 && sbet12 < 0.5
+				&& cbet2 * lam12 < 0.5;
+
+		double somg12, comg12;
+
+		if (shortline) {
+			double sbetm2 = (sbet1 + sbet2) * (sbet1 + sbet2);
+
+			sbetm2 /= sbetm2 + (cbet1 + cbet2) * (cbet1 + cbet2);
+
+			w.dnm = Math.sqrt(1 + ep2 * sbetm2);
+
+			double omg12 = lam12 / (f1 * w.dnm);
+
+			somg12 = Math.sin(omg12);
+			comg12 = Math.cos(omg12);
+		} else {
+			somg12 = slam12;
+			comg12 = clam12;
+		}
+
+		w.salp1 = cbet2 * somg12;
+		w.calp1 = comg12 >= 0 ? sbet12 + cbet2 * sbet1 * somg12 * somg12
+				/ (1 + comg12) : sbet12a - cbet2 * sbet1 * somg12 * somg12
+				/ (1 - comg12);
+
+		double ssig12 = Math.sqrt(w.salp1 * w.salp1 + w.calp1 * w.calp1);
+		double csig12 = sbet1 * sbet2 + cbet1 * cbet2 * comg12;
+
+		if (shortline && ssig12 < etol2) {
+			w.salp2 = cbet1 * somg12;
+			w.calp2 = sbet12
+					- cbet1
+					* sbet2
+					* (comg12 >= 0 ? somg12 * somg12 / (1 + comg12)
+							: 1 - comg12);
+
+			double r = Math.sqrt(w.salp2 * w.salp2 + w.calp2 * w.calp2);
+			w.salp2 /= r;
+			w.calp2 /= r;
+
+			w.sig12 = Math.atan2(ssig12, csig12);
+		} else if (Math.abs(n) > 0.1 || csig12 >= 0
+				|| ssig12 >= 6 * Math.abs(n) * Math.PI * cbet1 * cbet1) {
+			/*
+			 * The zeroth order spherical approximation is good enough.
+			 */
+		} else {
+			/*
+			 * The points are nearly antipodal. Scale the longitude and
+			 * latitude differences so that the antipodal point is at the
+			 * origin, and solve the astroid problem for the starting point.
+			 */
+			double x, y, lamscale, betscale;
+			double lam12x = Math.atan2(-slam12, -clam12);
+
+			if (f >= 0) {
+				double k2 = sbet1 * sbet1 * ep2;
+				double eps = k2 / (2 * (1 + Math.sqrt(1 + k2)) + k2);
+
+				lamscale = f * cbet1 * A3f(eps) * Math.PI;
+				betscale = lamscale * cbet1;
+
+				x = lam12x / lamscale;
+				y = sbet12a / betscale;
+			} else {
+				double cbet12a = cbet2 * cbet1 - sbet2 * sbet1;
+				double bet12a = Math.atan2(sbet12a, cbet12a);
+
+				lengths(n, Math.PI + bet12a, sbet1, -cbet1, dn1, sbet2,
+						cbet2, dn2, w);
+
+				double m12b = w.m12b, m0 = A1m1f(n) - A2m1f(n);
+
+				x = -1 + m12b / (cbet1 * cbet2 * m0 * Math.PI);
+				betscale = x < -0.01 ? sbet12a / x : -f * cbet1 * cbet1
+						* Math.PI;
+				lamscale = betscale / cbet1;
+				y = lam12x / lamscale;
+			}
+
+			if (y > -TOL1 && x > -1 - XTHRESH) {
+				if (f >= 0) {
+					w.salp1 = Math.min(1.0, -x);
+					w.calp1 = -Math.sqrt(1 - w.salp1 * w.salp1);
+				} else {
+					w.calp1 = Math.max(x > -TOL1 ? 0.0 : -1.0, x);
+					w.salp1 = Math.sqrt(1 - w.calp1 * w.calp1);
+				}
+			} else {
+				double k = astroid(x, y);
+
+				double omg12a = lamscale
+						* (f >= 0 ? -x * k / (1 + k) : -y * (1 + k) / k);
+
+				somg12 = Math.sin(omg12a);
+				comg12 = -Math.cos(omg12a);
+
+				w.salp1 = cbet2 * somg12;
+				w.calp1 = sbet12a - cbet2 * sbet1 * somg12 * somg12
+						/ (1 - comg12);
+			}
+		}
+
+		if (!(w.salp1 <= 0)) {
+			double r = Math.sqrt(w.salp1 * w.salp1 + w.calp1 * w.calp1);
+			w.salp1 /= r;
+			w.calp1 /= r;
+		} else {
+			w.salp1 = 1;
+			w.calp1 = 0;
+		}
+	}
+
+	/*
+	 * Evaluate the longitude difference, and its derivative with respect to
+	 * the azimuth at the first point, for a trial azimuth.
+	 */
+	private void lambda12(double sbet1, double cbet1, double dn1,
+			double sbet2, double cbet2, double dn2, double salp1,
+			double calp1, double slam120, double clam120, boolean diffp,
+			Workspace w) {
+		if (sbet1 == 0 && calp1 == 0)
+			calp1 = -TINY;
+
+		double salp0 = salp1 * cbet1;
+		double calp0 = Math.sqrt(calp1 * calp1 + salp1 * sbet1 * salp1
+				* sbet1);
+
+		double somg1, comg1, somg2, comg2, r;
+
+		w.ssig1 = sbet1;
+		somg1 = salp0 * sbet1;
+		w.csig1 = comg1 = calp1 * cbet1;
+
+		r = Math.sqrt(w.ssig1 * w.ssig1 + w.csig1 * w.csig1);
+		w.ssig1 /= r;
+		w.csig1 /= r;
+
+		w.salp2 = cbet2 != cbet1 ? salp0 / cbet2 : salp1;
+
+		w.calp2 = cbet2 != cbet1 || Math.abs(sbet2) != -sbet1 ? Math
+				.sqrt(calp1
+						* cbet1
+						* calp1
+						* cbet1
+						+ (cbet1 < -sbet1 ? (cbet2 - cbet1) * (cbet1 + cbet2)
+								: (sbet1 - sbet2) * (sbet1 + sbet2)))
+				/ cbet2 : Math.abs(calp1);
+
+		w.ssig2 = sbet2;
+		somg2 = salp0 * sbet2;
+		w.csig2 = comg2 = w.calp2 * cbet2;
+
+		r = Math.sqrt(w.ssig2 * w.ssig2 + w.csig2 * w.csig2);
+		w.ssig2 /= r;
+		w.csig2 /= r;
+
+		w.sig12 = Math.atan2(Math.max(0.0, w.csig1 * w.ssig2 - w.ssig1
+				* w.csig2), w.csig1 * w.csig2 + w.ssig1 * w.ssig2);
+
+		double somg12 = Math.max(0.0, comg1 * somg2 - somg1 * comg2);
+		double comg12 = comg1 * comg2 + somg1 * somg2;
+
+		double eta = Math.atan2(somg12 * clam120 - comg12 * slam120, comg12
+				* clam120 + somg12 * slam120);
+
+		double k2 = calp0 * calp0 * ep2;
+
+		w.eps = k2 / (2 * (1 + Math.sqrt(1 + k2)) + k2);
+
+		C3f(w.eps, w.C3a);
+
+		double B312 = sinCosSeries(true, w.ssig2, w.csig2, w.C3a)
+				- sinCosSeries(true, w.ssig1, w.csig1, w.C3a);
+
+		w.lam12 = eta - f * A3f(w.eps) * salp0 * (w.sig12 + B312);
+
+		if (diffp) {
+			if (w.calp2 == 0)
+				w.dlam12 = -2 * f1 * dn1 / sbet1;
+			else {
+				double ssig1 = w.ssig1, csig1 = w.csig1;
+				double ssig2 = w.ssig2, csig2 = w.csig2;
+
+				lengths(w.eps, w.sig12, ssig1, csig1, dn1, ssig2, csig2, dn2,
+						w);
+
+				w.dlam12 = w.m12b * f1 / (w.calp2 * cbet2);
+			}
+		}
+	}
+
+	/*
+	 * Solve k^4 + 2k^3 - (x^2 + y^2 - 1)k^2 - 2y^2 k - y^2 = 0 for its
+	 * positive root.
+	 */
+	private static double astroid(double x, double y) {
+		double k;
+		double p = x * x, q = y * y, r = (p + q - 1) / 6;
+
+		if (!(q == 0 && r <= 0)) {
+			double S = p * q / 4;
+			double r2 = r * r;
+			double r3 = r * r2;
+			double disc = S * (S + 2 * r3);
+			double u = r;
+
+			if (disc >= 0) {
+				double T3 = S + r3;
+
+				T3 += T3 < 0 ? -Math.sqrt(disc) : Math.sqrt(disc);
+
+				double T = Math.cbrt(T3);
+
+				u += T + (T != 0 ? r2 / T : 0);
+			} else {
+				double ang = Math.atan2(Math.sqrt(-disc), -(S + r3));
+
+				u += 2 * r * Math.cos(ang / 3);
+			}
+
+			double v = Math.sqrt(u * u + q);
+			double uv = u < 0 ? q / (v - u) : u + v;
+			double w = (uv - q) / (2 * v);
+
+			k = uv / (Math.sqrt(uv + w * w) + w);
+		} else {
+			k = 0;
+		}
+
+		return k;
+	}
+
+	/*
+	 * Evaluate the sum of c[i] sin(2ix) for i = 1 to n if sinp is true, or
+	 * of c[i] cos((2i+1)x) for i = 0 to n-1 otherwise, by Clenshaw
+	 * summation.
+	 */
+	private static double sinCosSeries(boolean sinp, double sinx,
+			double cosx, double[] c) {
+		int k = c.length, m = k - (sinp ? 1 : 0);
+
+		double ar = 2 * (cosx - sinx) * (cosx + sinx);
+		double y0 = (m & 1) != 0 ? c[--k] : 0, y1 = 0;
+
+		m /= 2;
+
+		while (m-- != 0) {
+			y1 = ar * y0 - y1 + c[--k];
+			y0 = ar * y1 - y0 + c[--k];
+		}
+
+		return sinp ? 2 * sinx * cosx * y0 : cosx * (y0 - y1);
+	}
+
+	/*
+	 * Evaluate the polynomial of degree N whose coefficients, starting with
+	 * the highest power, begin at p[s].
+	 */
+	private static double polyval(int N, double[] p, int s, double x) {
+		double y = N < 0 ? 0 : p[s++];
+
+		while (--N >= 0)
+			y = y * x + p[s++];
+
+		return y;
+	}
+
+	private static double angRound(double x) {
+		final double z = 1 / 16.0;
+		double y = Math.abs(x);
+
+		y = y < z ? z - (z - y) : y;
+
+		return Math.copySign(y, x);
+	}
+
+	private static double latFix(double x) {
+		return Math.abs(x) > HALF_PI ? Double.NaN : x;
+	}
+
+	private static double cosLatitude(double x) {
+		return Math.abs(x) == HALF_PI ? 0.0 : Math.cos(x);
+	}
+
+	private static final double[] A1M1_COEFF = { 1, 4, 64, 0, 256 };
+
+	private static double A1m1f(double eps) {
+		int m = nA1 / 2;
+		double t = polyval(m, A1M1_COEFF, 0, eps * eps) / A1M1_COEFF[m + 1];
+
+		return (t + eps) / (1 - eps);
+	}
+
+	private static final double[] C1_COEFF = { -1, 6, -16, 32, -9, 64, -128,
+			2048, 9, -16, 768, 3, -5, 512, -7, 1280, -7, 2048 };
+
+	private static void C1f(double eps, double[] c) {
+		double eps2 = eps * eps, d = eps;
+		int o = 0;
+
+		for (int l = 1; l <= nC1; ++l) {
+			int m = (nC1 - l) / 2;
+
+			c[l] = d * polyval(m, C1_COEFF, o, eps2) / C1_COEFF[o + m + 1];
+			o += m + 2;
+			d *= eps;
+		}
+	}
+
+	private static final double[] C1P_COEFF = { 205, -432, 768, 1536, 4005,
+			-4736, 3840, 12288, -225, 116, 384, -7173, 2695, 7680, 3467,
+			7680, 38081, 61440 };
+
+	private static void C1pf(double eps, double[] c) {
+		double eps2 = eps * eps, d = eps;
+		int o = 0;
+
+		for (int l = 1; l <= nC1p; ++l) {
+			int m = (nC1p - l) / 2;
+
+			c[l] = d * polyval(m, C1P_COEFF, o, eps2) / C1P_COEFF[o + m + 1];
+			o += m + 2;
+			d *= eps;
+		}
+	}
+
+	private static final double[] A2M1_COEFF = { -11, -28, -192, 0, 256 };
+
+	private static double A2m1f(double eps) {
+		int m = nA2 / 2;
+		double t = polyval(m, A2M1_COEFF, 0, eps * eps) / A2M1_COEFF[m + 1];
+
+		return (t - eps) / (1 + eps);
+	}
+
+	private static final double[] C2_COEFF = { 1, 2, 16, 32, 35, 64, 384,
+			2048, 15, 80, 768, 7, 35, 512, 63, 1280, 77, 2048 };
+
+	private static void C2f(double eps, double[] c) {
+		double eps2 = eps * eps, d = eps;
+		int o = 0;
+
+		for (int l = 1; l <= nC2; ++l) {
+			int m = (nC2 - l) / 2;
+
+			c[l] = d * polyval(m, C2_COEFF, o, eps2) / C2_COEFF[o + m + 1];
+			o += m + 2;
+			d *= eps;
+		}
+	}
+
+	private static final double[] A3_COEFF = { -3, 128, -2, -3, 64, -1, -3,
+			-1, 16, 3, -1, -2, 8, 1, -1, 2, 1, 1 };
+
+	private void A3coeff() {
+		int o = 0, k = 0;
+
+		for (int j = nA3 - 1; j >= 0; --j) {
+			int m = Math.min(nA3 - j - 1, j);
+
+			A3x[k++] = polyval(m, A3_COEFF, o, n) / A3_COEFF[o + m + 1];
+			o += m + 2;
+		}
+	}
+
+	private double A3f(double eps) {
+		return polyval(nA3 - 1, A3x, 0, eps);
+	}
+
+	private static final double[] C3_COEFF = { 3, 128, 2, 5, 128, -1, 3, 3,
+			64, -1, 0, 1, 8, -1, 1, 4, 5, 256, 1, 3, 128, -3, -2, 3, 64, 1,
+			-3, 2, 32, 7, 512, -10, 9, 384, 5, -9, 5, 192, 7, 512, -14, 7,
+			512, 21, 2560 };
+
+	private void C3coeff() {
+		int o = 0, k = 0;
+
+		for (int l = 1; l < nC3; ++l) {
+			for (int j = nC3 - 1; j >= l; --j) {
+				int m = Math.min(nC3 - j - 1, j);
+
+				C3x[k++] = polyval(m, C3_COEFF, o, n) / C3_COEFF[o + m + 1];
+				o += m + 2;
+			}
+		}
+	}
+
+	private void C3f(double eps, double[] c) {
+		double mult = 1;
+		int o = 0;
+
+		for (int l = 1; l < nC3; ++l) {
+			int m = nC3 - l - 1;
+
+			mult *= eps;
+			c[l] = mult * polyval(m, C3x, o, eps);
+			o += m + 1;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * Map projections package
+ *
+ * Implicit k-d trees and bounded heaps shared by the point indexes
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package com.obliquity.mapping;
+
+/**
+ * This class holds the functions shared by <CODE>GridPointIndex</CODE> and
+ * <CODE>GeodesicPointIndex</CODE>, which build an implicit k-d tree in
+ * parallel arrays of coordinates and keep the nearest points found by a
+ * search in a bounded max-heap.
+ * 
+ * <p>
+ * The tree is stored in place: the point at the middle of each range of the
+ * arrays divides the rest of the range by one of the keys, taken in turn at
+ * each level, and ranges of no more than <CODE>LEAF_SIZE</CODE> points are
+ * left unordered. The heap is held in a range of an identifier array and a
+ * parallel array of values, with the largest value first.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+final class KdTree {
+	/**
+	 * The largest number of points in a range which is not divided.
+	 */
+	static final int LEAF_SIZE = 8;
+
+	private KdTree() {
+	}
+
+	/**
+	 * Arrange the points from <CODE>lo</CODE> up to but not including
+	 * <CODE>hi</CODE> into a k-d tree.
+	 * 
+	 * @param keys
+	 *            The coordinates which divide the tree, used in turn at
+	 *            successive levels starting with the first.
+	 * @param columns
+	 *            Every array of values for the points, including the keys,
+	 *            which must be kept in step as the points are rearranged.
+	 * @param ids
+	 *            The identifiers of the points, which are also kept in step.
+	 * @param lo
+	 *            The index of the first point.
+	 * @param hi
+	 *            The index after the last point.
+	 * @param depth
+	 *            The level of the range in the tree.
+	 */
+	static void build(double[][] keys, double[][] columns, int[] ids,
+			int lo, int hi, int depth) {
+		if (hi - lo <= LEAF_SIZE)
+			return;
+
+		int mid = (lo + hi) >>> 1;
+
+		select(keys[depth % keys.length], columns, ids, lo, hi - 1, mid);
+
+		build(keys, columns, ids, lo, mid, depth + 1);
+		build(keys, columns, ids, mid + 1, hi, depth + 1);
+	}
+
+	/*
+	 * Rearrange the points from lo to hi inclusive so that the point at k
+	 * has the value of the key which it would have if they were sorted, and
+	 * the points before and after it have keys no greater and no less.
+	 */
+	private static void select(double[] key, double[][] columns, int[] ids,
+			int lo, int hi, int k) {
+		while (hi > lo) {
+			int m = (lo + hi) >>> 1;
+
+			if (key[m] < key[lo])
+				swap(columns, ids, m, lo);
+			if (key[hi] < key[lo])
+				swap(columns, ids, hi, lo);
+			if (key[hi] < key[m])
+				swap(columns, ids, hi, m);
+
+			double pivot = key[m];
+			int i = lo, j = hi;
+
+			while (i <= j) {
+				while (key[i] < pivot)
+					i++;
+
+				while (key[j] > pivot)
+					j--;
+
+				if (i <= j) {
+					swap(columns, ids, i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	private static void swap(double[][] columns, int[] ids, int i, int j) {
+		for (int c = 0; c < columns.length; c++) {
+			double[] column = columns[c];
+
+			double t = column[i];
+			column[i] = column[j];
+			column[j] = t;
+		}
+
+		int id = ids[i];
+		ids[i] = ids[j];
+		ids[j] = id;
+	}
+
+	/**
+	 * Add a point to a heap of the nearest points if the heap is not yet
+	 * full, or if its value is less than the largest value in the heap,
+	 * which it then replaces.
+	 * 
+	 * @param id
+	 *            The identifier of the point.
+	 * @param value
+	 *            The value of the point, such as its squared distance.
+	 * @param k
+	 *            The capacity of the heap.
+	 * @param heapIds
+	 *            The identifiers in the heap.
+	 * @param heapValues
+	 *            The values in the heap.
+	 * @param base
+	 *            The index in the arrays of the top of the heap.
+	 * @param count
+	 *            The number of points in the heap.
+	 * 
+	 * @return The number of points in the heap afterwards.
+	 */
+	static int offer(int id, double value, int k, int[] heapIds,
+			double[] heapValues, int base, int count) {
+		if (count < k) {
+			int child = count;
+
+			while (child > 0) {
+				int parent = (child - 1) >>> 1;
+
+				if (heapValues[base + parent] >= value)
+					break;
+
+				heapIds[base + child] = heapIds[base + parent];
+				heapValues[base + child] = heapValues[base + parent];
+				child = parent;
+			}
+
+			heapIds[base + child] = id;
+			heapValues[base + child] = value;
+
+			return count + 1;
+		}
+
+		if (value < heapValues[base]) {
+			heapIds[base] = id;
+			heapValues[base] = value;
+			siftDown(heapIds, heapValues, base, count, 0);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Restore the order of a heap after the value at one position has
+	 * decreased, or build a heap from unordered values when applied to each
+	 * parent from the last to the first.
+	 * 
+	 * @param heapIds
+	 *            The identifiers in the heap.
+	 * @param heapValues
+	 *            The values in the heap.
+	 * @param base
+	 *            The index in the arrays of the top of the heap.
+	 * @param count
+	 *            The number of points in the heap.
+	 * @param parent
+	 *            The position in the heap of the value which may be out of
+	 *            order.
+	 */
+	static void siftDown(int[] heapIds, double[] heapValues, int base,
+			int count, int parent) {
+		int id = heapIds[base + parent];
+		double value = heapValues[base + parent];
+
+		while (true) {
+			int child = 2 * parent + 1;
+
+			if (child >= count)
+				break;
+
+			if (child + 1 < count
+					&& heapValues[base + child + 1] > heapValues[base + child])
+				child++;
+
+			if (heapValues[base + child] <= value)
+				break;
+
+			heapIds[base + parent] = heapIds[base + child];
+			heapValues[base + parent] = heapValues[base + child];
+			parent = child;
+		}
+
+		heapIds[base + parent] = id;
+		heapValues[base + parent] = value;
+	}
+
+	/**
+	 * Sort a heap into order of increasing value.
+	 * 
+	 * @param heapIds
+	 *            The identifiers in the heap.
+	 * @param heapValues
+	 *            The values in the heap.
+	 * @param base
+	 *            The index in the arrays of the top of the heap.
+	 * @param count
+	 *            The number of points in the heap.
+	 */
+	static void sort(int[] heapIds, double[] heapValues, int base, int count) {
+		for (int n = count - 1; n > 0; n--) {
+			int last = base + n;
+
+			int id = heapIds[base];
+			heapIds[base] = heapIds[last];
+			heapIds[last] = id;
+
+			double t = heapValues[base];
+			heapValues[base] = heapValues[last];
+			heapValues[last] = t;
+
+			siftDown(heapIds, heapValues, base, n, 0);
+		}
+	}
+}
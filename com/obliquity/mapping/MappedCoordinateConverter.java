@@ -0,0 +1,236 @@
+/*
+ * Map projections package
+ *
+ * Conversion of binary coordinate files using memory mapping
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class converts files of binary coordinates using a
+ * <CODE>TransverseMercatorProjection</CODE>. Each file holds a sequence of
+ * coordinate pairs, each stored as two little-endian IEEE 754
+ * <CODE>double</CODE> values with no header or padding. A file of grid
+ * coordinates holds easting, northing pairs, and a file of geographic
+ * coordinates holds longitude, latitude pairs in radians.
+ * 
+ * <p>
+ * The files are memory-mapped rather than read, and are processed through a
+ * window which moves along the file, so files larger than 2 GB can be
+ * converted. Within each window, the coordinates are converted in chunks
+ * small enough to stay in the processor cache.
+ * 
+ * <p>
+ * The input and output files may be the same, in which case the file is
+ * converted in place.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class MappedCoordinateConverter {
+	/**
+	 * The default size, in bytes, of the window through which the files are
+	 * mapped.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+	private static final int PAIR_SIZE = 16;
+	private static final int CHUNK = 8192;
+
+	private final TransverseMercatorProjection projection;
+	private final int windowSize;
+
+	/**
+	 * Construct a converter which uses the specified projection and the
+	 * default window size.
+	 * 
+	 * @param projection
+	 *            The projection which will perform the conversions.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null.
+	 */
+	public MappedCoordinateConverter(TransverseMercatorProjection projection)
+			throws IllegalArgumentException {
+		this(projection, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Construct a converter which uses the specified projection and window
+	 * size.
+	 * 
+	 * @param projection
+	 *            The projection which will perform the conversions.
+	 * @param windowSize
+	 *            The size of the mapping window in bytes. This is rounded
+	 *            down to a whole number of coordinate pairs.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null or the window is smaller than
+	 *             one coordinate pair.
+	 */
+	public MappedCoordinateConverter(TransverseMercatorProjection projection,
+			int windowSize) throws IllegalArgumentException {
+		if (projection == null)
+			throw new IllegalArgumentException("Projection is null");
+
+		if (windowSize < PAIR_SIZE)
+			throw new IllegalArgumentException("Window size " + windowSize
+					+ " is too small");
+
+		this.projection = projection;
+		this.windowSize = windowSize - windowSize % PAIR_SIZE;
+	}
+
+	/**
+	 * Convert a file of grid coordinates to a file of longitudes and
+	 * latitudes.
+	 * 
+	 * @param input
+	 *            The file of easting, northing pairs.
+	 * @param output
+	 *            The file which will receive the longitude, latitude pairs.
+	 *            It is created if necessary, and truncated or extended to the
+	 *            size of the input file.
+	 * 
+	 * @return The number of points converted.
+	 * 
+	 * @throws IOException
+	 *             if either file cannot be mapped, or the input file does
+	 *             not hold a whole number of coordinate pairs.
+	 */
+	public long GridToLongitudeAndLatitude(File input, File output)
+			throws IOException {
+		return convert(input, output, true);
+	}
+
+	/**
+	 * Convert a file of longitudes and latitudes to a file of grid
+	 * coordinates.
+	 * 
+	 * @param input
+	 *            The file of longitude, latitude pairs.
+	 * @param output
+	 *            The file which will receive the easting, northing pairs. It
+	 *            is created if necessary, and truncated or extended to the
+	 *            size of the input file.
+	 * 
+	 * @return The number of points converted.
+	 * 
+	 * @throws IOException
+	 *             if either file cannot be mapped, or the input file does
+	 *             not hold a whole number of coordinate pairs.
+	 */
+	public long LatitudeAndLongitudeToGrid(File input, File output)
+			throws IOException {
+		return convert(input, output, false);
+	}
+
+	private long convert(File input, File output, boolean inverse)
+			throws IOException {
+		boolean inPlace = input.getCanonicalFile().equals(
+				output.getCanonicalFile());
+
+		RandomAccessFile inFile = null, outFile = null;
+
+		try {
+			inFile = new RandomAccessFile(input, inPlace ? "rw" : "r");
+
+			long size = inFile.length();
+
+			if (size % PAIR_SIZE != 0)
+				throw new IOException(input + " has length " + size
+						+ ", which is not a whole number of coordinate pairs");
+
+			FileChannel inChannel = inFile.getChannel();
+			FileChannel outChannel = inChannel;
+
+			if (!inPlace) {
+				outFile = new RandomAccessFile(output, "rw");
+				outFile.setLength(size);
+				outChannel = outFile.getChannel();
+			}
+
+			double[] chunk = new double[2 * CHUNK];
+
+			for (long position = 0; position < size; position += windowSize) {
+				int length = (int) Math.min(windowSize, size - position);
+
+				MappedByteBuffer inMap = inChannel.map(
+						inPlace ? FileChannel.MapMode.READ_WRITE
+								: FileChannel.MapMode.READ_ONLY, position,
+						length);
+
+				MappedByteBuffer outMap = inPlace ? inMap : outChannel.map(
+						FileChannel.MapMode.READ_WRITE, position, length);
+
+				DoubleBuffer src = inMap.order(ByteOrder.LITTLE_ENDIAN)
+						.asDoubleBuffer();
+				DoubleBuffer dst = outMap.order(ByteOrder.LITTLE_ENDIAN)
+						.asDoubleBuffer();
+
+				convertWindow(src, dst, chunk, inverse);
+			}
+
+			if (outFile != null)
+				outFile.getChannel().force(false);
+			else
+				inChannel.force(false);
+
+			return size / PAIR_SIZE;
+		} finally {
+			if (inFile != null)
+				inFile.close();
+
+			if (outFile != null)
+				outFile.close();
+		}
+	}
+
+	private void convertWindow(DoubleBuffer src, DoubleBuffer dst,
+			double[] chunk, boolean inverse) {
+		while (src.hasRemaining()) {
+			int n = Math.min(chunk.length, src.remaining());
+
+			src.get(chunk, 0, n);
+
+			if (inverse)
+				projection.GridToLongitudeAndLatitude(chunk, 0, chunk, 0,
+						n / 2);
+			else
+				projection.LatitudeAndLongitudeToGrid(chunk, 0, chunk, 0,
+						n / 2);
+
+			dst.put(chunk, 0, n);
+		}
+	}
+}
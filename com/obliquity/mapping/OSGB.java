@@ -67,8 +67,36 @@ public class OSGB extends TransverseMercatorProjection {
 				OSGB_N0);
 	}
 
-	static final private String gridletters[] = { "VWXYZ", "QRSTU", "LMNOP",
-			"FGHJK", "ABCDE" };
+	/**
+	 * Construct the projection with the specified error tolerance, in
+	 * <em>metres</em>, for the conversion routines. An instance constructed
+	 * in this way may be shared between threads.
+	 * 
+	 * @param tolerance
+	 *            The error tolerance.
+	 */
+	public OSGB(double tolerance) {
+		super(OSGB_a, OSGB_b, OSGB_F0, OSGB_lambda0, OSGB_phi0, OSGB_E0,
+				OSGB_N0, tolerance);
+	}
+
+	/**
+	 * Construct the projection with the specified error tolerance, in
+	 * <em>metres</em>, and the specified set of formulae for the conversion
+	 * routines.
+	 * 
+	 * @param tolerance
+	 *            The error tolerance.
+	 * @param algorithm
+	 *            The set of formulae, one of <CODE>REDFEARN</CODE>,
+	 *            <CODE>REDFEARN_NEWTON</CODE> or <CODE>KRUGER</CODE>.
+	 * 
+	 * @see TransverseMercatorProjection
+	 */
+	public OSGB(double tolerance, int algorithm) {
+		super(OSGB_a, OSGB_b, OSGB_F0, OSGB_lambda0, OSGB_phi0, OSGB_E0,
+				OSGB_N0, tolerance, algorithm);
+	}
 
 	/**
 	 * Determine the 100km grid square in which the specified point lies.
@@ -79,33 +107,59 @@ public class OSGB extends TransverseMercatorProjection {
 	 * 
 	 * @return A two-character array representing the two-letter prefix for the
 	 *         100km square in which this point lies.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the point lies outside the British National Grid.
 	 */
-	public char[] GridToGridSquare(DPoint p) {
-		double E = p.getX();
-		double N = p.getY();
-
-		int x = (int) (E / 100000.0);
-		int y = (int) (N / 100000.0);
-
-		int jx = (2 + (x / 5)) % 5;
-		int jy = (1 + (y / 5)) % 5;
-
+	public char[] GridToGridSquare(DPoint p) throws IllegalArgumentException {
 		char[] prefix = new char[2];
 
-		prefix[0] = gridletters[jy].charAt(jx);
-
-		int kx = x % 5;
-		int ky = y % 5;
-
-		prefix[1] = gridletters[ky].charAt(kx);
+		GridToGridSquare(p.getX(), p.getY(), prefix, 0);
 
 		return prefix;
 	}
 
+	/**
+	 * Determine the 100km grid square in which the specified point lies,
+	 * storing the two-letter prefix in a caller-supplied array. No objects are
+	 * created.
+	 * 
+	 * @param easting
+	 *            The easting of the point, in <em>metres</em>.
+	 * @param northing
+	 *            The northing of the point, in <em>metres</em>.
+	 * @param prefix
+	 *            The array which will receive the prefix.
+	 * @param offset
+	 *            The index in <CODE>prefix</CODE> at which the first letter
+	 *            will be stored.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the point lies outside the British National Grid, which
+	 *             extends 1000km east and 1500km north of its origin.
+	 */
+	public void GridToGridSquare(double easting, double northing,
+			char[] prefix, int offset) throws IllegalArgumentException {
+		if (!(easting >= 0.0 && easting < 1000000.0 && northing >= 0.0
+				&& northing < 1500000.0))
+			throw new IllegalArgumentException("Point (" + easting + ", "
+					+ northing + ") lies outside the grid");
+
+		int x = (int) (easting / 100000.0);
+		int y = (int) (northing / 100000.0);
+
+		prefix[offset] = GridSquare.letter((2 + (x / 5)) % 5, (1 + (y / 5)) % 5);
+		prefix[offset + 1] = GridSquare.letter(x % 5, y % 5);
+	}
+
 	/**
 	 * Calculate the offset from the origin of the British National Grid of the
 	 * 100km square identified by the specified two-letter prefix.
 	 * 
+	 * <p>
+	 * Unrecognised letters make no contribution to the offset. Use
+	 * <CODE>GridSquareToPackedOffset</CODE> to detect invalid prefixes.
+	 * 
 	 * @param a
 	 *            The first letter of the two-letter prefix.
 	 * @param b
@@ -116,115 +170,63 @@ public class OSGB extends TransverseMercatorProjection {
 	 *         with respect to the origin of the British National Grid.
 	 */
 	public DPoint GridSquareToOffset(char a, char b) {
-		char A, B;
-
-		A = Character.toUpperCase(a);
-		B = Character.toUpperCase(b);
-
 		double E = 0.0;
 		double N = 0.0;
 
-		switch (A) {
-		case 'N':
-			N += 500000.0;
-			break;
-
-		case 'H':
-			N += 1000000.0;
-			break;
+		int column = GridSquare.column(a);
+		int row = GridSquare.row(a);
 
-		case 'T':
-			E += 500000.0;
-			break;
+		if (isFirstLetter(column, row)) {
+			E += 500000.0 * (column - 2);
+			N += 500000.0 * (row - 1);
 		}
 
-		/* Adjust easting for 100km offsets */
-
-		switch (B) {
-		case 'A':
-		case 'F':
-		case 'L':
-		case 'Q':
-		case 'V':
-			/* Do nothing */
-			break;
-
-		case 'B':
-		case 'G':
-		case 'M':
-		case 'R':
-		case 'W':
-			E += 100000.0;
-			break;
-
-		case 'C':
-		case 'H':
-		case 'N':
-		case 'S':
-		case 'X':
-			E += 200000.0;
-			break;
-
-		case 'D':
-		case 'J':
-		case 'O':
-		case 'T':
-		case 'Y':
-			E += 300000.0;
-			break;
-
-		case 'E':
-		case 'K':
-		case 'P':
-		case 'U':
-		case 'Z':
-			E += 400000.0;
-			break;
-		}
+		column = GridSquare.column(b);
+		row = GridSquare.row(b);
 
-		/* Adjust northing for 100km offsets */
-		switch (B) {
-		case 'A':
-		case 'B':
-		case 'C':
-		case 'D':
-		case 'E':
-			N += 400000.0;
-			break;
-
-		case 'F':
-		case 'G':
-		case 'H':
-		case 'J':
-		case 'K':
-			N += 300000.0;
-			break;
-
-		case 'L':
-		case 'M':
-		case 'N':
-		case 'O':
-		case 'P':
-			N += 200000.0;
-			break;
-
-		case 'Q':
-		case 'R':
-		case 'S':
-		case 'T':
-		case 'U':
-			N += 100000.0;
-			break;
-
-		case 'V':
-		case 'W':
-		case 'X':
-		case 'Y':
-		case 'Z':
-			/* Do nothing */
-			break;
+		if (column >= 0) {
+			E += 100000.0 * column;
+			N += 100000.0 * row;
 		}
 
 		return new DPoint(E, N);
 	}
+
+	/**
+	 * Calculate the offset from the origin of the British National Grid of the
+	 * 100km square identified by the specified two-letter prefix, using lookup
+	 * tables and without creating any objects.
+	 * 
+	 * @param a
+	 *            The first letter of the two-letter prefix.
+	 * @param b
+	 *            The second letter of the two-letter prefix.
+	 * 
+	 * @return The offset packed into a <CODE>long</CODE>, which may be
+	 *         unpacked using <CODE>GridSquare.getEasting</CODE> and
+	 *         <CODE>GridSquare.getNorthing</CODE>, or
+	 *         <CODE>GridSquare.INVALID</CODE> if the letters do not identify
+	 *         a square of the British National Grid.
+	 * 
+	 * @see GridSquare
+	 */
+	public long GridSquareToPackedOffset(char a, char b) {
+		int columnA = GridSquare.column(a);
+		int rowA = GridSquare.row(a);
+		int columnB = GridSquare.column(b);
+
+		if (!isFirstLetter(columnA, rowA) || columnB < 0)
+			return GridSquare.INVALID;
+
+		return GridSquare.pack(500000 * (columnA - 2) + 100000 * columnB,
+				500000 * (rowA - 1) + 100000 * GridSquare.row(b));
+	}
+
+	/*
+	 * The first letter must identify one of the 500km squares S, T, N, O, H
+	 * or J, which cover the British National Grid.
+	 */
+	private static boolean isFirstLetter(int column, int row) {
+		return column >= 2 && column <= 3 && row >= 1 && row <= 3;
+	}
 }
@@ -66,8 +66,36 @@ public class OSNI extends TransverseMercatorProjection {
 				OSNI_N0);
 	}
 
-	static final private String gridletters[] = { "VWXYZ", "QRSTU", "LMNOP",
-			"FGHJK", "ABCDE" };
+	/**
+	 * Construct the projection with the specified error tolerance, in
+	 * <em>metres</em>, for the conversion routines. An instance constructed
+	 * in this way may be shared between threads.
+	 * 
+	 * @param tolerance
+	 *            The error tolerance.
+	 */
+	public OSNI(double tolerance) {
+		super(OSNI_a, OSNI_b, OSNI_F0, OSNI_lambda0, OSNI_phi0, OSNI_E0,
+				OSNI_N0, tolerance);
+	}
+
+	/**
+	 * Construct the projection with the specified error tolerance, in
+	 * <em>metres</em>, and the specified set of formulae for the conversion
+	 * routines.
+	 * 
+	 * @param tolerance
+	 *            The error tolerance.
+	 * @param algorithm
+	 *            The set of formulae, one of <CODE>REDFEARN</CODE>,
+	 *            <CODE>REDFEARN_NEWTON</CODE> or <CODE>KRUGER</CODE>.
+	 * 
+	 * @see TransverseMercatorProjection
+	 */
+	public OSNI(double tolerance, int algorithm) {
+		super(OSNI_a, OSNI_b, OSNI_F0, OSNI_lambda0, OSNI_phi0, OSNI_E0,
+				OSNI_N0, tolerance, algorithm);
+	}
 
 	/**
 	 * Determine the 100km grid square in which the specified point lies.
@@ -78,25 +106,51 @@ public class OSNI extends TransverseMercatorProjection {
 	 * 
 	 * @return A character representing the two-letter prefix for the 100km
 	 *         square in which this point lies.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the point lies outside the Irish Grid.
 	 */
 
-	public char GridToGridSquare(DPoint p) {
-		double E = p.getX();
-		double N = p.getY();
+	public char GridToGridSquare(DPoint p) throws IllegalArgumentException {
+		return GridToGridSquare(p.getX(), p.getY());
+	}
 
-		int x = (int) (E / 100000.0);
-		int y = (int) (N / 100000.0);
+	/**
+	 * Determine the 100km grid square in which the specified point lies.
+	 * 
+	 * @param easting
+	 *            The easting of the point, in <em>metres</em>.
+	 * @param northing
+	 *            The northing of the point, in <em>metres</em>.
+	 * 
+	 * @return The letter which identifies the 100km square in which this
+	 *         point lies.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the point lies outside the Irish Grid, which extends
+	 *             500km east and north of its origin.
+	 */
+	public char GridToGridSquare(double easting, double northing)
+			throws IllegalArgumentException {
+		if (!(easting >= 0.0 && easting < 500000.0 && northing >= 0.0
+				&& northing < 500000.0))
+			throw new IllegalArgumentException("Point (" + easting + ", "
+					+ northing + ") lies outside the grid");
 
-		int kx = x % 5;
-		int ky = y % 5;
+		int x = (int) (easting / 100000.0);
+		int y = (int) (northing / 100000.0);
 
-		return gridletters[ky].charAt(kx);
+		return GridSquare.letter(x % 5, y % 5);
 	}
 
 	/**
 	 * Calculate the offset from the origin of the Irish Grid of the 100km
 	 * square identified by the specified letter prefix.
 	 * 
+	 * <p>
+	 * An unrecognised letter gives an offset of zero. Use
+	 * <CODE>GridSquareToPackedOffset</CODE> to detect invalid prefixes.
+	 * 
 	 * @param a
 	 *            The letter which identifies the 100km square..
 	 * 
@@ -105,100 +159,36 @@ public class OSNI extends TransverseMercatorProjection {
 	 *         with respect to the origin of the Irish Grid.
 	 */
 	public DPoint GridSquareToOffset(char a) {
-		char B;
-
-		B = Character.toUpperCase(a);
-
-		double E = 0.0;
-		double N = 0.0;
-
-		/* Adjust easting for 100km offsets */
-
-		switch (B) {
-		case 'A':
-		case 'F':
-		case 'L':
-		case 'Q':
-		case 'V':
-			/* Do nothing */
-			break;
-
-		case 'B':
-		case 'G':
-		case 'M':
-		case 'R':
-		case 'W':
-			E += 100000.0;
-			break;
-
-		case 'C':
-		case 'H':
-		case 'N':
-		case 'S':
-		case 'X':
-			E += 200000.0;
-			break;
-
-		case 'D':
-		case 'J':
-		case 'O':
-		case 'T':
-		case 'Y':
-			E += 300000.0;
-			break;
-
-		case 'E':
-		case 'K':
-		case 'P':
-		case 'U':
-		case 'Z':
-			E += 400000.0;
-			break;
-		}
-
-		/* Adjust northing for 100km offsets */
-		switch (B) {
-		case 'A':
-		case 'B':
-		case 'C':
-		case 'D':
-		case 'E':
-			N += 400000.0;
-			break;
-
-		case 'F':
-		case 'G':
-		case 'H':
-		case 'J':
-		case 'K':
-			N += 300000.0;
-			break;
-
-		case 'L':
-		case 'M':
-		case 'N':
-		case 'O':
-		case 'P':
-			N += 200000.0;
-			break;
-
-		case 'Q':
-		case 'R':
-		case 'S':
-		case 'T':
-		case 'U':
-			N += 100000.0;
-			break;
-
-		case 'V':
-		case 'W':
-		case 'X':
-		case 'Y':
-		case 'Z':
-			/* Do nothing */
-			break;
-		}
-
-		return new DPoint(E, N);
+		int column = GridSquare.column(a);
+
+		if (column < 0)
+			return new DPoint(0.0, 0.0);
+
+		return new DPoint(100000.0 * column, 100000.0 * GridSquare.row(a));
+	}
+
+	/**
+	 * Calculate the offset from the origin of the Irish Grid of the 100km
+	 * square identified by the specified letter prefix, using lookup tables
+	 * and without creating any objects.
+	 * 
+	 * @param a
+	 *            The letter which identifies the 100km square.
+	 * 
+	 * @return The offset packed into a <CODE>long</CODE>, which may be
+	 *         unpacked using <CODE>GridSquare.getEasting</CODE> and
+	 *         <CODE>GridSquare.getNorthing</CODE>, or
+	 *         <CODE>GridSquare.INVALID</CODE> if the letter does not identify
+	 *         a square of the Irish Grid.
+	 * 
+	 * @see GridSquare
+	 */
+	public long GridSquareToPackedOffset(char a) {
+		int column = GridSquare.column(a);
+
+		if (column < 0)
+			return GridSquare.INVALID;
+
+		return GridSquare.pack(100000 * column, 100000 * GridSquare.row(a));
 	}
 }
@@ -0,0 +1,341 @@
+/*
+ * Map projections package
+ *
+ * Parallel bulk conversion of coordinates
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * This class converts very large arrays of coordinates using several threads.
+ * The arrays are divided into chunks which are small enough to stay in the
+ * processor cache, and each chunk is converted by one of the bulk conversion
+ * functions of a <CODE>TransverseMercatorProjection</CODE>.
+ * 
+ * <p>
+ * By default the work is run on the common <CODE>ForkJoinPool</CODE>, but
+ * any <CODE>Executor</CODE> may be supplied instead. Batches smaller than the
+ * threshold are converted sequentially in the calling thread, since the cost
+ * of dispatching them would outweigh the gain.
+ * 
+ * <p>
+ * A single instance may be used by several threads at once, provided that
+ * the projection's error tolerance is not changed.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class ParallelConverter {
+	/**
+	 * The default number of points below which a batch is converted
+	 * sequentially.
+	 */
+	public static final int DEFAULT_THRESHOLD = 16384;
+
+	/**
+	 * The default number of points in each chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	private static final int INVERSE = 0;
+	private static final int FORWARD = 1;
+	private static final int FORWARD_INTERLEAVED = 2;
+
+	private final TransverseMercatorProjection projection;
+	private final Executor executor;
+	private final int threshold, chunkSize;
+
+	/**
+	 * Construct a converter which uses the common <CODE>ForkJoinPool</CODE>
+	 * and the default threshold and chunk size.
+	 * 
+	 * @param projection
+	 *            The projection which will perform the conversions.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null.
+	 */
+	public ParallelConverter(TransverseMercatorProjection projection)
+			throws IllegalArgumentException {
+		this(projection, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD,
+				DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Construct a converter which uses the specified executor.
+	 * 
+	 * @param projection
+	 *            The projection which will perform the conversions.
+	 * @param executor
+	 *            The executor which will run the chunks. If this is a
+	 *            <CODE>ForkJoinPool</CODE>, the array is divided recursively
+	 *            so that idle workers can steal work.
+	 * @param threshold
+	 *            The number of points below which a batch is converted
+	 *            sequentially in the calling thread.
+	 * @param chunkSize
+	 *            The number of points in each chunk.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection or executor is null, or the chunk size is
+	 *             not positive.
+	 */
+	public ParallelConverter(TransverseMercatorProjection projection,
+			Executor executor, int threshold, int chunkSize)
+			throws IllegalArgumentException {
+		if (projection == null)
+			throw new IllegalArgumentException("Projection is null");
+
+		if (executor == null)
+			throw new IllegalArgumentException("Executor is null");
+
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be positive");
+
+		this.projection = projection;
+		this.executor = executor;
+		this.threshold = threshold;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Retrieve the projection used by this converter.
+	 * 
+	 * @return The projection.
+	 */
+	public TransverseMercatorProjection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Convert a block of grid coordinates to latitude and longitude, in the
+	 * same manner as the corresponding function of
+	 * <CODE>TransverseMercatorProjection</CODE>.
+	 * 
+	 * @param eastings
+	 *            The eastings of the points to be converted.
+	 * @param northings
+	 *            The northings of the points to be converted.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param longitudes
+	 *            The array which will receive the longitudes.
+	 * @param latitudes
+	 *            The array which will receive the latitudes.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 * @throws RejectedExecutionException
+	 *             if the executor rejects a chunk. Chunks which were
+	 *             accepted have been converted, but the others have not.
+	 * 
+	 * @see TransverseMercatorProjection#GridToLongitudeAndLatitude(double[],
+	 *      double[], int, int, double[], double[])
+	 */
+	public void GridToLongitudeAndLatitude(double[] eastings,
+			double[] northings, int offset, int length, double[] longitudes,
+			double[] latitudes) throws IllegalArgumentException,
+			RejectedExecutionException {
+		TransverseMercatorProjection.checkRange(eastings, offset, length,
+				"eastings");
+		TransverseMercatorProjection.checkRange(northings, offset, length,
+				"northings");
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+
+		run(INVERSE, eastings, northings, longitudes, latitudes, offset,
+				length);
+	}
+
+	/**
+	 * Convert a block of latitudes and longitudes held in parallel arrays to
+	 * grid coordinates, in the same manner as the corresponding function of
+	 * <CODE>TransverseMercatorProjection</CODE>.
+	 * 
+	 * @param longitudes
+	 *            The longitudes of the points to be converted.
+	 * @param latitudes
+	 *            The latitudes of the points to be converted.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param eastings
+	 *            The array which will receive the eastings.
+	 * @param northings
+	 *            The array which will receive the northings.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 * @throws RejectedExecutionException
+	 *             if the executor rejects a chunk. Chunks which were
+	 *             accepted have been converted, but the others have not.
+	 * 
+	 * @see TransverseMercatorProjection#LatitudeAndLongitudeToGrid(double[],
+	 *      double[], int, int, double[], double[])
+	 */
+	public void LatitudeAndLongitudeToGrid(double[] longitudes,
+			double[] latitudes, int offset, int length, double[] eastings,
+			double[] northings) throws IllegalArgumentException,
+			RejectedExecutionException {
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+		TransverseMercatorProjection.checkRange(eastings, offset, length,
+				"eastings");
+		TransverseMercatorProjection.checkRange(northings, offset, length,
+				"northings");
+
+		run(FORWARD, longitudes, latitudes, eastings, northings, offset,
+				length);
+	}
+
+	/**
+	 * Convert a block of interleaved longitudes and latitudes in place to
+	 * interleaved eastings and northings.
+	 * 
+	 * @param coordinates
+	 *            The array of interleaved coordinates.
+	 * @param offset
+	 *            The index of the longitude of the first point.
+	 * @param count
+	 *            The number of points to be converted.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the array is too short for the specified range.
+	 * @throws RejectedExecutionException
+	 *             if the executor rejects a chunk. Chunks which were
+	 *             accepted have been converted, but the others have not.
+	 * 
+	 * @see TransverseMercatorProjection#LatitudeAndLongitudeToGrid(double[],
+	 *      int, double[], int, int)
+	 */
+	public void LatitudeAndLongitudeToGrid(double[] coordinates, int offset,
+			int count) throws IllegalArgumentException,
+			RejectedExecutionException {
+		TransverseMercatorProjection.checkRange(coordinates, offset,
+				2 * count, "coordinates");
+
+		run(FORWARD_INTERLEAVED, coordinates, null, null, null, offset,
+				count);
+	}
+
+	private void convert(int operation, double[] x, double[] y, double[] u,
+			double[] v, int offset, int length) {
+		switch (operation) {
+		case INVERSE:
+			projection.GridToLongitudeAndLatitude(x, y, offset, length, u, v);
+			break;
+
+		case FORWARD:
+			projection.LatitudeAndLongitudeToGrid(x, y, offset, length, u, v);
+			break;
+
+		case FORWARD_INTERLEAVED:
+			projection.LatitudeAndLongitudeToGrid(x, offset, x, offset,
+					length);
+			break;
+		}
+	}
+
+	private void run(final int operation, final double[] x, final double[] y,
+			final double[] u, final double[] v, final int offset,
+			final int length) throws RejectedExecutionException {
+		/*
+		 * Interleaved arrays hold two values per point, so the offsets of
+		 * chunks are scaled when the work is divided.
+		 */
+
+		final int scale = operation == FORWARD_INTERLEAVED ? 2 : 1;
+
+		if (length < threshold || length <= chunkSize) {
+			convert(operation, x, y, u, v, offset, length);
+			return;
+		}
+
+		if (executor instanceof ForkJoinPool) {
+			((ForkJoinPool) executor).invoke(new ConversionTask(operation, x,
+					y, u, v, offset, length, scale));
+			return;
+		}
+
+		int nChunks = (length + chunkSize - 1) / chunkSize;
+
+		new ChunkedTask() {
+			void runChunk(int chunk) {
+				int start = chunk * chunkSize;
+				int count = Math.min(chunkSize, length - start);
+
+				convert(operation, x, y, u, v, offset + scale * start, count);
+			}
+		}.run(executor, nChunks);
+	}
+
+	private class ConversionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int operation, offset, length, scale;
+		private final double[] x, y, u, v;
+
+		ConversionTask(int operation, double[] x, double[] y, double[] u,
+				double[] v, int offset, int length, int scale) {
+			this.operation = operation;
+			this.x = x;
+			this.y = y;
+			this.u = u;
+			this.v = v;
+			this.offset = offset;
+			this.length = length;
+			this.scale = scale;
+		}
+
+		protected void compute() {
+			if (length <= chunkSize) {
+				convert(operation, x, y, u, v, offset, length);
+				return;
+			}
+
+			/*
+			 * Split on a chunk boundary so that every leaf is a whole chunk
+			 * apart from the last.
+			 */
+
+			int half = ((length / chunkSize + 1) / 2) * chunkSize;
+
+			invokeAll(new ConversionTask(operation, x, y, u, v, offset, half,
+					scale), new ConversionTask(operation, x, y, u, v, offset
+					+ scale * half, length - half, scale));
+		}
+	}
+}
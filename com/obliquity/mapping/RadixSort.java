@@ -0,0 +1,171 @@
+/*
+ * Map projections package
+ *
+ * Radix sort of packed keys
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class sorts arrays of packed <CODE>long</CODE> keys, such as the keys
+ * of <CODE>GridSquareIndex</CODE>, together with a parallel array of
+ * <CODE>int</CODE> values, using a least-significant-digit radix sort.
+ * 
+ * <p>
+ * The sort takes time proportional to the number of keys and the number of
+ * significant bits in the largest key, and is stable, so keys which are
+ * equal keep the order of their values. Digits in which every key is the
+ * same are skipped.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+final class RadixSort {
+	private static final int DIGIT_BITS = 11;
+	private static final int RADIX = 1 << DIGIT_BITS;
+	private static final int MASK = RADIX - 1;
+
+	/*
+	 * Below this length, an insertion sort is faster than clearing and
+	 * summing the counts.
+	 */
+	private static final int INSERTION_THRESHOLD = 64;
+
+	private RadixSort() {
+	}
+
+	/**
+	 * Sort the first <CODE>length</CODE> keys into increasing order, treating
+	 * them as unsigned numbers, and move each value with its key.
+	 * 
+	 * @param keys
+	 *            The keys.
+	 * @param values
+	 *            The values.
+	 * @param length
+	 *            The number of keys.
+	 */
+	static void sort(long[] keys, int[] values, int length) {
+		if (length < INSERTION_THRESHOLD)
+			insertionSort(keys, values, length);
+		else
+			sort(keys, values, length, new long[length], new int[length]);
+	}
+
+	/**
+	 * Sort the first <CODE>length</CODE> keys into increasing order, treating
+	 * them as unsigned numbers, and move each value with its key, using
+	 * caller-supplied work arrays so that repeated sorts need not allocate
+	 * arrays as large as the keys.
+	 * 
+	 * @param keys
+	 *            The keys.
+	 * @param values
+	 *            The values.
+	 * @param length
+	 *            The number of keys.
+	 * @param workKeys
+	 *            A work array with room for at least <CODE>length</CODE>
+	 *            keys.
+	 * @param workValues
+	 *            A work array with room for at least <CODE>length</CODE>
+	 *            values.
+	 */
+	static void sort(long[] keys, int[] values, int length, long[] workKeys,
+			int[] workValues) {
+		if (length < INSERTION_THRESHOLD) {
+			insertionSort(keys, values, length);
+			return;
+		}
+
+		long all = 0L;
+
+		for (int i = 0; i < length; i++)
+			all |= keys[i];
+
+		int bits = 64 - Long.numberOfLeadingZeros(all);
+
+		long[] fromKeys = keys, toKeys = workKeys;
+		int[] fromValues = values, toValues = workValues;
+		int[] counts = new int[RADIX];
+
+		for (int shift = 0; shift < bits; shift += DIGIT_BITS) {
+			for (int d = 0; d < RADIX; d++)
+				counts[d] = 0;
+
+			for (int i = 0; i < length; i++)
+				counts[(int) (fromKeys[i] >>> shift) & MASK]++;
+
+			if (counts[(int) (fromKeys[0] >>> shift) & MASK] == length)
+				continue;
+
+			for (int d = 0, start = 0; d < RADIX; d++) {
+				int count = counts[d];
+				counts[d] = start;
+				start += count;
+			}
+
+			for (int i = 0; i < length; i++) {
+				int position = counts[(int) (fromKeys[i] >>> shift) & MASK]++;
+
+				toKeys[position] = fromKeys[i];
+				toValues[position] = fromValues[i];
+			}
+
+			long[] swapKeys = fromKeys;
+			fromKeys = toKeys;
+			toKeys = swapKeys;
+
+			int[] swapValues = fromValues;
+			fromValues = toValues;
+			toValues = swapValues;
+		}
+
+		if (fromKeys != keys) {
+			System.arraycopy(fromKeys, 0, keys, 0, length);
+			System.arraycopy(fromValues, 0, values, 0, length);
+		}
+	}
+
+	private static void insertionSort(long[] keys, int[] values, int length) {
+		for (int i = 1; i < length; i++) {
+			long key = keys[i];
+			int value = values[i];
+			int j = i - 1;
+
+			/*
+			 * Flipping the sign bits makes the signed comparison agree with
+			 * the unsigned order used by the radix sort.
+			 */
+			for (; j >= 0
+					&& (keys[j] ^ Long.MIN_VALUE) > (key ^ Long.MIN_VALUE); j--) {
+				keys[j + 1] = keys[j];
+				values[j + 1] = values[j];
+			}
+
+			keys[j + 1] = key;
+			values[j + 1] = value;
+		}
+	}
+}
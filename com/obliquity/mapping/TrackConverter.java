@@ -0,0 +1,284 @@
+/*
+ * Map projections package
+ *
+ * Incremental conversion of tracks
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class converts the grid coordinates of the points of a track, such as
+ * a GPS track or a survey traverse, to latitude and longitude, using each
+ * point to speed up the conversion of the next.
+ * 
+ * <p>
+ * The Redfearn formulae find the latitude of the foot of the perpendicular
+ * from each point to the central meridian by iteration, normally starting
+ * from an estimate based on the zero point of the grid. A track converter
+ * remembers the northing and footpoint latitude of the last point which it
+ * converted, and starts the iteration for the next point from a first-order
+ * step along the meridian from that latitude, using the meridional radius of
+ * curvature. Along a dense track this estimate is usually within the error
+ * tolerance already, so each point needs a single iteration. When the
+ * northing changes by more than the maximum jump between consecutive
+ * points, the converter falls back to the default estimate.
+ * 
+ * <p>
+ * The <CODE>KRUGER</CODE> formulae do not iterate, so a projection which
+ * uses them converts each point independently.
+ * 
+ * <p>
+ * An instance holds the state of one track, and must not be shared between
+ * threads. The projection may be shared between several track converters,
+ * provided that its error tolerance is not changed.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class TrackConverter {
+	/**
+	 * The default maximum change in northing, in <em>metres</em>, for which
+	 * the previous point is used to estimate the next.
+	 */
+	public static final double DEFAULT_MAXIMUM_JUMP = 10000.0;
+
+	private final TransverseMercatorProjection projection;
+	private final double maximumJump;
+
+	private final int[] iterationCount = new int[1];
+
+	private double previousN, previousPhi = Double.NaN;
+	private long conversions, iterations, restarts;
+
+	/**
+	 * Construct a track converter which uses the default maximum jump.
+	 * 
+	 * @param projection
+	 *            The projection which will perform the conversions.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null.
+	 */
+	public TrackConverter(TransverseMercatorProjection projection)
+			throws IllegalArgumentException {
+		this(projection, DEFAULT_MAXIMUM_JUMP);
+	}
+
+	/**
+	 * Construct a track converter which uses the specified maximum jump.
+	 * 
+	 * @param projection
+	 *            The projection which will perform the conversions.
+	 * @param maximumJump
+	 *            The maximum change in northing, in <em>metres</em>, between
+	 *            consecutive points for which the previous point is used to
+	 *            estimate the next.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null, or the maximum jump is negative.
+	 */
+	public TrackConverter(TransverseMercatorProjection projection,
+			double maximumJump) throws IllegalArgumentException {
+		if (projection == null)
+			throw new IllegalArgumentException("Projection is null");
+
+		if (!(maximumJump >= 0.0))
+			throw new IllegalArgumentException(
+					"Maximum jump must not be negative");
+
+		this.projection = projection;
+		this.maximumJump = maximumJump;
+	}
+
+	/**
+	 * Retrieve the projection which performs the conversions.
+	 * 
+	 * @return The projection.
+	 */
+	public TransverseMercatorProjection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Retrieve the maximum change in northing between consecutive points for
+	 * which the previous point is used to estimate the next.
+	 * 
+	 * @return The maximum jump, in <em>metres</em>.
+	 */
+	public double getMaximumJump() {
+		return maximumJump;
+	}
+
+	/**
+	 * Forget the last point which was converted, so that the next point is
+	 * treated as the start of a new track. The counts of conversions,
+	 * iterations and restarts are not changed.
+	 */
+	public void reset() {
+		previousPhi = Double.NaN;
+	}
+
+	/**
+	 * Convert the grid coordinates of the next point of the track to
+	 * latitude and longitude.
+	 * 
+	 * @param easting
+	 *            The easting of the point.
+	 * @param northing
+	 *            The northing of the point.
+	 * @param dst
+	 *            The array which will receive the longitude and latitude, in
+	 *            that order.
+	 * @param dstOffset
+	 *            The index in <CODE>dst</CODE> at which the longitude will be
+	 *            stored.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the array is too short.
+	 */
+	public void GridToLongitudeAndLatitude(double easting, double northing,
+			double[] dst, int dstOffset) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(dst, dstOffset, 2, "dst");
+
+		convert(easting, northing, projection.getErrorTolerance(), dst,
+				dstOffset, dst, dstOffset + 1);
+	}
+
+	/**
+	 * Convert the grid coordinates of the next points of the track to
+	 * latitude and longitude, in the order in which they are held in the
+	 * arrays. The coordinates are held in parallel arrays, as for the
+	 * corresponding function of <CODE>TransverseMercatorProjection</CODE>,
+	 * and no objects are created during the conversion.
+	 * 
+	 * <p>
+	 * The output arrays may be the same as the input arrays, in which case the
+	 * conversion is performed in place.
+	 * 
+	 * @param eastings
+	 *            The eastings of the points to be converted.
+	 * @param northings
+	 *            The northings of the points to be converted.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param longitudes
+	 *            The array which will receive the longitudes, at the same
+	 *            indices as the corresponding input points.
+	 * @param latitudes
+	 *            The array which will receive the latitudes, at the same
+	 *            indices as the corresponding input points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public void GridToLongitudeAndLatitude(double[] eastings,
+			double[] northings, int offset, int length, double[] longitudes,
+			double[] latitudes) throws IllegalArgumentException {
+		TransverseMercatorProjection.checkRange(eastings, offset, length,
+				"eastings");
+		TransverseMercatorProjection.checkRange(northings, offset, length,
+				"northings");
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+
+		double tolerance = projection.getErrorTolerance();
+
+		for (int i = offset; i < offset + length; i++)
+			convert(eastings[i], northings[i], tolerance, longitudes, i,
+					latitudes, i);
+	}
+
+	/**
+	 * Retrieve the number of points which this converter has converted.
+	 * 
+	 * @return The number of points.
+	 */
+	public long getConversions() {
+		return conversions;
+	}
+
+	/**
+	 * Retrieve the total number of iterations which this converter has needed
+	 * to find the latitudes of the feet of the perpendiculars. This is always
+	 * zero for the <CODE>KRUGER</CODE> formulae.
+	 * 
+	 * @return The number of iterations.
+	 * 
+	 * @see TransverseMercatorProjection#getFootpointIterations(double)
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Retrieve the number of points which this converter has converted from
+	 * the default estimate, because they were the first point of a track, or
+	 * followed a jump or a point which could not be converted. This is always
+	 * zero for the <CODE>KRUGER</CODE> formulae.
+	 * 
+	 * @return The number of restarts.
+	 */
+	public long getRestarts() {
+		return restarts;
+	}
+
+	private void convert(double E, double N, double tolerance,
+			double[] longitudes, int lonIndex, double[] latitudes,
+			int latIndex) {
+		conversions++;
+
+		if (projection.getAlgorithm() == TransverseMercatorProjection.KRUGER) {
+			projection.gridToLongitudeAndLatitude(E, N, tolerance, longitudes,
+					lonIndex, latitudes, latIndex);
+			return;
+		}
+
+		double estimate;
+
+		/*
+		 * The comparison is false if either northing is NaN, and the latitude
+		 * is NaN after a point which could not be converted.
+		 */
+		if (Math.abs(N - previousN) <= maximumJump
+				&& !Double.isNaN(previousPhi)) {
+			estimate = projection.footpointEstimate(N, previousN, previousPhi);
+		} else {
+			estimate = projection.footpointEstimate(N);
+			restarts++;
+		}
+
+		iterationCount[0] = 0;
+
+		previousPhi = projection.gridToLongitudeAndLatitude(E, N, tolerance,
+				estimate, longitudes, lonIndex, latitudes, latIndex,
+				iterationCount);
+		previousN = N;
+
+		iterations += iterationCount[0];
+	}
+}
@@ -26,6 +26,8 @@
 
 package com.obliquity.mapping;
 
+import java.nio.DoubleBuffer;
+
 /**
  * <code>TransverseMercatorProjection</code> encapsulates a generic Transverse
  * Mercator Projection. It includes public member functions which convert
@@ -41,17 +43,55 @@ package com.obliquity.mapping;
  * those used to specify the major and minor axes of the ellipsoid in the
  * constructor. In practice, any unit of length may be used.
  * 
+ * <p>
+ * Two sets of formulae are available. The default, <CODE>REDFEARN</CODE>,
+ * uses the series published by the Ordnance Survey, and finds the latitude
+ * of the foot of the perpendicular by iteration when converting from grid
+ * coordinates. The alternative, <CODE>KRUGER</CODE>, uses Kr&uuml;ger's
+ * series in the third flattening of the ellipsoid to sixth order, which
+ * needs no iteration in either direction and is accurate to well below a
+ * millimetre over the whole of a national grid. A third choice,
+ * <CODE>REDFEARN_NEWTON</CODE>, uses the Ordnance Survey series but finds the
+ * latitude of the foot of the perpendicular by Newton's method, which
+ * converges in fewer iterations than the simple correction used by
+ * <CODE>REDFEARN</CODE>.
+ * 
+ * <p>
+ * Instances hold no working storage, so a single instance may be shared by
+ * any number of threads, provided that its error tolerance is fixed when it
+ * is constructed rather than changed later with
+ * <CODE>setErrorTolerance</CODE>.
+ * 
  * @author David Harper at obliquity.com
  * @version 1.1 2001-10-03
  */
 
 public class TransverseMercatorProjection extends Object {
-	private double E0, N0, F0, phi0, lambda0;
-	private double a, b, eSquared, n;
-	private double aF0, bF0;
-	private double[] tp;
-	private double[] pnu;
-	private double epsilon;
+	private final double E0, N0, F0, phi0, lambda0;
+	private final double a, b, eSquared, n;
+	private final double aF0, bF0;
+	private volatile double epsilon;
+	private final int algorithm;
+	private final double e, A, xi0;
+	private final double[] alpha, beta, delta;
+
+	static final private double DEFAULT_EPSILON = 0.001;
+
+	/**
+	 * Identifies the Redfearn-style series used by the Ordnance Survey.
+	 */
+	public static final int REDFEARN = 0;
+
+	/**
+	 * Identifies Kr&uuml;ger's series in the third flattening.
+	 */
+	public static final int KRUGER = 1;
+
+	/**
+	 * Identifies the Redfearn-style series used by the Ordnance Survey, with
+	 * the latitude of the foot of the perpendicular found by Newton's method.
+	 */
+	public static final int REDFEARN_NEWTON = 2;
 
 	/**
 	 * Constructs a Transverse Mercator Projection from the specified
@@ -82,6 +122,97 @@ public class TransverseMercatorProjection extends Object {
 	public TransverseMercatorProjection(double majorAxis, double minorAxis,
 			double scaleFactor, double centralLongitude,
 			double centralLatitude, double eastingOffset, double northingOffset) {
+		this(majorAxis, minorAxis, scaleFactor, centralLongitude,
+				centralLatitude, eastingOffset, northingOffset,
+				DEFAULT_EPSILON);
+	}
+
+	/**
+	 * Constructs a Transverse Mercator Projection from the specified
+	 * parameters, with the specified error tolerance.
+	 * 
+	 * @param majorAxis
+	 *            The major axis of the ellipsoid
+	 * 
+	 * @param minorAxis
+	 *            The minor axis of the ellipsoid
+	 * 
+	 * @param scaleFactor
+	 *            The scale factor on the central meridian
+	 * 
+	 * @param centralLongitude
+	 *            The longitude of the central meridian
+	 * 
+	 * @param centralLatitude
+	 *            The latitude of the zero point of the grid
+	 * 
+	 * @param eastingOffset
+	 *            The easting offset of the false origin
+	 * 
+	 * @param northingOffset
+	 *            The northing offset of the false origin
+	 * 
+	 * @param tolerance
+	 *            The error tolerance for the conversion routines
+	 * 
+	 */
+	public TransverseMercatorProjection(double majorAxis, double minorAxis,
+			double scaleFactor, double centralLongitude,
+			double centralLatitude, double eastingOffset,
+			double northingOffset, double tolerance) {
+		this(majorAxis, minorAxis, scaleFactor, centralLongitude,
+				centralLatitude, eastingOffset, northingOffset, tolerance,
+				REDFEARN);
+	}
+
+	/**
+	 * Constructs a Transverse Mercator Projection from the specified
+	 * parameters, with the specified error tolerance and set of formulae.
+	 * 
+	 * @param majorAxis
+	 *            The major axis of the ellipsoid
+	 * 
+	 * @param minorAxis
+	 *            The minor axis of the ellipsoid
+	 * 
+	 * @param scaleFactor
+	 *            The scale factor on the central meridian
+	 * 
+	 * @param centralLongitude
+	 *            The longitude of the central meridian
+	 * 
+	 * @param centralLatitude
+	 *            The latitude of the zero point of the grid
+	 * 
+	 * @param eastingOffset
+	 *            The easting offset of the false origin
+	 * 
+	 * @param northingOffset
+	 *            The northing offset of the false origin
+	 * 
+	 * @param tolerance
+	 *            The error tolerance for the conversion routines. This is not
+	 *            used by the <CODE>KRUGER</CODE> formulae.
+	 * 
+	 * @param algorithm
+	 *            The set of formulae to use, one of <CODE>REDFEARN</CODE>,
+	 *            <CODE>REDFEARN_NEWTON</CODE> or <CODE>KRUGER</CODE>
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the set of formulae is not recognised.
+	 */
+	public TransverseMercatorProjection(double majorAxis, double minorAxis,
+			double scaleFactor, double centralLongitude,
+			double centralLatitude, double eastingOffset,
+			double northingOffset, double tolerance, int algorithm)
+			throws IllegalArgumentException {
+		if (algorithm != REDFEARN && algorithm != KRUGER
+				&& algorithm != REDFEARN_NEWTON)
+			throw new IllegalArgumentException("Unknown algorithm "
+					+ algorithm);
+
+		this.algorithm = algorithm;
+
 		a = majorAxis;
 		b = minorAxis;
 		F0 = scaleFactor;
@@ -96,10 +227,169 @@ public class TransverseMercatorProjection extends Object {
 		aF0 = a * F0;
 		bF0 = b * F0;
 
-		tp = new double[7];
-		pnu = new double[8];
+		epsilon = Math.abs(tolerance);
 
-		epsilon = 0.001;
+		/*
+		 * Coefficients of Kruger's series, from C. F. F. Karney, Transverse
+		 * Mercator with an accuracy of a few nanometers, J. Geodesy 85, 475
+		 * (2011). Element j holds the coefficient of the term in 2(j+1).
+		 */
+
+		double n2 = n * n, n3 = n2 * n, n4 = n3 * n, n5 = n4 * n, n6 = n5 * n;
+
+		e = Math.sqrt(eSquared);
+
+		A = a / (1.0 + n) * (1.0 + n2 / 4.0 + n4 / 64.0 + n6 / 256.0);
+
+		alpha = new double[] {
+				n / 2.0 - 2.0 * n2 / 3.0 + 5.0 * n3 / 16.0 + 41.0 * n4
+						/ 180.0 - 127.0 * n5 / 288.0 + 7891.0 * n6 / 37800.0,
+				13.0 * n2 / 48.0 - 3.0 * n3 / 5.0 + 557.0 * n4 / 1440.0
+						+ 281.0 * n5 / 630.0 - 1983433.0 * n6 / 1935360.0,
+				61.0 * n3 / 240.0 - 103.0 * n4 / 140.0 + 15061.0 * n5
+						/ 26880.0 + 167603.0 * n6 / 181440.0,
+				49561.0 * n4 / 161280.0 - 179.0 * n5 / 168.0 + 6601661.0
+						* n6 / 7257600.0,
+				34729.0 * n5 / 80640.0 - 3418889.0 * n6 / 1995840.0,
+				212378941.0 * n6 / 319334400.0 };
+
+		beta = new double[] {
+				n / 2.0 - 2.0 * n2 / 3.0 + 37.0 * n3 / 96.0 - n4 / 360.0
+						- 81.0 * n5 / 512.0 + 96199.0 * n6 / 604800.0,
+				n2 / 48.0 + n3 / 15.0 - 437.0 * n4 / 1440.0 + 46.0 * n5
+						/ 105.0 - 1118711.0 * n6 / 3870720.0,
+				17.0 * n3 / 480.0 - 37.0 * n4 / 840.0 - 209.0 * n5 / 4480.0
+						+ 5569.0 * n6 / 90720.0,
+				4397.0 * n4 / 161280.0 - 11.0 * n5 / 504.0 - 830251.0 * n6
+						/ 7257600.0,
+				4583.0 * n5 / 161280.0 - 108847.0 * n6 / 3991680.0,
+				20648693.0 * n6 / 638668800.0 };
+
+		delta = new double[] {
+				2.0 * n - 2.0 * n2 / 3.0 - 2.0 * n3 + 116.0 * n4 / 45.0
+						+ 26.0 * n5 / 45.0 - 2854.0 * n6 / 675.0,
+				7.0 * n2 / 3.0 - 8.0 * n3 / 5.0 - 227.0 * n4 / 45.0 + 2704.0
+						* n5 / 315.0 + 2323.0 * n6 / 945.0,
+				56.0 * n3 / 15.0 - 136.0 * n4 / 35.0 - 1262.0 * n5 / 105.0
+						+ 73814.0 * n6 / 2835.0,
+				4279.0 * n4 / 630.0 - 332.0 * n5 / 35.0 - 399572.0 * n6
+						/ 14175.0,
+				4174.0 * n5 / 315.0 - 144838.0 * n6 / 6237.0,
+				601676.0 * n6 / 22275.0 };
+
+		/*
+		 * The value of xi at the zero point of the grid, which lies on the
+		 * central meridian.
+		 */
+
+		double chi0 = conformalLatitude(phi0);
+		double s = 0.0;
+
+		for (int j = 0; j < 6; j++)
+			s += alpha[j] * Math.sin(2.0 * (j + 1) * chi0);
+
+		xi0 = chi0 + s;
+	}
+
+	/**
+	 * Retrieve the set of formulae used by the conversion routines.
+	 * 
+	 * @return One of <CODE>REDFEARN</CODE>, <CODE>REDFEARN_NEWTON</CODE>
+	 *         or <CODE>KRUGER</CODE>.
+	 */
+	public int getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Determine how many iterations the conversion routines need to find the
+	 * latitude of the foot of the perpendicular for a point with the specified
+	 * northing, using this projection's formulae and error tolerance. This is
+	 * intended for comparing the performance of the different formulae.
+	 * 
+	 * @param northing
+	 *            The northing of the point.
+	 * 
+	 * @return The number of iterations, which is always zero for the
+	 *         <CODE>KRUGER</CODE> formulae.
+	 */
+	public int getFootpointIterations(double northing) {
+		if (algorithm == KRUGER)
+			return 0;
+
+		int[] iterations = new int[1];
+
+		footpointLatitude(northing, footpointEstimate(northing), epsilon,
+				iterations);
+
+		return iterations[0];
+	}
+
+	/*
+	 * Estimate the latitude of the foot of the perpendicular for a northing
+	 * from the zero point of the grid. This is the starting point of the
+	 * iteration unless a better estimate is known.
+	 */
+	double footpointEstimate(double N) {
+		return (N - N0) / aF0 + phi0;
+	}
+
+	/*
+	 * Estimate the latitude of the foot of the perpendicular for a northing
+	 * from the latitude of the foot of the perpendicular for a nearby
+	 * northing, by a first-order step along the meridian using the
+	 * meridional radius of curvature, scaled by F0. The error is of the
+	 * order of the square of the difference in northing.
+	 */
+	double footpointEstimate(double N, double fromN, double fromPhi) {
+		double y = Math.sin(fromPhi);
+		y = 1.0 - eSquared * y * y;
+
+		return fromPhi + (N - fromN) * y * Math.sqrt(y)
+				/ (aF0 * (1.0 - eSquared));
+	}
+
+	/*
+	 * Find the latitude at which the meridional arc from the zero point of the
+	 * grid is equal to the specified northing, starting from the specified
+	 * estimate. If the iterations array is not null, the number of iterations
+	 * is added to its first element.
+	 */
+	private double footpointLatitude(double N, double phi, double tolerance,
+			int[] iterations) {
+		double x, y;
+		int count = 0;
+
+		if (algorithm == REDFEARN_NEWTON) {
+			/*
+			 * The derivative of the meridional arc is the meridional radius of
+			 * curvature, scaled by F0.
+			 */
+
+			do {
+				x = N - N0 - calculateM(phi);
+
+				y = Math.sin(phi);
+				y = 1.0 - eSquared * y * y;
+
+				phi += x * y * Math.sqrt(y) / (aF0 * (1.0 - eSquared));
+
+				count++;
+			} while (Math.abs(x) > tolerance);
+		} else {
+			do {
+				x = N - N0 - calculateM(phi);
+
+				phi += x / aF0;
+
+				count++;
+			} while (Math.abs(x) > tolerance);
+		}
+
+		if (iterations != null)
+			iterations[0] += count;
+
+		return phi;
 	}
 
 	private double calculateM(double phi) {
@@ -118,7 +408,13 @@ public class TransverseMercatorProjection extends Object {
 	 * 
 	 * @param d
 	 *            The error tolerance.
+	 * 
+	 * @deprecated Changing the tolerance of an instance which is shared
+	 *             between threads affects conversions in progress in other
+	 *             threads. Specify the tolerance when the projection is
+	 *             constructed instead.
 	 */
+	@Deprecated
 	public void setErrorTolerance(double d) {
 		epsilon = Math.abs(d);
 	}
@@ -167,31 +463,259 @@ public class TransverseMercatorProjection extends Object {
 	 * @see DPoint
 	 */
 	public DPoint GridToLongitudeAndLatitude(DPoint gridxy) {
-		int i;
-		double phi, rho, nu, etasq, sp, M;
-		double E, N;
-		double x, y, VII, VIII, IX, X, XI, XII, XIIA;
+		double E = gridxy.getX(), N = gridxy.getY();
+		DPoint lonlat = new DPoint();
 
-		E = gridxy.getX();
-		N = gridxy.getY();
+		if (algorithm == KRUGER)
+			krugerGridToLongitudeAndLatitude(E, N, null, 0, null, 0, lonlat);
+		else
+			gridToLongitudeAndLatitude(E, N, epsilon, footpointEstimate(N),
+					null, 0, null, 0, null, lonlat);
 
-		/*
-		 * Calculate an initial estimate of the latitude.
-		 */
+		return lonlat;
+	}
+
+	/**
+	 * Convert a block of grid coordinates to latitude and longitude. The
+	 * coordinates are held in parallel arrays, and no objects are created
+	 * during the conversion.
+	 * 
+	 * <p>
+	 * The output arrays may be the same as the input arrays, in which case the
+	 * conversion is performed in place.
+	 * 
+	 * @param eastings
+	 *            The eastings of the points to be converted.
+	 * @param northings
+	 *            The northings of the points to be converted.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param longitudes
+	 *            The array which will receive the longitudes, at the same
+	 *            indices as the corresponding input points.
+	 * @param latitudes
+	 *            The array which will receive the latitudes, at the same
+	 *            indices as the corresponding input points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public void GridToLongitudeAndLatitude(double[] eastings,
+			double[] northings, int offset, int length, double[] longitudes,
+			double[] latitudes) throws IllegalArgumentException {
+		checkRange(eastings, offset, length, "eastings");
+		checkRange(northings, offset, length, "northings");
+		checkRange(longitudes, offset, length, "longitudes");
+		checkRange(latitudes, offset, length, "latitudes");
+
+		double tolerance = epsilon;
+
+		for (int i = offset; i < offset + length; i++)
+			gridToLongitudeAndLatitude(eastings[i], northings[i], tolerance,
+					longitudes, i, latitudes, i);
+	}
+
+	/**
+	 * Convert a block of grid coordinates to latitude and longitude. The
+	 * input array holds interleaved coordinates in the order easting,
+	 * northing, easting, northing, ... and the output array receives
+	 * interleaved coordinates in the order longitude, latitude, longitude,
+	 * latitude, ... No objects are created during the conversion.
+	 * 
+	 * <p>
+	 * The output array may be the same as the input array. If the offsets are
+	 * also the same, the conversion is performed in place; otherwise the
+	 * input and output ranges must not overlap.
+	 * 
+	 * @param src
+	 *            The array of interleaved eastings and northings.
+	 * @param srcOffset
+	 *            The index in <CODE>src</CODE> of the easting of the first
+	 *            point.
+	 * @param dst
+	 *            The array which will receive the interleaved longitudes and
+	 *            latitudes.
+	 * @param dstOffset
+	 *            The index in <CODE>dst</CODE> at which the longitude of the
+	 *            first point will be stored.
+	 * @param count
+	 *            The number of points to be converted.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either array is too short for the specified range, or
+	 *             the input and output ranges overlap without being the
+	 *             same.
+	 */
+	public void GridToLongitudeAndLatitude(double[] src, int srcOffset,
+			double[] dst, int dstOffset, int count)
+			throws IllegalArgumentException {
+		checkRange(src, srcOffset, 2 * count, "src");
+		checkRange(dst, dstOffset, 2 * count, "dst");
+		checkOverlap(src, srcOffset, dst, dstOffset, 2 * count);
+
+		double tolerance = epsilon;
+
+		for (int i = 0; i < 2 * count; i += 2)
+			gridToLongitudeAndLatitude(src[srcOffset + i], src[srcOffset + i
+					+ 1], tolerance, dst, dstOffset + i, dst, dstOffset + i
+					+ 1);
+	}
+
+	/**
+	 * Convert the remaining interleaved eastings and northings in a buffer to
+	 * interleaved longitudes and latitudes, in the same manner as the
+	 * array-based version of this method.
+	 * 
+	 * <p>
+	 * Every complete easting/northing pair between the position and the limit
+	 * of <CODE>src</CODE> is converted and written to <CODE>dst</CODE>
+	 * starting at its position. The positions of both buffers are advanced
+	 * past the coordinates which were read or written. The same buffer may be
+	 * passed as both arguments, in which case the conversion is performed in
+	 * place. Otherwise the two buffers must not share storage within the
+	 * range being converted. Overlapping views of the same array are
+	 * rejected, but overlapping views of the same direct buffer cannot be
+	 * detected and give incorrect results.
+	 * 
+	 * @param src
+	 *            The buffer of interleaved eastings and northings.
+	 * @param dst
+	 *            The buffer which will receive the interleaved longitudes and
+	 *            latitudes.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <CODE>dst</CODE> is read-only or has too little space
+	 *             remaining, or the buffers are views of the same array
+	 *             whose ranges overlap without being the same.
+	 */
+	public void GridToLongitudeAndLatitude(DoubleBuffer src, DoubleBuffer dst)
+			throws IllegalArgumentException {
+		if (src == null)
+			throw new IllegalArgumentException("src is null");
 
-		phi = (N - N0) / aF0 + phi0;
+		if (dst == null)
+			throw new IllegalArgumentException("dst is null");
+
+		if (dst.isReadOnly())
+			throw new IllegalArgumentException("dst is read-only");
+
+		int count = src.remaining() / 2;
+
+		if (dst != src && dst.remaining() < 2 * count)
+			throw new IllegalArgumentException("dst has room for only "
+					+ (dst.remaining() / 2) + " of " + count + " points");
+
+		if (src.hasArray() && dst.hasArray()) {
+			GridToLongitudeAndLatitude(src.array(), src.arrayOffset()
+					+ src.position(), dst.array(), dst.arrayOffset()
+					+ dst.position(), count);
+		} else {
+			int srcPos = src.position();
+			int dstPos = dst.position();
+			double tolerance = epsilon;
+			double[] lonlat = new double[2];
+
+			for (int i = 0; i < 2 * count; i += 2) {
+				gridToLongitudeAndLatitude(src.get(srcPos + i), src
+						.get(srcPos + i + 1), tolerance, lonlat, 0, lonlat, 1);
+				dst.put(dstPos + i, lonlat[0]);
+				dst.put(dstPos + i + 1, lonlat[1]);
+			}
+		}
+
+		if (dst != src)
+			dst.position(dst.position() + 2 * count);
+
+		src.position(src.position() + 2 * count);
+	}
+
+	static void checkRange(double[] array, int offset, int length,
+			String name) throws IllegalArgumentException {
+		if (array == null)
+			throw new IllegalArgumentException(name + " is null");
+
+		if (offset < 0 || length < 0 || offset > array.length - length)
+			throw new IllegalArgumentException(name
+					+ " is too short for the range [" + offset + ", "
+					+ offset + " + " + length + ")");
+	}
+
+	/*
+	 * Check that an output range is either the same as an input range, or
+	 * does not overlap it, since the interleaved conversions read and write
+	 * in blocks.
+	 */
+	static void checkOverlap(double[] src, int srcOffset, double[] dst,
+			int dstOffset, int length) throws IllegalArgumentException {
+		if (src == dst && srcOffset != dstOffset
+				&& srcOffset < dstOffset + length
+				&& dstOffset < srcOffset + length)
+			throw new IllegalArgumentException("src range [" + srcOffset
+					+ ", " + srcOffset + " + " + length
+					+ ") overlaps dst range [" + dstOffset + ", " + dstOffset
+					+ " + " + length + ")");
+	}
+
+	static void checkRange(int[] array, int offset, int length, String name)
+			throws IllegalArgumentException {
+		if (array == null)
+			throw new IllegalArgumentException(name + " is null");
+
+		if (offset < 0 || length < 0 || offset > array.length - length)
+			throw new IllegalArgumentException(name
+					+ " is too short for the range [" + offset + ", "
+					+ offset + " + " + length + ")");
+	}
+
+	void gridToLongitudeAndLatitude(double E, double N, double tolerance,
+			double[] longitudes, int lonIndex, double[] latitudes,
+			int latIndex) {
+		if (algorithm == KRUGER) {
+			krugerGridToLongitudeAndLatitude(E, N, longitudes, lonIndex,
+					latitudes, latIndex, null);
+			return;
+		}
 
 		/*
-		 * Now enter the iterative phase.
+		 * Estimate the latitude from the northing of the zero point of the
+		 * grid.
 		 */
 
-		do {
-			M = calculateM(phi);
+		gridToLongitudeAndLatitude(E, N, tolerance, footpointEstimate(N),
+				longitudes, lonIndex, latitudes, latIndex, null);
+	}
 
-			x = N - N0 - M;
+	/*
+	 * Convert grid coordinates to latitude and longitude using the Redfearn
+	 * formulae, starting the search for the latitude of the foot of the
+	 * perpendicular from the specified estimate, and return that latitude so
+	 * that callers converting a sequence of nearby points can use it to
+	 * estimate the next one. If the iterations array is not null, the number
+	 * of iterations is added to its first element. This must not be called
+	 * for the KRUGER formulae.
+	 */
+	double gridToLongitudeAndLatitude(double E, double N, double tolerance,
+			double estimate, double[] longitudes, int lonIndex,
+			double[] latitudes, int latIndex, int[] iterations) {
+		return gridToLongitudeAndLatitude(E, N, tolerance, estimate,
+				longitudes, lonIndex, latitudes, latIndex, iterations, null);
+	}
 
-			phi += x / aF0;
-		} while (Math.abs(x) > epsilon);
+	/*
+	 * As above, but if the point is not null, the longitude and latitude are
+	 * stored in it instead of in the arrays.
+	 */
+	private double gridToLongitudeAndLatitude(double E, double N,
+			double tolerance, double estimate, double[] longitudes,
+			int lonIndex, double[] latitudes, int latIndex, int[] iterations,
+			DPoint point) {
+		double phi, rho, nu, etasq, sp;
+		double x, y, VII, VIII, IX, X, XI, XII, XIIA;
+		double t, t2, t4, nu3, nu5;
+
+		phi = footpointLatitude(N, estimate, tolerance, iterations);
 
 		/*
 		 * Calculate auxiliary quantities.
@@ -209,40 +733,39 @@ public class TransverseMercatorProjection extends Object {
 
 		y = E - E0;
 
-		x = Math.tan(phi);
-
-		tp[0] = 1.0;
-		for (i = 1; i < 7; i++)
-			tp[i] = tp[i - 1] * x;
+		t = Math.tan(phi);
+		t2 = t * t;
+		t4 = t2 * t2;
 
-		pnu[1] = nu;
 		x = nu * nu;
-		for (i = 3; i < 8; i += 2)
-			pnu[i] = pnu[i - 2] * x;
+		nu3 = nu * x;
+		nu5 = nu3 * x;
 
 		sp = 1.0 / Math.cos(phi);
 
-		VII = tp[1] / (2.0 * rho * nu);
+		VII = t / (2.0 * rho * nu);
 
-		VIII = tp[1] * (5.0 + 3.0 * tp[2] + etasq * (1.0 - 9.0 * tp[2]))
-				/ (24.0 * rho * pnu[3]);
+		VIII = t * (5.0 + 3.0 * t2 + etasq * (1.0 - 9.0 * t2))
+				/ (24.0 * rho * nu3);
 
-		IX = tp[1] * (61.0 + 90.0 * tp[2] + 45.0 * tp[4])
-				/ (720.0 * rho * pnu[5]);
+		IX = t * (61.0 + 90.0 * t2 + 45.0 * t4) / (720.0 * rho * nu5);
 
 		X = sp / nu;
 
-		XI = sp * (nu / rho + 2.0 * tp[2]) / (6.0 * pnu[3]);
+		XI = sp * (nu / rho + 2.0 * t2) / (6.0 * nu3);
 
-		XII = sp * (5.0 + 28.0 * tp[2] + 24 * tp[4]) / (120.0 * pnu[5]);
+		XII = sp * (5.0 + 28.0 * t2 + 24 * t4) / (120.0 * nu5);
 
-		XIIA = sp * (61.0 + 662.0 * tp[2] + 1320.0 * tp[4] + 720.0 * tp[6])
-				/ (5040.0 * pnu[7]);
+		XIIA = sp * (61.0 + 662.0 * t2 + 1320.0 * t4 + 720.0 * t4 * t2)
+				/ (5040.0 * nu5 * x);
 
 		x = y * y;
 
-		return new DPoint(lambda0 + y * (X + x * (-XI + x * (XII - x * XIIA))),
-				phi + x * (-VII + x * (VIII - x * IX)));
+		store(lambda0 + y * (X + x * (-XI + x * (XII - x * XIIA))),
+				phi + x * (-VII + x * (VIII - x * IX)), longitudes, lonIndex,
+				latitudes, latIndex, point);
+
+		return phi;
 	}
 
 	/**
@@ -276,16 +799,318 @@ public class TransverseMercatorProjection extends Object {
 	 * @see DPoint
 	 */
 	public DPoint LatitudeAndLongitudeToGrid(DPoint latlong) {
-		double phi, lambda, rho, nu, etasq, M;
+		DPoint grid = new DPoint();
+
+		latitudeAndLongitudeToGrid(latlong.getX(), latlong.getY(), null, 0,
+				null, 0, grid);
+
+		return grid;
+	}
+
+	/**
+	 * Convert a block of latitudes and longitudes to grid coordinates. The
+	 * coordinates are held in parallel arrays, and no objects are created
+	 * for individual points.
+	 * 
+	 * <p>
+	 * For the <CODE>REDFEARN</CODE> formulae, the points are processed in
+	 * short runs. The sines and cosines for a whole run are evaluated first,
+	 * and the series are then evaluated by a loop which contains only
+	 * arithmetic, which the JIT compiler can translate into vector
+	 * instructions. Multiple-angle identities reduce the number of
+	 * trigonometric functions needed for each point from nine to five.
+	 * 
+	 * <p>
+	 * The output arrays may be the same as the input arrays, in which case the
+	 * conversion is performed in place.
+	 * 
+	 * @param longitudes
+	 *            The longitudes of the points to be converted.
+	 * @param latitudes
+	 *            The latitudes of the points to be converted.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param eastings
+	 *            The array which will receive the eastings, at the same
+	 *            indices as the corresponding input points.
+	 * @param northings
+	 *            The array which will receive the northings, at the same
+	 *            indices as the corresponding input points.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 */
+	public void LatitudeAndLongitudeToGrid(double[] longitudes,
+			double[] latitudes, int offset, int length, double[] eastings,
+			double[] northings) throws IllegalArgumentException {
+		checkRange(longitudes, offset, length, "longitudes");
+		checkRange(latitudes, offset, length, "latitudes");
+		checkRange(eastings, offset, length, "eastings");
+		checkRange(northings, offset, length, "northings");
+
+		if (algorithm == KRUGER) {
+			for (int i = offset; i < offset + length; i++)
+				krugerLatitudeAndLongitudeToGrid(longitudes[i], latitudes[i],
+						eastings, i, northings, i, null);
+
+			return;
+		}
+
+		ForwardWorkspace w = new ForwardWorkspace();
+
+		for (int i = offset; i < offset + length; i += BLOCK)
+			forwardBlock(longitudes, latitudes, eastings, northings, i, Math
+					.min(BLOCK, offset + length - i), w);
+	}
+
+	/**
+	 * Convert a block of latitudes and longitudes to grid coordinates. The
+	 * input array holds interleaved coordinates in the order longitude,
+	 * latitude, longitude, latitude, ... and the output array receives
+	 * interleaved coordinates in the order easting, northing, easting,
+	 * northing, ... No objects are created during the conversion.
+	 * 
+	 * <p>
+	 * The output array may be the same as the input array. If the offsets are
+	 * also the same, the conversion is performed in place; otherwise the
+	 * input and output ranges must not overlap.
+	 * 
+	 * @param src
+	 *            The array of interleaved longitudes and latitudes.
+	 * @param srcOffset
+	 *            The index in <CODE>src</CODE> of the longitude of the first
+	 *            point.
+	 * @param dst
+	 *            The array which will receive the interleaved eastings and
+	 *            northings.
+	 * @param dstOffset
+	 *            The index in <CODE>dst</CODE> at which the easting of the
+	 *            first point will be stored.
+	 * @param count
+	 *            The number of points to be converted.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if either array is too short for the specified range, or
+	 *             the input and output ranges overlap without being the
+	 *             same.
+	 */
+	public void LatitudeAndLongitudeToGrid(double[] src, int srcOffset,
+			double[] dst, int dstOffset, int count)
+			throws IllegalArgumentException {
+		checkRange(src, srcOffset, 2 * count, "src");
+		checkRange(dst, dstOffset, 2 * count, "dst");
+		checkOverlap(src, srcOffset, dst, dstOffset, 2 * count);
+
+		if (algorithm == KRUGER) {
+			for (int i = 0; i < 2 * count; i += 2)
+				krugerLatitudeAndLongitudeToGrid(src[srcOffset + i],
+						src[srcOffset + i + 1], dst, dstOffset + i, dst,
+						dstOffset + i + 1, null);
+
+			return;
+		}
+
+		ForwardWorkspace w = new ForwardWorkspace();
+
+		for (int k = 0; k < count; k += BLOCK) {
+			int m = Math.min(BLOCK, count - k);
+			int j = srcOffset + 2 * k;
+
+			for (int i = 0; i < m; i++, j += 2) {
+				w.lambda[i] = src[j];
+				w.phi[i] = src[j + 1];
+			}
+
+			forwardBlock(w.lambda, w.phi, w.lambda, w.phi, 0, m, w);
+
+			j = dstOffset + 2 * k;
+
+			for (int i = 0; i < m; i++, j += 2) {
+				dst[j] = w.lambda[i];
+				dst[j + 1] = w.phi[i];
+			}
+		}
+	}
+
+	/**
+	 * Convert the remaining interleaved longitudes and latitudes in a buffer
+	 * to interleaved eastings and northings, in the same manner as the
+	 * array-based version of this method.
+	 * 
+	 * <p>
+	 * Every complete longitude/latitude pair between the position and the
+	 * limit of <CODE>src</CODE> is converted and written to <CODE>dst</CODE>
+	 * starting at its position. The positions of both buffers are advanced
+	 * past the coordinates which were read or written. The same buffer may be
+	 * passed as both arguments, in which case the conversion is performed in
+	 * place. Otherwise the two buffers must not share storage within the
+	 * range being converted. Overlapping views of the same array are
+	 * rejected, but overlapping views of the same direct buffer cannot be
+	 * detected and give incorrect results.
+	 * 
+	 * @param src
+	 *            The buffer of interleaved longitudes and latitudes.
+	 * @param dst
+	 *            The buffer which will receive the interleaved eastings and
+	 *            northings.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <CODE>dst</CODE> is read-only or has too little space
+	 *             remaining, or the buffers are views of the same array
+	 *             whose ranges overlap without being the same.
+	 */
+	public void LatitudeAndLongitudeToGrid(DoubleBuffer src, DoubleBuffer dst)
+			throws IllegalArgumentException {
+		if (src == null)
+			throw new IllegalArgumentException("src is null");
+
+		if (dst == null)
+			throw new IllegalArgumentException("dst is null");
+
+		if (dst.isReadOnly())
+			throw new IllegalArgumentException("dst is read-only");
+
+		int count = src.remaining() / 2;
+
+		if (dst != src && dst.remaining() < 2 * count)
+			throw new IllegalArgumentException("dst has room for only "
+					+ (dst.remaining() / 2) + " of " + count + " points");
+
+		if (src.hasArray() && dst.hasArray()) {
+			LatitudeAndLongitudeToGrid(src.array(), src.arrayOffset()
+					+ src.position(), dst.array(), dst.arrayOffset()
+					+ dst.position(), count);
+		} else {
+			int srcPos = src.position();
+			int dstPos = dst.position();
+			double[] grid = new double[2];
+
+			for (int i = 0; i < 2 * count; i += 2) {
+				latitudeAndLongitudeToGrid(src.get(srcPos + i), src.get(srcPos
+						+ i + 1), grid, 0, grid, 1, null);
+				dst.put(dstPos + i, grid[0]);
+				dst.put(dstPos + i + 1, grid[1]);
+			}
+		}
+
+		if (dst != src)
+			dst.position(dst.position() + 2 * count);
+
+		src.position(src.position() + 2 * count);
+	}
+
+	private static final int BLOCK = 256;
+
+	/*
+	 * Working storage for the blocked forward transform. This is created for
+	 * each bulk conversion, so it is never shared between threads.
+	 */
+	private static final class ForwardWorkspace {
+		final double[] lambda = new double[BLOCK];
+		final double[] phi = new double[BLOCK];
+		final double[] sp = new double[BLOCK];
+		final double[] cp = new double[BLOCK];
+		final double[] sd = new double[BLOCK];
+		final double[] cd = new double[BLOCK];
+		final double[] cs = new double[BLOCK];
+	}
+
+	/*
+	 * Convert up to BLOCK points using the Redfearn series, reading and
+	 * writing the elements [offset, offset + count) of the arrays.
+	 */
+	private void forwardBlock(double[] longitudes, double[] latitudes,
+			double[] eastings, double[] northings, int offset, int count,
+			ForwardWorkspace w) {
+		double[] sp = w.sp, cp = w.cp, sd = w.sd, cd = w.cd, cs = w.cs;
+
+		/*
+		 * First pass: the trigonometric functions of phi, phi - phi0 and
+		 * phi + phi0. The multiple angles needed by the meridional arc are
+		 * derived from these in the second pass.
+		 */
+
+		for (int i = 0; i < count; i++) {
+			double phi = latitudes[offset + i];
+
+			sp[i] = Math.sin(phi);
+			cp[i] = Math.cos(phi);
+			sd[i] = Math.sin(phi - phi0);
+			cd[i] = Math.cos(phi - phi0);
+			cs[i] = Math.cos(phi + phi0);
+		}
+
+		/*
+		 * Second pass: the series themselves, using only arithmetic.
+		 */
+
+		double m1 = 1.0 + n + 1.25 * n * n * (1.0 + n);
+		double m2 = 3.0 * n * (1.0 + n + 1.125 * n * n);
+		double m3 = 15.0 * n * n * (1.0 + n) / 8.0;
+		double m4 = 35.0 * n * n * n / 24.0;
+		double omes = 1.0 - eSquared;
+
+		for (int i = 0; i < count; i++) {
+			double phi = latitudes[offset + i];
+			double P = longitudes[offset + i] - lambda0;
+			double s = sp[i], c = cp[i], d = sd[i], k = cs[i];
+
+			double M = bF0
+					* (m1 * (phi - phi0) - m2 * d * k + m3 * 2.0 * d * cd[i]
+							* (2.0 * k * k - 1.0) - m4 * d
+							* (3.0 - 4.0 * d * d) * k * (4.0 * k * k - 3.0));
+
+			double x = 1.0 - eSquared * s * s;
+			double nu = aF0 / Math.sqrt(x);
+			double nuOverRho = x / omes;
+			double etasq = nuOverRho - 1.0;
+
+			double c3 = c * c * c;
+			double c5 = c3 * c * c;
+			double tpsq = (s * s) / (c * c);
+
+			double II = 0.5 * nu * s * c;
+			double III = (nu / 24.0) * s * c3 * (5.0 - tpsq + 9.0 * etasq);
+			double IIIA = (nu / 720.0) * s * c5
+					* (61.0 - 58.0 * tpsq + tpsq * tpsq);
+			double IV = nu * c;
+			double V = (nu / 6.0) * c3 * (nuOverRho - tpsq);
+			double VI = (nu / 120.0)
+					* c5
+					* (5.0 - 18.0 * tpsq + tpsq * tpsq + 14.0 * etasq - 58.0
+							* etasq * tpsq);
+
+			double P2 = P * P;
+
+			eastings[offset + i] = E0 + P * (IV + P2 * (V + P2 * VI));
+			northings[offset + i] = M + N0 + P2
+					* (II + P2 * (III + P2 * IIIA));
+		}
+	}
+
+	/*
+	 * Convert a single point from latitude and longitude to grid coordinates.
+	 * If the point is not null, the easting and northing are stored in it
+	 * instead of in the arrays.
+	 */
+	private void latitudeAndLongitudeToGrid(double lambda, double phi,
+			double[] eastings, int eIndex, double[] northings, int nIndex,
+			DPoint point) {
+		if (algorithm == KRUGER) {
+			krugerLatitudeAndLongitudeToGrid(lambda, phi, eastings, eIndex,
+					northings, nIndex, point);
+			return;
+		}
+
+		double rho, nu, etasq, M;
 		double x, y;
 		double I, II, III, IIIA, IV, V, VI;
 		double sp, cp, tpsq;
 		double cp3, cp5;
 		double P, P3, P5;
 
-		lambda = latlong.getX();
-		phi = latlong.getY();
-
 		sp = Math.sin(phi);
 		cp = Math.cos(phi);
 
@@ -327,7 +1152,169 @@ public class TransverseMercatorProjection extends Object {
 				* (5.0 - 18.0 * tpsq + tpsq * tpsq + 14.0 * etasq - 58.0
 						* etasq * tpsq);
 
-		return new DPoint(E0 + P * IV + P3 * V + P5 * VI, I + P
-				* (P * II + P3 * III + P5 * IIIA));
+		store(E0 + P * IV + P3 * V + P5 * VI,
+				I + P * (P * II + P3 * III + P5 * IIIA), eastings, eIndex,
+				northings, nIndex, point);
+	}
+
+	/*
+	 * Store the result of converting a single point, either in the point if
+	 * it is not null, or otherwise in the arrays.
+	 */
+	private static void store(double x, double y, double[] xs, int xIndex,
+			double[] ys, int yIndex, DPoint point) {
+		if (point != null) {
+			point.setLocation(x, y);
+		} else {
+			xs[xIndex] = x;
+			ys[yIndex] = y;
+		}
+	}
+
+	private double conformalLatitude(double phi) {
+		return Math.atan(Math.sinh(asinh(Math.tan(phi)) - e
+				* atanh(e * Math.sin(phi))));
+	}
+
+	private void krugerLatitudeAndLongitudeToGrid(double lambda, double phi,
+			double[] eastings, int eIndex, double[] northings, int nIndex,
+			DPoint point) {
+		double t, L, xip, etap, xi, eta;
+		double s1, c1, sh1, ch1, sj, cj, shj, chj, x, y;
+
+		/*
+		 * Convert to conformal latitude, then to the Gauss-Schreiber
+		 * coordinates xi' and eta' on the conformal sphere.
+		 */
+
+		t = Math.sinh(asinh(Math.tan(phi)) - e * atanh(e * Math.sin(phi)));
+
+		L = lambda - lambda0;
+
+		xip = Math.atan2(t, Math.cos(L));
+		etap = atanh(Math.sin(L) / Math.sqrt(1.0 + t * t));
+
+		/*
+		 * Sum the series, generating the multiple angles by recurrence.
+		 */
+
+		s1 = Math.sin(2.0 * xip);
+		c1 = Math.cos(2.0 * xip);
+
+		x = Math.exp(2.0 * etap);
+		sh1 = 0.5 * (x - 1.0 / x);
+		ch1 = 0.5 * (x + 1.0 / x);
+
+		sj = s1;
+		cj = c1;
+		shj = sh1;
+		chj = ch1;
+
+		xi = xip;
+		eta = etap;
+
+		for (int j = 0; j < 6; j++) {
+			xi += alpha[j] * sj * chj;
+			eta += alpha[j] * cj * shj;
+
+			x = sj * c1 + cj * s1;
+			cj = cj * c1 - sj * s1;
+			sj = x;
+
+			y = shj * ch1 + chj * sh1;
+			chj = chj * ch1 + shj * sh1;
+			shj = y;
+		}
+
+		store(E0 + F0 * A * eta, N0 + F0 * A * (xi - xi0), eastings, eIndex,
+				northings, nIndex, point);
+	}
+
+	private void krugerGridToLongitudeAndLatitude(double E, double N,
+			double[] longitudes, int lonIndex, double[] latitudes,
+			int latIndex, DPoint point) {
+		double xi, eta, xip, etap, chi, lambda;
+		double s1, c1, sh1, ch1, sj, cj, shj, chj, x, y;
+
+		xi = (N - N0) / (F0 * A) + xi0;
+		eta = (E - E0) / (F0 * A);
+
+		/*
+		 * Sum the inverse series to obtain xi' and eta'.
+		 */
+
+		s1 = Math.sin(2.0 * xi);
+		c1 = Math.cos(2.0 * xi);
+
+		x = Math.exp(2.0 * eta);
+		sh1 = 0.5 * (x - 1.0 / x);
+		ch1 = 0.5 * (x + 1.0 / x);
+
+		sj = s1;
+		cj = c1;
+		shj = sh1;
+		chj = ch1;
+
+		xip = xi;
+		etap = eta;
+
+		for (int j = 0; j < 6; j++) {
+			xip -= beta[j] * sj * chj;
+			etap -= beta[j] * cj * shj;
+
+			x = sj * c1 + cj * s1;
+			cj = cj * c1 - sj * s1;
+			sj = x;
+
+			y = shj * ch1 + chj * sh1;
+			chj = chj * ch1 + shj * sh1;
+			shj = y;
+		}
+
+		/*
+		 * Recover the conformal latitude and the longitude, then convert the
+		 * conformal latitude to geodetic latitude by a further series.
+		 */
+
+		x = Math.exp(etap);
+		y = 0.5 * (x + 1.0 / x);
+
+		chi = Math.asin(Math.sin(xip) / y);
+
+		lambda = lambda0 + Math.atan2(0.5 * (x - 1.0 / x), Math.cos(xip));
+
+		s1 = Math.sin(2.0 * chi);
+		c1 = Math.cos(2.0 * chi);
+
+		sj = s1;
+		cj = c1;
+
+		y = chi;
+
+		for (int j = 0; j < 6; j++) {
+			y += delta[j] * sj;
+
+			x = sj * c1 + cj * s1;
+			cj = cj * c1 - sj * s1;
+			sj = x;
+		}
+
+		store(lambda, y, longitudes, lonIndex, latitudes, latIndex, point);
+	}
+
+	private static double asinh(double x) {
+		double y = Math.abs(x);
+
+		y = Math.log1p(y + y * y / (1.0 + Math.sqrt(1.0 + y * y)));
+
+		return x < 0.0 ? -y : y;
+	}
+
+	private static double atanh(double x) {
+		double y = Math.abs(x);
+
+		y = 0.5 * Math.log1p(2.0 * y / (1.0 - y));
+
+		return x < 0.0 ? -y : y;
 	}
 }
@@ -0,0 +1,285 @@
+/*
+ * Map projections package
+ *
+ * Z-order batch conversion of grid coordinates
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package com.obliquity.mapping;
+
+/**
+ * This class converts large batches of grid coordinates to latitude and
+ * longitude, visiting the points in Z-order so that each conversion can
+ * start from the result of the one before.
+ * 
+ * <p>
+ * The Redfearn formulae find the latitude of the foot of the perpendicular
+ * from each point to the central meridian by iteration, normally starting
+ * from an estimate based on the zero point of the grid. Within each block
+ * of the batch, this class computes a Morton key for each point by
+ * interleaving the bits of its easting and northing, scaled to the extent
+ * of the block, and sorts the points by key with a radix sort. Consecutive
+ * points in this order are usually close together, so the iteration for
+ * each point starts from an estimate based on the northing and footpoint
+ * latitude of the point before, and needs fewer steps to converge. The
+ * results are stored at the indices of the input points, so the order of
+ * the batch is unchanged.
+ * 
+ * <p>
+ * The saving is greatest when the points are dense, as along tracks, or the
+ * error tolerance is small. For points scattered thinly over the grid, the
+ * cost of sorting and of visiting the arrays out of order may outweigh it.
+ * 
+ * <p>
+ * The <CODE>KRUGER</CODE> formulae do not iterate, so a projection which
+ * uses them converts the batch in its original order.
+ * 
+ * <p>
+ * Instances hold no mutable state and may be shared between threads,
+ * provided that the projection's error tolerance is not changed.
+ * 
+ * @author David Harper at obliquity.com
+ * @version 1.0 2026-10-18
+ */
+
+public class ZOrderConverter {
+	/**
+	 * The default number of points in each block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+	/*
+	 * The number of bits of each coordinate in the Morton key.
+	 */
+	private static final int BITS = 16;
+	private static final int MAX_CELL = (1 << BITS) - 1;
+
+	private final TransverseMercatorProjection projection;
+	private final int blockSize;
+
+	/**
+	 * Construct a converter which uses the default block size.
+	 * 
+	 * @param projection
+	 *            The projection which will perform the conversions.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null.
+	 */
+	public ZOrderConverter(TransverseMercatorProjection projection)
+			throws IllegalArgumentException {
+		this(projection, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Construct a converter which uses the specified block size.
+	 * 
+	 * @param projection
+	 *            The projection which will perform the conversions.
+	 * @param blockSize
+	 *            The number of points which are sorted together. Larger
+	 *            blocks place consecutive points closer together, but need
+	 *            more memory to sort.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the projection is null, or the block size is not
+	 *             positive.
+	 */
+	public ZOrderConverter(TransverseMercatorProjection projection,
+			int blockSize) throws IllegalArgumentException {
+		if (projection == null)
+			throw new IllegalArgumentException("Projection is null");
+
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Block size must be positive");
+
+		this.projection = projection;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Retrieve the projection which performs the conversions.
+	 * 
+	 * @return The projection.
+	 */
+	public TransverseMercatorProjection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Retrieve the number of points which are sorted together.
+	 * 
+	 * @return The block size.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Convert a batch of grid coordinates to latitude and longitude. The
+	 * coordinates are held in parallel arrays, as for the corresponding
+	 * function of <CODE>TransverseMercatorProjection</CODE>.
+	 * 
+	 * <p>
+	 * The output arrays may be the same as the input arrays, in which case the
+	 * conversion is performed in place.
+	 * 
+	 * @param eastings
+	 *            The eastings of the points to be converted.
+	 * @param northings
+	 *            The northings of the points to be converted.
+	 * @param offset
+	 *            The index of the first point to be converted.
+	 * @param length
+	 *            The number of points to be converted.
+	 * @param longitudes
+	 *            The array which will receive the longitudes, at the same
+	 *            indices as the corresponding input points.
+	 * @param latitudes
+	 *            The array which will receive the latitudes, at the same
+	 *            indices as the corresponding input points.
+	 * 
+	 * @return The total number of iterations needed to find the latitudes
+	 *         of the feet of the perpendiculars, which is always zero for the
+	 *         <CODE>KRUGER</CODE> formulae.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any array is too short for the specified range.
+	 * 
+	 * @see TransverseMercatorProjection#getFootpointIterations(double)
+	 */
+	public long GridToLongitudeAndLatitude(double[] eastings,
+			double[] northings, int offset, int length, double[] longitudes,
+			double[] latitudes) throws IllegalArgumentException {
+		if (projection.getAlgorithm() == TransverseMercatorProjection.KRUGER) {
+			projection.GridToLongitudeAndLatitude(eastings, northings, offset,
+					length, longitudes, latitudes);
+			return 0L;
+		}
+
+		TransverseMercatorProjection.checkRange(eastings, offset, length,
+				"eastings");
+		TransverseMercatorProjection.checkRange(northings, offset, length,
+				"northings");
+		TransverseMercatorProjection.checkRange(longitudes, offset, length,
+				"longitudes");
+		TransverseMercatorProjection.checkRange(latitudes, offset, length,
+				"latitudes");
+
+		int size = Math.min(blockSize, length);
+
+		long[] keys = new long[size], workKeys = new long[size];
+		int[] order = new int[size], workOrder = new int[size];
+		int[] iterations = new int[1];
+
+		double tolerance = projection.getErrorTolerance();
+		long total = 0L;
+
+		for (int start = offset; start < offset + length; start += size) {
+			int count = Math.min(size, offset + length - start);
+
+			sort(eastings, northings, start, count, keys, order, workKeys,
+					workOrder);
+
+			double previousN = 0.0, previousPhi = Double.NaN;
+
+			iterations[0] = 0;
+
+			for (int j = 0; j < count; j++) {
+				int i = start + order[j];
+				double N = northings[i];
+
+				/*
+				 * A point with an invalid northing gives a footpoint latitude
+				 * of NaN, and the next point then starts from the default
+				 * estimate.
+				 */
+				double estimate = Double.isNaN(previousPhi) ? projection
+						.footpointEstimate(N) : projection.footpointEstimate(N,
+						previousN, previousPhi);
+
+				previousPhi = projection.gridToLongitudeAndLatitude(
+						eastings[i], N, tolerance, estimate, longitudes, i,
+						latitudes, i, iterations);
+				previousN = N;
+			}
+
+			total += iterations[0];
+		}
+
+		return total;
+	}
+
+	/*
+	 * Sort the indices, relative to the start of the block, of the points in
+	 * a block into Z-order. Points with a coordinate which is not finite do
+	 * not affect the scaling, and are placed arbitrarily.
+	 */
+	private static void sort(double[] eastings, double[] northings,
+			int start, int count, long[] keys, int[] order, long[] workKeys,
+			int[] workOrder) {
+		double minE = Double.POSITIVE_INFINITY, maxE = Double.NEGATIVE_INFINITY;
+		double minN = Double.POSITIVE_INFINITY, maxN = Double.NEGATIVE_INFINITY;
+
+		for (int i = start; i < start + count; i++) {
+			double E = eastings[i], N = northings[i];
+
+			if (!isFinite(E) || !isFinite(N))
+				continue;
+
+			minE = Math.min(minE, E);
+			maxE = Math.max(maxE, E);
+			minN = Math.min(minN, N);
+			maxN = Math.max(maxN, N);
+		}
+
+		double scaleE = maxE > minE ? MAX_CELL / (maxE - minE) : 0.0;
+		double scaleN = maxN > minN ? MAX_CELL / (maxN - minN) : 0.0;
+
+		for (int j = 0; j < count; j++) {
+			int x = (int) ((eastings[start + j] - minE) * scaleE) & MAX_CELL;
+			int y = (int) ((northings[start + j] - minN) * scaleN) & MAX_CELL;
+
+			keys[j] = spread(x) | (spread(y) << 1);
+			order[j] = j;
+		}
+
+		RadixSort.sort(keys, order, count, workKeys, workOrder);
+	}
+
+	/*
+	 * Spread the bits of a 16-bit number so that there is a zero bit between
+	 * each of them.
+	 */
+	private static long spread(int x) {
+		x = (x | (x << 8)) & 0x00ff00ff;
+		x = (x | (x << 4)) & 0x0f0f0f0f;
+		x = (x | (x << 2)) & 0x33333333;
+		x = (x | (x << 1)) & 0x55555555;
+
+		return x & 0xffffffffL;
+	}
+
+	private static boolean isFinite(double x) {
+		return !Double.isNaN(x) && !Double.isInfinite(x);
+	}
+}
@@ -0,0 +1,334 @@
+/*
+ * Map projections package
+ *
+ * Streaming batch converter
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.io.*;
+
+import com.obliquity.mapping.*;
+
+/**
+ * A command-line program which converts grid references to latitude and
+ * longitude, or latitude and longitude to grid coordinates, reading from the
+ * standard input or from files and writing to the standard output.
+ * 
+ * <p>
+ * The input is read in chunks of a fixed number of lines, each of which is
+ * converted by the bulk conversion functions of the projection and written
+ * out before the next chunk is read, so files of any size may be converted
+ * in a bounded amount of memory.
+ * 
+ * <p>
+ * When converting grid references, each line holds either a grid square
+ * prefix followed by an easting and a northing of equal numbers of digits,
+ * such as <CODE>TQ 30123 80456</CODE>, <CODE>TQ3080</CODE> or
+ * <CODE>J 357 276</CODE>, or a full easting and northing in metres. The
+ * output line is the input line followed by the longitude and latitude in
+ * decimal degrees, or in degrees, minutes and seconds if the
+ * <CODE>-dms</CODE> option is given.
+ * 
+ * <p>
+ * When converting to grid coordinates, each line holds a latitude and a
+ * longitude in decimal degrees. The output line is the input line followed
+ * by the easting and northing in metres.
+ * 
+ * <p>
+ * Fields may be separated by spaces, tabs or commas. Lines which cannot be
+ * parsed are copied to the output followed by an error message. A summary
+ * of the number of lines converted and the rate of conversion is written to
+ * the standard error stream at the end.
+ */
+public class BatchConvert {
+	static final int CHUNK = 8192;
+
+	private final TransverseMercatorProjection projection;
+	private final GridReferenceFormat gridFormat;
+	private final CoordinateFormat angleFormat;
+	private final boolean irish, toGrid;
+
+	private final String[] lines = new String[CHUNK];
+	private final String[] errors = new String[CHUNK];
+	private final double[] x = new double[CHUNK];
+	private final double[] y = new double[CHUNK];
+	private final double[] u = new double[CHUNK];
+	private final double[] v = new double[CHUNK];
+
+	private final StringBuilder sb = new StringBuilder(256);
+
+	private long nLines = 0, nErrors = 0, nBytes = 0;
+
+	public BatchConvert(boolean irish, boolean toGrid, boolean dms,
+			double tolerance) {
+		this.irish = irish;
+		this.toGrid = toGrid;
+
+		angleFormat = dms ? new CoordinateFormat(
+				CoordinateFormat.DEGREES_MINUTES_SECONDS, 3)
+				: new CoordinateFormat(CoordinateFormat.DECIMAL_DEGREES, 7);
+
+		if (irish) {
+			OSNI osni = new OSNI(tolerance);
+			projection = osni;
+			gridFormat = new GridReferenceFormat(osni);
+		} else {
+			OSGB osgb = new OSGB(tolerance);
+			projection = osgb;
+			gridFormat = new GridReferenceFormat(osgb);
+		}
+	}
+
+	static void usage() {
+		System.err
+				.println("Usage: java test.BatchConvert [-osgb|-osni] [-togrid] [-dms]");
+		System.err
+				.println("              [-tolerance metres] [-o outputfile] [inputfile ...]");
+		System.exit(1);
+	}
+
+	public static void main(String args[]) {
+		boolean irish = false, toGrid = false, dms = false;
+		double tolerance = 0.001;
+		String outputName = null;
+		int i;
+
+		for (i = 0; i < args.length && args[i].startsWith("-")
+				&& args[i].length() > 1; i++) {
+			if (args[i].equals("-osgb"))
+				irish = false;
+			else if (args[i].equals("-osni"))
+				irish = true;
+			else if (args[i].equals("-togrid"))
+				toGrid = true;
+			else if (args[i].equals("-dms"))
+				dms = true;
+			else if (args[i].equals("-tolerance") && i + 1 < args.length)
+				tolerance = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-o") && i + 1 < args.length)
+				outputName = args[++i];
+			else
+				usage();
+		}
+
+		BatchConvert converter = new BatchConvert(irish, toGrid, dms,
+				tolerance);
+
+		long t0 = System.nanoTime();
+
+		try {
+			Writer out = new BufferedWriter(outputName == null ? new OutputStreamWriter(
+					System.out)
+					: new FileWriter(outputName), 1 << 16);
+
+			if (i == args.length)
+				converter.process(new BufferedReader(new InputStreamReader(
+						converter.counted(System.in)), 1 << 16), out);
+			else
+				for (; i < args.length; i++) {
+					InputStream stream = args[i].equals("-") ? System.in
+							: new FileInputStream(args[i]);
+
+					BufferedReader in = new BufferedReader(
+							new InputStreamReader(converter.counted(stream)),
+							1 << 16);
+
+					converter.process(in, out);
+
+					if (in != null && !args[i].equals("-"))
+						in.close();
+				}
+
+			out.flush();
+
+			if (outputName != null)
+				out.close();
+		} catch (IOException ioe) {
+			System.err.println("IOException: " + ioe);
+			System.exit(1);
+		}
+
+		double seconds = 1.0e-9 * (System.nanoTime() - t0);
+
+		converter.report(seconds);
+	}
+
+	void report(double seconds) {
+		System.err.println("Converted " + (nLines - nErrors) + " of "
+				+ nLines + " lines (" + nErrors + " errors) in "
+				+ String.format("%.3f", seconds) + " seconds: "
+				+ String.format("%.0f", nLines / seconds) + " lines/s, "
+				+ String.format("%.2f", 1.0e-6 * nBytes / seconds) + " MB/s");
+	}
+
+	/**
+	 * Wrap an input stream so that the bytes read from it are included in
+	 * the rate of conversion which is reported at the end.
+	 */
+	public InputStream counted(InputStream in) {
+		return new FilterInputStream(in) {
+			public int read() throws IOException {
+				int b = super.read();
+
+				if (b >= 0)
+					nBytes++;
+
+				return b;
+			}
+
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = super.read(b, off, len);
+
+				if (n > 0)
+					nBytes += n;
+
+				return n;
+			}
+		};
+	}
+
+	/**
+	 * Convert every line of the input, writing the results to the output.
+	 */
+	public void process(BufferedReader in, Writer out) throws IOException {
+		int n;
+
+		do {
+			for (n = 0; n < CHUNK; n++) {
+				String line = in.readLine();
+
+				if (line == null)
+					break;
+
+				lines[n] = line;
+			}
+
+			convertChunk(n);
+			writeChunk(n, out);
+		} while (n == CHUNK);
+	}
+
+	void convertChunk(int n) {
+		for (int i = 0; i < n; i++) {
+			errors[i] = toGrid ? parseLatitudeAndLongitude(lines[i], i)
+					: parseGridReference(lines[i], i);
+
+			if (errors[i] != null) {
+				x[i] = 0.0;
+				y[i] = 0.0;
+			}
+		}
+
+		if (toGrid)
+			projection.LatitudeAndLongitudeToGrid(x, y, 0, n, u, v);
+		else
+			projection.GridToLongitudeAndLatitude(x, y, 0, n, u, v);
+	}
+
+	void writeChunk(int n, Writer out) throws IOException {
+		for (int i = 0; i < n; i++) {
+			sb.setLength(0);
+			sb.append(lines[i]);
+			sb.append('\t');
+
+			if (errors[i] != null) {
+				sb.append("*** Error : ");
+				sb.append(errors[i]);
+				sb.append(" ***");
+				nErrors++;
+			} else if (toGrid) {
+				CoordinateFormat.formatDecimal(u[i], 3, sb);
+				sb.append('\t');
+				CoordinateFormat.formatDecimal(v[i], 3, sb);
+			} else {
+				angleFormat.formatLongitude(u[i], sb);
+				sb.append('\t');
+				angleFormat.formatLatitude(v[i], sb);
+			}
+
+			sb.append('\n');
+			out.append(sb);
+
+			lines[i] = null;
+		}
+
+		nLines += n;
+	}
+
+	static String[] split(String line) {
+		return line.trim().split("[\\s,]+");
+	}
+
+	/*
+	 * Parse a latitude and longitude in decimal degrees, storing the
+	 * longitude and latitude in radians at the specified index.
+	 */
+	String parseLatitudeAndLongitude(String line, int i) {
+		String[] words = split(line);
+
+		if (words.length < 2)
+			return "too few tokens on line";
+
+		try {
+			y[i] = Math.toRadians(Double.parseDouble(words[0]));
+			x[i] = Math.toRadians(Double.parseDouble(words[1]));
+		} catch (NumberFormatException nfe) {
+			return "invalid number";
+		}
+
+		return null;
+	}
+
+	/*
+	 * Parse a grid reference, storing the full easting and northing at the
+	 * specified index.
+	 */
+	String parseGridReference(String line, int i) {
+		int start = 0;
+
+		while (start < line.length() && Character.isWhitespace(line.charAt(start)))
+			start++;
+
+		if (start < line.length() && Character.isLetter(line.charAt(start))) {
+			if (gridFormat.parse(line, start, line.length(), x, y, i) < 0)
+				return "invalid grid reference";
+
+			return null;
+		}
+
+		String[] words = split(line);
+
+		if (words.length < 2)
+			return "too few tokens on line";
+
+		try {
+			x[i] = Double.parseDouble(words[0]);
+			y[i] = Double.parseDouble(words[1]);
+		} catch (NumberFormatException nfe) {
+			return "invalid number";
+		}
+
+		return null;
+	}
+}
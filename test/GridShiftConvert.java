@@ -0,0 +1,175 @@
+/*
+ * Map projections package
+ *
+ * Shift grid file conversion program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.io.*;
+import java.util.Arrays;
+
+import com.obliquity.mapping.GridShiftFile;
+
+/**
+ * Converts a shift grid in the comma-separated text format published by the
+ * Ordnance Survey for OSTN15 into the binary format read by
+ * <CODE>GridShiftFile</CODE>.
+ * 
+ * <p>
+ * Each line of the text file holds a point number, the easting and northing
+ * of a node, and the easting and northing shifts at that node, followed by
+ * any number of further fields which are ignored. Lines which do not begin
+ * with a number, such as the column headings, are skipped. The extent and
+ * spacing of the grid are deduced from the nodes, and nodes which are
+ * missing from the file are stored as <CODE>NaN</CODE>.
+ */
+public class GridShiftConvert {
+	static public void main(String args[]) {
+		if (args.length != 2) {
+			System.err
+					.println("Usage: java test.GridShiftConvert textfile binaryfile");
+			System.exit(1);
+		}
+
+		try {
+			int nodes = convert(new File(args[0]), new File(args[1]));
+
+			System.err.println("Wrote " + nodes + " nodes to " + args[1]);
+		} catch (IOException ioe) {
+			System.err.println("IOException: " + ioe);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Convert a text shift grid to a binary one, returning the number of
+	 * nodes read from the text file.
+	 */
+	public static int convert(File input, File output) throws IOException {
+		double[] eastings = new double[1 << 16];
+		double[] northings = new double[1 << 16];
+		float[] eastShifts = new float[1 << 16];
+		float[] northShifts = new float[1 << 16];
+
+		int n = 0;
+
+		BufferedReader in = new BufferedReader(new FileReader(input), 1 << 16);
+
+		try {
+			String line;
+			int lineNumber = 0;
+
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+
+				String[] words = line.trim().split("\\s*,\\s*");
+
+				if (words.length < 5 || words[0].length() == 0
+						|| !Character.isDigit(words[0].charAt(0)))
+					continue;
+
+				if (n == eastings.length) {
+					eastings = Arrays.copyOf(eastings, 2 * n);
+					northings = Arrays.copyOf(northings, 2 * n);
+					eastShifts = Arrays.copyOf(eastShifts, 2 * n);
+					northShifts = Arrays.copyOf(northShifts, 2 * n);
+				}
+
+				try {
+					eastings[n] = Double.parseDouble(words[1]);
+					northings[n] = Double.parseDouble(words[2]);
+					eastShifts[n] = Float.parseFloat(words[3]);
+					northShifts[n] = Float.parseFloat(words[4]);
+				} catch (NumberFormatException nfe) {
+					throw new IOException("Invalid number on line "
+							+ lineNumber + " of " + input);
+				}
+
+				n++;
+			}
+		} finally {
+			in.close();
+		}
+
+		if (n < 4)
+			throw new IOException(input + " holds too few nodes");
+
+		double minE = eastings[0], maxE = minE;
+		double minN = northings[0], maxN = minN;
+
+		for (int i = 1; i < n; i++) {
+			minE = Math.min(minE, eastings[i]);
+			maxE = Math.max(maxE, eastings[i]);
+			minN = Math.min(minN, northings[i]);
+			maxN = Math.max(maxN, northings[i]);
+		}
+
+		double spacing = Double.MAX_VALUE;
+
+		for (int i = 0; i < n; i++) {
+			double dE = eastings[i] - minE;
+			double dN = northings[i] - minN;
+
+			if (dE > 0.0)
+				spacing = Math.min(spacing, dE);
+
+			if (dN > 0.0)
+				spacing = Math.min(spacing, dN);
+		}
+
+		int columns = (int) Math.round((maxE - minE) / spacing) + 1;
+		int rows = (int) Math.round((maxN - minN) / spacing) + 1;
+
+		if (columns < 2 || rows < 2 || !(spacing > 0.0))
+			throw new IOException(input + " does not span a grid of at least"
+					+ " two columns and two rows");
+
+		float[] eastGrid = new float[columns * rows];
+		float[] northGrid = new float[columns * rows];
+
+		Arrays.fill(eastGrid, Float.NaN);
+		Arrays.fill(northGrid, Float.NaN);
+
+		for (int i = 0; i < n; i++) {
+			double x = (eastings[i] - minE) / spacing;
+			double y = (northings[i] - minN) / spacing;
+
+			int column = (int) Math.round(x);
+			int row = (int) Math.round(y);
+
+			if (Math.abs(x - column) > 1.0e-6 || Math.abs(y - row) > 1.0e-6)
+				throw new IOException("Node at (" + eastings[i] + ", "
+						+ northings[i] + ") is not on a grid of spacing "
+						+ spacing);
+
+			eastGrid[row * columns + column] = eastShifts[i];
+			northGrid[row * columns + column] = northShifts[i];
+		}
+
+		GridShiftFile.write(output, columns, rows, minE, minN, spacing,
+				eastGrid, northGrid);
+
+		return n;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Map projections package
+ *
+ * Binary file converter
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.io.*;
+
+import com.obliquity.mapping.*;
+
+/**
+ * A command-line program which converts a file of packed little-endian
+ * binary coordinates using <CODE>MappedCoordinateConverter</CODE>.
+ * 
+ * <p>
+ * Usage:
+ * <CODE>java test.MappedConvert [-osgb|-osni] [-togrid] inputfile outputfile</CODE>
+ */
+public class MappedConvert {
+	public static void main(String args[]) {
+		boolean irish = false, toGrid = false;
+		int i;
+
+		for (i = 0; i < args.length && args[i].startsWith("-"); i++) {
+			if (args[i].equals("-osgb"))
+				irish = false;
+			else if (args[i].equals("-osni"))
+				irish = true;
+			else if (args[i].equals("-togrid"))
+				toGrid = true;
+			else
+				break;
+		}
+
+		if (args.length - i != 2) {
+			System.err
+					.println("Usage: java test.MappedConvert [-osgb|-osni] [-togrid] inputfile outputfile");
+			System.exit(1);
+		}
+
+		TransverseMercatorProjection projection = irish ? (TransverseMercatorProjection) new OSNI()
+				: new OSGB();
+
+		MappedCoordinateConverter converter = new MappedCoordinateConverter(
+				projection);
+
+		File input = new File(args[i]);
+		File output = new File(args[i + 1]);
+
+		try {
+			long t0 = System.nanoTime();
+
+			long n = toGrid ? converter.LatitudeAndLongitudeToGrid(input,
+					output) : converter.GridToLongitudeAndLatitude(input,
+					output);
+
+			double seconds = 1.0e-9 * (System.nanoTime() - t0);
+
+			System.err.println("Converted " + n + " points in "
+					+ String.format("%.3f", seconds) + " seconds: "
+					+ String.format("%.0f", n / seconds) + " points/s");
+		} catch (IOException ioe) {
+			System.err.println("IOException: " + ioe);
+			System.exit(1);
+		}
+	}
+}
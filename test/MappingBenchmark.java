@@ -0,0 +1,1563 @@
+/*
+ * Map projections package
+ *
+ * Benchmark program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Micro-benchmarks for the <CODE>com.obliquity.mapping</CODE> package.
+ * 
+ * <p>
+ * Each benchmark is run for a number of warm-up rounds, which are discarded,
+ * followed by a number of measured rounds. The median throughput of the
+ * measured rounds is reported, together with the number of bytes allocated
+ * per operation where the JVM is able to measure it.
+ * 
+ * <p>
+ * The projection benchmarks are parameterised by error tolerance, by the
+ * set of formulae and by data locality. Random data are spread uniformly over
+ * the grid, whilst track data follow a random walk with steps of a few
+ * metres, as a GPS track or survey traverse would.
+ * 
+ * <p>
+ * Usage: <CODE>java test.MappingBenchmark [-quick] [filter ...]</CODE>
+ * where each filter selects the benchmarks whose names contain it.
+ */
+public class MappingBenchmark {
+	static final int NPOINTS = 100000;
+
+	static int warmupRounds = 5;
+	static int measuredRounds = 10;
+
+	/**
+	 * A single benchmark. Each call to <CODE>run</CODE> performs
+	 * <CODE>operations()</CODE> operations and returns a value derived from
+	 * the results so that the JIT compiler cannot discard the work.
+	 */
+	static abstract class Benchmark {
+		final String name;
+
+		Benchmark(String name) {
+			this.name = name;
+		}
+
+		abstract int operations();
+
+		abstract double run();
+
+		/*
+		 * Any further information about the last run, such as a failure rate,
+		 * to be printed after the measurements.
+		 */
+		String remarks() {
+			return "";
+		}
+	}
+
+	static final double[] TOLERANCES = { 0.001, 0.0001, 0.000001 };
+
+	static final int[] ALGORITHMS = { TransverseMercatorProjection.REDFEARN,
+			TransverseMercatorProjection.REDFEARN_NEWTON,
+			TransverseMercatorProjection.KRUGER };
+
+	static final String[] ALGORITHM_NAMES = { "redfearn", "newton", "kruger" };
+
+	static double sink;
+
+	static public void main(String args[]) {
+		List<String> filters = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-quick")) {
+				warmupRounds = 2;
+				measuredRounds = 3;
+			} else
+				filters.add(args[i]);
+		}
+
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		addProjectionBenchmarks(benchmarks);
+		addGridSquareBenchmarks(benchmarks);
+		addGridReferenceBenchmarks(benchmarks);
+		addCoordinateFormatBenchmarks(benchmarks);
+		addGridTransformationBenchmarks(benchmarks);
+		addGridShiftBenchmarks(benchmarks);
+		addEllipsoidBenchmarks(benchmarks);
+		addGeodesicAlgorithmBenchmarks(benchmarks);
+		addDistanceMatrixBenchmarks(benchmarks);
+		addSpatialIndexBenchmarks(benchmarks);
+		addSquareIndexBenchmarks(benchmarks);
+		addGeodesicIndexBenchmarks(benchmarks);
+
+		System.out.println(pad("Benchmark", 48) + pad("ops/s", 16, true)
+				+ pad("bytes/op", 12, true));
+
+		for (Benchmark b : benchmarks) {
+			if (selected(b.name, filters))
+				measure(b);
+		}
+
+		if (sink == 42.0)
+			System.out.println();
+	}
+
+	static boolean selected(String name, List<String> filters) {
+		if (filters.isEmpty())
+			return true;
+
+		for (String f : filters)
+			if (name.indexOf(f) >= 0)
+				return true;
+
+		return false;
+	}
+
+	static void measure(Benchmark b) {
+		for (int i = 0; i < warmupRounds; i++)
+			sink += b.run();
+
+		double[] rates = new double[measuredRounds];
+		long allocated = 0;
+
+		for (int i = 0; i < measuredRounds; i++) {
+			long bytes0 = allocatedBytes();
+			long t0 = System.nanoTime();
+
+			sink += b.run();
+
+			long t1 = System.nanoTime();
+			long bytes1 = allocatedBytes();
+
+			rates[i] = 1.0e9 * b.operations() / (double) (t1 - t0);
+
+			if (bytes0 >= 0 && bytes1 >= 0)
+				allocated += bytes1 - bytes0;
+			else
+				allocated = -1;
+		}
+
+		Arrays.sort(rates);
+
+		double median = rates[measuredRounds / 2];
+
+		String perOp = allocated < 0 ? "n/a" : String.format("%.1f",
+				(double) allocated
+						/ ((double) measuredRounds * b.operations()));
+
+		String remarks = b.remarks();
+
+		System.out.println(pad(b.name, 48)
+				+ pad(String.format("%.4g", median), 16, true)
+				+ pad(perOp, 12, true)
+				+ (remarks.length() > 0 ? "  " + remarks : ""));
+	}
+
+	static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+
+			if (sunBean.isThreadAllocatedMemorySupported())
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread()
+						.getId());
+		}
+
+		return -1;
+	}
+
+	static String pad(String s, int width) {
+		return pad(s, width, false);
+	}
+
+	static String pad(String s, int width, boolean right) {
+		StringBuilder sb = new StringBuilder(width);
+
+		if (right)
+			for (int i = s.length(); i < width; i++)
+				sb.append(' ');
+
+		sb.append(s);
+
+		if (!right)
+			for (int i = s.length(); i < width; i++)
+				sb.append(' ');
+
+		return sb.toString();
+	}
+
+	/*
+	 * Generate grid coordinates, either uniformly distributed over the grid
+	 * or as a random walk.
+	 */
+	static void makeGridPoints(Random rand, boolean track, double maxE,
+			double maxN, double[] eastings, double[] northings) {
+		double E = 0.5 * maxE, N = 0.5 * maxN;
+
+		for (int i = 0; i < eastings.length; i++) {
+			if (track) {
+				E += 10.0 * (rand.nextDouble() - 0.5);
+				N += 10.0 * (rand.nextDouble() - 0.5);
+			} else {
+				E = maxE * rand.nextDouble();
+				N = maxN * rand.nextDouble();
+			}
+
+			eastings[i] = E;
+			northings[i] = N;
+		}
+	}
+
+	static void addProjectionBenchmarks(List<Benchmark> benchmarks) {
+		for (int grid = 0; grid < 2; grid++) {
+			for (int locality = 0; locality < 2; locality++) {
+				boolean track = locality == 1;
+
+				Random rand = new Random(1000 + 10 * grid + locality);
+
+				final double[] eastings = new double[NPOINTS];
+				final double[] northings = new double[NPOINTS];
+
+				if (grid == 0)
+					makeGridPoints(rand, track, 700000.0, 1250000.0,
+							eastings, northings);
+				else
+					makeGridPoints(rand, track, 400000.0, 450000.0,
+							eastings, northings);
+
+				final double[] longitudes = new double[NPOINTS];
+				final double[] latitudes = new double[NPOINTS];
+				final double[] lonlat = new double[2 * NPOINTS];
+				final double[] output = new double[2 * NPOINTS];
+
+				for (int k = 0; k < ALGORITHMS.length; k++) {
+					for (int t = 0; t < TOLERANCES.length; t++) {
+						if (ALGORITHMS[k] == TransverseMercatorProjection.KRUGER
+								&& t > 0)
+							break;
+
+						final TransverseMercatorProjection projection = grid == 0 ? new OSGB(
+								TOLERANCES[t], ALGORITHMS[k])
+								: new OSNI(TOLERANCES[t], ALGORITHMS[k]);
+
+						String suffix = (grid == 0 ? "osgb" : "osni")
+								+ "."
+								+ ALGORITHM_NAMES[k]
+								+ (ALGORITHMS[k] == TransverseMercatorProjection.KRUGER ? ""
+										: ".tol=" + TOLERANCES[t])
+								+ (track ? ".track" : ".random");
+
+						if (k == 0 && t == 0) {
+							projection.GridToLongitudeAndLatitude(eastings,
+									northings, 0, NPOINTS, longitudes,
+									latitudes);
+
+							for (int i = 0; i < NPOINTS; i++) {
+								lonlat[2 * i] = longitudes[i];
+								lonlat[2 * i + 1] = latitudes[i];
+							}
+						}
+
+						benchmarks.add(new Benchmark("inverse.point."
+								+ suffix) {
+							int operations() {
+								return NPOINTS;
+							}
+
+							double run() {
+								double s = 0.0;
+
+								for (int i = 0; i < NPOINTS; i++)
+									s += projection.GridToLongitudeAndLatitude(
+											eastings[i], northings[i]).getY();
+
+								return s;
+							}
+						});
+
+						benchmarks.add(new Benchmark("inverse.bulk." + suffix) {
+							int operations() {
+								return NPOINTS;
+							}
+
+							double run() {
+								projection.GridToLongitudeAndLatitude(eastings,
+										northings, 0, NPOINTS, output, output);
+
+								return output[NPOINTS - 1];
+							}
+
+							String remarks() {
+								long iterations = 0;
+
+								for (int i = 0; i < NPOINTS; i++)
+									iterations += projection
+											.getFootpointIterations(northings[i]);
+
+								return String.format("%.2f iterations/point",
+										(double) iterations / NPOINTS);
+							}
+						});
+
+						if (ALGORITHMS[k] != TransverseMercatorProjection.KRUGER) {
+							final ZOrderConverter zorder = new ZOrderConverter(
+									projection);
+
+							benchmarks.add(new Benchmark("inverse.zorder."
+									+ suffix) {
+								long iterations;
+
+								int operations() {
+									return NPOINTS;
+								}
+
+								double run() {
+									iterations = zorder.GridToLongitudeAndLatitude(
+											eastings, northings, 0, NPOINTS,
+											output, output);
+
+									return output[NPOINTS - 1];
+								}
+
+								String remarks() {
+									return String.format("%.2f iterations/point",
+											(double) iterations / NPOINTS);
+								}
+							});
+
+							final TrackConverter cursor = new TrackConverter(
+									projection);
+
+							benchmarks.add(new Benchmark("inverse.track."
+									+ suffix) {
+								long iterations, restarts;
+
+								int operations() {
+									return NPOINTS;
+								}
+
+								double run() {
+									long i0 = cursor.getIterations();
+									long r0 = cursor.getRestarts();
+
+									cursor.reset();
+									cursor.GridToLongitudeAndLatitude(eastings,
+											northings, 0, NPOINTS, output,
+											output);
+
+									iterations = cursor.getIterations() - i0;
+									restarts = cursor.getRestarts() - r0;
+
+									return output[NPOINTS - 1];
+								}
+
+								String remarks() {
+									return String.format(
+											"%.2f iterations/point, %d restarts",
+											(double) iterations / NPOINTS,
+											restarts);
+								}
+							});
+						}
+
+						if (t > 0)
+							continue;
+
+						final ParallelConverter converter = new ParallelConverter(
+								projection);
+
+						benchmarks.add(new Benchmark("inverse.parallel."
+								+ suffix) {
+							int operations() {
+								return NPOINTS;
+							}
+
+							double run() {
+								converter.GridToLongitudeAndLatitude(eastings,
+										northings, 0, NPOINTS, output, output);
+
+								return output[NPOINTS - 1];
+							}
+						});
+
+						benchmarks.add(new Benchmark("forward.point." + suffix) {
+							int operations() {
+								return NPOINTS;
+							}
+
+							double run() {
+								double s = 0.0;
+
+								for (int i = 0; i < NPOINTS; i++)
+									s += projection.LatitudeAndLongitudeToGrid(
+											longitudes[i], latitudes[i])
+											.getY();
+
+								return s;
+							}
+						});
+
+						benchmarks.add(new Benchmark("forward.arrays." + suffix) {
+							int operations() {
+								return NPOINTS;
+							}
+
+							double run() {
+								projection.LatitudeAndLongitudeToGrid(
+										longitudes, latitudes, 0, NPOINTS,
+										output, output);
+
+								return output[NPOINTS - 1];
+							}
+						});
+
+						benchmarks.add(new Benchmark("forward.bulk." + suffix) {
+							int operations() {
+								return NPOINTS;
+							}
+
+							double run() {
+								projection.LatitudeAndLongitudeToGrid(lonlat,
+										0, output, 0, NPOINTS);
+
+								return output[2 * NPOINTS - 1];
+							}
+						});
+					}
+				}
+			}
+		}
+	}
+
+	static void addGridSquareBenchmarks(List<Benchmark> benchmarks) {
+		final OSGB osgb = new OSGB();
+		final OSNI osni = new OSNI();
+
+		Random rand = new Random(2000);
+
+		final DPoint[] osgbPoints = new DPoint[NPOINTS];
+		final DPoint[] osniPoints = new DPoint[NPOINTS];
+		final char[] osgbLetters = new char[2 * NPOINTS];
+		final char[] osniLetters = new char[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			osgbPoints[i] = new DPoint(700000.0 * rand.nextDouble(),
+					1250000.0 * rand.nextDouble());
+			osniPoints[i] = new DPoint(500000.0 * rand.nextDouble(),
+					500000.0 * rand.nextDouble());
+
+			char[] pfx = osgb.GridToGridSquare(osgbPoints[i]);
+			osgbLetters[2 * i] = pfx[0];
+			osgbLetters[2 * i + 1] = pfx[1];
+
+			osniLetters[i] = osni.GridToGridSquare(osniPoints[i]);
+		}
+
+		benchmarks.add(new Benchmark("gridsquare.encode.osgb") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += osgb.GridToGridSquare(osgbPoints[i])[1];
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("gridsquare.decode.osgb") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				double s = 0.0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += osgb.GridSquareToOffset(osgbLetters[2 * i],
+							osgbLetters[2 * i + 1]).getY();
+
+				return s;
+			}
+		});
+
+		final double[] osgbEastings = new double[NPOINTS];
+		final double[] osgbNorthings = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			osgbEastings[i] = osgbPoints[i].getX();
+			osgbNorthings[i] = osgbPoints[i].getY();
+		}
+
+		benchmarks.add(new Benchmark("gridsquare.encode.osgb.array") {
+			char[] prefix = new char[2];
+
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int i = 0; i < NPOINTS; i++) {
+					osgb.GridToGridSquare(osgbEastings[i], osgbNorthings[i],
+							prefix, 0);
+					s += prefix[1];
+				}
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("gridsquare.decode.osgb.packed") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				long s = 0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += GridSquare.getNorthing(osgb.GridSquareToPackedOffset(
+							osgbLetters[2 * i], osgbLetters[2 * i + 1]));
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("gridsquare.encode.osni") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += osni.GridToGridSquare(osniPoints[i]);
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("gridsquare.decode.osni") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				double s = 0.0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += osni.GridSquareToOffset(osniLetters[i]).getY();
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("gridsquare.decode.osni.packed") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				long s = 0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += GridSquare.getNorthing(osni
+							.GridSquareToPackedOffset(osniLetters[i]));
+
+				return s;
+			}
+		});
+	}
+
+	/*
+	 * Each reference is 14 characters plus a newline, so the parsing rate in
+	 * bytes per second is 15 times the number of operations per second.
+	 */
+	static void addGridReferenceBenchmarks(List<Benchmark> benchmarks) {
+		final OSGB osgb = new OSGB();
+		final GridReferenceFormat format = new GridReferenceFormat(osgb);
+
+		Random rand = new Random(3000);
+
+		final double[] eastings = new double[NPOINTS];
+		final double[] northings = new double[NPOINTS];
+
+		makeGridPoints(rand, false, 700000.0, 1250000.0, eastings, northings);
+
+		final byte[] text = new byte[(GridReferenceFormat.MAX_LENGTH + 1)
+				* NPOINTS];
+		final int[] starts = new int[NPOINTS + 1];
+		final String[] lines = new String[NPOINTS];
+
+		int pos = 0;
+
+		for (int i = 0; i < NPOINTS; i++) {
+			starts[i] = pos;
+			pos = format.format(eastings[i], northings[i], 5, text, pos);
+			lines[i] = new String(text, starts[i], pos - starts[i]);
+			text[pos++] = '\n';
+		}
+
+		starts[NPOINTS] = pos;
+
+		final double[] E = new double[NPOINTS];
+		final double[] N = new double[NPOINTS];
+
+		benchmarks.add(new Benchmark("gridref.parse.osgb.split") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				double s = 0.0;
+
+				for (int i = 0; i < NPOINTS; i++) {
+					String[] words = lines[i].split("\\s");
+					DPoint offset = osgb.GridSquareToOffset(words[0]
+							.charAt(0), words[0].charAt(1));
+					s += offset.getY() + Integer.parseInt(words[2]);
+				}
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("gridref.parse.osgb.string") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				for (int i = 0; i < NPOINTS; i++)
+					format.parse(lines[i], 0, lines[i].length(), E, N, i);
+
+				return N[NPOINTS - 1];
+			}
+		});
+
+		benchmarks.add(new Benchmark("gridref.parse.osgb.bytes") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				for (int i = 0; i < NPOINTS; i++)
+					format.parse(text, starts[i], starts[i + 1] - 1, E, N, i);
+
+				return N[NPOINTS - 1];
+			}
+		});
+
+		benchmarks.add(new Benchmark("gridref.format.osgb.bytes") {
+			byte[] buf = new byte[GridReferenceFormat.MAX_LENGTH];
+
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += format.format(eastings[i], northings[i], 5, buf, 0)
+							+ buf[3];
+
+				return s;
+			}
+		});
+	}
+
+	static void addCoordinateFormatBenchmarks(List<Benchmark> benchmarks) {
+		Random rand = new Random(4000);
+
+		final double[] angles = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++)
+			angles[i] = Math.PI * (rand.nextDouble() - 0.5);
+
+		final CoordinateFormat decimal = new CoordinateFormat(
+				CoordinateFormat.DECIMAL_DEGREES, 7);
+		final CoordinateFormat dms = new CoordinateFormat(
+				CoordinateFormat.DEGREES_MINUTES_SECONDS, 3);
+
+		benchmarks.add(new Benchmark("format.decimal.string") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += String.format("%.7f", Math.toDegrees(angles[i]))
+							.length();
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("format.decimal.bytes") {
+			byte[] buf = new byte[CoordinateFormat.MAX_LENGTH];
+
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += decimal.formatLatitude(angles[i], buf, 0);
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("format.decimal.appendable") {
+			StringBuilder sb = new StringBuilder(CoordinateFormat.MAX_LENGTH);
+
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				int s = 0;
+
+				try {
+					for (int i = 0; i < NPOINTS; i++) {
+						sb.setLength(0);
+						decimal.formatLatitude(angles[i], sb);
+						s += sb.length();
+					}
+				} catch (IOException ioe) {
+				}
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("format.dms.bytes") {
+			byte[] buf = new byte[CoordinateFormat.MAX_LENGTH];
+
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += dms.formatLatitude(angles[i], buf, 0);
+
+				return s;
+			}
+		});
+	}
+
+	static void addGridTransformationBenchmarks(List<Benchmark> benchmarks) {
+		final OSNI osni = new OSNI();
+		final OSGB osgb = new OSGB();
+		final GridTransformation osni2osgb = new GridTransformation(osni,
+				osgb);
+
+		Random rand = new Random(5000);
+
+		final double[] eastings = new double[NPOINTS];
+		final double[] northings = new double[NPOINTS];
+
+		makeGridPoints(rand, false, 400000.0, 450000.0, eastings, northings);
+
+		final double[] targetEastings = new double[NPOINTS];
+		final double[] targetNorthings = new double[NPOINTS];
+
+		benchmarks.add(new Benchmark("osni2osgb.point") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				double s = 0.0;
+
+				for (int i = 0; i < NPOINTS; i++)
+					s += osgb.LatitudeAndLongitudeToGrid(
+							osni.GridToLongitudeAndLatitude(new DPoint(
+									eastings[i], northings[i]))).getY();
+
+				return s;
+			}
+		});
+
+		final GridTransformation osni2osgbDatum = new GridTransformation(osni,
+				HelmertTransformation.ETRS89_TO_IRL1975.getInverse()
+						.followedBy(HelmertTransformation.ETRS89_TO_OSGB36),
+				osgb);
+
+		benchmarks.add(new Benchmark("osni2osgb.bulk.helmert") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				osni2osgbDatum.GridToGrid(eastings, northings, 0, NPOINTS,
+						targetEastings, targetNorthings);
+
+				return targetNorthings[NPOINTS - 1];
+			}
+		});
+
+		benchmarks.add(new Benchmark("osni2osgb.bulk") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				osni2osgb.GridToGrid(eastings, northings, 0, NPOINTS,
+						targetEastings, targetNorthings);
+
+				return targetNorthings[NPOINTS - 1];
+			}
+		});
+	}
+
+	/*
+	 * The shift grid has the dimensions of OSTN15, with synthetic shifts.
+	 */
+	static void addGridShiftBenchmarks(List<Benchmark> benchmarks) {
+		final GridShiftFile grid;
+
+		try {
+			File file = File.createTempFile("shift", ".bin");
+			file.deleteOnExit();
+
+			int columns = 701, rows = 1251;
+
+			float[] eastShifts = new float[columns * rows];
+			float[] northShifts = new float[columns * rows];
+
+			Random rand = new Random(6000);
+
+			for (int i = 0; i < columns * rows; i++) {
+				eastShifts[i] = 90.0f + rand.nextFloat();
+				northShifts[i] = -80.0f + rand.nextFloat();
+			}
+
+			GridShiftFile.write(file, columns, rows, 0.0, 0.0, 1000.0,
+					eastShifts, northShifts);
+
+			grid = new GridShiftFile(file);
+		} catch (IOException ioe) {
+			System.err.println("Cannot create shift grid: " + ioe);
+			return;
+		}
+
+		for (int locality = 0; locality < 2; locality++) {
+			boolean track = locality == 1;
+
+			Random rand = new Random(6100 + locality);
+
+			final double[] eastings = new double[NPOINTS];
+			final double[] northings = new double[NPOINTS];
+
+			makeGridPoints(rand, track, 700000.0, 1250000.0, eastings,
+					northings);
+
+			final double[] shiftedEastings = new double[NPOINTS];
+			final double[] shiftedNorthings = new double[NPOINTS];
+
+			benchmarks.add(new Benchmark("gridshift.bulk"
+					+ (track ? ".track" : ".random")) {
+				int operations() {
+					return NPOINTS;
+				}
+
+				double run() {
+					grid.ApplyShift(eastings, northings, 0, NPOINTS,
+							shiftedEastings, shiftedNorthings);
+
+					return shiftedNorthings[NPOINTS - 1];
+				}
+			});
+		}
+	}
+
+	static void addEllipsoidBenchmarks(List<Benchmark> benchmarks) {
+		final int npairs = NPOINTS / 10;
+		final Ellipsoid earth = new Ellipsoid(6378137.0, 1.0 / 298.257223563);
+		final BatchGeodesic geodesic = new BatchGeodesic(earth);
+		final BatchGeodesic karney = new BatchGeodesic(earth,
+				EllipsoidalArc.KARNEY);
+
+		for (int locality = 0; locality < 2; locality++) {
+			final boolean local = locality == 1;
+
+			Random rand = new Random(3000 + locality);
+
+			final double[] lonA = new double[npairs];
+			final double[] latA = new double[npairs];
+			final double[] lonB = new double[npairs];
+			final double[] latB = new double[npairs];
+			final double[] azimuths = new double[npairs];
+			final double[] distances = new double[npairs];
+
+			for (int i = 0; i < npairs; i++) {
+				lonA[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+				latA[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+
+				if (local) {
+					lonB[i] = lonA[i] + 0.01 * (rand.nextDouble() - 0.5);
+					latB[i] = latA[i] + 0.01 * (rand.nextDouble() - 0.5);
+				} else {
+					/*
+					 * Keep well away from the antipodes, where Vincenty's
+					 * method may fail to converge.
+					 */
+					lonB[i] = lonA[i] + 2.0 * (rand.nextDouble() - 0.5);
+					latB[i] = Math.max(-1.5, Math.min(1.5, latA[i] + 2.0
+							* (rand.nextDouble() - 0.5)));
+				}
+
+				azimuths[i] = 2.0 * Math.PI * rand.nextDouble();
+				distances[i] = (local ? 1000.0 : 5000000.0)
+						* rand.nextDouble();
+			}
+
+			String suffix = local ? ".local" : ".regional";
+
+			benchmarks.add(new Benchmark("ellipsoid.distance.vincenty"
+					+ suffix) {
+				int operations() {
+					return npairs;
+				}
+
+				double run() {
+					double s = 0.0;
+					EllipsoidalArc arc = new EllipsoidalArc(earth);
+
+					for (int i = 0; i < npairs; i++) {
+						arc.setPositionA(lonA[i], latA[i]);
+						arc.setPositionB(lonB[i], latB[i]);
+						s += arc.calculateDistance();
+					}
+
+					return s;
+				}
+			});
+
+			benchmarks.add(new Benchmark("ellipsoid.distance.karney" + suffix) {
+				int operations() {
+					return npairs;
+				}
+
+				double run() {
+					double s = 0.0;
+					EllipsoidalArc arc = new EllipsoidalArc(earth,
+							EllipsoidalArc.KARNEY);
+
+					for (int i = 0; i < npairs; i++) {
+						arc.setPositionA(lonA[i], latA[i]);
+						arc.setPositionB(lonB[i], latB[i]);
+						s += arc.calculateDistance();
+					}
+
+					return s;
+				}
+			});
+
+			benchmarks.add(new Benchmark("ellipsoid.distance.batch" + suffix) {
+				double[] results = new double[npairs];
+				double[] azimuthsA = new double[npairs];
+				double[] azimuthsB = new double[npairs];
+
+				int operations() {
+					return npairs;
+				}
+
+				double run() {
+					geodesic.calculateDistances(lonA, latA, lonB, latB, 0,
+							npairs, results, azimuthsA, azimuthsB);
+
+					return results[npairs - 1];
+				}
+			});
+
+			benchmarks.add(new Benchmark("ellipsoid.distance.batch.karney"
+					+ suffix) {
+				double[] results = new double[npairs];
+				double[] azimuthsA = new double[npairs];
+				double[] azimuthsB = new double[npairs];
+
+				int operations() {
+					return npairs;
+				}
+
+				double run() {
+					karney.calculateDistances(lonA, latA, lonB, latB, 0,
+							npairs, results, azimuthsA, azimuthsB);
+
+					return results[npairs - 1];
+				}
+			});
+
+			benchmarks.add(new Benchmark("ellipsoid.position.vincenty"
+					+ suffix) {
+				int operations() {
+					return npairs;
+				}
+
+				double run() {
+					double s = 0.0;
+					EllipsoidalArc arc = new EllipsoidalArc(earth);
+
+					for (int i = 0; i < npairs; i++) {
+						arc.setPositionA(lonA[i], latA[i]);
+						arc.setAzimuthA(azimuths[i]);
+						arc.setDistance(distances[i]);
+						arc.calculatePosition();
+						s += arc.getLatitudeB();
+					}
+
+					return s;
+				}
+			});
+
+			benchmarks.add(new Benchmark("ellipsoid.position.batch" + suffix) {
+				double[] lonB = new double[npairs];
+				double[] latB = new double[npairs];
+
+				int operations() {
+					return npairs;
+				}
+
+				double run() {
+					geodesic.calculatePositions(lonA[0], latA[0], azimuths,
+							distances, 0, npairs, lonB, latB, null);
+
+					return latB[npairs - 1];
+				}
+			});
+
+			benchmarks.add(new Benchmark("ellipsoid.position.batch.karney"
+					+ suffix) {
+				double[] lonB = new double[npairs];
+				double[] latB = new double[npairs];
+
+				int operations() {
+					return npairs;
+				}
+
+				double run() {
+					karney.calculatePositions(lonA[0], latA[0], azimuths,
+							distances, 0, npairs, lonB, latB, null);
+
+					return latB[npairs - 1];
+				}
+			});
+
+			benchmarks.add(new Benchmark("ellipsoid.position.fan" + suffix) {
+				final int nAzimuths = 360;
+				final int nDistances = npairs / nAzimuths;
+
+				double[] lonB = new double[npairs];
+				double[] latB = new double[npairs];
+
+				int operations() {
+					return nAzimuths * nDistances;
+				}
+
+				double run() {
+					geodesic.calculateFan(lonA[0], latA[0], azimuths, 0,
+							nAzimuths, distances, 0, nDistances, lonB, latB,
+							null, 0);
+
+					return latB[0];
+				}
+			});
+
+			benchmarks.add(new Benchmark("ellipsoid.position.fan.karney"
+					+ suffix) {
+				final int nAzimuths = 360;
+				final int nDistances = npairs / nAzimuths;
+
+				double[] lonB = new double[npairs];
+				double[] latB = new double[npairs];
+
+				int operations() {
+					return nAzimuths * nDistances;
+				}
+
+				double run() {
+					karney.calculateFan(lonA[0], latA[0], azimuths, 0,
+							nAzimuths, distances, 0, nDistances, lonB, latB,
+							null, 0);
+
+					return latB[0];
+				}
+			});
+		}
+	}
+
+	/*
+	 * Compare the Vincenty and Karney solutions of the inverse problem for
+	 * pairs of points anywhere on the globe, and for nearly antipodal pairs,
+	 * reporting the proportion of pairs for which each fails.
+	 */
+	static void addGeodesicAlgorithmBenchmarks(List<Benchmark> benchmarks) {
+		final int npairs = NPOINTS / 10;
+		final Ellipsoid earth = new Ellipsoid(6378137.0, 1.0 / 298.257223563);
+
+		final int[] algorithms = { EllipsoidalArc.VINCENTY,
+				EllipsoidalArc.KARNEY };
+		final String[] names = { "vincenty", "karney" };
+
+		for (int antipodal = 0; antipodal < 2; antipodal++) {
+			Random rand = new Random(3100 + antipodal);
+
+			final double[] lonA = new double[npairs];
+			final double[] latA = new double[npairs];
+			final double[] lonB = new double[npairs];
+			final double[] latB = new double[npairs];
+
+			for (int i = 0; i < npairs; i++) {
+				lonA[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+				latA[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+
+				if (antipodal == 1) {
+					lonB[i] = lonA[i] + Math.PI - 0.01 * rand.nextDouble();
+					latB[i] = -latA[i] + 0.01 * (rand.nextDouble() - 0.5);
+				} else {
+					lonB[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+					latB[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+				}
+			}
+
+			String suffix = antipodal == 1 ? ".antipodal" : ".global";
+
+			for (int k = 0; k < algorithms.length; k++) {
+				final BatchGeodesic geodesic = new BatchGeodesic(earth,
+						algorithms[k]);
+
+				benchmarks.add(new Benchmark("geodesic.inverse." + names[k]
+						+ suffix) {
+					double[] results = new double[npairs];
+					int failures;
+
+					int operations() {
+						return npairs;
+					}
+
+					double run() {
+						failures = geodesic.calculateDistances(lonA, latA,
+								lonB, latB, 0, npairs, results, null, null);
+
+						return results[npairs - 1];
+					}
+
+					String remarks() {
+						return String.format("failures %.2f%%",
+								100.0 * failures / npairs);
+					}
+				});
+			}
+		}
+	}
+
+	/*
+	 * Build a distance matrix between two sets of points anywhere on the
+	 * globe, on a single worker thread and on the common pool.
+	 */
+	static void addDistanceMatrixBenchmarks(List<Benchmark> benchmarks) {
+		final int nrows = 400, ncolumns = 500;
+		final Ellipsoid earth = new Ellipsoid(6378137.0, 1.0 / 298.257223563);
+
+		final File file;
+
+		try {
+			file = File.createTempFile("matrix", ".bin");
+			file.deleteOnExit();
+		} catch (IOException ioe) {
+			System.err.println("Cannot create matrix file: " + ioe);
+			return;
+		}
+
+		Random rand = new Random(3200);
+
+		final double[] lonA = new double[nrows];
+		final double[] latA = new double[nrows];
+		final double[] lonB = new double[ncolumns];
+		final double[] latB = new double[ncolumns];
+
+		for (int i = 0; i < nrows; i++) {
+			lonA[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latA[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+		}
+
+		for (int j = 0; j < ncolumns; j++) {
+			lonB[j] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latB[j] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+		}
+
+		final int[] algorithms = { EllipsoidalArc.VINCENTY,
+				EllipsoidalArc.KARNEY };
+		final String[] names = { "vincenty", "karney" };
+
+		for (int k = 0; k < algorithms.length; k++) {
+			BatchGeodesic geodesic = new BatchGeodesic(earth, algorithms[k]);
+
+			for (int parallel = 0; parallel < 2; parallel++) {
+				final GeodesicDistanceMatrix matrix = new GeodesicDistanceMatrix(
+						geodesic, parallel == 1 ? ForkJoinPool.commonPool()
+								: new ForkJoinPool(1),
+						GeodesicDistanceMatrix.DEFAULT_TILE_SIZE,
+						GeodesicDistanceMatrix.DEFAULT_WINDOW_SIZE);
+
+				benchmarks.add(new Benchmark("matrix." + names[k]
+						+ (parallel == 1 ? ".parallel" : ".single")) {
+					int operations() {
+						return nrows * ncolumns;
+					}
+
+					double run() {
+						try {
+							return matrix.calculate(lonA, latA, 0, nrows, lonB,
+									latB, 0, ncolumns, file,
+									GeodesicDistanceMatrix.FLOAT);
+						} catch (IOException ioe) {
+							return -1.0;
+						}
+					}
+				});
+			}
+		}
+	}
+
+	/*
+	 * Build an index of points spread over the OSGB grid, and find the
+	 * points within 500 metres of, and the ten points nearest to, random
+	 * positions, comparing the index with an exhaustive search.
+	 */
+	static void addSpatialIndexBenchmarks(List<Benchmark> benchmarks) {
+		final int nqueries = 10000;
+		final double radius = 500.0;
+
+		Random rand = new Random(7000);
+
+		final double[] eastings = new double[NPOINTS];
+		final double[] northings = new double[NPOINTS];
+
+		makeGridPoints(rand, false, 700000.0, 1250000.0, eastings, northings);
+
+		final double[] queryEastings = new double[nqueries];
+		final double[] queryNorthings = new double[nqueries];
+
+		makeGridPoints(rand, false, 700000.0, 1250000.0, queryEastings,
+				queryNorthings);
+
+		final GridPointIndex index = new GridPointIndex(eastings, northings,
+				0, NPOINTS);
+
+		benchmarks.add(new Benchmark("index.build") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				return new GridPointIndex(eastings, northings, 0, NPOINTS)
+						.size();
+			}
+		});
+
+		benchmarks.add(new Benchmark("index.radius.kdtree") {
+			int[] ids = new int[NPOINTS];
+
+			int operations() {
+				return nqueries;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int q = 0; q < nqueries; q++)
+					s += index.findWithin(queryEastings[q], queryNorthings[q],
+							radius, ids, 0, ids.length);
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("index.radius.exhaustive") {
+			final int nq = nqueries / 100;
+
+			int operations() {
+				return nq;
+			}
+
+			double run() {
+				int s = 0;
+				double r2 = radius * radius;
+
+				for (int q = 0; q < nq; q++)
+					for (int i = 0; i < NPOINTS; i++) {
+						double dE = eastings[i] - queryEastings[q];
+						double dN = northings[i] - queryNorthings[q];
+
+						if (dE * dE + dN * dN <= r2)
+							s++;
+					}
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("index.nearest10.kdtree") {
+			int[] ids = new int[10];
+			double[] distances = new double[10];
+
+			int operations() {
+				return nqueries;
+			}
+
+			double run() {
+				double s = 0.0;
+
+				for (int q = 0; q < nqueries; q++) {
+					index.nearest(queryEastings[q], queryNorthings[q], 10,
+							ids, distances, 0);
+					s += distances[9];
+				}
+
+				return s;
+			}
+		});
+	}
+
+	/*
+	 * Build an index of points spread over the OSGB grid by grid square, and
+	 * count the points in random 10km squares such as TQ38, comparing the
+	 * index with an exhaustive search.
+	 */
+	static void addSquareIndexBenchmarks(List<Benchmark> benchmarks) {
+		final int nqueries = 10000;
+
+		Random rand = new Random(7050);
+
+		final double[] eastings = new double[NPOINTS];
+		final double[] northings = new double[NPOINTS];
+
+		makeGridPoints(rand, false, 700000.0, 1250000.0, eastings, northings);
+
+		final double[] queryEastings = new double[nqueries];
+		final double[] queryNorthings = new double[nqueries];
+
+		makeGridPoints(rand, false, 700000.0, 1250000.0, queryEastings,
+				queryNorthings);
+
+		final OSGB osgb = new OSGB();
+		final GridReferenceFormat format = new GridReferenceFormat(osgb);
+
+		final String[] references = new String[nqueries];
+
+		for (int q = 0; q < nqueries; q++)
+			references[q] = format.format(queryEastings[q], queryNorthings[q],
+					1);
+
+		final GridSquareIndex index = new GridSquareIndex(osgb, eastings,
+				northings, 0, NPOINTS);
+
+		benchmarks.add(new Benchmark("squareindex.build") {
+			int operations() {
+				return NPOINTS;
+			}
+
+			double run() {
+				return new GridSquareIndex(osgb, eastings, northings, 0,
+						NPOINTS).size();
+			}
+		});
+
+		benchmarks.add(new Benchmark("squareindex.count10km") {
+			int operations() {
+				return nqueries;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int q = 0; q < nqueries; q++)
+					s += index.count(queryEastings[q], queryNorthings[q], 1);
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("squareindex.count10km.reference") {
+			int operations() {
+				return nqueries;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int q = 0; q < nqueries; q++)
+					s += index.count(references[q]);
+
+				return s;
+			}
+		});
+
+		benchmarks.add(new Benchmark("squareindex.count10km.exhaustive") {
+			final int nq = nqueries / 100;
+
+			int operations() {
+				return nq;
+			}
+
+			double run() {
+				int s = 0;
+
+				for (int q = 0; q < nq; q++) {
+					double E0 = 10000.0 * Math.floor(queryEastings[q] / 1e4);
+					double N0 = 10000.0 * Math.floor(queryNorthings[q] / 1e4);
+
+					for (int i = 0; i < NPOINTS; i++)
+						if (eastings[i] >= E0 && eastings[i] < E0 + 10000.0
+								&& northings[i] >= N0
+								&& northings[i] < N0 + 10000.0)
+							s++;
+				}
+
+				return s;
+			}
+		});
+	}
+
+	/*
+	 * Find the ten points nearest by geodesic distance to random positions,
+	 * among points spread over the globe, comparing the index with an
+	 * exhaustive search.
+	 */
+	static void addGeodesicIndexBenchmarks(List<Benchmark> benchmarks) {
+		final int nqueries = 1000;
+		final int k = 10;
+
+		final BatchGeodesic geodesic = new BatchGeodesic(new Ellipsoid(
+				6378137.0, 1.0 / 298.257223563));
+
+		Random rand = new Random(7100);
+
+		final double[] longitudes = new double[NPOINTS];
+		final double[] latitudes = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			longitudes[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latitudes[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+		}
+
+		final double[] queryLongitudes = new double[nqueries];
+		final double[] queryLatitudes = new double[nqueries];
+
+		for (int q = 0; q < nqueries; q++) {
+			queryLongitudes[q] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			queryLatitudes[q] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+		}
+
+		final GeodesicPointIndex index = new GeodesicPointIndex(geodesic,
+				longitudes, latitudes, 0, NPOINTS);
+
+		benchmarks.add(new Benchmark("geoindex.nearest10") {
+			int[] ids = new int[nqueries * k];
+			double[] distances = new double[nqueries * k];
+			long evaluations;
+
+			int operations() {
+				return nqueries;
+			}
+
+			double run() {
+				evaluations = index.nearest(queryLongitudes, queryLatitudes,
+						0, nqueries, k, ids, distances, null);
+
+				return distances[k - 1];
+			}
+
+			String remarks() {
+				return String.format("%.2f geodesics/query",
+						(double) evaluations / nqueries);
+			}
+		});
+
+		benchmarks.add(new Benchmark("geoindex.nearest10.exhaustive") {
+			final int nq = 10;
+
+			double[] lonA = new double[NPOINTS];
+			double[] latA = new double[NPOINTS];
+			double[] all = new double[NPOINTS];
+
+			int operations() {
+				return nq;
+			}
+
+			double run() {
+				double s = 0.0;
+
+				for (int q = 0; q < nq; q++) {
+					Arrays.fill(lonA, queryLongitudes[q]);
+					Arrays.fill(latA, queryLatitudes[q]);
+
+					geodesic.calculateDistances(lonA, latA, longitudes,
+							latitudes, 0, NPOINTS, all, null, null);
+
+					Arrays.sort(all);
+
+					s += all[k - 1];
+				}
+
+				return s;
+			}
+
+			String remarks() {
+				return NPOINTS + " geodesics/query";
+			}
+		});
+	}
+}
@@ -7,6 +7,7 @@ import java.text.NumberFormat;
 import javax.swing.*;
 
 import com.obliquity.mapping.DPoint;
+import com.obliquity.mapping.GridReferenceFormat;
 import com.obliquity.mapping.OSGB;
 
 public class OSGBConvert extends JPanel {
@@ -15,6 +16,8 @@ public class OSGBConvert extends JPanel {
 
 	protected OSGB osgb = new OSGB();
 
+	protected GridReferenceFormat gridFormat = new GridReferenceFormat(osgb);
+
 	protected NumberFormat format = NumberFormat.getInstance();
 
 	public OSGBConvert() {
@@ -49,29 +52,13 @@ public class OSGBConvert extends JPanel {
 	}
 
 	protected String convert(String line) {
-		String[] words = line.split("\\s");
-
-		if (words.length < 3)
-			return "*** Error : too few tokens on line ***";
-
-		if (words[0].length() != 2)
-			return "*** Error : invalid prefix ***";
-
-		DPoint offset = osgb.GridSquareToOffset(words[0].charAt(0), words[0]
-				.charAt(1));
-
-		int eastings = Integer.parseInt(words[1]);
-
-		int northings = Integer.parseInt(words[2]);
-
-		if (words[1].length() == 3 && words[2].length() == 3) {
-			eastings *= 100;
-			northings *= 100;
-		}
+		double[] eastings = new double[1];
+		double[] northings = new double[1];
 
-		DPoint gridxy = new DPoint((double) eastings, (double) northings);
+		if (gridFormat.parse(line, 0, line.length(), eastings, northings, 0) < 0)
+			return "*** Error : invalid grid reference ***";
 
-		gridxy.offsetBy(offset);
+		DPoint gridxy = new DPoint(eastings[0], northings[0]);
 
 		DPoint p = osgb.GridToLongitudeAndLatitude(gridxy);
 
@@ -0,0 +1,218 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the bulk geodesic calculations against <CODE>EllipsoidalArc</CODE>
+ * for random pairs of points all over the globe, and for fans of geodesics
+ * from random starting points. Where <CODE>EllipsoidalArc</CODE> fails to
+ * converge, the bulk calculation must report a failure for the same pair.
+ */
+public class TestBatchGeodesic {
+	static final int NPAIRS = 100000;
+
+	static final double DISTANCE_TOLERANCE = 1.0e-6;
+	static final double AZIMUTH_TOLERANCE = 1.0e-12;
+
+	static final int NAZIMUTHS = 360, NDISTANCES = 50, NORIGINS = 20;
+
+	static final double POSITION_TOLERANCE = 1.0e-13;
+
+	static public void main(String args[]) {
+		boolean ok = testInverse();
+
+		ok &= testDirect();
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean testInverse() {
+		BatchGeodesic geodesic = new BatchGeodesic(Ellipsoid.WGS84);
+		EllipsoidalArc arc = new EllipsoidalArc(Ellipsoid.WGS84);
+
+		Random rand = new Random(8642L);
+
+		double[] lonA = new double[NPAIRS];
+		double[] latA = new double[NPAIRS];
+		double[] lonB = new double[NPAIRS];
+		double[] latB = new double[NPAIRS];
+
+		for (int i = 0; i < NPAIRS; i++) {
+			lonA[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latA[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+			lonB[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latB[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+		}
+
+		/*
+		 * Include some nearly antipodal pairs, where Vincenty's method is
+		 * likely to fail.
+		 */
+		for (int i = 0; i < NPAIRS / 100; i++) {
+			lonB[i] = lonA[i] + Math.PI - 0.01 * rand.nextDouble();
+			latB[i] = -latA[i] + 0.01 * (rand.nextDouble() - 0.5);
+		}
+
+		double[] distances = new double[NPAIRS];
+		double[] azimuthsA = new double[NPAIRS];
+		double[] azimuthsB = new double[NPAIRS];
+
+		int failures = geodesic.calculateDistances(lonA, latA, lonB, latB, 0,
+				NPAIRS, distances, azimuthsA, azimuthsB);
+
+		int arcFailures = 0, mismatches = 0;
+		double maxDistanceError = 0.0, maxAzimuthError = 0.0;
+
+		for (int i = 0; i < NPAIRS; i++) {
+			arc.setPositionA(lonA[i], latA[i]);
+			arc.setPositionB(lonB[i], latB[i]);
+
+			double d;
+
+			try {
+				d = arc.calculateDistance();
+			} catch (ArithmeticException ae) {
+				arcFailures++;
+
+				if (!Double.isNaN(distances[i]))
+					mismatches++;
+
+				continue;
+			}
+
+			if (Double.isNaN(distances[i])) {
+				mismatches++;
+				continue;
+			}
+
+			maxDistanceError = Math.max(maxDistanceError, Math.abs(d
+					- distances[i]));
+			maxAzimuthError = Math.max(maxAzimuthError, Math.abs(arc
+					.getAzimuthA()
+					- azimuthsA[i]));
+			maxAzimuthError = Math.max(maxAzimuthError, Math.abs(arc
+					.getAzimuthB()
+					- azimuthsB[i]));
+		}
+
+		System.out.println(NPAIRS + " pairs: " + failures + " failures ("
+				+ arcFailures + " by EllipsoidalArc), " + mismatches
+				+ " mismatches");
+		System.out.println("Maximum distance difference " + maxDistanceError
+				+ " metres, maximum azimuth difference " + maxAzimuthError
+				+ " radians");
+
+		return mismatches == 0 && maxDistanceError <= DISTANCE_TOLERANCE
+				&& maxAzimuthError <= AZIMUTH_TOLERANCE;
+	}
+
+	static boolean testDirect() {
+		BatchGeodesic geodesic = new BatchGeodesic(Ellipsoid.WGS84);
+		EllipsoidalArc arc = new EllipsoidalArc(Ellipsoid.WGS84);
+
+		Random rand = new Random(9753L);
+
+		double[] azimuths = new double[NAZIMUTHS];
+		double[] distances = new double[NDISTANCES];
+
+		for (int i = 0; i < NAZIMUTHS; i++)
+			azimuths[i] = Math.toRadians(i);
+
+		int n = NAZIMUTHS * NDISTANCES;
+
+		double[] lonB = new double[n];
+		double[] latB = new double[n];
+		double[] azB = new double[n];
+
+		double[] fanAzimuths = new double[n];
+		double[] fanDistances = new double[n];
+		double[] lonB2 = new double[n];
+		double[] latB2 = new double[n];
+
+		double maxError = 0.0;
+		int failures = 0, mismatches = 0;
+
+		for (int k = 0; k < NORIGINS; k++) {
+			double lonA = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			double latA = Math.asin(2.0 * rand.nextDouble() - 1.0);
+
+			for (int j = 0; j < NDISTANCES; j++)
+				distances[j] = 1.0e7 * rand.nextDouble();
+
+			failures += geodesic.calculateFan(lonA, latA, azimuths, 0,
+					NAZIMUTHS, distances, 0, NDISTANCES, lonB, latB, azB, 0);
+
+			for (int i = 0; i < NAZIMUTHS; i++)
+				for (int j = 0; j < NDISTANCES; j++) {
+					fanAzimuths[i * NDISTANCES + j] = azimuths[i];
+					fanDistances[i * NDISTANCES + j] = distances[j];
+				}
+
+			geodesic.calculatePositions(lonA, latA, fanAzimuths,
+					fanDistances, 0, n, lonB2, latB2, null);
+
+			for (int m = 0; m < n; m++) {
+				if (Double.compare(lonB[m], lonB2[m]) != 0
+						|| Double.compare(latB[m], latB2[m]) != 0)
+					mismatches++;
+
+				arc.setPositionA(lonA, latA);
+				arc.setAzimuthA(fanAzimuths[m]);
+				arc.setDistance(fanDistances[m]);
+
+				try {
+					arc.calculatePosition();
+				} catch (ArithmeticException ae) {
+					if (!Double.isNaN(latB[m]))
+						mismatches++;
+
+					continue;
+				}
+
+				maxError = Math.max(maxError, Math.abs(arc.getLongitudeB()
+						- lonB[m]));
+				maxError = Math.max(maxError, Math.abs(arc.getLatitudeB()
+						- latB[m]));
+				maxError = Math.max(maxError, Math.abs(arc.getAzimuthB()
+						- azB[m]));
+			}
+		}
+
+		System.out.println(NORIGINS + " fans of " + n + " geodesics: "
+				+ failures + " failures, " + mismatches
+				+ " mismatches, maximum difference " + maxError + " radians");
+
+		return mismatches == 0 && maxError <= POSITION_TOLERANCE;
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the <CODE>DoubleBuffer</CODE> conversion functions against the
+ * interleaved array functions, for heap, direct and read-only buffers, in
+ * place and at non-zero positions, and checks that read-only, short and
+ * overlapping destinations are rejected.
+ */
+public class TestBuffers {
+	static final int NPOINTS = 10007;
+
+	static final double GRID_TOLERANCE = 1.0e-6;
+	static final double ANGLE_TOLERANCE = 1.0e-13;
+
+	static final String[] KINDS = { "heap", "direct", "read-only heap",
+			"read-only direct", "in place heap", "in place direct" };
+
+	static public void main(String args[]) {
+		int[] algorithms = { TransverseMercatorProjection.REDFEARN,
+				TransverseMercatorProjection.REDFEARN_NEWTON,
+				TransverseMercatorProjection.KRUGER };
+
+		boolean ok = true;
+
+		for (int k = 0; k < algorithms.length; k++)
+			ok &= runTest(new OSGB(0.0001, algorithms[k]));
+
+		ok &= testRejection(new OSGB());
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean runTest(TransverseMercatorProjection projection) {
+		Random rand = new Random(5432L);
+
+		double[] lonlat = new double[2 * NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			lonlat[2 * i] = Math.toRadians(-8.0 + 10.0 * rand.nextDouble());
+			lonlat[2 * i + 1] = Math.toRadians(49.5 + 11.5 * rand.nextDouble());
+		}
+
+		double[] grid = new double[2 * NPOINTS];
+
+		projection.LatitudeAndLongitudeToGrid(lonlat, 0, grid, 0, NPOINTS);
+
+		double[] inverse = new double[2 * NPOINTS];
+
+		projection.GridToLongitudeAndLatitude(grid, 0, inverse, 0, NPOINTS);
+
+		boolean ok = true;
+
+		for (int kind = 0; kind < KINDS.length; kind++) {
+			double forward = compare(projection, true, kind, lonlat, grid);
+			double backward = compare(projection, false, kind, grid, inverse);
+
+			boolean good = forward <= GRID_TOLERANCE
+					&& backward <= ANGLE_TOLERANCE;
+
+			System.out.println("Algorithm " + projection.getAlgorithm() + ", "
+					+ KINDS[kind] + " buffers: maximum difference " + forward
+					+ " metres (forward), " + backward
+					+ " radians (inverse)" + (good ? "" : " *** ERROR ***"));
+
+			ok &= good;
+		}
+
+		return ok;
+	}
+
+	/*
+	 * Convert the coordinates using buffers of the specified kind, with the
+	 * source and destination starting at different positions and a spare
+	 * value after the last pair of the source, and return the largest
+	 * difference from the expected results. Infinity is returned if a
+	 * position is wrong or a value outside the range is changed.
+	 */
+	static double compare(TransverseMercatorProjection projection,
+			boolean forward, int kind, double[] input, double[] expected) {
+		boolean direct = (kind & 1) != 0;
+		boolean inPlace = kind >= 4;
+
+		int srcStart = 3, dstStart = inPlace ? srcStart : 5;
+
+		DoubleBuffer src = allocate(direct, srcStart + input.length + 1);
+		src.position(srcStart);
+		src.put(input);
+		src.put(-1.0);
+		src.position(srcStart);
+
+		DoubleBuffer dst = inPlace ? src : allocate(direct, dstStart
+				+ input.length + 1);
+
+		if (!inPlace)
+			dst.position(dstStart);
+
+		if (kind == 2 || kind == 3)
+			src = src.asReadOnlyBuffer();
+
+		if (forward)
+			projection.LatitudeAndLongitudeToGrid(src, dst);
+		else
+			projection.GridToLongitudeAndLatitude(src, dst);
+
+		if (src.position() != srcStart + input.length
+				|| dst.position() != dstStart + input.length
+				|| dst.get(dstStart + input.length) != (inPlace ? -1.0 : 0.0))
+			return Double.POSITIVE_INFINITY;
+
+		double worst = 0.0;
+
+		for (int i = 0; i < expected.length; i++)
+			worst = Math.max(worst, Math.abs(dst.get(dstStart + i)
+					- expected[i]));
+
+		return worst;
+	}
+
+	static DoubleBuffer allocate(boolean direct, int capacity) {
+		if (direct)
+			return ByteBuffer.allocateDirect(8 * capacity).order(
+					ByteOrder.nativeOrder()).asDoubleBuffer();
+		else
+			return DoubleBuffer.allocate(capacity);
+	}
+
+	static boolean testRejection(TransverseMercatorProjection projection) {
+		boolean ok = true;
+
+		double[] data = new double[100];
+
+		for (int i = 0; i < data.length; i += 2) {
+			data[i] = Math.toRadians(-2.0);
+			data[i + 1] = Math.toRadians(53.0);
+		}
+
+		DoubleBuffer heap = DoubleBuffer.wrap(data);
+
+		ok &= rejects(projection, heap, heap.asReadOnlyBuffer(),
+				"read-only destination");
+
+		ok &= rejects(projection, DoubleBuffer.wrap(data, 0, 20),
+				DoubleBuffer.allocate(19), "short destination");
+
+		DoubleBuffer shifted = heap.duplicate();
+		shifted.position(2);
+
+		ok &= rejects(projection, DoubleBuffer.wrap(data, 0, 40), shifted,
+				"overlapping views of one array");
+
+		try {
+			projection.LatitudeAndLongitudeToGrid(data, 0, data, 2, 20);
+			System.out.println("Overlapping array ranges were accepted");
+			ok = false;
+		} catch (IllegalArgumentException iae) {
+		}
+
+		try {
+			projection.GridToLongitudeAndLatitude(data, 4, data, 0, 20);
+			System.out.println("Overlapping array ranges were accepted");
+			ok = false;
+		} catch (IllegalArgumentException iae) {
+		}
+
+		/*
+		 * Disjoint ranges of the same array are allowed.
+		 */
+		projection.LatitudeAndLongitudeToGrid(data, 0, data, 50, 25);
+
+		return ok;
+	}
+
+	static boolean rejects(TransverseMercatorProjection projection,
+			DoubleBuffer src, DoubleBuffer dst, String what) {
+		try {
+			projection.LatitudeAndLongitudeToGrid(src, dst);
+		} catch (IllegalArgumentException iae) {
+			return true;
+		}
+
+		System.out.println("A " + what + " was accepted");
+
+		return false;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the blocked bulk forward transforms against the point-by-point
+ * transform, for both grids and for every set of formulae.
+ */
+public class TestBulkForward {
+	static final int NPOINTS = 100003;
+
+	static final double TOLERANCE = 1.0e-6;
+
+	static public void main(String args[]) {
+		int[] algorithms = { TransverseMercatorProjection.REDFEARN,
+				TransverseMercatorProjection.REDFEARN_NEWTON,
+				TransverseMercatorProjection.KRUGER };
+
+		boolean ok = true;
+
+		for (int k = 0; k < algorithms.length; k++) {
+			ok &= runTest("OSGB", new OSGB(0.001, algorithms[k]), -8.0, 2.0,
+					49.5, 61.0);
+			ok &= runTest("OSNI", new OSNI(0.001, algorithms[k]), -11.0,
+					-5.0, 51.0, 55.5);
+		}
+
+		if (!ok)
+			System.exit(1);
+	}
+
+	static boolean runTest(String name,
+			TransverseMercatorProjection projection, double minLon,
+			double maxLon, double minLat, double maxLat) {
+		Random rand = new Random(4321L);
+
+		double[] longitudes = new double[NPOINTS];
+		double[] latitudes = new double[NPOINTS];
+		double[] lonlat = new double[2 * NPOINTS + 1];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			longitudes[i] = Math.toRadians(minLon + (maxLon - minLon)
+					* rand.nextDouble());
+			latitudes[i] = Math.toRadians(minLat + (maxLat - minLat)
+					* rand.nextDouble());
+
+			lonlat[2 * i + 1] = longitudes[i];
+			lonlat[2 * i + 2] = latitudes[i];
+		}
+
+		double[] eastings = new double[NPOINTS];
+		double[] northings = new double[NPOINTS];
+
+		int offset = 7;
+
+		projection.LatitudeAndLongitudeToGrid(longitudes, latitudes, offset,
+				NPOINTS - offset, eastings, northings);
+
+		double[] grid = new double[2 * NPOINTS];
+
+		projection.LatitudeAndLongitudeToGrid(lonlat, 1, grid, 0, NPOINTS);
+
+		double maxArrays = 0.0, maxInterleaved = 0.0;
+
+		for (int i = 0; i < NPOINTS; i++) {
+			DPoint p = projection.LatitudeAndLongitudeToGrid(longitudes[i],
+					latitudes[i]);
+
+			if (i >= offset)
+				maxArrays = Math.max(maxArrays, Math.max(Math.abs(p.getX()
+						- eastings[i]), Math.abs(p.getY() - northings[i])));
+			else if (eastings[i] != 0.0 || northings[i] != 0.0)
+				maxArrays = Double.POSITIVE_INFINITY;
+
+			maxInterleaved = Math.max(maxInterleaved, Math.max(Math.abs(p
+					.getX()
+					- grid[2 * i]), Math.abs(p.getY() - grid[2 * i + 1])));
+		}
+
+		boolean ok = maxArrays <= TOLERANCE && maxInterleaved <= TOLERANCE;
+
+		System.out.println(name + " algorithm " + projection.getAlgorithm()
+				+ ": maximum difference " + maxArrays + " (arrays), "
+				+ maxInterleaved + " (interleaved)"
+				+ (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+}
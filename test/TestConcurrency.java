@@ -0,0 +1,172 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Stress test which shares a single projection between many threads and
+ * checks that every thread obtains exactly the same results as a sequential
+ * conversion of the same points.
+ */
+public class TestConcurrency {
+	static final int NPOINTS = 20000;
+
+	static public void main(String args[]) throws InterruptedException {
+		int nThreads = 4 * Runtime.getRuntime().availableProcessors();
+		int nPasses = 50;
+
+		if (args.length > 0)
+			nThreads = Integer.parseInt(args[0]);
+
+		if (args.length > 1)
+			nPasses = Integer.parseInt(args[1]);
+
+		boolean ok = runTest("OSGB", new OSGB(0.0001), 700000.0, 1300000.0,
+				nThreads, nPasses);
+
+		ok &= runTest("OSNI", new OSNI(0.0001), 500000.0, 500000.0,
+				nThreads, nPasses);
+
+		if (!ok)
+			System.exit(1);
+	}
+
+	static boolean runTest(String name,
+			final TransverseMercatorProjection projection, double maxE,
+			double maxN, int nThreads, final int nPasses)
+			throws InterruptedException {
+		Random rand = new Random(12345L);
+
+		final double[] eastings = new double[NPOINTS];
+		final double[] northings = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			eastings[i] = maxE * rand.nextDouble();
+			northings[i] = maxN * rand.nextDouble();
+		}
+
+		/*
+		 * Calculate the reference results in this thread before any other
+		 * thread touches the projection.
+		 */
+
+		final double[] longitudes = new double[NPOINTS];
+		final double[] latitudes = new double[NPOINTS];
+
+		projection.GridToLongitudeAndLatitude(eastings, northings, 0,
+				NPOINTS, longitudes, latitudes);
+
+		final double[] lonlat = new double[2 * NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			lonlat[2 * i] = longitudes[i];
+			lonlat[2 * i + 1] = latitudes[i];
+		}
+
+		final double[] grid = new double[2 * NPOINTS];
+
+		projection.LatitudeAndLongitudeToGrid(lonlat, 0, grid, 0, NPOINTS);
+
+		final CountDownLatch startGate = new CountDownLatch(1);
+		final AtomicLong mismatches = new AtomicLong();
+		final AtomicLong conversions = new AtomicLong();
+
+		Thread[] threads = new Thread[nThreads];
+
+		for (int t = 0; t < nThreads; t++) {
+			final long seed = t;
+
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					Random r = new Random(seed);
+					double[] lon = new double[NPOINTS];
+					double[] lat = new double[NPOINTS];
+					double[] en = new double[2 * NPOINTS];
+					long bad = 0, count = 0;
+
+					try {
+						startGate.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+
+					for (int pass = 0; pass < nPasses; pass++) {
+						int offset = r.nextInt(NPOINTS);
+						int length = r.nextInt(NPOINTS - offset) + 1;
+
+						projection.GridToLongitudeAndLatitude(eastings,
+								northings, offset, length, lon, lat);
+
+						for (int i = offset; i < offset + length; i++)
+							if (lon[i] != longitudes[i]
+									|| lat[i] != latitudes[i])
+								bad++;
+
+						projection.LatitudeAndLongitudeToGrid(lonlat,
+								2 * offset, en, 2 * offset, length);
+
+						for (int i = 2 * offset; i < 2 * (offset + length); i++)
+							if (en[i] != grid[i])
+								bad++;
+
+						int i = r.nextInt(NPOINTS);
+
+						DPoint p = projection.GridToLongitudeAndLatitude(
+								eastings[i], northings[i]);
+
+						if (p.getX() != longitudes[i]
+								|| p.getY() != latitudes[i])
+							bad++;
+
+						count += 2 * length + 1;
+					}
+
+					mismatches.addAndGet(bad);
+					conversions.addAndGet(count);
+				}
+			});
+
+			threads[t].start();
+		}
+
+		startGate.countDown();
+
+		for (int t = 0; t < nThreads; t++)
+			threads[t].join();
+
+		System.out.println(name + ": " + nThreads + " threads performed "
+				+ conversions.get() + " conversions with " + mismatches.get()
+				+ " mismatches");
+
+		return mismatches.get() == 0;
+	}
+}
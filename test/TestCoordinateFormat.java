@@ -0,0 +1,298 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks <CODE>CoordinateFormat</CODE> against known values, including
+ * rounding which carries into the minutes and degrees and hemisphere letters
+ * for angles which round to zero, compares its decimal rounding with
+ * <CODE>String.format</CODE> for random values and values close to halfway
+ * between two results, and checks that the byte array and
+ * <CODE>Appendable</CODE> functions agree.
+ */
+public class TestCoordinateFormat {
+	static final int NVALUES = 200000;
+
+	static final int DMS = CoordinateFormat.DEGREES_MINUTES_SECONDS;
+	static final int DECIMAL = CoordinateFormat.DECIMAL_DEGREES;
+
+	static public void main(String args[]) throws IOException {
+		boolean ok = true;
+
+		ok &= testLatitude(DMS, 2, dms(51, 59, 59.999), "52 00 00.00 N");
+		ok &= testLatitude(DMS, 2, -dms(51, 59, 59.999), "52 00 00.00 S");
+		ok &= testLatitude(DMS, 0, dms(51, 59, 59.6), "52 00 00 N");
+		ok &= testLatitude(DMS, 2, dms(51, 58, 59.996), "51 59 00.00 N");
+		ok &= testLatitude(DMS, 3, dms(89, 59, 59.9996), "90 00 00.000 N");
+		ok &= testLongitude(DMS, 1, -dms(179, 59, 59.99), "180 00 00.0 W");
+		ok &= testLongitude(DMS, 2, -dms(0, 7, 29.3088), "0 07 29.31 W");
+		ok &= testLatitude(DMS, 4, dms(52, 39, 27.2531), "52 39 27.2531 N");
+
+		ok &= testLatitude(DMS, 2, 0.0, "0 00 00.00 N");
+		ok &= testLatitude(DMS, 2, -0.0, "0 00 00.00 N");
+		ok &= testLatitude(DMS, 2, -dms(0, 0, 0.004), "0 00 00.00 N");
+		ok &= testLatitude(DMS, 2, -dms(0, 0, 0.006), "0 00 00.01 S");
+		ok &= testLongitude(DMS, 2, -dms(0, 0, 0.004), "0 00 00.00 E");
+		ok &= testLongitude(DMS, 2, -dms(0, 0, 0.006), "0 00 00.01 W");
+		ok &= testLongitude(DMS, 2, dms(0, 0, 0.006), "0 00 00.01 E");
+		ok &= testLongitude(DMS, 0, -1.0e-15, "0 00 00 E");
+
+		ok &= testLatitude(DECIMAL, 7, -1.0e-12, "0.0000000");
+		ok &= testLatitude(DECIMAL, 7, -Math.toRadians(0.00000006),
+				"-0.0000001");
+		ok &= testLongitude(DECIMAL, 7, -Math.toRadians(0.124808),
+				"-0.1248080");
+		ok &= testLongitude(DECIMAL, 0, Math.toRadians(179.5), "180");
+
+		ok &= testDecimal(2.675, 2, "2.68");
+		ok &= testDecimal(-1.5e-4, 4, "-0.0002");
+		ok &= testDecimal(0.125, 2, "0.13");
+		ok &= testDecimal(-0.004, 2, "0.00");
+		ok &= testDecimal(Double.NaN, 3, "NaN");
+		ok &= testDecimal(Double.NEGATIVE_INFINITY, 3, "-Infinity");
+		ok &= testDecimal(1.0e20, 2, "1.0E20");
+
+		ok &= testDecimalRounding();
+		ok &= testDegreesMinutesSeconds();
+		ok &= testRejection();
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static double dms(int degrees, int minutes, double seconds) {
+		return Math.toRadians(degrees + minutes / 60.0 + seconds / 3600.0);
+	}
+
+	static boolean testLatitude(int style, int decimals, double latitude,
+			String expected) throws IOException {
+		CoordinateFormat format = new CoordinateFormat(style, decimals);
+
+		byte[] buf = new byte[CoordinateFormat.MAX_LENGTH + 3];
+		int end = format.formatLatitude(latitude, buf, 3);
+
+		StringBuffer sb = new StringBuffer();
+		format.formatLatitude(latitude, sb);
+
+		return check("Latitude " + latitude, new String(buf, 3, end - 3,
+				"US-ASCII"), sb.toString(), expected);
+	}
+
+	static boolean testLongitude(int style, int decimals, double longitude,
+			String expected) throws IOException {
+		CoordinateFormat format = new CoordinateFormat(style, decimals);
+
+		byte[] buf = new byte[CoordinateFormat.MAX_LENGTH + 3];
+		int end = format.formatLongitude(longitude, buf, 3);
+
+		StringBuffer sb = new StringBuffer();
+		format.formatLongitude(longitude, sb);
+
+		return check("Longitude " + longitude, new String(buf, 3, end - 3,
+				"US-ASCII"), sb.toString(), expected);
+	}
+
+	static boolean testDecimal(double value, int decimals, String expected)
+			throws IOException {
+		byte[] buf = new byte[CoordinateFormat.MAX_LENGTH];
+		int end = CoordinateFormat.formatDecimal(value, decimals, buf, 0);
+
+		StringBuffer sb = new StringBuffer();
+		CoordinateFormat.formatDecimal(value, decimals, sb);
+
+		return check("Value " + value + " to " + decimals + " decimals",
+				new String(buf, 0, end, "US-ASCII"), sb.toString(), expected);
+	}
+
+	static boolean check(String name, String bytes, String appended,
+			String expected) {
+		boolean ok = bytes.equals(expected) && appended.equals(expected);
+
+		System.out.println(name + ": \"" + bytes + "\""
+				+ (appended.equals(bytes) ? "" : ", appended \"" + appended
+						+ "\"") + (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	/*
+	 * Compare formatDecimal with String.format, which writes a minus sign
+	 * before a negative value which rounds to zero.
+	 */
+	static boolean testDecimalRounding() throws IOException {
+		Random rand = new Random(11235L);
+
+		byte[] buf = new byte[CoordinateFormat.MAX_LENGTH];
+		StringBuffer sb = new StringBuffer();
+
+		int errors = 0;
+
+		for (int i = 0; i < NVALUES; i++) {
+			int decimals = rand.nextInt(CoordinateFormat.MAX_DECIMALS + 1);
+
+			double value = (2.0 * rand.nextDouble() - 1.0)
+					* Math.pow(10.0, rand.nextInt(9) - 4);
+
+			/*
+			 * Make every other value a decimal fraction which lies halfway
+			 * between two results.
+			 */
+			if ((i & 1) != 0) {
+				double scale = Math.pow(10.0, decimals + 1);
+				value = (10.0 * Math.floor(value * scale / 10.0) + 5.0)
+						/ scale;
+			}
+
+			String expected = String.format(Locale.ROOT, "%." + decimals
+					+ "f", value);
+
+			if (expected.equals("-" + zero(decimals)))
+				expected = expected.substring(1);
+
+			int end = CoordinateFormat.formatDecimal(value, decimals, buf, 0);
+
+			sb.setLength(0);
+			CoordinateFormat.formatDecimal(value, decimals, sb);
+
+			String bytes = new String(buf, 0, end, "US-ASCII");
+
+			if (!bytes.equals(expected) || !sb.toString().equals(expected)) {
+				if (errors < 10)
+					System.out.println(value + " to " + decimals
+							+ " decimals: \"" + bytes + "\", expected \""
+							+ expected + "\"");
+				errors++;
+			}
+		}
+
+		System.out.println(NVALUES + " values compared with String.format: "
+				+ errors + " errors");
+
+		return errors == 0;
+	}
+
+	static String zero(int decimals) {
+		StringBuffer sb = new StringBuffer("0");
+
+		if (decimals > 0)
+			sb.append('.');
+
+		for (int i = 0; i < decimals; i++)
+			sb.append('0');
+
+		return sb.toString();
+	}
+
+	/*
+	 * Read back random angles in degrees, minutes and seconds and check that
+	 * they are within half a unit in the last place of the exact value.
+	 */
+	static boolean testDegreesMinutesSeconds() throws IOException {
+		Random rand = new Random(81321L);
+
+		StringBuffer sb = new StringBuffer();
+
+		int errors = 0;
+
+		for (int i = 0; i < NVALUES; i++) {
+			int decimals = rand.nextInt(5);
+
+			CoordinateFormat format = new CoordinateFormat(DMS, decimals);
+
+			double longitude = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+
+			sb.setLength(0);
+			format.formatLongitude(longitude, sb);
+
+			String[] fields = sb.toString().split(" ");
+
+			int degrees = Integer.parseInt(fields[0]);
+			int minutes = Integer.parseInt(fields[1]);
+			double seconds = Double.parseDouble(fields[2]);
+			double sign = fields[3].equals("W") ? -1.0 : 1.0;
+
+			double value = sign
+					* (3600.0 * degrees + 60.0 * minutes + seconds);
+			double exact = 3600.0 * Math.toDegrees(longitude);
+
+			if (fields[1].length() != 2 || minutes > 59 || seconds >= 60.0
+					|| Math.abs(value - exact) > 0.5000001 * Math.pow(10.0,
+							-decimals)) {
+				if (errors < 10)
+					System.out.println(Math.toDegrees(longitude) + ": \""
+							+ sb + "\"");
+				errors++;
+			}
+		}
+
+		System.out.println(NVALUES + " random longitudes read back: "
+				+ errors + " errors");
+
+		return errors == 0;
+	}
+
+	static boolean testRejection() {
+		int errors = 0;
+
+		int[][] arguments = { { DMS, -1 },
+				{ DMS, CoordinateFormat.MAX_DECIMALS + 1 }, { DECIMAL, -1 },
+				{ 2, 3 }, { -1, 3 } };
+
+		for (int i = 0; i < arguments.length; i++) {
+			try {
+				new CoordinateFormat(arguments[i][0], arguments[i][1]);
+				System.out.println("Style " + arguments[i][0] + " with "
+						+ arguments[i][1] + " decimals was accepted");
+				errors++;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+
+		try {
+			CoordinateFormat.formatDecimal(1.0,
+					CoordinateFormat.MAX_DECIMALS + 1, new StringBuffer());
+			System.out.println("Too many decimals were accepted");
+			errors++;
+		} catch (IllegalArgumentException iae) {
+		} catch (IOException ioe) {
+			errors++;
+		}
+
+		System.out.println("Invalid arguments: " + errors + " accepted");
+
+		return errors == 0;
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Builds distance matrices between random sets of points with small tiles
+ * and a small mapping window, so that the matrix spans many windows and
+ * tiles which do not divide it evenly, and checks every element against
+ * <CODE>BatchGeodesic.calculateDistances</CODE>. Each algorithm is run on
+ * the common <CODE>ForkJoinPool</CODE> and on a fixed thread pool, and in
+ * both formats.
+ */
+public class TestDistanceMatrix {
+	static final int NROWS = 300, NCOLUMNS = 517;
+
+	static final int TILE_SIZE = 37;
+	static final int WINDOW_SIZE = 100000;
+
+	static public void main(String args[]) throws IOException {
+		Random rand = new Random(2468L);
+
+		double[] lonA = new double[NROWS];
+		double[] latA = new double[NROWS];
+		double[] lonB = new double[NCOLUMNS];
+		double[] latB = new double[NCOLUMNS];
+
+		for (int i = 0; i < NROWS; i++) {
+			lonA[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latA[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+		}
+
+		for (int j = 0; j < NCOLUMNS; j++) {
+			lonB[j] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latB[j] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+		}
+
+		/*
+		 * Make one destination antipodal to one origin, so that the Vincenty
+		 * matrix has a failure to report.
+		 */
+		lonB[5] = lonA[7] + Math.PI;
+		latB[5] = -latA[7];
+
+		File file = File.createTempFile("matrix", ".bin");
+		file.deleteOnExit();
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+
+		boolean ok = true;
+
+		try {
+			int[] algorithms = { EllipsoidalArc.VINCENTY,
+					EllipsoidalArc.KARNEY };
+
+			for (int k = 0; k < algorithms.length; k++) {
+				BatchGeodesic geodesic = new BatchGeodesic(Ellipsoid.WGS84,
+						algorithms[k]);
+
+				GeodesicDistanceMatrix[] matrices = {
+						new GeodesicDistanceMatrix(geodesic, ForkJoinPool
+								.commonPool(), TILE_SIZE, WINDOW_SIZE),
+						new GeodesicDistanceMatrix(geodesic, pool, TILE_SIZE,
+								WINDOW_SIZE) };
+
+				for (int m = 0; m < matrices.length; m++) {
+					for (int format = GeodesicDistanceMatrix.FLOAT; format <= GeodesicDistanceMatrix.DOUBLE; format++) {
+						String name = (k == 0 ? "Vincenty" : "Karney")
+								+ (m == 0 ? ", fork/join" : ", thread pool")
+								+ (format == GeodesicDistanceMatrix.FLOAT ? ", float"
+										: ", double");
+
+						long failures = matrices[m].calculate(lonA, latA, 0,
+								NROWS, lonB, latB, 0, NCOLUMNS, file, format);
+
+						ok &= check(name, geodesic, lonA, latA, lonB, latB,
+								file, format, failures);
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean check(String name, BatchGeodesic geodesic, double[] lonA,
+			double[] latA, double[] lonB, double[] latB, File file,
+			int format, long failures) throws IOException {
+		int elementSize = format == GeodesicDistanceMatrix.FLOAT ? 4 : 8;
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			if (raf.length() != (long) NROWS * NCOLUMNS * elementSize) {
+				System.out.println(name + ": file has length " + raf.length()
+						+ " -- WRONG");
+				return false;
+			}
+
+			MappedByteBuffer map = raf.getChannel().map(
+					FileChannel.MapMode.READ_ONLY, 0, raf.length());
+
+			map.order(ByteOrder.LITTLE_ENDIAN);
+
+			DoubleBuffer doubles = map.asDoubleBuffer();
+			FloatBuffer floats = map.asFloatBuffer();
+
+			double[] rowLon = new double[NCOLUMNS];
+			double[] rowLat = new double[NCOLUMNS];
+			double[] expected = new double[NCOLUMNS];
+
+			long expectedFailures = 0;
+			int mismatches = 0;
+
+			for (int i = 0; i < NROWS; i++) {
+				Arrays.fill(rowLon, lonA[i]);
+				Arrays.fill(rowLat, latA[i]);
+
+				expectedFailures += geodesic.calculateDistances(rowLon,
+						rowLat, lonB, latB, 0, NCOLUMNS, expected, null, null);
+
+				for (int j = 0; j < NCOLUMNS; j++) {
+					int index = i * NCOLUMNS + j;
+
+					boolean same = format == GeodesicDistanceMatrix.FLOAT ? Float
+							.compare(floats.get(index), (float) expected[j]) == 0
+							: Double.compare(doubles.get(index), expected[j]) == 0;
+
+					if (!same)
+						mismatches++;
+				}
+			}
+
+			boolean ok = mismatches == 0 && failures == expectedFailures;
+
+			System.out.println(name + ": " + failures + " failures, "
+					+ mismatches + " mismatches" + (ok ? "" : " -- WRONG"));
+
+			return ok;
+		} finally {
+			raf.close();
+		}
+	}
+}
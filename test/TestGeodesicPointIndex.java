@@ -0,0 +1,150 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the geodesic nearest-neighbour search of
+ * <CODE>GeodesicPointIndex</CODE> against an exhaustive search with
+ * <CODE>BatchGeodesic</CODE>, for points spread over the globe together
+ * with a dense cluster, and reports how many geodesic problems each query
+ * needed.
+ */
+public class TestGeodesicPointIndex {
+	static final int NPOINTS = 10000;
+	static final int NQUERIES = 200;
+	static final int K = 32;
+
+	static public void main(String args[]) {
+		boolean ok = true;
+
+		ok &= runTest("Vincenty", new BatchGeodesic(Ellipsoid.WGS84));
+		ok &= runTest("Karney", new BatchGeodesic(Ellipsoid.WGS84,
+				EllipsoidalArc.KARNEY));
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean runTest(String name, BatchGeodesic geodesic) {
+		Random rand = new Random(24680L);
+
+		double[] longitudes = new double[NPOINTS];
+		double[] latitudes = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			if (i % 2 == 0) {
+				longitudes[i] = Math.toRadians(-6.0 + 8.0 * rand.nextDouble());
+				latitudes[i] = Math.toRadians(50.0 + 8.0 * rand.nextDouble());
+			} else {
+				longitudes[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+				latitudes[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+			}
+		}
+
+		latitudes[17] = Double.NaN;
+
+		GeodesicPointIndex index = new GeodesicPointIndex(geodesic,
+				longitudes, latitudes, 0, NPOINTS);
+
+		double[] queryLongitudes = new double[NQUERIES];
+		double[] queryLatitudes = new double[NQUERIES];
+
+		for (int q = 0; q < NQUERIES; q++) {
+			if (q % 2 == 0) {
+				queryLongitudes[q] = Math.toRadians(-6.0 + 8.0
+						* rand.nextDouble());
+				queryLatitudes[q] = Math.toRadians(50.0 + 8.0 * rand
+						.nextDouble());
+			} else {
+				queryLongitudes[q] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+				queryLatitudes[q] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+			}
+		}
+
+		int[] ids = new int[NQUERIES * K];
+		double[] distances = new double[NQUERIES * K];
+		int[] evaluations = new int[NQUERIES];
+
+		long total = index.nearest(queryLongitudes, queryLatitudes, 0,
+				NQUERIES, K, ids, distances, evaluations);
+
+		double[] lonA = new double[NPOINTS];
+		double[] latA = new double[NPOINTS];
+		double[] all = new double[NPOINTS];
+
+		int errors = 0, maxEvaluations = 0;
+
+		int[] single = new int[K];
+		double[] singleDistances = new double[K];
+
+		for (int q = 0; q < NQUERIES; q++) {
+			Arrays.fill(lonA, queryLongitudes[q]);
+			Arrays.fill(latA, queryLatitudes[q]);
+
+			geodesic.calculateDistances(lonA, latA, longitudes, latitudes, 0,
+					NPOINTS, all, null, null);
+
+			Arrays.sort(all);
+
+			for (int j = 0; j < K; j++) {
+				int id = ids[q * K + j];
+
+				if (distances[q * K + j] != all[j]
+						|| Double.isNaN(latitudes[id]))
+					errors++;
+			}
+
+			int n = index.nearest(queryLongitudes[q], queryLatitudes[q], K,
+					single, singleDistances, 0);
+
+			for (int j = 0; j < K; j++)
+				if (single[j] != ids[q * K + j]
+						|| singleDistances[j] != distances[q * K + j])
+					errors++;
+
+			if (n != evaluations[q])
+				errors++;
+
+			maxEvaluations = Math.max(maxEvaluations, evaluations[q]);
+		}
+
+		System.out.println(name + ": " + NQUERIES + " queries for " + K
+				+ " of " + index.size() + " points, " + errors
+				+ " errors, mean " + (double) total / NQUERIES
+				+ " geodesic problems per query, maximum " + maxEvaluations);
+
+		return errors == 0 && index.size() == NPOINTS - 1;
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the radius and nearest-neighbour queries of
+ * <CODE>GridPointIndex</CODE> against an exhaustive search, for points
+ * spread over the OSGB grid together with a dense cluster, duplicated
+ * points and points with missing coordinates.
+ */
+public class TestGridPointIndex {
+	static final int NPOINTS = 50000;
+	static final int NQUERIES = 2000;
+	static final int K = 10;
+
+	static final double[] RADII = { 0.0, 50.0, 500.0, 5000.0 };
+
+	static public void main(String args[]) {
+		Random rand = new Random(1357L);
+
+		double[] eastings = new double[NPOINTS];
+		double[] northings = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			if (i % 5 == 0) {
+				eastings[i] = 530000.0 + 2000.0 * rand.nextDouble();
+				northings[i] = 180000.0 + 2000.0 * rand.nextDouble();
+			} else {
+				eastings[i] = 700000.0 * rand.nextDouble();
+				northings[i] = 1250000.0 * rand.nextDouble();
+			}
+		}
+
+		for (int i = 0; i < NPOINTS / 100; i++) {
+			eastings[i + 1] = eastings[i];
+			northings[i + 1] = northings[i];
+		}
+
+		eastings[NPOINTS - 1] = Double.NaN;
+		northings[NPOINTS - 2] = Double.NaN;
+
+		int offset = 3;
+
+		GridPointIndex index = new GridPointIndex(eastings, northings, offset,
+				NPOINTS - offset);
+
+		boolean ok = index.size() == NPOINTS - offset - 2;
+
+		if (!ok)
+			System.out.println("Index holds " + index.size() + " points");
+
+		int[] found = new int[NPOINTS];
+		int[] expected = new int[NPOINTS];
+		double[] distances = new double[K];
+		int[] ids = new int[K];
+		double[] all = new double[NPOINTS];
+
+		int radiusErrors = 0, nearestErrors = 0;
+		long totalFound = 0;
+
+		for (int q = 0; q < NQUERIES; q++) {
+			double E, N;
+
+			if (q % 4 == 0) {
+				int i = offset + rand.nextInt(NPOINTS - offset - 2);
+				E = eastings[i];
+				N = northings[i];
+			} else if (q % 4 == 1) {
+				E = 530000.0 + 2000.0 * rand.nextDouble();
+				N = 180000.0 + 2000.0 * rand.nextDouble();
+			} else {
+				E = 800000.0 * rand.nextDouble() - 50000.0;
+				N = 1350000.0 * rand.nextDouble() - 50000.0;
+			}
+
+			int n = 0;
+
+			for (int i = offset; i < NPOINTS; i++) {
+				double dE = eastings[i] - E, dN = northings[i] - N;
+				all[n++] = Math.sqrt(dE * dE + dN * dN);
+			}
+
+			for (int r = 0; r < RADII.length; r++) {
+				double radius = RADII[r];
+				int m = 0;
+
+				for (int i = offset; i < NPOINTS; i++) {
+					double dE = eastings[i] - E, dN = northings[i] - N;
+
+					if (dE * dE + dN * dN <= radius * radius)
+						expected[m++] = i;
+				}
+
+				int count = index.findWithin(E, N, radius, found, 0,
+						found.length);
+
+				Arrays.sort(found, 0, count);
+
+				if (count != m
+						|| !Arrays.equals(Arrays.copyOf(found, count), Arrays
+								.copyOf(expected, m))
+						|| index.countWithin(E, N, radius) != m)
+					radiusErrors++;
+
+				if (m > 1 && index.findWithin(E, N, radius, found, 0, 1) != m)
+					radiusErrors++;
+
+				totalFound += m;
+			}
+
+			/*
+			 * Ties make the identifiers of the nearest points ambiguous, so
+			 * compare the distances, and check that each identifier is at the
+			 * distance reported for it.
+			 */
+			Arrays.sort(all, 0, n);
+
+			int count = index.nearest(E, N, K, ids, distances, 0);
+
+			if (count != K)
+				nearestErrors++;
+
+			for (int j = 0; j < count; j++) {
+				double dE = eastings[ids[j]] - E, dN = northings[ids[j]] - N;
+
+				if (distances[j] != all[j]
+						|| distances[j] != Math.sqrt(dE * dE + dN * dN))
+					nearestErrors++;
+			}
+
+			int nearest = index.nearest(E, N);
+			double dE = eastings[nearest] - E, dN = northings[nearest] - N;
+
+			if (Math.sqrt(dE * dE + dN * dN) != all[0])
+				nearestErrors++;
+		}
+
+		System.out.println(NQUERIES + " queries: " + totalFound
+				+ " points found within radius, " + radiusErrors
+				+ " radius errors, " + nearestErrors + " nearest errors");
+
+		ok &= radiusErrors == 0 && nearestErrors == 0;
+
+		ok &= testProjection();
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean testProjection() {
+		OSGB osgb = new OSGB();
+		Random rand = new Random(97531L);
+
+		int n = 10000;
+
+		double[] longitudes = new double[n];
+		double[] latitudes = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			longitudes[i] = Math.toRadians(-6.0 + 8.0 * rand.nextDouble());
+			latitudes[i] = Math.toRadians(50.0 + 8.0 * rand.nextDouble());
+		}
+
+		double[] eastings = new double[n];
+		double[] northings = new double[n];
+
+		osgb.LatitudeAndLongitudeToGrid(longitudes, latitudes, 0, n,
+				eastings, northings);
+
+		GridPointIndex index = new GridPointIndex(osgb, longitudes,
+				latitudes, 0, n);
+
+		int errors = 0;
+
+		for (int i = 0; i < n; i++)
+			if (index.nearest(eastings[i], northings[i]) != i)
+				errors++;
+
+		System.out.println(n + " projected points: " + errors + " errors");
+
+		return errors == 0;
+	}
+}
@@ -0,0 +1,312 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Formats grid references for random points on the British National Grid and
+ * the Irish Grid with every number of digits, and parses them back in each of
+ * the accepted layouts, from both strings and byte arrays. Also checks known
+ * references, including those in the 500km squares O and J, and checks that
+ * invalid references and points outside the grid are rejected.
+ */
+public class TestGridReferenceFormat {
+	static final int NPOINTS = 20000;
+
+	static final double UNCHANGED = -999.0;
+
+	static final String[] OSGB_INVALID = { "", " ", "T", "TQ", "TQ ",
+			"TQ 3", "TQ 301", "TQ 30123 8045", "TQ 3 80", "TQ 301238045",
+			"TQ 30123 80456 1", "TQ 301234 804567", "TQ 30123804567",
+			"TQ 3012380456789", "TQ 30a23 80456", "TQ -3012 8045",
+			"TQ 30.1 80.4", "IQ 30 80", "TI 30 80", "ZZ 30 80", "AA 30 80",
+			"UA 30 80", "Q 30 80", "TQQ 30 80", "12 34", "TQ 30; 80" };
+
+	static final String[] OSNI_INVALID = { "", "J", "J ", "J 3", "J 357 27",
+			"J 3572761", "I 357 276", "TJ 357 276", "j3 57 276",
+			"J 357 276 1", "J 357276 357276" };
+
+	static public void main(String args[]) throws IOException {
+		OSGB osgb = new OSGB();
+		OSNI osni = new OSNI();
+
+		GridReferenceFormat osgbFormat = new GridReferenceFormat(osgb);
+		GridReferenceFormat osniFormat = new GridReferenceFormat(osni);
+
+		boolean ok = true;
+
+		ok &= testRoundTrip("OSGB", osgbFormat, 1000000.0, 1500000.0);
+		ok &= testRoundTrip("OSNI", osniFormat, 500000.0, 500000.0);
+
+		ok &= testParse(osgbFormat, "TQ 30123 80456", 5, 530123.0, 180456.0);
+		ok &= testParse(osgbFormat, "tq3012380456", 5, 530123.0, 180456.0);
+		ok &= testParse(osgbFormat, "\tTQ,301,804 ", 3, 530100.0, 180400.0);
+		ok &= testParse(osgbFormat, "SV 0 0", 1, 0.0, 0.0);
+		ok &= testParse(osgbFormat, "SV00", 1, 0.0, 0.0);
+		ok &= testParse(osgbFormat, "OV 12345 67890", 5, 512345.0, 567890.0);
+		ok &= testParse(osgbFormat, "ov 1 6", 1, 510000.0, 560000.0);
+		ok &= testParse(osgbFormat, "JV 4 2", 1, 540000.0, 1020000.0);
+		ok &= testParse(osgbFormat, "JE 9999 9999", 4, 999990.0, 1499990.0);
+		ok &= testParse(osgbFormat, "HP 40 12", 2, 440000.0, 1212000.0);
+
+		ok &= testParse(osniFormat, "J 357 276", 3, 335700.0, 327600.0);
+		ok &= testParse(osniFormat, "j357276", 3, 335700.0, 327600.0);
+		ok &= testParse(osniFormat, " J, 35788 , 27685\t", 5, 335788.0,
+				327685.0);
+		ok &= testParse(osniFormat, "V 0 0", 1, 0.0, 0.0);
+		ok &= testParse(osniFormat, "E 99999 99999", 5, 499999.0, 499999.0);
+
+		ok &= testFormat(osgbFormat, 600000.0, 1100000.0, 5,
+				"JR 00000 00000");
+		ok &= testFormat(osgbFormat, 512345.6, 567890.1, 4, "OV 1234 6789");
+		ok &= testFormat(osgbFormat, 530123.9, 180456.9, 5, "TQ 30123 80456");
+		ok &= testFormat(osniFormat, 335788.01, 327685.85, 3, "J 357 276");
+
+		int errors = 0;
+
+		for (int i = 0; i < OSGB_INVALID.length; i++)
+			if (!testInvalid(osgbFormat, OSGB_INVALID[i]))
+				errors++;
+
+		for (int i = 0; i < OSNI_INVALID.length; i++)
+			if (!testInvalid(osniFormat, OSNI_INVALID[i]))
+				errors++;
+
+		System.out.println((OSGB_INVALID.length + OSNI_INVALID.length)
+				+ " invalid references, " + errors + " accepted");
+
+		ok &= errors == 0;
+
+		ok &= testFormatRejection("OSGB", osgbFormat, 1000000.0, 1500000.0);
+		ok &= testFormatRejection("OSNI", osniFormat, 500000.0, 500000.0);
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean testRoundTrip(String name, GridReferenceFormat format,
+			double maxE, double maxN) throws IOException {
+		Random rand = new Random(24680L);
+
+		int errors = 0;
+
+		double[] eastings = new double[1];
+		double[] northings = new double[1];
+		byte[] buf = new byte[GridReferenceFormat.MAX_LENGTH + 4];
+		StringBuffer sb = new StringBuffer();
+
+		for (int i = 0; i < NPOINTS; i++) {
+			double E = maxE * rand.nextDouble();
+			double N = maxN * rand.nextDouble();
+
+			for (int digits = 1; digits <= 5; digits++) {
+				String reference = format.format(E, N, digits);
+
+				/*
+				 * The byte array function writes at an offset, and the
+				 * Appendable function appends to existing text.
+				 */
+				int end = format.format(E, N, digits, buf, 2);
+
+				if (!reference.equals(new String(buf, 2, end - 2, "US-ASCII")))
+					errors++;
+
+				sb.setLength(0);
+				sb.append("x");
+				format.format(E, N, digits, sb);
+
+				if (!reference.equals(sb.substring(1)))
+					errors++;
+
+				double scale = Math.pow(10.0, 5 - digits);
+				double expectedE = scale * Math.floor(E / scale);
+				double expectedN = scale * Math.floor(N / scale);
+
+				String[] layouts = layouts(reference);
+
+				for (int k = 0; k < layouts.length; k++) {
+					String s = layouts[k];
+
+					eastings[0] = northings[0] = UNCHANGED;
+
+					if (format.parse(s, 0, s.length(), eastings, northings,
+							0) != digits
+							|| eastings[0] != expectedE
+							|| northings[0] != expectedN) {
+						if (errors < 10)
+							System.out.println("\"" + s + "\" for (" + E
+									+ ", " + N + ") parsed as ("
+									+ eastings[0] + ", " + northings[0] + ")");
+						errors++;
+					}
+
+					/*
+					 * Parse the bytes from the middle of a larger array, with
+					 * text on either side which is not part of the range.
+					 */
+					byte[] b = ("QQ" + s + "99").getBytes("US-ASCII");
+
+					eastings[0] = northings[0] = UNCHANGED;
+
+					if (format.parse(b, 2, b.length - 2, eastings, northings,
+							0) != digits
+							|| eastings[0] != expectedE
+							|| northings[0] != expectedN)
+						errors++;
+				}
+			}
+		}
+
+		System.out.println(name + ": " + NPOINTS
+				+ " points formatted and parsed with 1 to 5 digits, " + errors
+				+ " errors");
+
+		return errors == 0;
+	}
+
+	/*
+	 * Rewrite a reference of the form "TQ 30123 80456" in the other layouts
+	 * which the parser accepts.
+	 */
+	static String[] layouts(String reference) {
+		int first = reference.indexOf(' ');
+		int second = reference.lastIndexOf(' ');
+
+		String letters = reference.substring(0, first);
+		String e = reference.substring(first + 1, second);
+		String n = reference.substring(second + 1);
+
+		return new String[] { reference, letters + e + n,
+				letters + " " + e + n, letters + e + " " + n,
+				letters.toLowerCase() + " " + e + " " + n,
+				letters + "," + e + "," + n, letters + "\t" + e + "\t" + n,
+				"  " + letters + " ,\t" + e + ", " + n + " \t",
+				letters.substring(0, 1).toLowerCase() + letters.substring(1)
+						+ " " + e + " " + n };
+	}
+
+	static boolean testParse(GridReferenceFormat format, String s,
+			int expectedDigits, double expectedE, double expectedN)
+			throws IOException {
+		double[] eastings = { UNCHANGED, UNCHANGED };
+		double[] northings = { UNCHANGED, UNCHANGED };
+
+		int digits = format.parse(s, 0, s.length(), eastings, northings, 1);
+
+		byte[] b = s.getBytes("US-ASCII");
+
+		double[] bytesE = new double[1];
+		double[] bytesN = new double[1];
+
+		int bytesDigits = format.parse(b, 0, b.length, bytesE, bytesN, 0);
+
+		boolean ok = digits == expectedDigits && eastings[1] == expectedE
+				&& northings[1] == expectedN && eastings[0] == UNCHANGED
+				&& bytesDigits == expectedDigits && bytesE[0] == expectedE
+				&& bytesN[0] == expectedN;
+
+		System.out.println("\"" + s + "\": " + digits + " digits, ("
+				+ eastings[1] + ", " + northings[1] + ")"
+				+ (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	static boolean testFormat(GridReferenceFormat format, double E, double N,
+			int digits, String expected) {
+		String reference = format.format(E, N, digits);
+
+		boolean ok = reference.equals(expected);
+
+		System.out.println("(" + E + ", " + N + ") with " + digits
+				+ " digits: " + reference + (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	static boolean testInvalid(GridReferenceFormat format, String s)
+			throws IOException {
+		double[] eastings = { UNCHANGED };
+		double[] northings = { UNCHANGED };
+
+		byte[] b = s.getBytes("US-ASCII");
+
+		boolean ok = format
+				.parse(s, 0, s.length(), eastings, northings, 0) == -1
+				&& format.parse(b, 0, b.length, eastings, northings, 0) == -1
+				&& eastings[0] == UNCHANGED && northings[0] == UNCHANGED;
+
+		if (!ok)
+			System.out.println("\"" + s + "\" was accepted as ("
+					+ eastings[0] + ", " + northings[0] + ") *** ERROR ***");
+
+		return ok;
+	}
+
+	static boolean testFormatRejection(String name,
+			GridReferenceFormat format, double maxE, double maxN) {
+		double[][] points = { { -0.001, 0.0 }, { 0.0, -0.001 },
+				{ maxE, 0.0 }, { 0.0, maxN }, { -150000.0, 250000.0 },
+				{ Double.NaN, 0.0 }, { 0.0, Double.POSITIVE_INFINITY } };
+
+		int errors = 0;
+
+		for (int i = 0; i < points.length; i++) {
+			try {
+				String s = format.format(points[i][0], points[i][1], 3);
+				System.out.println(name + " point (" + points[i][0] + ", "
+						+ points[i][1] + ") was formatted as " + s);
+				errors++;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+
+		int[] digits = { 0, 6, -1 };
+
+		for (int i = 0; i < digits.length; i++) {
+			try {
+				format.format(1000.0, 1000.0, digits[i]);
+				System.out.println(name + " accepted " + digits[i]
+						+ " digits");
+				errors++;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+
+		System.out.println(name + ": " + errors
+				+ " errors in rejecting invalid points and digits");
+
+		return errors == 0;
+	}
+}
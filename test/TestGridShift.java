@@ -0,0 +1,136 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.io.*;
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Writes a small shift grid in the OSTN15 text format, converts it with
+ * <CODE>GridShiftConvert</CODE>, and checks the interpolated shifts. The
+ * shifts in the test grid are a bilinear function of position, which
+ * bilinear interpolation must reproduce to within the precision of the
+ * stored values.
+ */
+public class TestGridShift {
+	static final int COLUMNS = 71, ROWS = 126;
+	static final double SPACING = 10000.0;
+
+	static final int NPOINTS = 100000;
+
+	static final double TOLERANCE = 1.0e-4;
+
+	static double eastShift(double E, double N) {
+		return 86.0 + 1.0e-5 * E - 2.0e-6 * N + 1.0e-11 * E * N;
+	}
+
+	static double northShift(double E, double N) {
+		return -79.0 - 3.0e-6 * E + 4.0e-5 * N - 2.0e-11 * E * N;
+	}
+
+	static public void main(String args[]) throws IOException {
+		File text = File.createTempFile("shift", ".txt");
+		File binary = File.createTempFile("shift", ".bin");
+
+		text.deleteOnExit();
+		binary.deleteOnExit();
+
+		PrintWriter pw = new PrintWriter(new FileWriter(text));
+
+		pw.println("Point_ID,ETRS89_Easting,ETRS89_Northing,ETRS89_OSGB36_EShift,"
+				+ "ETRS89_OSGB36_NShift,ETRS89_ODN_HeightShift,Height_Datum_Flag");
+
+		for (int row = 0; row < ROWS; row++)
+			for (int column = 0; column < COLUMNS; column++) {
+				double E = column * SPACING, N = row * SPACING;
+
+				pw.println((row * COLUMNS + column + 1) + "," + E + "," + N
+						+ "," + eastShift(E, N) + "," + northShift(E, N)
+						+ ",45.0,1");
+			}
+
+		pw.close();
+
+		GridShiftConvert.convert(text, binary);
+
+		GridShiftFile grid = new GridShiftFile(binary);
+
+		Random rand = new Random(97531L);
+
+		double[] eastings = new double[NPOINTS];
+		double[] northings = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			eastings[i] = 700000.0 * rand.nextDouble();
+			northings[i] = 1250000.0 * rand.nextDouble();
+		}
+
+		eastings[0] = -1.0;
+		northings[1] = 1250001.0;
+		eastings[2] = 700000.0;
+		northings[2] = 1250000.0;
+
+		double[] shiftedEastings = new double[NPOINTS];
+		double[] shiftedNorthings = new double[NPOINTS];
+
+		int outside = grid.ApplyShift(eastings, northings, 0, NPOINTS,
+				shiftedEastings, shiftedNorthings);
+
+		double maxError = 0.0;
+
+		for (int i = 2; i < NPOINTS; i++) {
+			double E = eastings[i], N = northings[i];
+
+			maxError = Math.max(maxError, Math.abs(shiftedEastings[i] - E
+					- eastShift(E, N)));
+			maxError = Math.max(maxError, Math.abs(shiftedNorthings[i] - N
+					- northShift(E, N)));
+		}
+
+		System.out.println(grid.getColumns() + " by " + grid.getRows()
+				+ " nodes at " + grid.getSpacing() + " m spacing, "
+				+ outside + " points outside, maximum error " + maxError
+				+ " metres");
+
+		boolean ok = outside == 2 && Double.isNaN(shiftedEastings[0])
+				&& Double.isNaN(shiftedNorthings[1]) && maxError < TOLERANCE
+				&& grid.getColumns() == COLUMNS && grid.getRows() == ROWS;
+
+		grid.ApplyShift(eastings, northings, 0, NPOINTS, eastings, northings);
+
+		for (int i = 0; i < NPOINTS; i++)
+			ok &= Double.compare(eastings[i], shiftedEastings[i]) == 0
+					&& Double.compare(northings[i], shiftedNorthings[i]) == 0;
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Converts every 100km square of the British National Grid and the Irish
+ * Grid to its letters and back again, checks that every pair of letters
+ * which is accepted identifies a square which converts back to the same
+ * letters, and checks that points outside each grid are rejected.
+ */
+public class TestGridSquare {
+	/*
+	 * Positions within each square, in metres from its south-west corner,
+	 * including both corners.
+	 */
+	static final double[] WITHIN = { 0.0, 0.001, 50000.0, 99999.999 };
+
+	static final double[][] OSGB_OUTSIDE = { { -150000.0, 250000.0 },
+			{ -0.001, 0.0 }, { 0.0, -0.001 }, { -600000.0, -700000.0 },
+			{ 1000000.0, 0.0 }, { 0.0, 1500000.0 }, { 1200000.0, 300000.0 },
+			{ Double.NaN, 0.0 }, { 0.0, Double.NaN },
+			{ Double.POSITIVE_INFINITY, 0.0 }, { 1.0e12, 1.0e12 } };
+
+	static final double[][] OSNI_OUTSIDE = { { -150000.0, 250000.0 },
+			{ -0.001, 0.0 }, { 0.0, -0.001 }, { -600000.0, -700000.0 },
+			{ 500000.0, 0.0 }, { 0.0, 500000.0 }, { Double.NaN, 0.0 },
+			{ 0.0, Double.NEGATIVE_INFINITY }, { 1.0e12, 1.0e12 } };
+
+	static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+			+ "abcdefghijklmnopqrstuvwxyz";
+
+	static public void main(String args[]) {
+		boolean ok = testOSGB(new OSGB()) & testOSNI(new OSNI());
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean testOSGB(OSGB osgb) {
+		int errors = 0, squares = 0, valid = 0;
+
+		char[] prefix = new char[2];
+
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 15; y++) {
+				squares++;
+
+				char[] expected = null;
+
+				for (int i = 0; i < WITHIN.length; i++) {
+					for (int j = 0; j < WITHIN.length; j++) {
+						double E = 100000.0 * x + WITHIN[i];
+						double N = 100000.0 * y + WITHIN[j];
+
+						osgb.GridToGridSquare(E, N, prefix, 0);
+
+						if (expected == null)
+							expected = prefix.clone();
+						else if (prefix[0] != expected[0]
+								|| prefix[1] != expected[1])
+							errors++;
+
+						char[] other = osgb.GridToGridSquare(new DPoint(E, N));
+
+						if (other[0] != prefix[0] || other[1] != prefix[1])
+							errors++;
+					}
+				}
+
+				DPoint offset = osgb.GridSquareToOffset(expected[0],
+						expected[1]);
+
+				long packed = osgb.GridSquareToPackedOffset(expected[0],
+						expected[1]);
+
+				if (offset.getX() != 100000.0 * x
+						|| offset.getY() != 100000.0 * y
+						|| GridSquare.getEasting(packed) != 100000 * x
+						|| GridSquare.getNorthing(packed) != 100000 * y) {
+					System.out.println("OSGB square (" + x + ", " + y
+							+ ") has letters " + new String(expected)
+							+ ", which give offset " + offset);
+					errors++;
+				}
+			}
+		}
+
+		/*
+		 * Every pair of letters which is accepted must identify one of the
+		 * squares, so that encoding its offset gives back the same letters.
+		 */
+		for (int i = 0; i < LETTERS.length(); i++) {
+			for (int j = 0; j < LETTERS.length(); j++) {
+				char a = LETTERS.charAt(i), b = LETTERS.charAt(j);
+
+				long packed = osgb.GridSquareToPackedOffset(a, b);
+
+				if (packed == GridSquare.INVALID)
+					continue;
+
+				valid++;
+
+				osgb.GridToGridSquare(GridSquare.getEasting(packed),
+						GridSquare.getNorthing(packed), prefix, 0);
+
+				if (prefix[0] != Character.toUpperCase(a)
+						|| prefix[1] != Character.toUpperCase(b)) {
+					System.out.println("OSGB letters " + a + b
+							+ " give square " + new String(prefix));
+					errors++;
+				}
+			}
+		}
+
+		for (int k = 0; k < OSGB_OUTSIDE.length; k++) {
+			double E = OSGB_OUTSIDE[k][0], N = OSGB_OUTSIDE[k][1];
+
+			try {
+				osgb.GridToGridSquare(E, N, prefix, 0);
+				System.out.println("OSGB point (" + E + ", " + N
+						+ ") was given square " + new String(prefix));
+				errors++;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+
+		System.out.println("OSGB: " + squares + " squares, " + valid
+				+ " valid pairs of letters, " + OSGB_OUTSIDE.length
+				+ " points outside the grid, " + errors + " errors");
+
+		return squares == 150 && valid == 4 * squares && errors == 0;
+	}
+
+	static boolean testOSNI(OSNI osni) {
+		int errors = 0, squares = 0, valid = 0;
+
+		for (int x = 0; x < 5; x++) {
+			for (int y = 0; y < 5; y++) {
+				squares++;
+
+				char expected = 0;
+
+				for (int i = 0; i < WITHIN.length; i++) {
+					for (int j = 0; j < WITHIN.length; j++) {
+						double E = 100000.0 * x + WITHIN[i];
+						double N = 100000.0 * y + WITHIN[j];
+
+						char letter = osni.GridToGridSquare(E, N);
+
+						if (expected == 0)
+							expected = letter;
+						else if (letter != expected)
+							errors++;
+
+						if (osni.GridToGridSquare(new DPoint(E, N)) != letter)
+							errors++;
+					}
+				}
+
+				DPoint offset = osni.GridSquareToOffset(expected);
+
+				long packed = osni.GridSquareToPackedOffset(expected);
+
+				if (offset.getX() != 100000.0 * x
+						|| offset.getY() != 100000.0 * y
+						|| GridSquare.getEasting(packed) != 100000 * x
+						|| GridSquare.getNorthing(packed) != 100000 * y) {
+					System.out.println("OSNI square (" + x + ", " + y
+							+ ") has letter " + expected
+							+ ", which gives offset " + offset);
+					errors++;
+				}
+			}
+		}
+
+		for (int i = 0; i < LETTERS.length(); i++) {
+			char a = LETTERS.charAt(i);
+
+			long packed = osni.GridSquareToPackedOffset(a);
+
+			if (packed == GridSquare.INVALID)
+				continue;
+
+			valid++;
+
+			char letter = osni.GridToGridSquare(GridSquare.getEasting(packed),
+					GridSquare.getNorthing(packed));
+
+			if (letter != Character.toUpperCase(a)) {
+				System.out.println("OSNI letter " + a + " gives square "
+						+ letter);
+				errors++;
+			}
+		}
+
+		for (int k = 0; k < OSNI_OUTSIDE.length; k++) {
+			double E = OSNI_OUTSIDE[k][0], N = OSNI_OUTSIDE[k][1];
+
+			try {
+				char letter = osni.GridToGridSquare(E, N);
+				System.out.println("OSNI point (" + E + ", " + N
+						+ ") was given square " + letter);
+				errors++;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+
+		System.out.println("OSNI: " + squares + " squares, " + valid
+				+ " valid letters, " + OSNI_OUTSIDE.length
+				+ " points outside the grid, " + errors + " errors");
+
+		return squares == 25 && valid == 2 * squares && errors == 0;
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the grid square queries of <CODE>GridSquareIndex</CODE> against an
+ * exhaustive search, for squares of every size from 500km to 1m, for points
+ * spread over the OSGB grid together with a dense cluster, points on whole
+ * metres, points outside the grid and points with missing coordinates.
+ */
+public class TestGridSquareIndex {
+	static final int NPOINTS = 100000;
+	static final int NQUERIES = 600;
+
+	static final int[] SIZES = { 500000, 100000, 10000, 1000, 100, 10, 1 };
+
+	static public void main(String args[]) {
+		Random rand = new Random(24680L);
+
+		double[] eastings = new double[NPOINTS];
+		double[] northings = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			if (i % 4 == 0) {
+				eastings[i] = 530000.0 + 2000.0 * rand.nextDouble();
+				northings[i] = 180000.0 + 2000.0 * rand.nextDouble();
+			} else if (i % 4 == 1) {
+				eastings[i] = Math.floor(1000000.0 * rand.nextDouble());
+				northings[i] = Math.floor(1500000.0 * rand.nextDouble());
+			} else {
+				eastings[i] = 3000000.0 * rand.nextDouble() - 1250000.0;
+				northings[i] = 3000000.0 * rand.nextDouble() - 750000.0;
+			}
+		}
+
+		eastings[NPOINTS - 1] = Double.NaN;
+		northings[NPOINTS - 2] = Double.NaN;
+
+		int offset = 5;
+
+		OSGB osgb = new OSGB();
+		GridReferenceFormat format = new GridReferenceFormat(osgb);
+
+		GridSquareIndex index = new GridSquareIndex(osgb, eastings,
+				northings, offset, NPOINTS - offset);
+
+		int expectedSize = 0;
+
+		for (int i = offset; i < NPOINTS; i++)
+			if (inside(eastings[i], northings[i]))
+				expectedSize++;
+
+		boolean ok = index.size() == expectedSize;
+
+		if (!ok)
+			System.out.println("Index holds " + index.size()
+					+ " points, expected " + expectedSize);
+
+		int[] found = new int[NPOINTS];
+		int[] expected = new int[NPOINTS];
+
+		int errors = 0, referenceErrors = 0;
+		long totalFound = 0;
+
+		for (int q = 0; q < NQUERIES; q++) {
+			double E, N;
+
+			if (q % 3 == 0) {
+				int i = offset + rand.nextInt(NPOINTS - offset - 2);
+				E = eastings[i];
+				N = northings[i];
+			} else if (q % 3 == 1) {
+				E = 530000.0 + 2000.0 * rand.nextDouble();
+				N = 180000.0 + 2000.0 * rand.nextDouble();
+			} else {
+				E = 1000000.0 * rand.nextDouble();
+				N = 1500000.0 * rand.nextDouble();
+			}
+
+			for (int digits = -1; digits <= 5; digits++) {
+				int m = 0;
+
+				if (inside(E, N)) {
+					long size = SIZES[digits + 1];
+					long x0 = corner(E, size), y0 = corner(N, size);
+
+					for (int i = offset; i < NPOINTS; i++) {
+						if (!inside(eastings[i], northings[i]))
+							continue;
+
+						long x = corner(eastings[i], 1), y = corner(
+								northings[i], 1);
+
+						if (x >= x0 && x < x0 + size && y >= y0
+								&& y < y0 + size)
+							expected[m++] = i;
+					}
+				}
+
+				int count = index.find(E, N, digits, found, 0, found.length);
+
+				int[] sorted = Arrays.copyOf(found, count);
+				Arrays.sort(sorted);
+
+				if (count != m
+						|| !Arrays.equals(sorted, Arrays.copyOf(expected, m))
+						|| index.count(E, N, digits) != m)
+					errors++;
+
+				if (m > 1 && index.find(E, N, digits, found, 0, 1) != m)
+					errors++;
+
+				if (q % 3 != 0 && digits >= 0)
+					referenceErrors += checkReference(osgb, format, index, E,
+							N, digits, m);
+
+				totalFound += m;
+			}
+		}
+
+		System.out.println(NQUERIES + " queries: " + totalFound
+				+ " points found, " + errors + " errors, " + referenceErrors
+				+ " grid reference errors");
+
+		ok &= errors == 0 && referenceErrors == 0;
+
+		ok &= testSpellings(index) & testInvalid(index) & testOSNI();
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean inside(double E, double N) {
+		return E >= -1500000.0 && E < 2500000.0 && N >= -1500000.0
+				&& N < 2500000.0;
+	}
+
+	static long corner(double x, long size) {
+		long shifted = (long) Math.floor(x) + 1500000L;
+
+		return shifted - shifted % size;
+	}
+
+	/*
+	 * Check that a query by grid reference finds the same number of points
+	 * as the equivalent query by position.
+	 */
+	static int checkReference(OSGB osgb, GridReferenceFormat format,
+			GridSquareIndex index, double E, double N, int digits, int m) {
+		String reference;
+
+		if (digits == 0) {
+			char[] letters = new char[2];
+			osgb.GridToGridSquare(E, N, letters, 0);
+			reference = new String(letters);
+		} else {
+			reference = format.format(E, N, digits);
+		}
+
+		int count = index.count(reference);
+
+		if (count != m) {
+			System.out.println("Reference " + reference + " found " + count
+					+ " points, expected " + m);
+			return 1;
+		}
+
+		return 0;
+	}
+
+	static boolean testSpellings(GridSquareIndex index) {
+		String[][] groups = { { "TQ", "tq", " TQ ", "TQ," },
+				{ "TQ38", "tq 3 8", "TQ 3,8", "TQ38 " },
+				{ "TQ3080", "TQ 30 80", "tq\t30\t80" },
+				{ "T", "t", " T" } };
+
+		boolean ok = true;
+
+		for (int g = 0; g < groups.length; g++) {
+			int count = -1;
+
+			for (int s = 0; s < groups[g].length; s++) {
+				String reference = groups[g][s];
+				int n;
+
+				try {
+					n = index.count(reference);
+				} catch (IllegalArgumentException iae) {
+					n = -2;
+				}
+
+				if (s == 0)
+					count = n;
+				else if (n != count) {
+					System.out.println("Reference \"" + reference
+							+ "\" found " + n + " points, expected " + count);
+					ok = false;
+				}
+			}
+
+			if (count <= 0) {
+				System.out.println("Reference \"" + groups[g][0]
+						+ "\" found no points");
+				ok = false;
+			}
+		}
+
+		return ok;
+	}
+
+	static boolean testInvalid(GridSquareIndex index) {
+		String[] references = { "", " ", "T Q", "TQ3", "TQ 308 0", "I", "II",
+				"TQX", "TQ 1 2 3", null };
+
+		boolean ok = true;
+
+		for (int i = 0; i < references.length; i++) {
+			try {
+				index.count(references[i]);
+				System.out.println("Invalid reference \"" + references[i]
+						+ "\" was accepted");
+				ok = false;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+
+		return ok;
+	}
+
+	static boolean testOSNI() {
+		OSNI osni = new OSNI();
+
+		double[] eastings = { 335000.0, 335700.0, 399999.9, 400000.0,
+				235000.0 };
+		double[] northings = { 375000.0, 376400.0, 399999.9, 375000.0,
+				375000.0 };
+
+		GridSquareIndex index = new GridSquareIndex(osni, eastings,
+				northings, 0, eastings.length);
+
+		boolean ok = index.count("J") == 3 && index.count("J37") == 2
+				&& index.count("j 3 7") == 2 && index.count("J 357 764") == 1
+				&& index.count("K") == 1 && index.count("H") == 1;
+
+		try {
+			index.count("TQ");
+			ok = false;
+		} catch (IllegalArgumentException iae) {
+		}
+
+		if (!ok)
+			System.out.println("Irish Grid queries failed");
+
+		return ok;
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the bulk Irish Grid to British National Grid transformation
+ * against the two projections applied one point at a time, and checks that
+ * overlapping ranges of one interleaved array are rejected.
+ */
+public class TestGridTransformation {
+	static final int NPOINTS = 10007;
+
+	static final double TOLERANCE = 1.0e-6;
+
+	static public void main(String args[]) {
+		OSNI osni = new OSNI();
+		OSGB osgb = new OSGB();
+
+		HelmertTransformation datum = HelmertTransformation.ETRS89_TO_IRL1975
+				.getInverse().followedBy(
+						HelmertTransformation.ETRS89_TO_OSGB36);
+
+		boolean ok = runTest("OSNI to OSGB", osni, null, osgb);
+
+		ok &= runTest("OSNI to OSGB with datum shift", osni, datum, osgb);
+
+		ok &= testOverlap(new GridTransformation(osni, datum, osgb));
+
+		if (!ok)
+			System.exit(1);
+	}
+
+	static boolean runTest(String name, OSNI osni,
+			HelmertTransformation datum, OSGB osgb) {
+		GridTransformation osni2osgb = new GridTransformation(osni, datum,
+				osgb);
+
+		Random rand = new Random(2468L);
+
+		double[] eastings = new double[NPOINTS];
+		double[] northings = new double[NPOINTS];
+		double[] en = new double[2 * NPOINTS + 1];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			eastings[i] = 400000.0 * rand.nextDouble();
+			northings[i] = 450000.0 * rand.nextDouble();
+
+			en[2 * i + 1] = eastings[i];
+			en[2 * i + 2] = northings[i];
+		}
+
+		double[] targetEastings = new double[NPOINTS];
+		double[] targetNorthings = new double[NPOINTS];
+		double[] output = new double[2 * NPOINTS];
+
+		osni2osgb.GridToGrid(eastings, northings, 0, NPOINTS, targetEastings,
+				targetNorthings);
+
+		osni2osgb.GridToGrid(en, 1, output, 0, NPOINTS);
+
+		osni2osgb.GridToGrid(en, 1, en, 1, NPOINTS);
+
+		double maxError = 0.0;
+
+		for (int i = 0; i < NPOINTS; i++) {
+			DPoint p = osni.GridToLongitudeAndLatitude(eastings[i],
+					northings[i]);
+
+			if (datum != null)
+				p = datum.Transform(p);
+
+			p = osgb.LatitudeAndLongitudeToGrid(p);
+
+			maxError = Math.max(maxError, Math.abs(p.getX()
+					- targetEastings[i]));
+			maxError = Math.max(maxError, Math.abs(p.getY()
+					- targetNorthings[i]));
+			maxError = Math.max(maxError, Math.abs(p.getX() - output[2 * i]));
+			maxError = Math.max(maxError, Math.abs(p.getY()
+					- output[2 * i + 1]));
+			maxError = Math.max(maxError, Math.abs(p.getX() - en[2 * i + 1]));
+			maxError = Math.max(maxError, Math.abs(p.getY() - en[2 * i + 2]));
+		}
+
+		System.out.println(name + ": " + NPOINTS
+				+ " points, maximum difference " + maxError + " metres");
+
+		if (maxError > TOLERANCE) {
+			System.out.println("FAILED");
+			return false;
+		}
+
+		return true;
+	}
+
+	/*
+	 * The interleaved conversion works in runs, so a destination which
+	 * overlaps the source without being the same range would be corrupted
+	 * by the early runs before the later ones read it.
+	 */
+	static boolean testOverlap(GridTransformation transformation) {
+		double[] data = new double[4 * NPOINTS];
+
+		for (int i = 0; i < data.length; i += 2) {
+			data[i] = 300000.0;
+			data[i + 1] = 350000.0;
+		}
+
+		double[] copy = data.clone();
+
+		int[] dstOffsets = { 2, 2 * NPOINTS - 2, -2 };
+		int errors = 0;
+
+		for (int k = 0; k < dstOffsets.length; k++) {
+			int srcOffset = dstOffsets[k] < 0 ? 2 : 0;
+			int dstOffset = dstOffsets[k] < 0 ? 0 : dstOffsets[k];
+
+			try {
+				transformation.GridToGrid(data, srcOffset, data, dstOffset,
+						NPOINTS);
+				System.out.println("Overlapping ranges from " + srcOffset
+						+ " to " + dstOffset + " were accepted");
+				errors++;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+
+		for (int i = 0; i < data.length; i++)
+			if (data[i] != copy[i]) {
+				System.out.println("A rejected conversion changed the array");
+				errors++;
+				break;
+			}
+
+		/*
+		 * Disjoint ranges of the same array are allowed.
+		 */
+		transformation.GridToGrid(data, 0, data, 2 * NPOINTS, NPOINTS);
+
+		System.out.println("Overlapping ranges: " + errors + " errors");
+
+		if (errors > 0) {
+			System.out.println("FAILED");
+			return false;
+		}
+
+		return true;
+	}
+}
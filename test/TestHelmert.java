@@ -0,0 +1,166 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the Helmert transformation between ETRS89 and OSGB36: the
+ * transformation followed by its inverse must return to the starting point,
+ * the combined transformation must match the two applied in turn, and the
+ * interleaved and parallel array versions must agree. Overlapping ranges of
+ * one interleaved array must be rejected.
+ */
+public class TestHelmert {
+	static final int NPOINTS = 10007;
+
+	/*
+	 * One millimetre, expressed in radians of latitude.
+	 */
+	static final double TOLERANCE = 0.001 / 6.4e6;
+
+	static public void main(String args[]) {
+		HelmertTransformation toOSGB36 = HelmertTransformation.ETRS89_TO_OSGB36;
+		HelmertTransformation toETRS89 = toOSGB36.getInverse();
+		HelmertTransformation identity = toOSGB36.followedBy(toETRS89);
+
+		Random rand = new Random(1357L);
+
+		double[] longitudes = new double[NPOINTS];
+		double[] latitudes = new double[NPOINTS];
+		double[] heights = new double[NPOINTS];
+		double[] lonlat = new double[2 * NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			longitudes[i] = Math.toRadians(-8.0 + 10.0 * rand.nextDouble());
+			latitudes[i] = Math.toRadians(49.5 + 11.5 * rand.nextDouble());
+			heights[i] = 1000.0 * rand.nextDouble();
+
+			lonlat[2 * i] = longitudes[i];
+			lonlat[2 * i + 1] = latitudes[i];
+		}
+
+		double[] lon = new double[NPOINTS];
+		double[] lat = new double[NPOINTS];
+		double[] h = new double[NPOINTS];
+
+		toOSGB36.Transform(longitudes, latitudes, heights, 0, NPOINTS, lon,
+				lat, h);
+		toETRS89.Transform(lon, lat, h, 0, NPOINTS, lon, lat, h);
+
+		double roundTrip = maxDifference(longitudes, latitudes, lon, lat);
+
+		double[] lon2 = new double[NPOINTS];
+		double[] lat2 = new double[NPOINTS];
+
+		identity.Transform(longitudes, latitudes, null, 0, NPOINTS, lon2,
+				lat2, null);
+
+		double combined = maxDifference(longitudes, latitudes, lon2, lat2);
+
+		toOSGB36.Transform(longitudes, latitudes, null, 0, NPOINTS, lon, lat,
+				null);
+		toOSGB36.Transform(lonlat, 0, lonlat, 0, NPOINTS);
+
+		for (int i = 0; i < NPOINTS; i++) {
+			lon2[i] = lonlat[2 * i];
+			lat2[i] = lonlat[2 * i + 1];
+		}
+
+		double interleaved = maxDifference(lon, lat, lon2, lat2);
+
+		System.out.println("Round trip with heights: " + roundTrip
+				+ " radians");
+		System.out.println("Combined with inverse:   " + combined
+				+ " radians");
+		System.out.println("Interleaved arrays:      " + interleaved
+				+ " radians");
+
+		boolean overlap = testOverlap(toOSGB36, lonlat);
+
+		if (roundTrip > TOLERANCE || combined > TOLERANCE
+				|| interleaved > 0.0 || !overlap) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * A destination which overlaps the source without being the same range
+	 * would read points which had already been overwritten.
+	 */
+	static boolean testOverlap(HelmertTransformation transformation,
+			double[] lonlat) {
+		double[] copy = lonlat.clone();
+		int errors = 0;
+
+		int[][] offsets = { { 0, 2 }, { 2, 0 }, { 0, NPOINTS - 3 } };
+
+		for (int k = 0; k < offsets.length; k++) {
+			try {
+				transformation.Transform(lonlat, offsets[k][0], lonlat,
+						offsets[k][1], NPOINTS / 2);
+				System.out.println("Overlapping ranges from "
+						+ offsets[k][0] + " to " + offsets[k][1]
+						+ " were accepted");
+				errors++;
+			} catch (IllegalArgumentException iae) {
+			}
+		}
+
+		for (int i = 0; i < lonlat.length; i++)
+			if (lonlat[i] != copy[i]) {
+				System.out
+						.println("A rejected transformation changed the array");
+				errors++;
+				break;
+			}
+
+		/*
+		 * Disjoint ranges of the same array are allowed.
+		 */
+		transformation.Transform(lonlat, 0, lonlat, NPOINTS + 1, NPOINTS / 2);
+
+		System.out.println("Overlapping ranges:      " + errors + " errors");
+
+		return errors == 0;
+	}
+
+	static double maxDifference(double[] lon1, double[] lat1, double[] lon2,
+			double[] lat2) {
+		double max = 0.0;
+
+		for (int i = 0; i < lon1.length; i++) {
+			max = Math.max(max, Math.abs(lon1[i] - lon2[i]));
+			max = Math.max(max, Math.abs(lat1[i] - lat2[i]));
+		}
+
+		return max;
+	}
+}
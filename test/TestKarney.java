@@ -0,0 +1,203 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks Karney's geodesic algorithm against published solutions, against
+ * the Vincenty formulae of <CODE>EllipsoidalArc</CODE> where they converge,
+ * and by solving the direct problem for each inverse solution to recover
+ * the second point. Nearly antipodal pairs, where Vincenty's method is
+ * likely to fail, are included and must all be solved.
+ */
+public class TestKarney {
+	static final int NPAIRS = 100000;
+
+	/*
+	 * EllipsoidalArc stops iterating when the longitude on the auxiliary
+	 * sphere changes by less than 1.0e-8 radians, which leaves errors of a
+	 * few centimetres in its distances.
+	 */
+	static final double VINCENTY_TOLERANCE = 0.1;
+
+	static final double ROUND_TRIP_TOLERANCE = 1.0e-12;
+
+	static final double KNOWN_DISTANCE_TOLERANCE = 1.0e-6;
+	static final double KNOWN_AZIMUTH_TOLERANCE = 1.0e-11;
+
+	static public void main(String args[]) {
+		boolean ok = testKnownValues();
+
+		ok &= testRandomPairs();
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean testKnownValues() {
+		boolean ok = true;
+
+		/*
+		 * JFK airport to London Heathrow, as solved by GeographicLib.
+		 */
+		ok &= checkInverse("JFK to LHR", Ellipsoid.WGS84, -73.8, 40.6, -0.5,
+				51.6, 5551759.400319, 51.198882845579, 107.821776735514
+						- 180.0, KNOWN_DISTANCE_TOLERANCE,
+				KNOWN_AZIMUTH_TOLERANCE);
+
+		/*
+		 * Flinders Peak to Buninyong, the example given by Geoscience
+		 * Australia, whose published distance is rounded to the millimetre.
+		 */
+		ok &= checkInverse("Flinders Peak to Buninyong", Ellipsoid.GRS80,
+				144.0 + 25.0 / 60.0 + 29.52440 / 3600.0, -(37.0 + 57.0 / 60.0
+						+ 3.72030 / 3600.0), 143.0 + 55.0 / 60.0 + 35.38390
+						/ 3600.0, -(37.0 + 39.0 / 60.0 + 10.15610 / 3600.0),
+				54972.271, 306.0 + 52.0 / 60.0 + 5.37 / 3600.0 - 360.0,
+				Double.NaN, 0.0005, 1.0e-6);
+
+		/*
+		 * The equator to the north pole, which is one quarter of the
+		 * meridian.
+		 */
+		ok &= checkInverse("Quarter meridian", Ellipsoid.WGS84, 0.0, 0.0,
+				0.0, 90.0, 10001965.729, 0.0, Double.NaN, 0.0005, 1.0e-6);
+
+		return ok;
+	}
+
+	static boolean checkInverse(String name, Ellipsoid ellipsoid,
+			double lonA, double latA, double lonB, double latB,
+			double distance, double azimuthA, double azimuthB,
+			double distanceTolerance, double azimuthTolerance) {
+		EllipsoidalArc arc = new EllipsoidalArc(ellipsoid,
+				EllipsoidalArc.KARNEY);
+
+		arc.setPositionA(Math.toRadians(lonA), Math.toRadians(latA));
+		arc.setPositionB(Math.toRadians(lonB), Math.toRadians(latB));
+
+		double d = arc.calculateDistance();
+		double dA = Math.toDegrees(arc.getAzimuthA()) - azimuthA;
+		double dB = Double.isNaN(azimuthB) ? 0.0 : Math.toDegrees(arc
+				.getAzimuthB())
+				- azimuthB;
+
+		boolean ok = Math.abs(d - distance) <= distanceTolerance
+				&& Math.abs(dA) <= azimuthTolerance
+				&& Math.abs(dB) <= azimuthTolerance;
+
+		System.out.println(name + ": distance " + d + " metres, expected "
+				+ distance + (ok ? "" : " -- WRONG"));
+
+		return ok;
+	}
+
+	static boolean testRandomPairs() {
+		BatchGeodesic geodesic = new BatchGeodesic(Ellipsoid.WGS84,
+				EllipsoidalArc.KARNEY);
+		EllipsoidalArc vincenty = new EllipsoidalArc(Ellipsoid.WGS84);
+		EllipsoidalArc karney = new EllipsoidalArc(Ellipsoid.WGS84,
+				EllipsoidalArc.KARNEY);
+
+		Random rand = new Random(8642L);
+
+		double[] lonA = new double[NPAIRS];
+		double[] latA = new double[NPAIRS];
+		double[] lonB = new double[NPAIRS];
+		double[] latB = new double[NPAIRS];
+
+		for (int i = 0; i < NPAIRS; i++) {
+			lonA[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latA[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+			lonB[i] = Math.PI * (2.0 * rand.nextDouble() - 1.0);
+			latB[i] = Math.asin(2.0 * rand.nextDouble() - 1.0);
+		}
+
+		for (int i = 0; i < NPAIRS / 10; i++) {
+			lonB[i] = lonA[i] + Math.PI - 0.01 * rand.nextDouble();
+			latB[i] = -latA[i] + 0.01 * (rand.nextDouble() - 0.5);
+		}
+
+		double[] distances = new double[NPAIRS];
+		double[] azimuthsA = new double[NPAIRS];
+		double[] azimuthsB = new double[NPAIRS];
+
+		int failures = geodesic.calculateDistances(lonA, latA, lonB, latB, 0,
+				NPAIRS, distances, azimuthsA, azimuthsB);
+
+		int vincentyFailures = 0, mismatches = 0;
+		double maxVincentyError = 0.0, maxRoundTripError = 0.0;
+
+		for (int i = 0; i < NPAIRS; i++) {
+			karney.setPositionA(lonA[i], latA[i]);
+			karney.setPositionB(lonB[i], latB[i]);
+
+			if (Double.compare(karney.calculateDistance(), distances[i]) != 0
+					|| Double.compare(karney.getAzimuthA(), azimuthsA[i]) != 0
+					|| Double.compare(karney.getAzimuthB(), azimuthsB[i]) != 0)
+				mismatches++;
+
+			karney.calculatePosition();
+
+			double dLon = Math.IEEEremainder(karney.getLongitudeB() - lonB[i],
+					2.0 * Math.PI)
+					* Math.cos(latB[i]);
+			double dLat = karney.getLatitudeB() - latB[i];
+
+			maxRoundTripError = Math.max(maxRoundTripError, Math.max(Math
+					.abs(dLon), Math.abs(dLat)));
+
+			vincenty.setPositionA(lonA[i], latA[i]);
+			vincenty.setPositionB(lonB[i], latB[i]);
+
+			try {
+				maxVincentyError = Math.max(maxVincentyError, Math
+						.abs(vincenty.calculateDistance() - distances[i]));
+			} catch (ArithmeticException ae) {
+				vincentyFailures++;
+			}
+		}
+
+		System.out.println(NPAIRS + " pairs: " + failures + " failures ("
+				+ vincentyFailures + " by Vincenty), " + mismatches
+				+ " mismatches between BatchGeodesic and EllipsoidalArc");
+		System.out.println("Maximum difference from Vincenty "
+				+ maxVincentyError + " metres, maximum round trip error "
+				+ maxRoundTripError + " radians");
+
+		return failures == 0 && mismatches == 0
+				&& maxVincentyError <= VINCENTY_TOLERANCE
+				&& !Double.isNaN(maxRoundTripError)
+				&& maxRoundTripError <= ROUND_TRIP_TOLERANCE;
+	}
+}
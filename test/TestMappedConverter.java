@@ -0,0 +1,185 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Converts files of coordinates with <CODE>MappedCoordinateConverter</CODE>
+ * through windows which do not divide the file size, both to a separate
+ * file and in place, and checks every value against the interleaved array
+ * functions of the projection. Also checks that a file which does not hold
+ * a whole number of coordinate pairs is rejected.
+ */
+public class TestMappedConverter {
+	static final int NPOINTS = 10007;
+
+	/*
+	 * The first window size is not a whole number of coordinate pairs, and
+	 * the second spans more than one conversion chunk.
+	 */
+	static final int[] WINDOW_SIZES = { 1000, 200000 };
+
+	static public void main(String args[]) throws IOException {
+		TransverseMercatorProjection projection = new OSGB();
+
+		Random rand = new Random(97531L);
+
+		double[] grid = new double[2 * NPOINTS];
+		double[] geographic = new double[2 * NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			grid[2 * i] = 700000.0 * rand.nextDouble();
+			grid[2 * i + 1] = 1250000.0 * rand.nextDouble();
+			geographic[2 * i] = Math.toRadians(-8.0 + 10.0 * rand.nextDouble());
+			geographic[2 * i + 1] = Math.toRadians(49.0 + 12.0 * rand
+					.nextDouble());
+		}
+
+		double[] expectedGeographic = new double[2 * NPOINTS];
+		double[] expectedGrid = new double[2 * NPOINTS];
+
+		projection.GridToLongitudeAndLatitude(grid, 0, expectedGeographic, 0,
+				NPOINTS);
+		projection.LatitudeAndLongitudeToGrid(geographic, 0, expectedGrid, 0,
+				NPOINTS);
+
+		File input = File.createTempFile("coordinates", ".bin");
+		File output = File.createTempFile("coordinates", ".bin");
+
+		input.deleteOnExit();
+		output.deleteOnExit();
+
+		boolean ok = true;
+
+		for (int w = 0; w < WINDOW_SIZES.length; w++) {
+			MappedCoordinateConverter converter = new MappedCoordinateConverter(
+					projection, WINDOW_SIZES[w]);
+
+			String name = "Window " + WINDOW_SIZES[w];
+
+			write(input, grid);
+			ok &= check(name + ", inverse", converter
+					.GridToLongitudeAndLatitude(input, output), output,
+					expectedGeographic);
+
+			write(input, geographic);
+			ok &= check(name + ", forward", converter
+					.LatitudeAndLongitudeToGrid(input, output), output,
+					expectedGrid);
+
+			write(input, grid);
+			ok &= check(name + ", inverse in place", converter
+					.GridToLongitudeAndLatitude(input, input), input,
+					expectedGeographic);
+
+			write(input, geographic);
+			ok &= check(name + ", forward in place", converter
+					.LatitudeAndLongitudeToGrid(input, input), input,
+					expectedGrid);
+		}
+
+		RandomAccessFile file = new RandomAccessFile(input, "rw");
+		file.setLength(16 * NPOINTS + 8);
+		file.close();
+
+		try {
+			new MappedCoordinateConverter(projection)
+					.GridToLongitudeAndLatitude(input, output);
+			System.out.println("A file of " + (16 * NPOINTS + 8)
+					+ " bytes was accepted");
+			ok = false;
+		} catch (IOException ioe) {
+		}
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean check(String name, long count, File file,
+			double[] expected) throws IOException {
+		double[] actual = read(file);
+
+		int errors = 0;
+
+		if (actual.length != expected.length)
+			errors = expected.length;
+		else
+			for (int i = 0; i < expected.length; i++)
+				if (Double.compare(expected[i], actual[i]) != 0)
+					errors++;
+
+		boolean ok = count == NPOINTS && errors == 0;
+
+		System.out.println(name + ": " + count + " points converted, "
+				+ errors + " errors" + (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	static void write(File file, double[] values) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(8 * values.length).order(
+				ByteOrder.LITTLE_ENDIAN);
+
+		bytes.asDoubleBuffer().put(values);
+
+		FileOutputStream stream = new FileOutputStream(file);
+
+		try {
+			stream.write(bytes.array());
+		} finally {
+			stream.close();
+		}
+	}
+
+	static double[] read(File file) throws IOException {
+		byte[] data = new byte[(int) file.length()];
+
+		DataInputStream stream = new DataInputStream(new FileInputStream(file));
+
+		try {
+			stream.readFully(data);
+		} finally {
+			stream.close();
+		}
+
+		double[] values = new double[data.length / 8];
+
+		ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+				.get(values);
+
+		return values;
+	}
+}
@@ -40,9 +40,7 @@ public class TestOSGB2 {
 		double sumx, sumx2;
 		int nsum;
 
-		OSGB osgb = new OSGB();
-
-		osgb.setErrorTolerance(0.0001);
+		OSGB osgb = new OSGB(0.0001);
 
 		nsum = 0;
 		sumx = sumx2 = 0.0;
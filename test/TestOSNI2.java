@@ -39,9 +39,7 @@ public class TestOSNI2 {
 		double sumx, sumx2;
 		int nsum;
 
-		OSNI osni = new OSNI();
-
-		osni.setErrorTolerance(0.0001);
+		OSNI osni = new OSNI(0.0001);
 
 		nsum = 0;
 		sumx = sumx2 = 0.0;
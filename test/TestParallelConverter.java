@@ -0,0 +1,347 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+
+package test;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks every element converted by <CODE>ParallelConverter</CODE> against
+ * the sequential bulk functions of the projection, on the common
+ * <CODE>ForkJoinPool</CODE>, on a private <CODE>ForkJoinPool</CODE> and on a
+ * fixed thread pool, for lengths which do and do not divide into whole
+ * chunks. Also checks that when an executor rejects a chunk, the exception
+ * is not thrown until every chunk already accepted has been converted, and
+ * that nothing is written to the arrays afterwards. Also checks that an
+ * exception or error thrown while converting a chunk reaches the caller
+ * after the other chunks have finished.
+ */
+public class TestParallelConverter {
+	static final int CHUNK_SIZE = 1000;
+
+	static final int[] LENGTHS = { 0, 1, CHUNK_SIZE - 1, CHUNK_SIZE,
+			CHUNK_SIZE + 1, 2 * CHUNK_SIZE, 10 * CHUNK_SIZE + 17,
+			37 * CHUNK_SIZE + 999 };
+
+	static final int OFFSET = 13;
+
+	static final String[] EXECUTORS = { "common ForkJoinPool",
+			"private ForkJoinPool", "fixed thread pool" };
+
+	static final int ACCEPTED_CHUNKS = 3;
+
+	static public void main(String args[]) {
+		TransverseMercatorProjection projection = new OSGB();
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+		ExecutorService threadPool = Executors.newFixedThreadPool(3);
+
+		Executor[] executors = { ForkJoinPool.commonPool(), forkJoinPool,
+				threadPool };
+
+		boolean ok = true;
+
+		for (int k = 0; k < executors.length; k++) {
+			ParallelConverter converter = new ParallelConverter(projection,
+					executors[k], 0, CHUNK_SIZE);
+
+			for (int l = 0; l < LENGTHS.length; l++)
+				ok &= runTest(projection, converter, EXECUTORS[k], LENGTHS[l]);
+		}
+
+		forkJoinPool.shutdown();
+		threadPool.shutdown();
+
+		ok &= testRejection(projection);
+
+		ok &= testFailure(new IllegalStateException("Chunk failed"));
+		ok &= testFailure(new AssertionError("Chunk failed"));
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean runTest(TransverseMercatorProjection projection,
+			ParallelConverter converter, String name, int length) {
+		Random rand = new Random(8642L + length);
+
+		int size = OFFSET + length + OFFSET;
+
+		double[] eastings = new double[size];
+		double[] northings = new double[size];
+		double[] longitudes = new double[size];
+		double[] latitudes = new double[size];
+
+		for (int i = 0; i < size; i++) {
+			eastings[i] = 700000.0 * rand.nextDouble();
+			northings[i] = 1250000.0 * rand.nextDouble();
+			longitudes[i] = Math.toRadians(-8.0 + 10.0 * rand.nextDouble());
+			latitudes[i] = Math.toRadians(49.0 + 12.0 * rand.nextDouble());
+		}
+
+		int errors = 0;
+
+		double[] expectedU = filled(size), expectedV = filled(size);
+		double[] actualU = filled(size), actualV = filled(size);
+
+		projection.GridToLongitudeAndLatitude(eastings, northings, OFFSET,
+				length, expectedU, expectedV);
+		converter.GridToLongitudeAndLatitude(eastings, northings, OFFSET,
+				length, actualU, actualV);
+
+		errors += compare(expectedU, actualU) + compare(expectedV, actualV);
+
+		expectedU = filled(size);
+		expectedV = filled(size);
+		actualU = filled(size);
+		actualV = filled(size);
+
+		projection.LatitudeAndLongitudeToGrid(longitudes, latitudes, OFFSET,
+				length, expectedU, expectedV);
+		converter.LatitudeAndLongitudeToGrid(longitudes, latitudes, OFFSET,
+				length, actualU, actualV);
+
+		errors += compare(expectedU, actualU) + compare(expectedV, actualV);
+
+		double[] expected = new double[2 * size];
+
+		for (int i = 0; i < size; i++) {
+			expected[2 * i] = longitudes[i];
+			expected[2 * i + 1] = latitudes[i];
+		}
+
+		double[] actual = expected.clone();
+
+		projection.LatitudeAndLongitudeToGrid(expected, 2 * OFFSET, expected,
+				2 * OFFSET, length);
+		converter.LatitudeAndLongitudeToGrid(actual, 2 * OFFSET, length);
+
+		errors += compare(expected, actual);
+
+		System.out.println(name + ", " + length + " points: " + errors
+				+ " errors");
+
+		return errors == 0;
+	}
+
+	/*
+	 * Return an array filled with a value which no conversion produces, so
+	 * that elements outside the range can be seen to be untouched.
+	 */
+	static double[] filled(int size) {
+		double[] array = new double[size];
+
+		for (int i = 0; i < size; i++)
+			array[i] = -999.0;
+
+		return array;
+	}
+
+	static int compare(double[] expected, double[] actual) {
+		int errors = 0;
+
+		for (int i = 0; i < expected.length; i++)
+			if (Double.compare(expected[i], actual[i]) != 0)
+				errors++;
+
+		return errors;
+	}
+
+	static boolean testRejection(TransverseMercatorProjection projection) {
+		RejectingExecutor executor = new RejectingExecutor(ACCEPTED_CHUNKS);
+
+		ParallelConverter converter = new ParallelConverter(projection,
+				executor, 0, CHUNK_SIZE);
+
+		int length = 10 * CHUNK_SIZE;
+
+		double[] eastings = new double[length];
+		double[] northings = new double[length];
+
+		for (int i = 0; i < length; i++) {
+			eastings[i] = 400000.0;
+			northings[i] = 300000.0;
+		}
+
+		double[] longitudes = filled(length);
+		double[] latitudes = filled(length);
+
+		boolean rejected = false;
+
+		try {
+			converter.GridToLongitudeAndLatitude(eastings, northings, 0,
+					length, longitudes, latitudes);
+		} catch (RejectedExecutionException ree) {
+			rejected = true;
+		}
+
+		int converted = converted(latitudes);
+
+		/*
+		 * Give any chunk which is still running time to write to the arrays.
+		 */
+		try {
+			Thread.sleep(2 * RejectingExecutor.DELAY);
+		} catch (InterruptedException e) {
+		}
+
+		int convertedLater = converted(latitudes);
+
+		boolean ok = rejected && converted == ACCEPTED_CHUNKS * CHUNK_SIZE
+				&& convertedLater == converted;
+
+		System.out.println("Rejecting executor: "
+				+ (rejected ? "rejection reported" : "no rejection reported")
+				+ " with " + converted + " points converted, "
+				+ convertedLater + " later" + (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	static boolean testFailure(Throwable failure) {
+		ExecutorService threadPool = Executors.newFixedThreadPool(3);
+
+		ParallelConverter converter = new ParallelConverter(
+				new FailingOSGB(5 * CHUNK_SIZE, failure), threadPool, 0,
+				CHUNK_SIZE);
+
+		int length = 10 * CHUNK_SIZE;
+
+		double[] eastings = new double[length];
+		double[] northings = new double[length];
+
+		for (int i = 0; i < length; i++) {
+			eastings[i] = 400000.0;
+			northings[i] = 300000.0;
+		}
+
+		double[] longitudes = filled(length);
+		double[] latitudes = filled(length);
+
+		Throwable caught = null;
+
+		try {
+			converter.GridToLongitudeAndLatitude(eastings, northings, 0,
+					length, longitudes, latitudes);
+		} catch (Throwable t) {
+			caught = t;
+		}
+
+		int converted = converted(latitudes);
+
+		threadPool.shutdown();
+
+		boolean ok = caught == failure && converted == length - CHUNK_SIZE;
+
+		System.out.println(failure.getClass().getName() + " in one chunk: "
+				+ (caught == failure ? "reported" : "not reported") + ", "
+				+ converted + " points converted"
+				+ (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	static int converted(double[] array) {
+		int count = 0;
+
+		for (int i = 0; i < array.length; i++)
+			if (array[i] != -999.0)
+				count++;
+
+		return count;
+	}
+
+	/*
+	 * An executor which runs a limited number of tasks, each on a new thread
+	 * after a delay, and then rejects any further tasks.
+	 */
+	static class RejectingExecutor implements Executor {
+		static final long DELAY = 200;
+
+		private final int limit;
+		private int accepted = 0;
+
+		RejectingExecutor(int limit) {
+			this.limit = limit;
+		}
+
+		public void execute(final Runnable task) {
+			if (accepted == limit)
+				throw new RejectedExecutionException("Executor is full");
+
+			accepted++;
+
+			new Thread() {
+				public void run() {
+					try {
+						Thread.sleep(DELAY);
+					} catch (InterruptedException e) {
+					}
+
+					task.run();
+				}
+			}.start();
+		}
+	}
+
+	/*
+	 * A projection which throws the specified exception or error when asked
+	 * to convert the chunk which begins at the specified offset.
+	 */
+	static class FailingOSGB extends OSGB {
+		private final int failingOffset;
+		private final Throwable failure;
+
+		FailingOSGB(int failingOffset, Throwable failure) {
+			this.failingOffset = failingOffset;
+			this.failure = failure;
+		}
+
+		public void GridToLongitudeAndLatitude(double[] eastings,
+				double[] northings, int offset, int length,
+				double[] longitudes, double[] latitudes) {
+			if (offset == failingOffset) {
+				if (failure instanceof Error)
+					throw (Error) failure;
+				else
+					throw (RuntimeException) failure;
+			}
+
+			super.GridToLongitudeAndLatitude(eastings, northings, offset,
+					length, longitudes, latitudes);
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks the <CODE>KRUGER</CODE> formulae of
+ * <CODE>TransverseMercatorProjection</CODE> against the Ordnance Survey's
+ * worked example and against the <CODE>REDFEARN</CODE> formulae, and checks
+ * that their forward and inverse transforms are consistent, over the
+ * British National Grid and the Irish Grid. Also checks that the
+ * <CODE>REDFEARN_NEWTON</CODE> formulae agree with the <CODE>REDFEARN</CODE>
+ * formulae to within the error tolerance, using fewer footpoint iterations.
+ */
+public class TestProjectionAlgorithms {
+	static final int NPOINTS = 100000;
+
+	/*
+	 * The worked example in Annex C of "A guide to coordinate systems in
+	 * Great Britain", Ordnance Survey.
+	 */
+	static final double EXAMPLE_EASTING = 651409.903;
+	static final double EXAMPLE_NORTHING = 313177.270;
+	static final double EXAMPLE_LONGITUDE = dms(1, 43, 4.5177);
+	static final double EXAMPLE_LATITUDE = dms(52, 39, 27.2531);
+
+	/*
+	 * Slieve Donard, the point used by TestOSNI. There is no published worked
+	 * example for the Irish Grid, so this is checked against the REDFEARN
+	 * formulae with a tight tolerance.
+	 */
+	static final double DONARD_EASTING = 335788.01;
+	static final double DONARD_NORTHING = 327685.85;
+
+	/*
+	 * The example is given to 1mm in the grid and 0.0001 seconds of arc.
+	 */
+	static final double EXAMPLE_GRID_TOLERANCE = 0.001;
+	static final double EXAMPLE_ANGLE_TOLERANCE = dms(0, 0, 0.0001);
+
+	static final double ROUND_TRIP_TOLERANCE = 1.0e-7;
+
+	/*
+	 * The REDFEARN series are truncated, and their error grows away from the
+	 * central meridian, reaching about 13mm at the edges of the British
+	 * National Grid and 0.3mm over the smaller Irish Grid.
+	 */
+	static final double OSGB_AGREEMENT = 0.02;
+	static final double OSNI_AGREEMENT = 0.001;
+
+	/*
+	 * A rough radius of the Earth, for expressing angles as distances.
+	 */
+	static final double RADIUS = 6.4e6;
+
+	static final double[] TOLERANCES = { 0.001, 0.0001, 0.000001 };
+
+	/*
+	 * Newton's method converges quadratically, so no point should need more
+	 * than this many iterations at any of the tolerances.
+	 */
+	static final int MAX_NEWTON_ITERATIONS = 3;
+
+	static public void main(String args[]) {
+		OSGB osgb = new OSGB(1.0e-9, TransverseMercatorProjection.KRUGER);
+		OSNI osni = new OSNI(1.0e-9, TransverseMercatorProjection.KRUGER);
+
+		boolean ok = testExample("OSGB KRUGER", osgb);
+
+		ok &= testDonard(osni);
+
+		ok &= testGrid("OSGB", osgb, new OSGB(1.0e-9,
+				TransverseMercatorProjection.REDFEARN), 700000.0, 1250000.0,
+				OSGB_AGREEMENT);
+
+		ok &= testGrid("OSNI", osni, new OSNI(1.0e-9,
+				TransverseMercatorProjection.REDFEARN), 400000.0, 500000.0,
+				OSNI_AGREEMENT);
+
+		ok &= testExample("OSGB REDFEARN_NEWTON", new OSGB(0.0001,
+				TransverseMercatorProjection.REDFEARN_NEWTON));
+
+		for (int t = 0; t < TOLERANCES.length; t++) {
+			double tolerance = TOLERANCES[t];
+
+			ok &= testNewton("OSGB", new OSGB(tolerance,
+					TransverseMercatorProjection.REDFEARN), new OSGB(
+					tolerance, TransverseMercatorProjection.REDFEARN_NEWTON),
+					700000.0, 1250000.0);
+
+			ok &= testNewton("OSNI", new OSNI(tolerance,
+					TransverseMercatorProjection.REDFEARN), new OSNI(
+					tolerance, TransverseMercatorProjection.REDFEARN_NEWTON),
+					400000.0, 500000.0);
+		}
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static double dms(int degrees, int minutes, double seconds) {
+		return Math.toRadians(degrees + minutes / 60.0 + seconds / 3600.0);
+	}
+
+	static boolean testExample(String name,
+			TransverseMercatorProjection projection) {
+		DPoint grid = projection.LatitudeAndLongitudeToGrid(
+				EXAMPLE_LONGITUDE, EXAMPLE_LATITUDE);
+		DPoint lonlat = projection.GridToLongitudeAndLatitude(
+				EXAMPLE_EASTING, EXAMPLE_NORTHING);
+
+		double dE = grid.getX() - EXAMPLE_EASTING;
+		double dN = grid.getY() - EXAMPLE_NORTHING;
+		double dLon = lonlat.getX() - EXAMPLE_LONGITUDE;
+		double dLat = lonlat.getY() - EXAMPLE_LATITUDE;
+
+		boolean ok = Math.abs(dE) <= EXAMPLE_GRID_TOLERANCE
+				&& Math.abs(dN) <= EXAMPLE_GRID_TOLERANCE
+				&& Math.abs(dLon) <= EXAMPLE_ANGLE_TOLERANCE
+				&& Math.abs(dLat) <= EXAMPLE_ANGLE_TOLERANCE;
+
+		System.out.println(name + " worked example: forward error (" + dE
+				+ ", " + dN + ") metres, inverse error ("
+				+ Math.toDegrees(dLon) * 3600.0 + ", "
+				+ Math.toDegrees(dLat) * 3600.0 + ") seconds"
+				+ (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	static boolean testDonard(TransverseMercatorProjection osni) {
+		OSNI reference = new OSNI(1.0e-9,
+				TransverseMercatorProjection.REDFEARN);
+
+		DPoint p = osni.GridToLongitudeAndLatitude(DONARD_EASTING,
+				DONARD_NORTHING);
+		DPoint q = reference.GridToLongitudeAndLatitude(DONARD_EASTING,
+				DONARD_NORTHING);
+
+		double difference = distance(p, q);
+
+		DPoint grid = osni.LatitudeAndLongitudeToGrid(p);
+
+		double roundTrip = Math.max(Math.abs(grid.getX() - DONARD_EASTING),
+				Math.abs(grid.getY() - DONARD_NORTHING));
+
+		boolean ok = difference <= OSNI_AGREEMENT
+				&& roundTrip <= ROUND_TRIP_TOLERANCE;
+
+		System.out.println("OSNI KRUGER Slieve Donard: " + difference
+				+ " metres from REDFEARN, round trip error " + roundTrip
+				+ " metres" + (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	/*
+	 * Compare the KRUGER formulae with the REDFEARN formulae, and check the
+	 * KRUGER round trip, at random points over a grid.
+	 */
+	static boolean testGrid(String name, TransverseMercatorProjection kruger,
+			TransverseMercatorProjection redfearn, double maxE, double maxN,
+			double agreement) {
+		Random rand = new Random(2468L);
+
+		double worstRoundTrip = 0.0, worstForward = 0.0, worstInverse = 0.0;
+
+		for (int i = 0; i < NPOINTS; i++) {
+			double E = maxE * rand.nextDouble();
+			double N = maxN * rand.nextDouble();
+
+			DPoint lonlat = kruger.GridToLongitudeAndLatitude(E, N);
+			DPoint grid = kruger.LatitudeAndLongitudeToGrid(lonlat);
+
+			worstRoundTrip = Math.max(worstRoundTrip, Math.max(Math.abs(grid
+					.getX()
+					- E), Math.abs(grid.getY() - N)));
+
+			grid = redfearn.LatitudeAndLongitudeToGrid(lonlat);
+
+			worstForward = Math.max(worstForward, Math.max(Math.abs(grid
+					.getX()
+					- E), Math.abs(grid.getY() - N)));
+
+			worstInverse = Math.max(worstInverse, distance(lonlat, redfearn
+					.GridToLongitudeAndLatitude(E, N)));
+		}
+
+		boolean ok = worstRoundTrip <= ROUND_TRIP_TOLERANCE
+				&& worstForward <= agreement && worstInverse <= agreement;
+
+		System.out.println(name + " KRUGER: round trip error "
+				+ worstRoundTrip + " metres, difference from REDFEARN "
+				+ worstForward + " metres (forward), " + worstInverse
+				+ " metres (inverse), bound " + agreement
+				+ (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	/*
+	 * Compare the REDFEARN_NEWTON formulae with the REDFEARN formulae at the
+	 * same error tolerance, and compare the numbers of footpoint iterations.
+	 */
+	static boolean testNewton(String name,
+			TransverseMercatorProjection redfearn,
+			TransverseMercatorProjection newton, double maxE, double maxN) {
+		Random rand = new Random(1357L);
+
+		double tolerance = newton.getErrorTolerance();
+		double worst = 0.0;
+		long redfearnIterations = 0, newtonIterations = 0;
+		int mostNewtonIterations = 0;
+
+		for (int i = 0; i < NPOINTS; i++) {
+			double E = maxE * rand.nextDouble();
+			double N = maxN * rand.nextDouble();
+
+			worst = Math.max(worst, distance(redfearn
+					.GridToLongitudeAndLatitude(E, N), newton
+					.GridToLongitudeAndLatitude(E, N)));
+
+			redfearnIterations += redfearn.getFootpointIterations(N);
+
+			int iterations = newton.getFootpointIterations(N);
+
+			newtonIterations += iterations;
+			mostNewtonIterations = Math.max(mostNewtonIterations, iterations);
+		}
+
+		boolean ok = worst <= tolerance
+				&& newtonIterations < redfearnIterations
+				&& mostNewtonIterations <= MAX_NEWTON_ITERATIONS;
+
+		System.out.println(name + " REDFEARN_NEWTON, tolerance " + tolerance
+				+ ": difference from REDFEARN " + worst + " metres, "
+				+ newtonIterations + " iterations (at most "
+				+ mostNewtonIterations + " per point), "
+				+ redfearnIterations + " for REDFEARN"
+				+ (ok ? "" : " *** ERROR ***"));
+
+		return ok;
+	}
+
+	/*
+	 * The approximate distance between two nearby points given by longitude
+	 * and latitude.
+	 */
+	static double distance(DPoint p, DPoint q) {
+		double dx = (p.getX() - q.getX()) * Math.cos(p.getY());
+		double dy = p.getY() - q.getY();
+
+		return RADIUS * Math.sqrt(dx * dx + dy * dy);
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks that <CODE>TrackConverter</CODE> gives the same results as the bulk
+ * conversion functions of the projection for tracks with jumps and missing
+ * points, for every set of formulae, that it restarts from the default
+ * estimate after each jump, and that it needs fewer footpoint iterations
+ * than converting each point independently.
+ */
+public class TestTrackConverter {
+	static final int NPOINTS = 40000;
+	static final int SEGMENT = 5000;
+
+	static final String[] NAMES = { "REDFEARN", "KRUGER", "REDFEARN_NEWTON" };
+
+	static public void main(String args[]) {
+		boolean ok = true;
+
+		for (int algorithm = 0; algorithm < NAMES.length; algorithm++) {
+			ok &= runTest("OSGB " + NAMES[algorithm], new OSGB(0.0001,
+					algorithm), 400000.0, 600000.0);
+
+			ok &= runTest("OSNI " + NAMES[algorithm], new OSNI(0.0001,
+					algorithm), 250000.0, 250000.0);
+		}
+
+		ok &= testArguments();
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean runTest(String name,
+			TransverseMercatorProjection projection, double E, double N) {
+		Random rand = new Random(97531L);
+
+		double[] eastings = new double[NPOINTS];
+		double[] northings = new double[NPOINTS];
+
+		/*
+		 * A random walk with steps of up to 50 metres, which jumps 50km north
+		 * at the start of each segment.
+		 */
+		for (int i = 0; i < NPOINTS; i++) {
+			if (i > 0 && i % SEGMENT == 0)
+				N += 50000.0;
+
+			E += 100.0 * rand.nextDouble() - 50.0;
+			N += 100.0 * rand.nextDouble() - 50.0;
+
+			eastings[i] = E;
+			northings[i] = N;
+		}
+
+		northings[NPOINTS / 2 + 7] = Double.NaN;
+
+		boolean kruger = projection.getAlgorithm() == TransverseMercatorProjection.KRUGER;
+
+		int jumps = NPOINTS / SEGMENT - 1;
+		long expectedRestarts = kruger ? 0 : 1 + jumps + 2;
+
+		double[] expectedLon = new double[NPOINTS];
+		double[] expectedLat = new double[NPOINTS];
+
+		projection.GridToLongitudeAndLatitude(eastings, northings, 0,
+				NPOINTS, expectedLon, expectedLat);
+
+		long defaultIterations = 0;
+
+		for (int i = 0; i < NPOINTS; i++)
+			defaultIterations += projection.getFootpointIterations(northings[i]);
+
+		/*
+		 * Convert the track in two parts with the bulk function, and again
+		 * point by point, in place.
+		 */
+		TrackConverter bulk = new TrackConverter(projection);
+
+		double[] longitudes = new double[NPOINTS];
+		double[] latitudes = new double[NPOINTS];
+
+		bulk.GridToLongitudeAndLatitude(eastings, northings, 0, 1234,
+				longitudes, latitudes);
+		bulk.GridToLongitudeAndLatitude(eastings, northings, 1234,
+				NPOINTS - 1234, longitudes, latitudes);
+
+		TrackConverter single = new TrackConverter(projection);
+
+		double[] lonlat = new double[2 * NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			lonlat[2 * i] = eastings[i];
+			lonlat[2 * i + 1] = northings[i];
+			single.GridToLongitudeAndLatitude(lonlat[2 * i],
+					lonlat[2 * i + 1], lonlat, 2 * i);
+		}
+
+		int errors = 0;
+		double worst = 0.0;
+
+		for (int i = 0; i < NPOINTS; i++) {
+			if (Double.compare(longitudes[i], lonlat[2 * i]) != 0
+					|| Double.compare(latitudes[i], lonlat[2 * i + 1]) != 0)
+				errors++;
+
+			if (Double.isNaN(expectedLat[i])) {
+				if (!Double.isNaN(latitudes[i]))
+					errors++;
+
+				continue;
+			}
+
+			double error = Math.max(Math.abs(longitudes[i] - expectedLon[i]),
+					Math.abs(latitudes[i] - expectedLat[i]));
+
+			worst = Math.max(worst, error);
+
+			if (error > 1.0e-11)
+				errors++;
+		}
+
+		long iterations = bulk.getIterations();
+
+		System.out.println(name + ": " + iterations + " iterations ("
+				+ defaultIterations + " independently), "
+				+ bulk.getRestarts() + " restarts, worst difference " + worst
+				+ " radians, " + errors + " errors");
+
+		boolean ok = errors == 0 && bulk.getConversions() == NPOINTS
+				&& bulk.getRestarts() == expectedRestarts
+				&& single.getIterations() == iterations
+				&& single.getRestarts() == expectedRestarts;
+
+		ok &= kruger ? iterations == 0 : iterations < defaultIterations;
+
+		/*
+		 * After a reset, the next point starts a new track.
+		 */
+		bulk.reset();
+		bulk.GridToLongitudeAndLatitude(eastings[0], northings[0], lonlat, 0);
+
+		ok &= bulk.getRestarts() == expectedRestarts + (kruger ? 0 : 1)
+				&& lonlat[0] == expectedLon[0] && lonlat[1] == expectedLat[0];
+
+		return ok;
+	}
+
+	static boolean testArguments() {
+		boolean ok = true;
+
+		try {
+			new TrackConverter(null);
+			ok = false;
+		} catch (IllegalArgumentException iae) {
+		}
+
+		try {
+			new TrackConverter(new OSGB(), -1.0);
+			ok = false;
+		} catch (IllegalArgumentException iae) {
+		}
+
+		try {
+			new TrackConverter(new OSGB()).GridToLongitudeAndLatitude(
+					400000.0, 300000.0, new double[2], 1);
+			ok = false;
+		} catch (IllegalArgumentException iae) {
+		}
+
+		if (!ok)
+			System.out.println("Invalid arguments were accepted");
+
+		return ok;
+	}
+}
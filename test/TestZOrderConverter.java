@@ -0,0 +1,159 @@
+/*
+ * Map projections package
+ *
+ * Test program
+ *
+ * Copyright (C) 2026 David Harper at obliquity.com
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA  02111-1307, USA.
+ *
+ * See the COPYING file located in the top-level-directory of
+ * the archive of this library for complete text of license.
+ */
+
+package test;
+
+import java.util.Random;
+
+import com.obliquity.mapping.*;
+
+/**
+ * Checks that <CODE>ZOrderConverter</CODE> gives the same results as the
+ * bulk conversion functions of the projection, for every set of formulae,
+ * with several block sizes, in place and with missing coordinates, and that
+ * it needs fewer footpoint iterations than converting the points in their
+ * original order.
+ */
+public class TestZOrderConverter {
+	static final int NPOINTS = 100003;
+
+	static final String[] NAMES = { "REDFEARN", "KRUGER", "REDFEARN_NEWTON" };
+
+	static final int[] BLOCK_SIZES = { 1, 37, 4096,
+			ZOrderConverter.DEFAULT_BLOCK_SIZE };
+
+	static public void main(String args[]) {
+		boolean ok = true;
+
+		for (int algorithm = 0; algorithm < NAMES.length; algorithm++) {
+			ok &= runTest("OSGB " + NAMES[algorithm], new OSGB(0.0001,
+					algorithm), 700000.0, 1300000.0);
+
+			ok &= runTest("OSNI " + NAMES[algorithm], new OSNI(0.0001,
+					algorithm), 500000.0, 500000.0);
+		}
+
+		if (!ok) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	static boolean runTest(String name,
+			TransverseMercatorProjection projection, double maxE, double maxN) {
+		Random rand = new Random(86420L);
+
+		double[] eastings = new double[NPOINTS];
+		double[] northings = new double[NPOINTS];
+
+		for (int i = 0; i < NPOINTS; i++) {
+			eastings[i] = maxE * rand.nextDouble();
+			northings[i] = maxN * rand.nextDouble();
+		}
+
+		eastings[17] = Double.NaN;
+		northings[18] = Double.NaN;
+		northings[19] = Double.POSITIVE_INFINITY;
+
+		int offset = 3, length = NPOINTS - offset - 1;
+
+		double[] expectedLon = new double[NPOINTS];
+		double[] expectedLat = new double[NPOINTS];
+
+		projection.GridToLongitudeAndLatitude(eastings, northings, offset,
+				length, expectedLon, expectedLat);
+
+		long defaultIterations = 0;
+
+		for (int i = offset; i < offset + length; i++)
+			defaultIterations += projection.getFootpointIterations(northings[i]);
+
+		boolean ok = true;
+
+		for (int b = 0; b < BLOCK_SIZES.length; b++) {
+			ZOrderConverter converter = new ZOrderConverter(projection,
+					BLOCK_SIZES[b]);
+
+			double[] longitudes = new double[NPOINTS];
+			double[] latitudes = new double[NPOINTS];
+
+			long iterations = converter.GridToLongitudeAndLatitude(eastings,
+					northings, offset, length, longitudes, latitudes);
+
+			double[] lonInPlace = eastings.clone();
+			double[] latInPlace = northings.clone();
+
+			converter.GridToLongitudeAndLatitude(lonInPlace, latInPlace,
+					offset, length, lonInPlace, latInPlace);
+
+			int errors = 0;
+			double worst = 0.0;
+
+			for (int i = 0; i < NPOINTS; i++) {
+				boolean inside = i >= offset && i < offset + length;
+
+				if (!inside) {
+					if (longitudes[i] != 0.0 || latitudes[i] != 0.0
+							|| lonInPlace[i] != eastings[i]
+							|| latInPlace[i] != northings[i])
+						errors++;
+
+					continue;
+				}
+
+				if (Double.isNaN(expectedLat[i])) {
+					if (!Double.isNaN(latitudes[i]))
+						errors++;
+
+					continue;
+				}
+
+				double error = Math.max(Math
+						.abs(longitudes[i] - expectedLon[i]), Math
+						.abs(latitudes[i] - expectedLat[i]));
+
+				worst = Math.max(worst, error);
+
+				if (error > 1.0e-11 || longitudes[i] != lonInPlace[i]
+						|| latitudes[i] != latInPlace[i])
+					errors++;
+			}
+
+			System.out.println(name + ", block size " + BLOCK_SIZES[b] + ": "
+					+ iterations + " iterations (" + defaultIterations
+					+ " in original order), worst difference " + worst
+					+ " radians, " + errors + " errors");
+
+			boolean fewer = projection.getAlgorithm() == TransverseMercatorProjection.KRUGER ? iterations == 0
+					: BLOCK_SIZES[b] == 1 ? iterations == defaultIterations
+							: iterations < defaultIterations;
+
+			ok &= errors == 0 && fewer;
+		}
+
+		return ok;
+	}
+}